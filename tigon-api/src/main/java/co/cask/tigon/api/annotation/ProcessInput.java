@@ -62,4 +62,13 @@ public @interface ProcessInput {
    * Defaults to {@link #DEFAULT_MAX_RETRIES}.
    */
   int maxRetries() default DEFAULT_MAX_RETRIES;
+
+  /**
+   * Optionally allows the runtime to reuse the same event object across invocations of the process method.
+   * When enabled, input events are decoded by refilling a pool of instances, one per event of a batch (collections
+   * and maps inside are cleared and refilled), instead of allocating new objects for every event. The process method
+   * must not keep any reference to the event, or anything reachable from it, after it returns. Defaults to
+   * {@code false}.
+   */
+  boolean reuse() default false;
 }
@@ -16,6 +16,8 @@
 
 package co.cask.tigon.api.metrics;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Defines a way to collect user-defined metrics.
  * To use it, just add a Metrics field in a Tigon Flowlet, and start using it.
@@ -27,5 +29,20 @@ public interface Metrics {
    * @param delta The value to increase by.
    */
   void count(String counterName, int delta);
-}
 
+  /**
+   * Records a value in the specific histogram, such as the size of a batch. Percentiles of the recorded values are
+   * reported.
+   * @param histogramName Name of the histogram. Use alphanumeric characters in metric names.
+   * @param value The value to record.
+   */
+  void histogram(String histogramName, long value);
+
+  /**
+   * Records a duration in the specific timer. Percentiles of the recorded durations are reported in microseconds.
+   * @param timerName Name of the timer. Use alphanumeric characters in metric names.
+   * @param duration The duration to record.
+   * @param unit {@link TimeUnit} of the duration.
+   */
+  void time(String timerName, long duration, TimeUnit unit);
+}
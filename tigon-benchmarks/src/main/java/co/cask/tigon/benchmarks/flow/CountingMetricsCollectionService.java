@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.benchmarks.flow;
+
+import co.cask.tigon.metrics.Counter;
+import co.cask.tigon.metrics.MetricsCollectionService;
+import co.cask.tigon.metrics.MetricsCollector;
+import co.cask.tigon.metrics.MetricsScope;
+import co.cask.tigon.metrics.Timer;
+import com.google.common.util.concurrent.AbstractIdleService;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link MetricsCollectionService} that sums the increments of one untagged counter metric across all contexts and
+ * ignores all other metrics. It lets a benchmark observe the progress of a running flowlet.
+ */
+final class CountingMetricsCollectionService extends AbstractIdleService implements MetricsCollectionService {
+
+  private static final Counter NOOP_COUNTER = new Counter() {
+    @Override
+    public void increment(long delta) {
+      // no-op
+    }
+  };
+
+  private static final Timer NOOP_TIMER = new Timer() {
+    @Override
+    public void record(long duration, TimeUnit unit) {
+      // no-op
+    }
+  };
+
+  private final String countedMetric;
+  private final AtomicLong count;
+  private final Counter counter;
+
+  CountingMetricsCollectionService(String countedMetric) {
+    this.countedMetric = countedMetric;
+    this.count = new AtomicLong();
+    this.counter = new Counter() {
+      @Override
+      public void increment(long delta) {
+        count.addAndGet(delta);
+      }
+    };
+  }
+
+  /**
+   * @return The sum of the increments of the counted metric so far.
+   */
+  long getCount() {
+    return count.get();
+  }
+
+  @Override
+  protected void startUp() throws Exception {
+    // no-op
+  }
+
+  @Override
+  protected void shutDown() throws Exception {
+    // no-op
+  }
+
+  @Override
+  public MetricsCollector getCollector(MetricsScope scope, String context, String runId) {
+    return new MetricsCollector() {
+      @Override
+      public void gauge(String metricName, int value, String... tags) {
+        counter(metricName, tags).increment(value);
+      }
+
+      @Override
+      public void histogram(String metricName, long value, String... tags) {
+        // no-op
+      }
+
+      @Override
+      public void time(String metricName, long duration, TimeUnit unit, String... tags) {
+        // no-op
+      }
+
+      @Override
+      public Counter counter(String metricName, String... tags) {
+        return tags.length == 0 && countedMetric.equals(metricName) ? counter : NOOP_COUNTER;
+      }
+
+      @Override
+      public Timer timer(String metricName, String... tags) {
+        return NOOP_TIMER;
+      }
+    };
+  }
+
+  @Override
+  public void removeCollector(MetricsScope scope, String context, String runId) {
+    // no-op
+  }
+}
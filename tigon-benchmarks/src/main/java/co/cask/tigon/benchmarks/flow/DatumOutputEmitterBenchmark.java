@@ -0,0 +1,93 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.benchmarks.flow;
+
+import co.cask.tigon.benchmarks.io.SensorEvent;
+import co.cask.tigon.data.queue.QueueEntry;
+import co.cask.tigon.data.queue.QueueProducer;
+import co.cask.tigon.internal.app.runtime.flow.DatumOutputEmitter;
+import co.cask.tigon.internal.io.ASMDatumWriterFactory;
+import co.cask.tigon.internal.io.ASMFieldAccessorFactory;
+import co.cask.tigon.internal.io.ReflectionSchemaGenerator;
+import co.cask.tigon.internal.io.Schema;
+import com.google.common.reflect.TypeToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link DatumOutputEmitter#emit}, with and without a partition key, into a {@link QueueProducer} that
+ * only keeps the last entry. This measures the per-event cost of encoding and wrapping an emitted
+ * event, without the cost of the queue.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DatumOutputEmitterBenchmark {
+
+  private final SensorEvent event = SensorEvent.create(42);
+
+  private DatumOutputEmitter<SensorEvent> emitter;
+  private QueueEntry lastEntry;
+
+  @Setup
+  public void setUp() throws Exception {
+    TypeToken<SensorEvent> type = TypeToken.of(SensorEvent.class);
+    Schema schema = new ReflectionSchemaGenerator().generate(type.getType());
+    QueueProducer producer = new QueueProducer() {
+      @Override
+      public void enqueue(QueueEntry entry) throws IOException {
+        lastEntry = entry;
+      }
+
+      @Override
+      public void enqueue(Iterable<QueueEntry> entries) throws IOException {
+        for (QueueEntry entry : entries) {
+          lastEntry = entry;
+        }
+      }
+    };
+    emitter = new DatumOutputEmitter<SensorEvent>(producer, schema,
+                                                  new ASMDatumWriterFactory(new ASMFieldAccessorFactory())
+                                                    .create(type, schema));
+  }
+
+  @Benchmark
+  public QueueEntry emit() {
+    emitter.emit(event);
+    return lastEntry;
+  }
+
+  @Benchmark
+  public QueueEntry emitPartitioned() {
+    emitter.emit(event, "sensor", 42);
+    return lastEntry;
+  }
+}
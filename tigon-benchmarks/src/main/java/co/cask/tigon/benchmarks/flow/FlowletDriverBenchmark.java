@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.benchmarks.flow;
+
+import co.cask.tephra.TransactionManager;
+import co.cask.tigon.api.annotation.Tick;
+import co.cask.tigon.api.flow.Flow;
+import co.cask.tigon.api.flow.FlowSpecification;
+import co.cask.tigon.api.flow.flowlet.AbstractFlowlet;
+import co.cask.tigon.app.guice.ProgramRunnerRuntimeModule;
+import co.cask.tigon.conf.CConfiguration;
+import co.cask.tigon.conf.Constants;
+import co.cask.tigon.data.runtime.DataFabricInMemoryModule;
+import co.cask.tigon.flow.DeployClient;
+import co.cask.tigon.guice.ConfigModule;
+import co.cask.tigon.guice.DiscoveryRuntimeModule;
+import co.cask.tigon.guice.IOModule;
+import co.cask.tigon.guice.LocationRuntimeModule;
+import co.cask.tigon.internal.app.runtime.ProgramController;
+import co.cask.tigon.metrics.MetricsCollectionService;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.twill.filesystem.Location;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Benchmarks the loop of the {@code FlowletProcessDriver} of a single flowlet running in memory. The flowlet has a
+ * {@link Tick} method without delay that does nothing, hence each iteration of the loop is the overhead the runtime
+ * adds to every process method invocation: starting the transaction, invoking the method, committing and emitting
+ * the metrics. Progress is observed through the {@code process.ticks.processed} metric.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+public class FlowletDriverBenchmark {
+
+  private static final int TICKS = 1000;
+
+  private File tmpDir;
+  private CountingMetricsCollectionService metricsCollectionService;
+  private TransactionManager txManager;
+  private ProgramController controller;
+
+  @Setup
+  public void setUp() throws Exception {
+    tmpDir = Files.createTempDir();
+    CConfiguration cConf = CConfiguration.create();
+    cConf.set(Constants.CFG_LOCAL_DATA_DIR, new File(tmpDir, "data").getAbsolutePath());
+
+    metricsCollectionService = new CountingMetricsCollectionService("process.ticks.processed");
+    Injector injector = Guice.createInjector(
+      new DataFabricInMemoryModule(),
+      new ConfigModule(cConf, new Configuration()),
+      new IOModule(),
+      new LocationRuntimeModule().getInMemoryModules(),
+      new DiscoveryRuntimeModule().getInMemoryModules(),
+      new ProgramRunnerRuntimeModule().getInMemoryModules(),
+      new AbstractModule() {
+        @Override
+        protected void configure() {
+          bind(MetricsCollectionService.class).toInstance(metricsCollectionService);
+        }
+      }
+    );
+
+    txManager = injector.getInstance(TransactionManager.class);
+    txManager.startAndWait();
+    metricsCollectionService.startAndWait();
+
+    DeployClient deployClient = injector.getInstance(DeployClient.class);
+    Location deployJar = deployClient.jarForTestBase(TickFlow.class);
+    controller = deployClient.startFlow(new File(deployJar.toURI()), TickFlow.class.getName(),
+                                        ImmutableMap.<String, String>of());
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    try {
+      controller.stop().get();
+      metricsCollectionService.stopAndWait();
+      txManager.stopAndWait();
+    } finally {
+      FileUtils.deleteDirectory(tmpDir);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(TICKS)
+  public long ticks() {
+    long target = metricsCollectionService.getCount() + TICKS;
+    long count = metricsCollectionService.getCount();
+    while (count < target) {
+      // Leave the CPU to the flowlet while waiting
+      LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(20));
+      count = metricsCollectionService.getCount();
+    }
+    return count;
+  }
+
+  /**
+   * Flow with the single {@link TickFlowlet}.
+   */
+  public static final class TickFlow implements Flow {
+
+    @Override
+    public FlowSpecification configure() {
+      return FlowSpecification.Builder.with()
+        .setName("TickFlow")
+        .setDescription("Flow with a single flowlet that ticks without delay")
+        .withFlowlets()
+        .add("ticker", new TickFlowlet(), 1)
+        .build();
+    }
+  }
+
+  /**
+   * Flowlet whose tick method does nothing.
+   */
+  public static final class TickFlowlet extends AbstractFlowlet {
+
+    @Tick(delay = 0L, unit = TimeUnit.NANOSECONDS)
+    public void tick() {
+      // no-op
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.benchmarks.io;
+
+import co.cask.tigon.internal.io.ByteBufferInputStream;
+import co.cask.tigon.io.BinaryDecoder;
+import co.cask.tigon.io.BinaryEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks encoding and decoding the primitive values of a flowlet event with {@link BinaryEncoder} and
+ * {@link BinaryDecoder}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class BinaryCodecBenchmark {
+
+  private static final String NAME = "sensor-temperature-0042";
+  private static final byte[] PAYLOAD = new byte[64];
+
+  private ByteArrayOutputStream output;
+  private BinaryEncoder encoder;
+  private ByteBuffer encoded;
+  private ByteBufferInputStream input;
+  private BinaryDecoder decoder;
+
+  @Setup
+  public void setUp() throws IOException {
+    output = new ByteArrayOutputStream(256);
+    encoder = new BinaryEncoder(output);
+    write(encoder);
+    encoded = ByteBuffer.wrap(output.toByteArray());
+    input = new ByteBufferInputStream(encoded.duplicate());
+    decoder = new BinaryDecoder(input);
+  }
+
+  @Benchmark
+  public int encode() throws IOException {
+    output.reset();
+    write(encoder);
+    return output.size();
+  }
+
+  @Benchmark
+  public void decode(Blackhole blackhole) throws IOException {
+    input.reset(encoded.duplicate());
+    blackhole.consume(decoder.readInt());
+    blackhole.consume(decoder.readLong());
+    blackhole.consume(decoder.readDouble());
+    blackhole.consume(decoder.readBool());
+    blackhole.consume(decoder.readString());
+    blackhole.consume(decoder.readBytes());
+  }
+
+  private void write(BinaryEncoder encoder) throws IOException {
+    encoder.writeInt(123456)
+      .writeLong(1412345678901L)
+      .writeDouble(21.5d)
+      .writeBool(true)
+      .writeString(NAME)
+      .writeBytes(PAYLOAD);
+  }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.benchmarks.io;
+
+import co.cask.tigon.internal.io.ASMDatumWriterFactory;
+import co.cask.tigon.internal.io.ASMFieldAccessorFactory;
+import co.cask.tigon.internal.io.ByteBufferInputStream;
+import co.cask.tigon.internal.io.DatumWriter;
+import co.cask.tigon.internal.io.ReflectionDatumReader;
+import co.cask.tigon.internal.io.ReflectionDatumWriter;
+import co.cask.tigon.internal.io.ReflectionSchemaGenerator;
+import co.cask.tigon.internal.io.Schema;
+import co.cask.tigon.io.BinaryDecoder;
+import co.cask.tigon.io.BinaryEncoder;
+import com.google.common.reflect.TypeToken;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the round trip of a flowlet event: encoding with the {@link ReflectionDatumWriter} and with the
+ * generated writer of the {@link ASMDatumWriterFactory}, and decoding with the {@link ReflectionDatumReader},
+ * either creating a new event each time or refilling the previous one, as {@code @ProcessInput(reuse = true)} does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DatumCodecBenchmark {
+
+  private final SensorEvent event = SensorEvent.create(42);
+
+  private Schema schema;
+  private DatumWriter<SensorEvent> reflectionWriter;
+  private DatumWriter<SensorEvent> asmWriter;
+  private ReflectionDatumReader<SensorEvent> reader;
+  private ByteArrayOutputStream output;
+  private BinaryEncoder encoder;
+  private ByteBuffer encoded;
+  private ByteBufferInputStream input;
+  private BinaryDecoder decoder;
+  private SensorEvent reuse;
+
+  @Setup
+  public void setUp() throws Exception {
+    TypeToken<SensorEvent> type = TypeToken.of(SensorEvent.class);
+    schema = new ReflectionSchemaGenerator().generate(type.getType());
+    reflectionWriter = new ReflectionDatumWriter<SensorEvent>(schema);
+    asmWriter = new ASMDatumWriterFactory(new ASMFieldAccessorFactory()).create(type, schema);
+    reader = new ReflectionDatumReader<SensorEvent>(schema, type);
+
+    output = new ByteArrayOutputStream(256);
+    encoder = new BinaryEncoder(output);
+    asmWriter.encode(event, encoder);
+    encoded = ByteBuffer.wrap(output.toByteArray());
+    input = new ByteBufferInputStream(encoded.duplicate());
+    decoder = new BinaryDecoder(input);
+    reuse = reader.read(decoder, schema);
+  }
+
+  @Benchmark
+  public int writeReflection() throws Exception {
+    output.reset();
+    reflectionWriter.encode(event, encoder);
+    return output.size();
+  }
+
+  @Benchmark
+  public int writeASM() throws Exception {
+    output.reset();
+    asmWriter.encode(event, encoder);
+    return output.size();
+  }
+
+  @Benchmark
+  public SensorEvent read() throws Exception {
+    input.reset(encoded.duplicate());
+    return reader.read(decoder, schema);
+  }
+
+  @Benchmark
+  public SensorEvent readReuse() throws Exception {
+    input.reset(encoded.duplicate());
+    reuse = reader.read(decoder, schema, reuse);
+    return reuse;
+  }
+
+  @Benchmark
+  public SensorEvent roundTripASM() throws Exception {
+    output.reset();
+    asmWriter.encode(event, encoder);
+    input.reset(ByteBuffer.wrap(output.toByteArray()));
+    return reader.read(decoder, schema);
+  }
+
+  @Benchmark
+  public SensorEvent roundTripReflection() throws Exception {
+    output.reset();
+    reflectionWriter.encode(event, encoder);
+    input.reset(ByteBuffer.wrap(output.toByteArray()));
+    return reader.read(decoder, schema);
+  }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.benchmarks.io;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A flowlet event with a mix of primitive, string and collection fields, used by the serialization benchmarks.
+ */
+public final class SensorEvent {
+
+  private int id;
+  private long timestamp;
+  private String sensor;
+  private double value;
+  private List<String> tags;
+  private Map<String, Long> counters;
+
+  /**
+   * Creates an event with a few tags and counters, derived from the given id.
+   */
+  public static SensorEvent create(int id) {
+    SensorEvent event = new SensorEvent();
+    event.id = id;
+    event.timestamp = 1412345678901L + id;
+    event.sensor = "sensor-" + (id % 100);
+    event.value = id * 0.5d;
+    event.tags = Lists.newArrayList("building-" + (id % 7), "floor-" + (id % 3), "temperature");
+    event.counters = Maps.newHashMap();
+    event.counters.put("readings", (long) id);
+    event.counters.put("errors", (long) (id % 5));
+    return event;
+  }
+}
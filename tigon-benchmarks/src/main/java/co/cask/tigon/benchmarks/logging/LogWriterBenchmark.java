@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.tigon.benchmarks.logging;
+
+import co.cask.tigon.conf.CConfiguration;
+import co.cask.tigon.logging.AsyncLogFileWriter;
+import co.cask.tigon.logging.LogConfiguration;
+import co.cask.tigon.logging.LogEvent;
+import co.cask.tigon.logging.LogFileWriter;
+import com.google.common.io.Files;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the time a flowlet spends logging an event to the local file system, with the {@link LogFileWriter}
+ * that formats, writes and flushes every event on the calling thread, and with the {@link AsyncLogFileWriter}
+ * that hands it to its writer thread. The contended variant logs from four threads to the same writer.
+ *
+ * The async writer blocks when its buffer is full, so the results include the time spent waiting for its
+ * writer thread once the buffer filled up.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class LogWriterBenchmark {
+
+  private static final String LOG_TAG = "benchmark:app:flow";
+  private static final LogEvent EVENT = new LogEvent(LOG_TAG, "INFO", "Processed event 1234 from queue://flow/out");
+
+  @Param({"false", "true"})
+  private boolean async;
+
+  private File tmpDir;
+  private LogFileWriter writer;
+
+  @Setup
+  public void setUp() throws IOException {
+    tmpDir = Files.createTempDir();
+    CConfiguration cConf = CConfiguration.create();
+    cConf.setBoolean(LogConfiguration.CFG_ASYNC, async);
+    LogConfiguration logConfig = new LogConfiguration(FileSystem.getLocal(new Configuration()), cConf,
+                                                      tmpDir.getAbsolutePath(), LOG_TAG);
+    writer = async ? new AsyncLogFileWriter() : new LogFileWriter();
+    writer.configure(logConfig);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    try {
+      writer.close();
+    } finally {
+      FileUtils.deleteDirectory(tmpDir);
+    }
+  }
+
+  @Benchmark
+  public void log() throws IOException {
+    writer.log(EVENT);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void logContended() throws IOException {
+    writer.log(EVENT);
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.benchmarks.metrics;
+
+import co.cask.tigon.metrics.AggregatedMetricsCollectionService;
+import co.cask.tigon.metrics.Counter;
+import co.cask.tigon.metrics.MetricsCollector;
+import co.cask.tigon.metrics.MetricsScope;
+import co.cask.tigon.metrics.MetricsSink;
+import co.cask.tigon.metrics.Timer;
+import com.google.common.collect.ImmutableList;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the cost of emitting a metric through the {@link AggregatedMetricsCollectionService}, by name and
+ * tags on every call and through the {@link Counter} and {@link Timer} handles bound once, as the flowlet hot path
+ * does. The contended variants update the same metric from four threads.
+ *
+ * The service is not started, so that the values are only aggregated and never published.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class MetricsEmissionBenchmark {
+
+  private static final String QUEUE_TAG = "input.queue://benchmark/flow/flowlet/out";
+
+  private MetricsCollector collector;
+  private Counter counter;
+  private Timer timer;
+
+  @Setup
+  public void setUp() {
+    AggregatedMetricsCollectionService service =
+      new AggregatedMetricsCollectionService(ImmutableList.<MetricsSink>of(), 1, TimeUnit.HOURS);
+    collector = service.getCollector(MetricsScope.SYSTEM, "benchmark.f.flow.flowlet", "0");
+    counter = collector.counter("process.events.processed", QUEUE_TAG);
+    timer = collector.timer("process.invoke.time");
+  }
+
+  @Benchmark
+  public void gauge() {
+    collector.gauge("process.events.processed", 1, QUEUE_TAG);
+  }
+
+  @Benchmark
+  public void counterHandle() {
+    counter.increment(1);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void gaugeContended() {
+    collector.gauge("process.events.processed", 1, QUEUE_TAG);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public void counterHandleContended() {
+    counter.increment(1);
+  }
+
+  @Benchmark
+  public void time() {
+    collector.time("process.invoke.time", 1250, TimeUnit.MICROSECONDS);
+  }
+
+  @Benchmark
+  public void timerHandle() {
+    timer.record(1250, TimeUnit.MICROSECONDS);
+  }
+
+  @Benchmark
+  public void histogram() {
+    collector.histogram("process.dequeue.batch.size", 100);
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.benchmarks.queue;
+
+import co.cask.tephra.TransactionAware;
+import co.cask.tephra.TransactionContext;
+import co.cask.tephra.TransactionManager;
+import co.cask.tephra.TransactionSystemClient;
+import co.cask.tephra.inmemory.InMemoryTxSystemClient;
+import co.cask.tephra.metrics.TxMetricsCollector;
+import co.cask.tephra.persist.NoOpTransactionStateStorage;
+import co.cask.tigon.conf.CConfiguration;
+import co.cask.tigon.conf.Constants;
+import co.cask.tigon.data.hbase.HBaseTestBase;
+import co.cask.tigon.data.hbase.HBaseTestFactory;
+import co.cask.tigon.data.queue.ConsumerConfig;
+import co.cask.tigon.data.queue.DequeueResult;
+import co.cask.tigon.data.queue.DequeueStrategy;
+import co.cask.tigon.data.queue.QueueConsumer;
+import co.cask.tigon.data.queue.QueueEntry;
+import co.cask.tigon.data.queue.QueueName;
+import co.cask.tigon.data.queue.QueueProducer;
+import co.cask.tigon.data.transaction.queue.AbstractQueueConsumer;
+import co.cask.tigon.data.transaction.queue.QueueConstants;
+import co.cask.tigon.data.transaction.queue.hbase.HBaseQueueAdmin;
+import co.cask.tigon.data.transaction.queue.hbase.HBaseQueueClientFactory;
+import co.cask.tigon.data.util.hbase.ConfigurationTable;
+import co.cask.tigon.data.util.hbase.HBaseTableUtilFactory;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.io.Closeables;
+import com.google.common.io.Files;
+import com.google.common.primitives.Ints;
+import org.apache.commons.io.FileUtils;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.twill.filesystem.LocalLocationFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the HBase queue consumers, which are {@link AbstractQueueConsumer}s, against a local HBase mini cluster.
+ * Every invocation enqueues {@link #ENTRIES} entries in one transaction and lets the consumers of one group dequeue
+ * them in turns, one transaction per dequeued batch, until the queue is empty. The reported time is per entry and
+ * includes the enqueue, the scans, the acks and the transaction commits.
+ *
+ * The mini cluster, the queue tables and the transaction manager are set up once per trial, which takes a while.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class HBaseQueueConsumerBenchmark {
+
+  private static final int ENTRIES = 1000;
+  private static final int BATCH_SIZE = 100;
+  private static final String HASH_KEY = "sensor";
+
+  @Param({"1", "4"})
+  private int consumers;
+
+  @Param({"FIFO", "HASH"})
+  private DequeueStrategy strategy;
+
+  private HBaseTestBase testHBase;
+  private File tmpDir;
+  private TransactionManager txManager;
+  private List<QueueEntry> entries;
+  private QueueProducer producer;
+  private TransactionContext producerContext;
+  private QueueConsumer[] queueConsumers;
+  private TransactionContext[] consumerContexts;
+
+  @Setup
+  public void setUp() throws Exception {
+    testHBase = new HBaseTestFactory().get();
+    testHBase.startHBase();
+    Configuration hConf = testHBase.getConfiguration();
+    tmpDir = Files.createTempDir();
+
+    CConfiguration cConf = CConfiguration.create();
+    cConf.set(Constants.Dataset.TABLE_PREFIX, "benchmark");
+    cConf.setLong(QueueConstants.QUEUE_CONFIG_UPDATE_FREQUENCY, 1L);
+    new ConfigurationTable(hConf).write(ConfigurationTable.Type.DEFAULT, cConf);
+
+    HBaseQueueAdmin queueAdmin = new HBaseQueueAdmin(hConf, cConf, new LocalLocationFactory(tmpDir),
+                                                     new HBaseTableUtilFactory().get());
+    HBaseQueueClientFactory queueClientFactory = new HBaseQueueClientFactory(hConf, queueAdmin);
+
+    txManager = new TransactionManager(hConf, new NoOpTransactionStateStorage(), new TxMetricsCollector());
+    txManager.startAndWait();
+    TransactionSystemClient txClient = new InMemoryTxSystemClient(txManager);
+
+    QueueName queueName = QueueName.fromFlowlet("benchmark", "flow", "flowlet", "out");
+    queueAdmin.configureGroups(queueName, ImmutableMap.of(0L, consumers));
+
+    entries = Lists.newArrayListWithCapacity(ENTRIES);
+    for (int i = 0; i < ENTRIES; i++) {
+      entries.add(new QueueEntry(HASH_KEY, i, Ints.toByteArray(i)));
+    }
+    producer = queueClientFactory.createProducer(queueName);
+    producerContext = new TransactionContext(txClient, (TransactionAware) producer);
+
+    queueConsumers = new QueueConsumer[consumers];
+    consumerContexts = new TransactionContext[consumers];
+    for (int i = 0; i < consumers; i++) {
+      queueConsumers[i] = queueClientFactory.createConsumer(queueName,
+                                                            new ConsumerConfig(0L, i, consumers, strategy, HASH_KEY),
+                                                            1);
+      consumerContexts[i] = new TransactionContext(txClient, (TransactionAware) queueConsumers[i]);
+    }
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    try {
+      for (QueueConsumer consumer : queueConsumers) {
+        Closeables.closeQuietly((Closeable) consumer);
+      }
+      Closeables.closeQuietly((Closeable) producer);
+      txManager.stopAndWait();
+      testHBase.stopHBase();
+    } finally {
+      FileUtils.deleteDirectory(tmpDir);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ENTRIES)
+  public int enqueueAndConsume() throws Exception {
+    producerContext.start();
+    producer.enqueue(entries);
+    producerContext.finish();
+
+    int dequeued = 0;
+    boolean empty = false;
+    while (!empty) {
+      empty = true;
+      for (int i = 0; i < consumers; i++) {
+        consumerContexts[i].start();
+        DequeueResult<byte[]> result = queueConsumers[i].dequeue(BATCH_SIZE);
+        consumerContexts[i].finish();
+        if (!result.isEmpty()) {
+          empty = false;
+          dequeued += result.size();
+        }
+      }
+    }
+    if (dequeued != ENTRIES) {
+      throw new IllegalStateException("Dequeued " + dequeued + " entries instead of " + ENTRIES);
+    }
+    return dequeued;
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.benchmarks.queue;
+
+import co.cask.tephra.Transaction;
+import co.cask.tigon.data.queue.ConsumerConfig;
+import co.cask.tigon.data.queue.DequeueStrategy;
+import co.cask.tigon.data.queue.QueueEntry;
+import co.cask.tigon.data.transaction.queue.inmemory.InMemoryQueue;
+import co.cask.tigon.utils.ImmutablePair;
+import com.google.common.primitives.Ints;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the life cycle of an entry in the {@link InMemoryQueue}: enqueue, dequeue, ack and evict, with one
+ * consumer group of 1 to 16 consumers. Every invocation enqueues {@link #ENTRIES} entries in one transaction and
+ * lets the consumers dequeue them in turns until the queue is empty, hence the reported time is per entry.
+ *
+ * The consumers run on the benchmark thread, so that the result shows the cost of the consumers skipping the
+ * entries they don't own rather than contention.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class InMemoryQueueBenchmark {
+
+  private static final int ENTRIES = 1000;
+  private static final int BATCH_SIZE = 100;
+  private static final String HASH_KEY = "sensor";
+
+  @Param({"1", "2", "4", "8", "16"})
+  private int consumers;
+
+  @Param({"FIFO", "ROUND_ROBIN", "HASH"})
+  private DequeueStrategy strategy;
+
+  private final InMemoryQueue queue = new InMemoryQueue();
+  private final QueueEntry[] entries = new QueueEntry[ENTRIES];
+  private ConsumerConfig[] configs;
+  private long writePointer;
+
+  @Setup
+  public void setUp() {
+    for (int i = 0; i < ENTRIES; i++) {
+      entries[i] = new QueueEntry(HASH_KEY, i, Ints.toByteArray(i));
+    }
+    configs = new ConsumerConfig[consumers];
+    for (int i = 0; i < consumers; i++) {
+      configs[i] = new ConsumerConfig(0L, i, consumers, strategy, HASH_KEY);
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(ENTRIES)
+  public int enqueueDequeueAckEvict() {
+    long txId = ++writePointer;
+    for (int i = 0; i < ENTRIES; i++) {
+      queue.enqueue(txId, i, entries[i]);
+    }
+
+    Transaction tx = new Transaction(txId, txId + 1, new long[0], new long[0], Long.MAX_VALUE);
+    InMemoryQueue.ConsumerState[] states = new InMemoryQueue.ConsumerState[consumers];
+    for (int i = 0; i < consumers; i++) {
+      states[i] = new InMemoryQueue.ConsumerState();
+    }
+
+    int dequeued = 0;
+    boolean empty = false;
+    while (!empty) {
+      empty = true;
+      for (int i = 0; i < consumers; i++) {
+        ImmutablePair<List<InMemoryQueue.Key>, List<byte[]>> result = queue.dequeue(tx, configs[i], states[i],
+                                                                                     BATCH_SIZE);
+        if (result == null) {
+          continue;
+        }
+        empty = false;
+        List<InMemoryQueue.Key> keys = result.getFirst();
+        queue.ack(keys, configs[i]);
+        queue.evict(keys, 1);
+        dequeued += keys.size();
+      }
+    }
+    if (dequeued != ENTRIES) {
+      throw new IllegalStateException("Dequeued " + dequeued + " entries instead of " + ENTRIES);
+    }
+    return dequeued;
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.benchmarks.sql;
+
+import co.cask.tigon.sql.io.GDATDecoder;
+import co.cask.tigon.sql.io.GDATEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks encoding a stream engine input record with the {@link GDATEncoder} and decoding an output record with
+ * the {@link GDATDecoder}. The record has the field types of a typical SQL flowlet schema.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class GDATCodecBenchmark {
+
+  private ByteArrayOutputStream output;
+  private byte[] record;
+
+  @Setup
+  public void setUp() throws IOException {
+    output = new ByteArrayOutputStream(256);
+    GDATEncoder encoder = new GDATEncoder();
+    write(encoder);
+    encoder.writeTo(output);
+    record = output.toByteArray();
+  }
+
+  @Benchmark
+  public int encode() throws IOException {
+    // An encoder keeps the strings of a record until it is discarded, hence one encoder is used per record
+    GDATEncoder encoder = new GDATEncoder();
+    write(encoder);
+    output.reset();
+    encoder.writeTo(output);
+    return output.size();
+  }
+
+  @Benchmark
+  public void decode(Blackhole blackhole) throws IOException {
+    GDATDecoder decoder = new GDATDecoder(ByteBuffer.wrap(record));
+    blackhole.consume(decoder.readLong());
+    blackhole.consume(decoder.readInt());
+    blackhole.consume(decoder.readString());
+    blackhole.consume(decoder.readDouble());
+    blackhole.consume(decoder.readBool());
+    blackhole.consume(decoder.readString());
+  }
+
+  private void write(GDATEncoder encoder) throws IOException {
+    encoder.writeLong(1412345678901L);
+    encoder.writeInt(42);
+    encoder.writeString("sensor-temperature-0042");
+    encoder.writeDouble(21.5d);
+    encoder.writeBool(true);
+    encoder.writeString("building-3");
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.benchmarks.sql;
+
+import co.cask.tigon.sql.flowlet.GDATFieldType;
+import co.cask.tigon.sql.flowlet.StreamSchema;
+import co.cask.tigon.sql.ioserver.BinaryInputServerSocket;
+import co.cask.tigon.sql.ioserver.InputServerSocket;
+import co.cask.tigon.sql.ioserver.JsonInputServerSocket;
+import co.cask.tigon.sql.util.GDATFormatUtil;
+import com.google.common.base.Charsets;
+import com.google.common.reflect.TypeToken;
+import com.google.gson.Gson;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.ChannelFactory;
+import org.jboss.netty.channel.ChannelHandler;
+import org.jboss.netty.channel.ChannelUpstreamHandler;
+import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
+import org.jboss.netty.handler.codec.embedder.DecoderEmbedder;
+import org.jboss.netty.handler.codec.frame.DelimiterBasedFrameDecoder;
+import org.jboss.netty.handler.codec.string.StringDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the conversion of the records received by the TCP ingestion endpoints of a SQL input flowlet to GDAT.
+ * Every invocation passes {@link #RECORDS} records, received as one buffer, through the handlers of the
+ * {@link JsonInputServerSocket} and of the {@link BinaryInputServerSocket}, hence the reported time is per record.
+ *
+ * {@link #gsonJson()} converts the same JSON records as the JSON input did before it was streamed: framing on '}',
+ * decoding each frame to a String, parsing it to a map with Gson and encoding the values with
+ * {@link GDATFormatUtil#encode}. It is the baseline the other results compare to.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class IngestionDecoderBenchmark {
+
+  private static final int RECORDS = 100;
+  private static final Gson GSON = new Gson();
+  private static final Type MAP_TYPE = new TypeToken<Map<String, List<String>>>() { }.getType();
+  private static final StreamSchema SCHEMA = new StreamSchema.Builder()
+    .addField("timestamp", GDATFieldType.LONG)
+    .addField("count", GDATFieldType.INT)
+    .addField("sensor", GDATFieldType.STRING)
+    .addField("value", GDATFieldType.DOUBLE)
+    .addField("valid", GDATFieldType.BOOL)
+    .addField("location", GDATFieldType.STRING)
+    .build();
+
+  private ChannelFactory factory;
+  private DecoderEmbedder<ChannelBuffer> jsonDecoder;
+  private DecoderEmbedder<ChannelBuffer> binaryDecoder;
+  private DecoderEmbedder<String> gsonFrameDecoder;
+  private RecordOutputStream gsonOutput;
+  private byte[] jsonRecords;
+  private byte[] binaryRecords;
+
+  @Setup
+  public void setUp() throws IOException {
+    // The server sockets are only used for their handlers, they are never started
+    factory = new NioServerSocketChannelFactory(Executors.newCachedThreadPool(), Executors.newCachedThreadPool());
+    jsonDecoder = createDecoder(new JsonInputServerSocket(factory, "jsonInput", SCHEMA));
+    binaryDecoder = createDecoder(new BinaryInputServerSocket(factory, "binaryInput", SCHEMA));
+    gsonFrameDecoder = new DecoderEmbedder<String>(
+      new DelimiterBasedFrameDecoder(Integer.MAX_VALUE, false, ChannelBuffers.wrappedBuffer(new byte[] {'}'})),
+      new StringDecoder());
+    gsonOutput = new RecordOutputStream();
+
+    StringBuilder json = new StringBuilder();
+    ByteArrayOutputStream binary = new ByteArrayOutputStream();
+    for (int i = 0; i < RECORDS; i++) {
+      long timestamp = 1412345678901L + i;
+      double value = 21.5d + i;
+      json.append("{\"data\" : [\"").append(timestamp).append("\", \"").append(i)
+        .append("\", \"sensor-temperature-0042\", \"").append(value).append("\", \"true\", \"building-3\"]}\n");
+      writeBinary(binary, timestamp, i, "sensor-temperature-0042", value, true, "building-3");
+    }
+    jsonRecords = json.toString().getBytes(Charsets.UTF_8);
+    binaryRecords = binary.toByteArray();
+  }
+
+  @TearDown
+  public void tearDown() {
+    factory.releaseExternalResources();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public int streamingJson() {
+    return decode(jsonDecoder, jsonRecords);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public int binary() {
+    return decode(binaryDecoder, binaryRecords);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(RECORDS)
+  public int gsonJson() throws IOException {
+    gsonFrameDecoder.offer(ChannelBuffers.wrappedBuffer(jsonRecords));
+    int size = 0;
+    String json;
+    while ((json = gsonFrameDecoder.poll()) != null) {
+      Map<String, List<String>> jsonMap = GSON.fromJson(json, MAP_TYPE);
+      gsonOutput.reset();
+      GDATFormatUtil.encode(jsonMap.get("data"), SCHEMA, gsonOutput, false);
+      size += ChannelBuffers.copiedBuffer(gsonOutput.getBuffer(), 0, gsonOutput.size()).readableBytes();
+    }
+    // The line break after the last record is left in the frame decoder, it doesn't accumulate across invocations
+    return size;
+  }
+
+  private static int decode(DecoderEmbedder<ChannelBuffer> decoder, byte[] records) {
+    decoder.offer(ChannelBuffers.wrappedBuffer(records));
+    int size = 0;
+    ChannelBuffer buffer;
+    while ((buffer = decoder.poll()) != null) {
+      size += buffer.readableBytes();
+    }
+    return size;
+  }
+
+  private static DecoderEmbedder<ChannelBuffer> createDecoder(InputServerSocket socket) {
+    Collection<ChannelHandler> handlers = socket.addTransformHandler().values();
+    return new DecoderEmbedder<ChannelBuffer>(handlers.toArray(new ChannelUpstreamHandler[handlers.size()]));
+  }
+
+  private static void writeBinary(ByteArrayOutputStream out, long timestamp, int count, String sensor, double value,
+                                  boolean valid, String location) throws IOException {
+    byte[] sensorBytes = sensor.getBytes(Charsets.UTF_8);
+    byte[] locationBytes = location.getBytes(Charsets.UTF_8);
+    DataOutputStream dataOut = new DataOutputStream(out);
+    dataOut.writeInt(8 + 4 + 4 + sensorBytes.length + 8 + 1 + 4 + locationBytes.length);
+    dataOut.writeLong(timestamp);
+    dataOut.writeInt(count);
+    dataOut.writeInt(sensorBytes.length);
+    dataOut.write(sensorBytes);
+    dataOut.writeDouble(value);
+    dataOut.writeBoolean(valid);
+    dataOut.writeInt(locationBytes.length);
+    dataOut.write(locationBytes);
+  }
+
+  /**
+   * Gives access to the written bytes without copying them, as the JSON input did.
+   */
+  private static final class RecordOutputStream extends ByteArrayOutputStream {
+
+    byte[] getBuffer() {
+      return buf;
+    }
+  }
+}
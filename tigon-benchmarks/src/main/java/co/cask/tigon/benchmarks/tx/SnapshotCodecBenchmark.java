@@ -0,0 +1,128 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.benchmarks.tx;
+
+import co.cask.tephra.ChangeId;
+import co.cask.tephra.TransactionManager;
+import co.cask.tephra.persist.TransactionSnapshot;
+import co.cask.tephra.snapshot.SnapshotCodec;
+import co.cask.tigon.data.transaction.snapshot.SnapshotCodecV2;
+import co.cask.tigon.data.transaction.snapshot.SnapshotCodecV3;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Longs;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link SnapshotCodecV2} and {@link SnapshotCodecV3} on transaction snapshots with a large invalid list.
+ * {@link #decodeVisibility} reads what the coprocessors need from a snapshot, {@link #decodeAll} also reads the
+ * change sets, as the transaction manager does on restart.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SnapshotCodecBenchmark {
+
+  @Param({"10000", "100000"})
+  private int invalidSize;
+
+  @Param({"V2", "V3"})
+  private String version;
+
+  private SnapshotCodec codec;
+  private TransactionSnapshot snapshot;
+  private byte[] encoded;
+
+  @Setup
+  public void setUp() {
+    codec = "V2".equals(version) ? new SnapshotCodecV2() : new SnapshotCodecV3();
+    snapshot = createSnapshot(invalidSize);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    codec.encode(output, snapshot);
+    encoded = output.toByteArray();
+  }
+
+  @Benchmark
+  public int encode() {
+    ByteArrayOutputStream output = new ByteArrayOutputStream(encoded.length);
+    codec.encode(output, snapshot);
+    return output.size();
+  }
+
+  @Benchmark
+  public void decodeVisibility(Blackhole blackhole) {
+    TransactionSnapshot decoded = codec.decode(new ByteArrayInputStream(encoded));
+    blackhole.consume(decoded.getInvalid().size());
+    blackhole.consume(decoded.getInProgress().size());
+  }
+
+  @Benchmark
+  public void decodeAll(Blackhole blackhole) {
+    TransactionSnapshot decoded = codec.decode(new ByteArrayInputStream(encoded));
+    blackhole.consume(decoded.getInvalid().size());
+    blackhole.consume(decoded.getInProgress().size());
+    blackhole.consume(decoded.getCommittingChangeSets().size());
+    blackhole.consume(decoded.getCommittedChangeSets().size());
+  }
+
+  /**
+   * Creates a snapshot with the given number of invalid transactions, some in progress transactions and a
+   * thousand committed change sets.
+   */
+  private static TransactionSnapshot createSnapshot(int invalidSize) {
+    long writePointer = 1000000000L;
+    List<Long> invalid = Lists.newArrayListWithCapacity(invalidSize);
+    for (int i = 0; i < invalidSize; i++) {
+      invalid.add(writePointer - 3L * (invalidSize - i) - 10000);
+    }
+    NavigableMap<Long, TransactionManager.InProgressTx> inProgress = Maps.newTreeMap();
+    for (long txId = writePointer - 500; txId < writePointer; txId += 5) {
+      inProgress.put(txId, new TransactionManager.InProgressTx(txId - 1, System.currentTimeMillis()));
+    }
+    NavigableMap<Long, Set<ChangeId>> committing = Maps.newTreeMap();
+    committing.put(writePointer - 2, ImmutableSet.of(new ChangeId(Longs.toByteArray(writePointer - 2))));
+    NavigableMap<Long, Set<ChangeId>> committed = Maps.newTreeMap();
+    for (long txId = writePointer - 4000; txId < writePointer; txId += 4) {
+      committed.put(txId, ImmutableSet.of(new ChangeId(Longs.toByteArray(txId)),
+                                          new ChangeId(("row" + txId).getBytes())));
+    }
+    return new TransactionSnapshot(System.currentTimeMillis(), writePointer - 600, writePointer, invalid, inProgress,
+                                   committing, committed);
+  }
+}
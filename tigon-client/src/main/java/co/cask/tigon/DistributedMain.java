@@ -16,6 +16,7 @@
 
 package co.cask.tigon;
 
+import co.cask.tigon.app.guice.MetricsClientRuntimeModule;
 import co.cask.tigon.app.guice.ProgramRunnerRuntimeModule;
 import co.cask.tigon.cli.DistributedFlowOperations;
 import co.cask.tigon.cli.FlowOperations;
@@ -30,14 +31,12 @@ import co.cask.tigon.guice.LocationRuntimeModule;
 import co.cask.tigon.guice.TwillModule;
 import co.cask.tigon.guice.ZKClientModule;
 import co.cask.tigon.metrics.MetricsCollectionService;
-import co.cask.tigon.metrics.NoOpMetricsCollectionService;
 import com.google.common.collect.ImmutableList;
 import com.google.common.io.Files;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Module;
-import com.google.inject.Scopes;
 import jline.TerminalFactory;
 import org.apache.commons.io.FileUtils;
 import org.apache.hadoop.conf.Configuration;
@@ -59,6 +58,7 @@ public class DistributedMain {
   private final File localDataDir;
   private final FlowOperations flowOperations;
   private final TigonCLI tigonCLI;
+  private final MetricsCollectionService metricsCollectionService;
 
   public DistributedMain(String zkQuorumString, String rootNamespace) throws IOException {
     localDataDir = Files.createTempDir();
@@ -73,6 +73,8 @@ public class DistributedMain {
     Injector injector = Guice.createInjector(createModules(cConf, hConf));
     flowOperations = injector.getInstance(FlowOperations.class);
     tigonCLI = injector.getInstance(TigonCLI.class);
+    // Collects the metrics of the flowlet autoscalers run by this process
+    metricsCollectionService = injector.getInstance(MetricsCollectionService.class);
   }
 
   private static void usage(boolean error) {
@@ -142,6 +144,7 @@ public class DistributedMain {
 
   public void startUp(PrintStream out) throws Exception {
     registerShutDownHook();
+    metricsCollectionService.startAndWait();
     flowOperations.startAndWait();
     tigonCLI.start(out);
   }
@@ -149,6 +152,7 @@ public class DistributedMain {
   public void shutDown() {
     try {
       flowOperations.stopAndWait();
+      metricsCollectionService.stopAndWait();
       FileUtils.deleteDirectory(localDataDir);
     } catch (Exception e) {
       LOG.warn(e.getMessage(), e);
@@ -165,7 +169,7 @@ public class DistributedMain {
       new LocationRuntimeModule().getDistributedModules(),
       new DiscoveryRuntimeModule().getDistributedModules(),
       new ProgramRunnerRuntimeModule().getDistributedModules(),
-      new MetricsClientModule(),
+      new MetricsClientRuntimeModule().getDistributedModules(),
       new AbstractModule() {
         @Override
         protected void configure() {
@@ -174,11 +178,4 @@ public class DistributedMain {
       }
     );
   }
-
-  private static final class MetricsClientModule extends AbstractModule {
-    @Override
-    protected void configure() {
-      bind(MetricsCollectionService.class).to(NoOpMetricsCollectionService.class).in(Scopes.SINGLETON);
-    }
-  }
 }
@@ -17,6 +17,7 @@
 package co.cask.tigon;
 
 import co.cask.tephra.TransactionManager;
+import co.cask.tigon.app.guice.MetricsClientRuntimeModule;
 import co.cask.tigon.app.guice.ProgramRunnerRuntimeModule;
 import co.cask.tigon.conf.CConfiguration;
 import co.cask.tigon.conf.Constants;
@@ -28,15 +29,12 @@ import co.cask.tigon.guice.IOModule;
 import co.cask.tigon.guice.LocationRuntimeModule;
 import co.cask.tigon.internal.app.runtime.ProgramController;
 import co.cask.tigon.metrics.MetricsCollectionService;
-import co.cask.tigon.metrics.NoOpMetricsCollectionService;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.io.Files;
-import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Module;
-import com.google.inject.Scopes;
 import org.apache.commons.io.FileUtils;
 import org.apache.hadoop.conf.Configuration;
 import org.slf4j.Logger;
@@ -56,7 +54,6 @@ public class StandaloneMain {
   private static final Logger LOG = LoggerFactory.getLogger(StandaloneMain.class);
 
   private final CountDownLatch runLatch;
-  private final File jarUnpackDir;
   private final File localDataDir;
   private final MetricsCollectionService metricsCollectionService;
   private final TransactionManager txService;
@@ -65,7 +62,6 @@ public class StandaloneMain {
 
   public StandaloneMain() {
     runLatch = new CountDownLatch(1);
-    jarUnpackDir = Files.createTempDir();
     localDataDir = Files.createTempDir();
     CConfiguration cConf = CConfiguration.create();
     cConf.set(Constants.CFG_LOCAL_DATA_DIR, localDataDir.getAbsolutePath());
@@ -128,7 +124,7 @@ public class StandaloneMain {
     txService.startAndWait();
     metricsCollectionService.startAndWait();
     addShutDownHook();
-    controller = deployClient.startFlow(jarPath, mainClassName, jarUnpackDir, runtimeArgs);
+    controller = deployClient.startFlow(jarPath, mainClassName, runtimeArgs);
     runLatch.await();
   }
 
@@ -153,7 +149,6 @@ public class StandaloneMain {
       metricsCollectionService.stopAndWait();
       txService.stopAndWait();
       FileUtils.deleteDirectory(localDataDir);
-      FileUtils.deleteDirectory(jarUnpackDir);
       runLatch.countDown();
     } catch (Exception e) {
       LOG.warn(e.getMessage(), e);
@@ -168,14 +163,7 @@ public class StandaloneMain {
       new LocationRuntimeModule().getInMemoryModules(),
       new DiscoveryRuntimeModule().getInMemoryModules(),
       new ProgramRunnerRuntimeModule().getInMemoryModules(),
-      new MetricsClientModule()
+      new MetricsClientRuntimeModule().getSingleNodeModules()
     );
   }
-
-  private static final class MetricsClientModule extends AbstractModule {
-    @Override
-    protected void configure() {
-      bind(MetricsCollectionService.class).to(NoOpMetricsCollectionService.class).in(Scopes.SINGLETON);
-    }
-  }
 }
@@ -31,10 +31,8 @@ import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.common.io.ByteStreams;
-import com.google.common.io.Files;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.inject.Inject;
-import org.apache.commons.io.FileUtils;
 import org.apache.twill.api.ResourceReport;
 import org.apache.twill.api.TwillController;
 import org.apache.twill.api.TwillRunResources;
@@ -66,7 +64,6 @@ public class DistributedFlowOperations extends AbstractIdleService implements Fl
   private final Location location;
   private final TwillRunnerService runnerService;
   private final DeployClient deployClient;
-  private final File jarUnpackDir;
   private final QueueAdmin queueAdmin;
 
   @Inject
@@ -76,7 +73,6 @@ public class DistributedFlowOperations extends AbstractIdleService implements Fl
     location.mkdirs();
     this.runnerService = runnerService;
     this.deployClient = deployClient;
-    this.jarUnpackDir = Files.createTempDir();
     this.queueAdmin = queueAdmin;
   }
 
@@ -88,7 +84,7 @@ public class DistributedFlowOperations extends AbstractIdleService implements Fl
   @Override
   public void startFlow(File jarPath, String className, Map<String, String> userArgs, boolean debug) {
     try {
-      Program program = deployClient.createProgram(jarPath, className, jarUnpackDir);
+      Program program = deployClient.createProgram(jarPath, className);
       String flowName = program.getSpecification().getName();
       if (listAllFlows().contains(flowName)) {
         throw new Exception("Flow with the same name is running! Stop or Delete the Flow before starting again");
@@ -286,6 +282,5 @@ public class DistributedFlowOperations extends AbstractIdleService implements Fl
   @Override
   protected void shutDown() throws Exception {
     runnerService.stopAndWait();
-    FileUtils.deleteDirectory(jarUnpackDir);
   }
 }
@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.cli.commands;
+
+import co.cask.common.cli.Arguments;
+import co.cask.common.cli.Command;
+import co.cask.tigon.cli.FlowOperations;
+import co.cask.tigon.conf.Constants;
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.inject.Inject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.List;
+
+/**
+ * Command to show the metrics of a Flow, including the percentiles of timers and histograms, as served by the
+ * metrics endpoint of each Flowlet instance. The endpoints are only announced if the http metrics sink is enabled
+ * and bound to an address reachable from other hosts.
+ */
+public class MetricsCommand implements Command {
+  private final FlowOperations operations;
+
+  @Inject
+  public MetricsCommand(FlowOperations operations) {
+    this.operations = operations;
+  }
+
+  @Override
+  public void execute(Arguments arguments, PrintStream printStream) throws Exception {
+    String flowName = arguments.get("flow-name");
+    List<InetSocketAddress> endpoints = operations.discover(flowName, Constants.Metrics.SERVICE_NAME);
+    if (endpoints.isEmpty()) {
+      printStream.println(String.format("No metrics endpoint found. Add http to %s and set %s to a reachable " +
+                                          "address to enable it.", Constants.Metrics.SINKS,
+                                        Constants.Metrics.HTTP_BIND_ADDRESS));
+      return;
+    }
+    for (InetSocketAddress socketAddress : endpoints) {
+      URL url = new URL(String.format("http://%s:%d/metrics", socketAddress.getHostName(), socketAddress.getPort()));
+      try {
+        InputStream is = url.openStream();
+        try {
+          printStream.print(new String(ByteStreams.toByteArray(is), Charsets.UTF_8));
+        } finally {
+          is.close();
+        }
+      } catch (IOException e) {
+        printStream.println(String.format("Failed to fetch metrics from %s: %s", url, e.getMessage()));
+      }
+    }
+  }
+
+  @Override
+  public String getPattern() {
+    return "metrics <flow-name>";
+  }
+
+  @Override
+  public String getDescription() {
+    return "Shows the metrics of the Flow, with the percentiles of the timers. Requires the http metrics sink";
+  }
+}
@@ -69,6 +69,7 @@ public class StartCommand implements Command {
 
   @Override
   public String getDescription() {
-    return "Starts a Flow with optional Runtime Args. Runtime Args are specified as : '--key1=v1, --key2=v2' ";
+    return "Starts a Flow with optional Runtime Args. Runtime Args are specified as : '--key1=v1, --key2=v2'. " +
+      "With '--flow.autoscale.enabled=true', the Flowlets are autoscaled only until this shell exits.";
   }
 }
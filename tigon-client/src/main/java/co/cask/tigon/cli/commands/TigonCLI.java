@@ -56,6 +56,7 @@ public class TigonCLI {
       injector.getInstance(DiscoverCommand.class),
       injector.getInstance(FlowletInfoCommand.class),
       injector.getInstance(ListCommand.class),
+      injector.getInstance(MetricsCommand.class),
       injector.getInstance(QuitCommand.class),
       injector.getInstance(ServiceInfoCommand.class),
       injector.getInstance(SetCommand.class),
@@ -68,6 +68,62 @@ public final class Constants {
     public static final String TABLE_PREFIX = "dataset.table.prefix";
   }
 
+  /**
+   * Flowlet autoscaling.
+   */
+  public static final class AutoScale {
+    public static final String ENABLED = "flow.autoscale.enabled";
+    public static final String INTERVAL_SECONDS = "flow.autoscale.interval.seconds";
+    public static final String TARGET_PENDING = "flow.autoscale.target.pending";
+    public static final String SCALE_DOWN_RATIO = "flow.autoscale.scale.down.ratio";
+    public static final String SCALE_DOWN_SAMPLES = "flow.autoscale.scale.down.samples";
+    public static final String SCALE_UP_COOLDOWN_SECONDS = "flow.autoscale.scale.up.cooldown.seconds";
+    public static final String SCALE_DOWN_COOLDOWN_SECONDS = "flow.autoscale.scale.down.cooldown.seconds";
+
+    public static final boolean DEFAULT_ENABLED = false;
+    public static final long DEFAULT_INTERVAL_SECONDS = 30;
+    public static final long DEFAULT_TARGET_PENDING = 10000;
+    public static final float DEFAULT_SCALE_DOWN_RATIO = 0.3f;
+    public static final int DEFAULT_SCALE_DOWN_SAMPLES = 3;
+    public static final long DEFAULT_SCALE_UP_COOLDOWN_SECONDS = 120;
+    public static final long DEFAULT_SCALE_DOWN_COOLDOWN_SECONDS = 600;
+  }
+
+  /**
+   * Cache of unpacked program jars.
+   */
+  public static final class JarCache {
+    public static final String DIR = "jar.unpack.cache.dir";
+    public static final String MAX_ENTRIES = "jar.unpack.cache.max.entries";
+    public static final String GRACE_PERIOD_SECONDS = "jar.unpack.cache.grace.period.seconds";
+
+    public static final int DEFAULT_MAX_ENTRIES = 10;
+    public static final long DEFAULT_GRACE_PERIOD_SECONDS = 3600;
+  }
+
+  /**
+   * Metrics.
+   */
+  public static final class Metrics {
+    public static final String FLUSH_INTERVAL_SECONDS = "metrics.flush.interval.seconds";
+    public static final String SINKS = "metrics.sinks";
+    public static final String FILE_DIR = "metrics.file.dir";
+    public static final String FILE_MAX_BYTES = "metrics.file.max.bytes";
+    public static final String FILE_MAX_FILES = "metrics.file.max.files";
+    public static final String HTTP_BIND_ADDRESS = "metrics.http.bind.address";
+    public static final String HTTP_BIND_PORT = "metrics.http.bind.port";
+
+    /**
+     * Name the http metrics endpoint of a program container is announced with.
+     */
+    public static final String SERVICE_NAME = "metrics";
+
+    public static final long DEFAULT_FLUSH_INTERVAL_SECONDS = 10;
+    public static final long DEFAULT_FILE_MAX_BYTES = 10 * 1024 * 1024;
+    public static final int DEFAULT_FILE_MAX_FILES = 5;
+    public static final String DEFAULT_HTTP_BIND_ADDRESS = "localhost";
+  }
+
   public static final String CFG_LOCAL_DATA_DIR = "local.data.dir";
   public static final String CFG_YARN_USER = "yarn.user";
   public static final String CFG_HDFS_USER = "hdfs.user";
@@ -92,4 +148,10 @@ public final class Constants {
 
 
   public static final String DELTA_WRITE = "d";
+
+  /**
+   * Maximum number of summed counter values cached per region by the increment coprocessor, 0 to disable.
+   */
+  public static final String CFG_INCREMENT_READ_CACHE_SIZE = "data.increment.read.cache.size";
+  public static final int DEFAULT_INCREMENT_READ_CACHE_SIZE = 10000;
 }
@@ -34,10 +34,18 @@ import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Map;
 import java.util.UUID;
+import javax.annotation.Nullable;
 
 /**
  * Reflection based Datnum Reader.
  *
+ * <p>
+ * Besides creating a new object for every datum, the reader can refill an existing instance through
+ * {@link #read(Decoder, Schema, Object)}. In that mode, records are reused as is, collections and maps are
+ * cleared and refilled, while arrays and immutable values are always created.
+ * Target fields that are absent from the source schema keep whatever value the reused instance carries.
+ * </p>
+ *
  * @param <T> type T reader
  */
 public final class ReflectionDatumReader<T> implements DatumReader<T> {
@@ -60,28 +68,42 @@ public final class ReflectionDatumReader<T> implements DatumReader<T> {
   @SuppressWarnings("unchecked")
   @Override
   public T read(Decoder decoder, Schema sourceSchema) throws IOException {
-    return (T) read(decoder, sourceSchema, schema, type);
+    return (T) read(decoder, sourceSchema, schema, type, null);
+  }
+
+  /**
+   * Decodes a datum, refilling the given instance instead of creating a new one whenever possible.
+   *
+   * @param decoder the {@link Decoder} to read from
+   * @param sourceSchema schema of the encoded datum
+   * @param reuse instance returned by a previous call, or {@code null} to create a new one
+   * @return the decoded datum, which is the same instance as {@code reuse} if it can be refilled
+   * @throws IOException if failed to decode
+   */
+  @SuppressWarnings("unchecked")
+  public T read(Decoder decoder, Schema sourceSchema, @Nullable T reuse) throws IOException {
+    return (T) read(decoder, sourceSchema, schema, type, reuse);
   }
 
   private Object read(Decoder decoder, Schema sourceSchema,
-                      Schema targetSchema, TypeToken<?> targetTypeToken) throws IOException {
+                      Schema targetSchema, TypeToken<?> targetTypeToken, Object reuse) throws IOException {
 
     if (sourceSchema.getType() != Schema.Type.UNION && targetSchema.getType() == Schema.Type.UNION) {
       // Try every target schemas
       for (Schema schema : targetSchema.getUnionSchemas()) {
         try {
-          return doRead(decoder, sourceSchema, schema, targetTypeToken);
+          return doRead(decoder, sourceSchema, schema, targetTypeToken, reuse);
         } catch (IOException e) {
           // Continue;
         }
       }
       throw new IOException(String.format("No matching schema to resolve %s to %s", sourceSchema, targetSchema));
     }
-    return doRead(decoder, sourceSchema, targetSchema, targetTypeToken);
+    return doRead(decoder, sourceSchema, targetSchema, targetTypeToken, reuse);
   }
 
   private Object doRead(Decoder decoder, Schema sourceSchema,
-                        Schema targetSchema, TypeToken<?> targetTypeToken) throws IOException {
+                        Schema targetSchema, TypeToken<?> targetTypeToken, Object reuse) throws IOException {
 
     Schema.Type sourceType = sourceSchema.getType();
     Schema.Type targetType = targetSchema.getType();
@@ -103,15 +125,15 @@ public final class ReflectionDatumReader<T> implements DatumReader<T> {
         }
       case ARRAY:
         check(sourceType == targetType, "Fails to resolve %s to %s", sourceType, targetType);
-        return readArray(decoder, sourceSchema, targetSchema, targetTypeToken);
+        return readArray(decoder, sourceSchema, targetSchema, targetTypeToken, reuse);
       case MAP:
         check(sourceType == targetType, "Fails to resolve %s to %s", sourceType, targetType);
-        return readMap(decoder, sourceSchema, targetSchema, targetTypeToken);
+        return readMap(decoder, sourceSchema, targetSchema, targetTypeToken, reuse);
       case RECORD:
         check(sourceType == targetType, "Fails to resolve %s to %s", sourceType, targetType);
-        return readRecord(decoder, sourceSchema, targetSchema, targetTypeToken);
+        return readRecord(decoder, sourceSchema, targetSchema, targetTypeToken, reuse);
       case UNION:
-        return readUnion(decoder, sourceSchema, targetSchema, targetTypeToken);
+        return readUnion(decoder, sourceSchema, targetSchema, targetTypeToken, reuse);
     }
     // For simple type other than NULL and BYTES
     if (sourceType.isSimpleType()) {
@@ -145,7 +167,7 @@ public final class ReflectionDatumReader<T> implements DatumReader<T> {
 
   @SuppressWarnings("unchecked")
   private Object readArray(Decoder decoder, Schema sourceSchema,
-                           Schema targetSchema, TypeToken<?> targetTypeToken) throws IOException {
+                           Schema targetSchema, TypeToken<?> targetTypeToken, Object reuse) throws IOException {
 
     TypeToken<?> componentType = null;
     if (targetTypeToken.isArray()) {
@@ -158,11 +180,14 @@ public final class ReflectionDatumReader<T> implements DatumReader<T> {
     check(componentType != null, "Only array or collection type is support for array value.");
 
     int len = decoder.readInt();
-    Collection<Object> collection = (Collection<Object>) create(targetTypeToken);
+    // Java array is always decoded into a new collection, since its size is only known after decoding
+    Object reusable = targetTypeToken.isArray() ? null : reuse;
+    Collection<Object> collection = (Collection<Object>) reuseOrCreate(targetTypeToken, reusable);
+    collection.clear();
     while (len != 0) {
       for (int i = 0; i < len; i++) {
         collection.add(read(decoder, sourceSchema.getComponentSchema(),
-                            targetSchema.getComponentSchema(), componentType)
+                            targetSchema.getComponentSchema(), componentType, null)
         );
       }
       len = decoder.readInt();
@@ -181,21 +206,23 @@ public final class ReflectionDatumReader<T> implements DatumReader<T> {
 
   @SuppressWarnings("unchecked")
   private Map<Object, Object> readMap(Decoder decoder, Schema sourceSchema,
-                                      Schema targetSchema, TypeToken<?> targetTypeToken) throws IOException {
+                                      Schema targetSchema, TypeToken<?> targetTypeToken,
+                                      Object reuse) throws IOException {
     check(Map.class.isAssignableFrom(targetTypeToken.getRawType()), "Only map type is supported for map data.");
     Type type = targetTypeToken.getType();
     Preconditions.checkArgument(type instanceof ParameterizedType, "Only parameterized map is supported.");
     Type[] typeArgs = ((ParameterizedType) type).getActualTypeArguments();
 
     int len = decoder.readInt();
-    Map<Object, Object> map = (Map<Object, Object>) create(targetTypeToken);
+    Map<Object, Object> map = (Map<Object, Object>) reuseOrCreate(targetTypeToken, reuse);
+    map.clear();
     while (len != 0) {
       for (int i = 0; i < len; i++) {
         Map.Entry<Schema, Schema> sourceEntry = sourceSchema.getMapSchema();
         Map.Entry<Schema, Schema> targetEntry = targetSchema.getMapSchema();
 
-        map.put(read(decoder, sourceEntry.getKey(), targetEntry.getKey(), TypeToken.of(typeArgs[0])),
-                read(decoder, sourceEntry.getValue(), targetEntry.getValue(), TypeToken.of(typeArgs[1])));
+        map.put(read(decoder, sourceEntry.getKey(), targetEntry.getKey(), TypeToken.of(typeArgs[0]), null),
+                read(decoder, sourceEntry.getValue(), targetEntry.getValue(), TypeToken.of(typeArgs[1]), null));
       }
       len = decoder.readInt();
     }
@@ -204,9 +231,10 @@ public final class ReflectionDatumReader<T> implements DatumReader<T> {
   }
 
   private Object readRecord(Decoder decoder, Schema sourceSchema,
-                            Schema targetSchema, TypeToken<?> targetTypeToken) throws IOException {
+                            Schema targetSchema, TypeToken<?> targetTypeToken, Object reuse) throws IOException {
     try {
-      Object record = create(targetTypeToken);
+      Object record = reuseOrCreate(targetTypeToken, reuse);
+      boolean reused = record == reuse;
       for (Schema.Field sourceField : sourceSchema.getFields()) {
         Schema.Field targetField = targetSchema.getField(sourceField.getName());
         if (targetField == null) {
@@ -214,8 +242,10 @@ public final class ReflectionDatumReader<T> implements DatumReader<T> {
           continue;
         }
         FieldAccessor fieldAccessor = fieldAccessorFactory.getFieldAccessor(targetTypeToken, sourceField.getName());
-        fieldAccessor.set(record,
-                          read(decoder, sourceField.getSchema(), targetField.getSchema(), fieldAccessor.getType()));
+        // Only container values are worth refilling. Getting other values would just box them.
+        Object fieldReuse = reused && isContainer(targetField.getSchema()) ? fieldAccessor.get(record) : null;
+        fieldAccessor.set(record, read(decoder, sourceField.getSchema(), targetField.getSchema(),
+                                       fieldAccessor.getType(), fieldReuse));
       }
       return record;
     } catch (Exception e) {
@@ -224,7 +254,7 @@ public final class ReflectionDatumReader<T> implements DatumReader<T> {
   }
 
   private Object readUnion(Decoder decoder, Schema sourceSchema,
-                           Schema targetSchema, TypeToken<?> targetTypeToken) throws IOException {
+                           Schema targetSchema, TypeToken<?> targetTypeToken, Object reuse) throws IOException {
     int idx = decoder.readInt();
     Schema sourceValueSchema = sourceSchema.getUnionSchemas().get(idx);
 
@@ -234,21 +264,21 @@ public final class ReflectionDatumReader<T> implements DatumReader<T> {
         // A simple optimization to try resolve before resorting to linearly try the union schema.
         Schema targetValueSchema = targetSchema.getUnionSchema(idx);
         if (targetValueSchema != null && targetValueSchema.getType() == sourceValueSchema.getType()) {
-          return read(decoder, sourceValueSchema, targetValueSchema, targetTypeToken);
+          return read(decoder, sourceValueSchema, targetValueSchema, targetTypeToken, reuse);
         }
       } catch (IOException e) {
         // OK to ignore it, as we'll do union schema resolution
       }
       for (Schema targetValueSchema : targetSchema.getUnionSchemas()) {
         try {
-          return read(decoder, sourceValueSchema, targetValueSchema, targetTypeToken);
+          return read(decoder, sourceValueSchema, targetValueSchema, targetTypeToken, reuse);
         } catch (IOException e) {
           // It's ok to have exception here, as we'll keep trying until exhausted the target union.
         }
       }
       throw new IOException(String.format("Fail to resolve %s to %s", sourceSchema, targetSchema));
     } else {
-      return read(decoder, sourceValueSchema, targetSchema, targetTypeToken);
+      return read(decoder, sourceValueSchema, targetSchema, targetTypeToken, reuse);
     }
   }
 
@@ -415,6 +445,34 @@ public final class ReflectionDatumReader<T> implements DatumReader<T> {
     throw new IOException(t);
   }
 
+  /**
+   * Returns {@code true} if the value of the given schema is a mutable container that can be refilled.
+   */
+  private boolean isContainer(Schema schema) {
+    switch (schema.getType()) {
+      case ARRAY:
+      case MAP:
+      case RECORD:
+        return true;
+      case UNION:
+        for (Schema unionSchema : schema.getUnionSchemas()) {
+          if (isContainer(unionSchema)) {
+            return true;
+          }
+        }
+        return false;
+      default:
+        return false;
+    }
+  }
+
+  private Object reuseOrCreate(TypeToken<?> type, Object reuse) {
+    if (reuse != null && type.getRawType().isInstance(reuse)) {
+      return reuse;
+    }
+    return create(type);
+  }
+
   private Object create(TypeToken<?> type) {
     Class<?> rawType = type.getRawType();
     Instantiator<?> creator = creators.get(rawType);
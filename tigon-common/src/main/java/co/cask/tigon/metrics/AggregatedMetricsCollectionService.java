@@ -0,0 +1,269 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.metrics;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Queues;
+import com.google.common.util.concurrent.AbstractScheduledService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MetricsCollectionService} that aggregates the emitted metrics in memory and periodically publishes the
+ * values aggregated over each interval to a list of {@link MetricsSink}s.
+ *
+ * Emitting a metric is a lookup of the counter or {@link Histogram} of the metric and a lock-free update of it.
+ * Counters and histograms are created on first use and kept until the collector of their context is removed, which
+ * happens when the program emitting them stops.
+ */
+public final class AggregatedMetricsCollectionService extends AbstractScheduledService
+  implements MetricsCollectionService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AggregatedMetricsCollectionService.class);
+  private static final Joiner TAG_JOINER = Joiner.on('\u0000');
+
+  private final List<MetricsSink> sinks;
+  private final long flushInterval;
+  private final TimeUnit flushIntervalUnit;
+  private final ConcurrentMap<String, AggregatingCollector> collectors;
+  // removed collectors whose last values are not published yet
+  private final Queue<AggregatingCollector> removedCollectors;
+
+  /**
+   * Creates the service.
+   * @param sinks Sinks the aggregated metrics are published to.
+   * @param flushInterval Interval between two publications.
+   * @param unit {@link TimeUnit} of the flush interval.
+   */
+  public AggregatedMetricsCollectionService(Iterable<? extends MetricsSink> sinks, long flushInterval, TimeUnit unit) {
+    Preconditions.checkArgument(flushInterval > 0, "Flush interval must be positive");
+    this.sinks = ImmutableList.copyOf(sinks);
+    this.flushInterval = flushInterval;
+    this.flushIntervalUnit = unit;
+    this.collectors = Maps.newConcurrentMap();
+    this.removedCollectors = Queues.newConcurrentLinkedQueue();
+  }
+
+  @Override
+  public MetricsCollector getCollector(MetricsScope scope, String context, String runId) {
+    String key = getKey(scope, context, runId);
+    AggregatingCollector collector = collectors.get(key);
+    if (collector == null) {
+      collector = new AggregatingCollector(scope, context, runId);
+      AggregatingCollector existing = collectors.putIfAbsent(key, collector);
+      if (existing != null) {
+        collector = existing;
+      }
+    }
+    return collector;
+  }
+
+  @Override
+  public void removeCollector(MetricsScope scope, String context, String runId) {
+    AggregatingCollector collector = collectors.remove(getKey(scope, context, runId));
+    if (collector != null) {
+      removedCollectors.add(collector);
+    }
+  }
+
+  /**
+   * @return The sinks the metrics are published to.
+   */
+  public List<MetricsSink> getSinks() {
+    return sinks;
+  }
+
+  @Override
+  protected void runOneIteration() throws Exception {
+    flush();
+  }
+
+  @Override
+  protected void shutDown() throws Exception {
+    flush();
+    for (MetricsSink sink : sinks) {
+      try {
+        sink.close();
+      } catch (IOException e) {
+        LOG.warn("Failed to close metrics sink {}", sink, e);
+      }
+    }
+  }
+
+  @Override
+  protected Scheduler scheduler() {
+    return Scheduler.newFixedRateSchedule(flushInterval, flushInterval, flushIntervalUnit);
+  }
+
+  /**
+   * Publishes the metrics aggregated since the last flush to all the sinks.
+   */
+  void flush() {
+    long timestamp = System.currentTimeMillis();
+    List<MetricValue> values = Lists.newArrayList();
+    for (AggregatingCollector collector : collectors.values()) {
+      collector.collect(timestamp, values);
+    }
+    AggregatingCollector removed = removedCollectors.poll();
+    while (removed != null) {
+      removed.collect(timestamp, values);
+      removed = removedCollectors.poll();
+    }
+    if (values.isEmpty()) {
+      return;
+    }
+    for (MetricsSink sink : sinks) {
+      try {
+        sink.publish(values);
+      } catch (Throwable t) {
+        // A failing sink must not stop the other sinks, nor the scheduled flushes
+        LOG.warn("Failed to publish metrics to {}", sink, t);
+      }
+    }
+  }
+
+  private static String getKey(MetricsScope scope, String context, String runId) {
+    return scope.name() + ':' + context + ':' + runId;
+  }
+
+  /**
+   * {@link MetricsCollector} of one context, which adds the emitted values to the counters and histograms of the
+   * metrics.
+   */
+  private static final class AggregatingCollector implements MetricsCollector {
+    private final MetricsScope scope;
+    private final String context;
+    private final String runId;
+    private final MetricTable<MetricCounter> counters;
+    private final MetricTable<MetricHistogram> histograms;
+
+    private AggregatingCollector(MetricsScope scope, String context, String runId) {
+      this.scope = scope;
+      this.context = context;
+      this.runId = runId;
+      this.counters = new MetricTable<MetricCounter>() {
+        @Override
+        protected MetricCounter create(String metricName, String[] tags) {
+          return new MetricCounter(metricName, tags);
+        }
+      };
+      this.histograms = new MetricTable<MetricHistogram>() {
+        @Override
+        protected MetricHistogram create(String metricName, String[] tags) {
+          return new MetricHistogram(metricName, tags);
+        }
+      };
+    }
+
+    @Override
+    public void gauge(String metricName, int value, String... tags) {
+      counters.get(metricName, tags).add(value);
+    }
+
+    @Override
+    public void histogram(String metricName, long value, String... tags) {
+      histograms.get(metricName, tags).getHistogram().record(value);
+    }
+
+    @Override
+    public void time(String metricName, long duration, TimeUnit unit, String... tags) {
+      histograms.get(metricName, tags).record(duration, unit);
+    }
+
+    @Override
+    public Counter counter(String metricName, String... tags) {
+      return counters.get(metricName, tags);
+    }
+
+    @Override
+    public Timer timer(String metricName, String... tags) {
+      return histograms.get(metricName, tags);
+    }
+
+    private void collect(long timestamp, Collection<MetricValue> values) {
+      for (MetricCounter counter : counters.getAll()) {
+        long value = counter.sumThenReset();
+        if (value != 0) {
+          values.add(new MetricValue(scope, context, runId, counter.getName(), counter.getTags(), value, timestamp));
+        }
+      }
+      for (MetricHistogram histogram : histograms.getAll()) {
+        Histogram snapshot = histogram.getHistogram().snapshotThenReset();
+        if (snapshot.getCount() != 0) {
+          values.add(new MetricValue(scope, context, runId, histogram.getName(), histogram.getTags(),
+                                     snapshot, timestamp));
+        }
+      }
+    }
+  }
+
+  /**
+   * Table of the metrics of one type emitted by a collector, keyed by metric name and tags. Metrics are created on
+   * first use.
+   *
+   * @param <T> Type of the metrics.
+   */
+  private abstract static class MetricTable<T> {
+    private final ConcurrentMap<String, T> metrics = Maps.newConcurrentMap();
+    private final ConcurrentMap<String, ConcurrentMap<String, T>> taggedMetrics = Maps.newConcurrentMap();
+
+    protected abstract T create(String metricName, String[] tags);
+
+    T get(String metricName, String[] tags) {
+      if (tags.length == 0) {
+        T metric = metrics.get(metricName);
+        return metric == null ? putIfAbsent(metrics, metricName, create(metricName, tags)) : metric;
+      }
+      ConcurrentMap<String, T> metricsOfName = taggedMetrics.get(metricName);
+      if (metricsOfName == null) {
+        ConcurrentMap<String, T> newMetrics = Maps.newConcurrentMap();
+        metricsOfName = taggedMetrics.putIfAbsent(metricName, newMetrics);
+        if (metricsOfName == null) {
+          metricsOfName = newMetrics;
+        }
+      }
+      // Metrics are emitted with a single tag most of the time, which doesn't require creating a key
+      String tagKey = tags.length == 1 ? tags[0] : TAG_JOINER.join(tags);
+      T metric = metricsOfName.get(tagKey);
+      return metric == null ? putIfAbsent(metricsOfName, tagKey, create(metricName, tags)) : metric;
+    }
+
+    List<T> getAll() {
+      List<T> all = Lists.newArrayList(metrics.values());
+      for (ConcurrentMap<String, T> metricsOfName : taggedMetrics.values()) {
+        all.addAll(metricsOfName.values());
+      }
+      return all;
+    }
+
+    private T putIfAbsent(ConcurrentMap<String, T> map, String key, T metric) {
+      T existing = map.putIfAbsent(key, metric);
+      return existing == null ? metric : existing;
+    }
+  }
+}
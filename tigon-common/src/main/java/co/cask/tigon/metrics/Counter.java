@@ -0,0 +1,30 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.metrics;
+
+/**
+ * Handle to a counter metric, bound to the metric name and tags once by
+ * {@link MetricsCollector#counter(String, String...)}, so that updates on hot paths don't need to look up the metric.
+ */
+public interface Counter {
+
+  /**
+   * Increments the counter.
+   * @param delta value to add to the counter.
+   */
+  void increment(long delta);
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size histogram of non-negative values. Values below 32 are counted exactly and larger values in 32 linear
+ * buckets per power of two, which bounds the relative error of the percentiles to about 3%. Recording a value is
+ * lock-free and doesn't allocate. All histograms have the same buckets, hence can be merged.
+ */
+public final class Histogram {
+
+  /**
+   * Percentiles reported by the sinks for each histogram, and the names they are reported with.
+   */
+  static final double[] REPORTED_PERCENTILES = { 50, 90, 99, 99.9 };
+  static final String[] REPORTED_PERCENTILE_NAMES = { "p50", "p90", "p99", "p999" };
+
+  private static final int SUB_BUCKET_BITS = 5;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  // Exact buckets for values below SUB_BUCKETS, then SUB_BUCKETS buckets for each power of two up to 2^62
+  private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray counts;
+  private final AtomicLong count;
+  private final AtomicLong sum;
+  private final AtomicLong min;
+  private final AtomicLong max;
+
+  public Histogram() {
+    this.counts = new AtomicLongArray(BUCKETS);
+    this.count = new AtomicLong();
+    this.sum = new AtomicLong();
+    this.min = new AtomicLong(Long.MAX_VALUE);
+    this.max = new AtomicLong();
+  }
+
+  /**
+   * Records a value. Negative values are recorded as zero.
+   */
+  public void record(long value) {
+    long v = Math.max(value, 0L);
+    counts.incrementAndGet(getBucket(v));
+    count.incrementAndGet();
+    sum.addAndGet(v);
+    updateMin(v);
+    updateMax(v);
+  }
+
+  /**
+   * Adds all the values recorded in the given histogram to this one.
+   */
+  public void merge(Histogram other) {
+    for (int i = 0; i < BUCKETS; i++) {
+      long bucketCount = other.counts.get(i);
+      if (bucketCount != 0) {
+        counts.addAndGet(i, bucketCount);
+      }
+    }
+    count.addAndGet(other.count.get());
+    sum.addAndGet(other.sum.get());
+    updateMin(other.min.get());
+    updateMax(other.max.get());
+  }
+
+  /**
+   * Moves the values recorded so far to a new histogram. Values recorded concurrently are either in the returned
+   * histogram or stay in this one.
+   */
+  public Histogram snapshotThenReset() {
+    Histogram snapshot = new Histogram();
+    long snapshotCount = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      long bucketCount = counts.getAndSet(i, 0L);
+      if (bucketCount != 0) {
+        snapshot.counts.set(i, bucketCount);
+        snapshotCount += bucketCount;
+      }
+    }
+    count.addAndGet(-snapshotCount);
+    snapshot.count.set(snapshotCount);
+    snapshot.sum.set(sum.getAndSet(0L));
+    snapshot.min.set(min.getAndSet(Long.MAX_VALUE));
+    snapshot.max.set(max.getAndSet(0L));
+    return snapshot;
+  }
+
+  /**
+   * @return Number of values recorded.
+   */
+  public long getCount() {
+    return count.get();
+  }
+
+  /**
+   * @return Sum of the values recorded.
+   */
+  public long getSum() {
+    return sum.get();
+  }
+
+  /**
+   * @return Smallest value recorded, or {@code 0} if there is none.
+   */
+  public long getMin() {
+    long value = min.get();
+    return value == Long.MAX_VALUE ? 0L : value;
+  }
+
+  /**
+   * @return Largest value recorded, or {@code 0} if there is none.
+   */
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * @return Mean of the values recorded, or {@code 0} if there is none.
+   */
+  public double getMean() {
+    long total = count.get();
+    return total == 0 ? 0d : (double) sum.get() / total;
+  }
+
+  /**
+   * Returns the value at the given percentile, as the upper bound of the bucket the percentile falls in.
+   * @param percentile Percentile between 0 and 100.
+   * @return The value at the percentile, or {@code 0} if no value was recorded.
+   */
+  public long getValueAtPercentile(double percentile) {
+    long total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      total += counts.get(i);
+    }
+    if (total == 0) {
+      return 0L;
+    }
+    long rank = Math.max(1L, (long) Math.ceil(Math.min(percentile, 100d) / 100d * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        return Math.min(getUpperBound(i), getMax());
+      }
+    }
+    return getMax();
+  }
+
+  private void updateMin(long value) {
+    long current = min.get();
+    while (value < current && !min.compareAndSet(current, value)) {
+      current = min.get();
+    }
+  }
+
+  private void updateMax(long value) {
+    long current = max.get();
+    while (value > current && !max.compareAndSet(current, value)) {
+      current = max.get();
+    }
+  }
+
+  private static int getBucket(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return SUB_BUCKETS + shift * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+  }
+
+  private static long getUpperBound(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = (bucket - SUB_BUCKETS) >>> SUB_BUCKET_BITS;
+    long lower = (long) (SUB_BUCKETS + ((bucket - SUB_BUCKETS) & (SUB_BUCKETS - 1))) << shift;
+    return lower + (1L << shift) - 1;
+  }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.metrics;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link MetricsSink} that serves the total of each metric since the sink was created over HTTP, at
+ * {@code GET /metrics}, in the Prometheus text exposition format. For example:
+ *
+ * <pre>
+ * tigon_process_events_processed{scope="system",context="flow.flowlet.0",runid="...",tags="queue"} 42
+ * </pre>
+ *
+ * Histograms are served as summaries, with the {@code p50} to {@code p999} quantiles, the sum and the count of all
+ * the values recorded. Metric names are prefixed with {@code tigon_}, and characters that are not allowed in names
+ * are replaced by underscores.
+ */
+public final class HttpMetricsSink implements MetricsSink {
+  private static final Joiner TAG_JOINER = Joiner.on(',');
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+  private static final String[] QUANTILES = getQuantiles();
+
+  private final HttpServer server;
+  private final ConcurrentSkipListMap<String, AtomicLong> totals;
+  private final ConcurrentSkipListMap<String, HistogramSeries> histograms;
+
+  /**
+   * Creates the sink and starts serving the metrics.
+   * @param address Address to bind to. Use port 0 to bind to a random port.
+   * @throws IOException if the HTTP server couldn't be started.
+   */
+  public HttpMetricsSink(InetSocketAddress address) throws IOException {
+    this.totals = new ConcurrentSkipListMap<String, AtomicLong>();
+    this.histograms = new ConcurrentSkipListMap<String, HistogramSeries>();
+    this.server = HttpServer.create(address, 0);
+    server.createContext("/metrics", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        try {
+          if (!"GET".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+          }
+          byte[] body = render().getBytes(Charsets.UTF_8);
+          exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+          exchange.sendResponseHeaders(200, body.length);
+          OutputStream os = exchange.getResponseBody();
+          os.write(body);
+          os.close();
+        } finally {
+          exchange.close();
+        }
+      }
+    });
+    server.start();
+  }
+
+  /**
+   * @return Address the HTTP server is bound to.
+   */
+  public InetSocketAddress getBindAddress() {
+    return server.getAddress();
+  }
+
+  @Override
+  public void publish(Collection<MetricValue> values) {
+    for (MetricValue value : values) {
+      String name = getName(value);
+      String labels = getLabels(value);
+      String series = name + '{' + labels + '}';
+      if (value.getHistogram() != null) {
+        HistogramSeries histogramSeries = histograms.get(series);
+        if (histogramSeries == null) {
+          HistogramSeries newSeries = new HistogramSeries(name, labels);
+          histogramSeries = histograms.putIfAbsent(series, newSeries);
+          if (histogramSeries == null) {
+            histogramSeries = newSeries;
+          }
+        }
+        histogramSeries.histogram.merge(value.getHistogram());
+        continue;
+      }
+
+      AtomicLong total = totals.get(series);
+      if (total == null) {
+        AtomicLong newTotal = new AtomicLong();
+        total = totals.putIfAbsent(series, newTotal);
+        if (total == null) {
+          total = newTotal;
+        }
+      }
+      total.addAndGet(value.getValue());
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+
+  private String render() {
+    StringBuilder builder = new StringBuilder();
+    for (Map.Entry<String, AtomicLong> entry : totals.entrySet()) {
+      builder.append(entry.getKey()).append(' ').append(entry.getValue().get()).append('\n');
+    }
+    for (HistogramSeries series : histograms.values()) {
+      Histogram histogram = series.histogram;
+      for (int i = 0; i < Histogram.REPORTED_PERCENTILES.length; i++) {
+        builder.append(series.name).append('{').append(series.labels).append(",quantile=\"").append(QUANTILES[i])
+          .append("\"} ").append(histogram.getValueAtPercentile(Histogram.REPORTED_PERCENTILES[i])).append('\n');
+      }
+      builder.append(series.name).append("_sum{").append(series.labels).append("} ")
+        .append(histogram.getSum()).append('\n');
+      builder.append(series.name).append("_count{").append(series.labels).append("} ")
+        .append(histogram.getCount()).append('\n');
+    }
+    return builder.toString();
+  }
+
+  private static String getName(MetricValue value) {
+    StringBuilder builder = new StringBuilder("tigon_");
+    String name = value.getName();
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      boolean valid = (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+      builder.append(valid ? c : '_');
+    }
+    return builder.toString();
+  }
+
+  private static String getLabels(MetricValue value) {
+    StringBuilder builder = new StringBuilder();
+    appendLabel(builder, "scope", value.getScope().name().toLowerCase()).append(',');
+    appendLabel(builder, "context", value.getContext()).append(',');
+    appendLabel(builder, "runid", value.getRunId());
+    if (!value.getTags().isEmpty()) {
+      appendLabel(builder.append(','), "tags", TAG_JOINER.join(value.getTags()));
+    }
+    return builder.toString();
+  }
+
+  private static String[] getQuantiles() {
+    String[] quantiles = new String[Histogram.REPORTED_PERCENTILES.length];
+    for (int i = 0; i < quantiles.length; i++) {
+      quantiles[i] = BigDecimal.valueOf(Histogram.REPORTED_PERCENTILES[i]).movePointLeft(2)
+        .stripTrailingZeros().toPlainString();
+    }
+    return quantiles;
+  }
+
+  private static StringBuilder appendLabel(StringBuilder builder, String label, String value) {
+    builder.append(label).append("=\"");
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\\' || c == '"') {
+        builder.append('\\').append(c);
+      } else if (c == '\n') {
+        builder.append("\\n");
+      } else {
+        builder.append(c);
+      }
+    }
+    return builder.append('"');
+  }
+
+  @Override
+  public String toString() {
+    return "HttpMetricsSink{" + getBindAddress() + "}";
+  }
+
+  /**
+   * Cumulative {@link Histogram} of a series, rendered as a summary.
+   */
+  private static final class HistogramSeries {
+    private final String name;
+    private final String labels;
+    private final Histogram histogram;
+
+    private HistogramSeries(String name, String labels) {
+      this.name = name;
+      this.labels = labels;
+      this.histogram = new Histogram();
+    }
+  }
+}
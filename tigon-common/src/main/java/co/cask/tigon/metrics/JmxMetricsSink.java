@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.metrics;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * {@link MetricsSink} that exposes the total of each metric since the sink was created as a read-only attribute of
+ * an MBean named {@code co.cask.tigon:type=Metrics,name=<name>}. Attributes are named
+ * {@code <scope>.<context>.<metric>[.<tags>]}. Histograms are exposed with one attribute per statistic over all the
+ * values recorded, named with the suffixes {@code .count}, {@code .mean}, {@code .max} and {@code .p50} to
+ * {@code .p999}.
+ */
+public final class JmxMetricsSink implements MetricsSink, DynamicMBean {
+  private static final Joiner NAME_JOINER = Joiner.on('.');
+
+  private final ObjectName objectName;
+  private final MBeanServer mBeanServer;
+  private final ConcurrentMap<String, AtomicLong> totals;
+  private final ConcurrentMap<String, Histogram> histograms;
+
+  /**
+   * Creates the sink and registers its MBean with the platform MBean server.
+   * @param name Name of the MBean.
+   * @throws IOException if the MBean couldn't be registered.
+   */
+  public JmxMetricsSink(String name) throws IOException {
+    this.totals = Maps.newConcurrentMap();
+    this.histograms = Maps.newConcurrentMap();
+    this.mBeanServer = ManagementFactory.getPlatformMBeanServer();
+    try {
+      this.objectName = new ObjectName("co.cask.tigon:type=Metrics,name=" + ObjectName.quote(name));
+      mBeanServer.registerMBean(this, objectName);
+    } catch (JMException e) {
+      throw new IOException("Failed to register metrics MBean " + name, e);
+    }
+  }
+
+  @Override
+  public void publish(Collection<MetricValue> values) {
+    for (MetricValue value : values) {
+      String attribute = NAME_JOINER.join(value.getScope().name().toLowerCase(), value.getContext(), value.getName());
+      if (!value.getTags().isEmpty()) {
+        attribute = attribute + '.' + NAME_JOINER.join(value.getTags());
+      }
+      if (value.getHistogram() == null) {
+        getAttributeValue(attribute).addAndGet(value.getValue());
+        continue;
+      }
+
+      Histogram histogram = histograms.get(attribute);
+      if (histogram == null) {
+        Histogram newHistogram = new Histogram();
+        histogram = histograms.putIfAbsent(attribute, newHistogram);
+        if (histogram == null) {
+          histogram = newHistogram;
+        }
+      }
+      histogram.merge(value.getHistogram());
+      getAttributeValue(attribute + ".count").set(histogram.getCount());
+      getAttributeValue(attribute + ".mean").set(Math.round(histogram.getMean()));
+      getAttributeValue(attribute + ".max").set(histogram.getMax());
+      for (int i = 0; i < Histogram.REPORTED_PERCENTILES.length; i++) {
+        getAttributeValue(attribute + '.' + Histogram.REPORTED_PERCENTILE_NAMES[i])
+          .set(histogram.getValueAtPercentile(Histogram.REPORTED_PERCENTILES[i]));
+      }
+    }
+  }
+
+  private AtomicLong getAttributeValue(String attribute) {
+    AtomicLong total = totals.get(attribute);
+    if (total == null) {
+      AtomicLong newTotal = new AtomicLong();
+      total = totals.putIfAbsent(attribute, newTotal);
+      if (total == null) {
+        total = newTotal;
+      }
+    }
+    return total;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      mBeanServer.unregisterMBean(objectName);
+    } catch (JMException e) {
+      throw new IOException("Failed to unregister metrics MBean " + objectName, e);
+    }
+  }
+
+  @Override
+  public Object getAttribute(String attribute) throws AttributeNotFoundException {
+    AtomicLong total = totals.get(attribute);
+    if (total == null) {
+      throw new AttributeNotFoundException(attribute);
+    }
+    return total.get();
+  }
+
+  @Override
+  public AttributeList getAttributes(String[] attributes) {
+    AttributeList list = new AttributeList();
+    for (String attribute : attributes) {
+      AtomicLong total = totals.get(attribute);
+      if (total != null) {
+        list.add(new Attribute(attribute, total.get()));
+      }
+    }
+    return list;
+  }
+
+  @Override
+  public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+    throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+  }
+
+  @Override
+  public AttributeList setAttributes(AttributeList attributes) {
+    return new AttributeList();
+  }
+
+  @Override
+  public Object invoke(String actionName, Object[] params, String[] signature) {
+    throw new UnsupportedOperationException("No operations on metrics: " + actionName);
+  }
+
+  @Override
+  public MBeanInfo getMBeanInfo() {
+    List<MBeanAttributeInfo> attributes = Lists.newArrayList();
+    for (Map.Entry<String, AtomicLong> entry : totals.entrySet()) {
+      attributes.add(new MBeanAttributeInfo(entry.getKey(), Long.class.getName(), "Value of the metric",
+                                            true, false, false));
+    }
+    return new MBeanInfo(getClass().getName(), "Tigon metrics",
+                         attributes.toArray(new MBeanAttributeInfo[attributes.size()]), null, null, null);
+  }
+
+  @Override
+  public String toString() {
+    return "JmxMetricsSink{" + objectName + "}";
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.metrics;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free counter of a metric. Updates are spread over cells selected by thread id, each on its own cache line,
+ * so that threads updating the same metric don't contend.
+ */
+final class MetricCounter implements Counter {
+  // Number of longs per cell, so that each cell is on a separate 64 bytes cache line
+  private static final int CELL_STRIDE = 8;
+  private static final int CELLS = cellCount();
+
+  private final String name;
+  private final List<String> tags;
+  private final AtomicLongArray cells;
+
+  MetricCounter(String name, String... tags) {
+    this.name = name;
+    this.tags = ImmutableList.copyOf(tags);
+    this.cells = new AtomicLongArray(CELLS * CELL_STRIDE);
+  }
+
+  String getName() {
+    return name;
+  }
+
+  List<String> getTags() {
+    return tags;
+  }
+
+  void add(long delta) {
+    cells.addAndGet((int) (Thread.currentThread().getId() & (CELLS - 1)) * CELL_STRIDE, delta);
+  }
+
+  @Override
+  public void increment(long delta) {
+    add(delta);
+  }
+
+  /**
+   * @return Sum of the values added since the last call.
+   */
+  long sumThenReset() {
+    long sum = 0;
+    for (int i = 0; i < CELLS; i++) {
+      sum += cells.getAndSet(i * CELL_STRIDE, 0L);
+    }
+    return sum;
+  }
+
+  /**
+   * @return Power of two not less than the number of processors, at most 16.
+   */
+  private static int cellCount() {
+    int processors = Math.min(Runtime.getRuntime().availableProcessors(), 16);
+    return Integer.highestOneBit(processors * 2 - 1);
+  }
+}
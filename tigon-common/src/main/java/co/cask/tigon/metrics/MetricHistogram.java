@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.metrics;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Histogram} of a metric, together with the name and tags the metric was emitted with. It is also the
+ * {@link Timer} handle of the metric.
+ */
+final class MetricHistogram implements Timer {
+  private final String name;
+  private final List<String> tags;
+  private final Histogram histogram;
+
+  MetricHistogram(String name, String... tags) {
+    this.name = name;
+    this.tags = ImmutableList.copyOf(tags);
+    this.histogram = new Histogram();
+  }
+
+  String getName() {
+    return name;
+  }
+
+  List<String> getTags() {
+    return tags;
+  }
+
+  Histogram getHistogram() {
+    return histogram;
+  }
+
+  @Override
+  public void record(long duration, TimeUnit unit) {
+    histogram.record(unit.toMicros(duration));
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.metrics;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * Aggregated value of a metric over a flush interval, as published to a {@link MetricsSink}.
+ */
+public final class MetricValue {
+  private final MetricsScope scope;
+  private final String context;
+  private final String runId;
+  private final String name;
+  private final List<String> tags;
+  private final long value;
+  private final Histogram histogram;
+  private final long timestamp;
+
+  public MetricValue(MetricsScope scope, String context, String runId, String name, List<String> tags,
+                     long value, long timestamp) {
+    this.scope = scope;
+    this.context = context;
+    this.runId = runId;
+    this.name = name;
+    this.tags = ImmutableList.copyOf(tags);
+    this.value = value;
+    this.histogram = null;
+    this.timestamp = timestamp;
+  }
+
+  /**
+   * Creates the value of a histogram metric, whose value is the number of values recorded in the histogram.
+   */
+  public MetricValue(MetricsScope scope, String context, String runId, String name, List<String> tags,
+                     Histogram histogram, long timestamp) {
+    this.scope = scope;
+    this.context = context;
+    this.runId = runId;
+    this.name = name;
+    this.tags = ImmutableList.copyOf(tags);
+    this.value = histogram.getCount();
+    this.histogram = histogram;
+    this.timestamp = timestamp;
+  }
+
+  public MetricsScope getScope() {
+    return scope;
+  }
+
+  public String getContext() {
+    return context;
+  }
+
+  public String getRunId() {
+    return runId;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public List<String> getTags() {
+    return tags;
+  }
+
+  /**
+   * @return Sum of the values emitted during the flush interval, or the number of values recorded for a histogram.
+   */
+  public long getValue() {
+    return value;
+  }
+
+  /**
+   * @return Values recorded during the flush interval if the metric is a histogram, {@code null} otherwise.
+   */
+  @Nullable
+  public Histogram getHistogram() {
+    return histogram;
+  }
+
+  /**
+   * @return End of the flush interval in milliseconds since the epoch.
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this)
+      .add("scope", scope)
+      .add("context", context)
+      .add("runId", runId)
+      .add("name", name)
+      .add("tags", tags)
+      .add("value", value)
+      .add("histogram", histogram != null)
+      .add("timestamp", timestamp)
+      .toString();
+  }
+}
@@ -30,4 +30,12 @@ public interface MetricsCollectionService extends Service {
    * @return A {@link MetricsCollector} for emitting metrics.
    */
   MetricsCollector getCollector(MetricsScope scope, String context, String runId);
+
+  /**
+   * Removes the metric collector for the given context, once nothing emits metrics through it anymore, e.g. when
+   * the program it belongs to has stopped. The metrics emitted before are still published.
+   * @param context Name of the context of the collector.
+   * @param runId The Id of the run of the collector.
+   */
+  void removeCollector(MetricsScope scope, String context, String runId);
 }
@@ -16,8 +16,10 @@
 
 package co.cask.tigon.metrics;
 
+import java.util.concurrent.TimeUnit;
+
 /**
- * A MetricCollector allows client publish counter metrics.
+ * A MetricCollector allows client publish counter, histogram and timer metrics.
  */
 public interface MetricsCollector {
 
@@ -28,4 +30,40 @@ public interface MetricsCollector {
    * @param tags Tags associated with the metric.
    */
   void gauge(String metricName, int value, String... tags);
+
+  /**
+   * Record a value in the distribution of a metric, such as the size of a batch.
+   * @param metricName Name of the metric.
+   * @param value value to record.
+   * @param tags Tags associated with the metric.
+   */
+  void histogram(String metricName, long value, String... tags);
+
+  /**
+   * Record a duration in the distribution of a timer metric. Durations are recorded in microseconds.
+   * @param metricName Name of the metric.
+   * @param duration the duration to record.
+   * @param unit {@link TimeUnit} of the duration.
+   * @param tags Tags associated with the metric.
+   */
+  void time(String metricName, long duration, TimeUnit unit, String... tags);
+
+  /**
+   * Returns a handle to a counter metric. Incrementing the counter is equivalent to calling
+   * {@link #gauge(String, int, String...)} with the same name and tags, without looking up the metric each time.
+   * @param metricName Name of the metric.
+   * @param tags Tags associated with the metric.
+   * @return The {@link Counter} of the metric.
+   */
+  Counter counter(String metricName, String... tags);
+
+  /**
+   * Returns a handle to a timer metric. Recording to the timer is equivalent to calling
+   * {@link #time(String, long, TimeUnit, String...)} with the same name and tags, without looking up the metric each
+   * time.
+   * @param metricName Name of the metric.
+   * @param tags Tags associated with the metric.
+   * @return The {@link Timer} of the metric.
+   */
+  Timer timer(String metricName, String... tags);
 }
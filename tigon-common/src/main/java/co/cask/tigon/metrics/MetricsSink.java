@@ -0,0 +1,34 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.metrics;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Destination of the metrics aggregated by the {@link AggregatedMetricsCollectionService}.
+ */
+public interface MetricsSink extends Closeable {
+
+  /**
+   * Publishes the metrics aggregated over one flush interval. Only metrics emitted during the interval are given.
+   * @param values Aggregated metric values.
+   * @throws IOException if the metrics couldn't be published.
+   */
+  void publish(Collection<MetricValue> values) throws IOException;
+}
@@ -18,11 +18,27 @@ package co.cask.tigon.metrics;
 
 import com.google.common.util.concurrent.AbstractIdleService;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * No-op, to be used in unit-tests
  */
 public class NoOpMetricsCollectionService extends AbstractIdleService implements MetricsCollectionService {
 
+  private static final Counter NOOP_COUNTER = new Counter() {
+    @Override
+    public void increment(long delta) {
+      // no-op
+    }
+  };
+
+  private static final Timer NOOP_TIMER = new Timer() {
+    @Override
+    public void record(long duration, TimeUnit unit) {
+      // no-op
+    }
+  };
+
   @Override
   protected void startUp() throws Exception {
     // no-op
@@ -40,6 +56,31 @@ public class NoOpMetricsCollectionService extends AbstractIdleService implements
       public void gauge(String metricName, int value, String... tags) {
         // no-op
       }
+
+      @Override
+      public void histogram(String metricName, long value, String... tags) {
+        // no-op
+      }
+
+      @Override
+      public void time(String metricName, long duration, TimeUnit unit, String... tags) {
+        // no-op
+      }
+
+      @Override
+      public Counter counter(String metricName, String... tags) {
+        return NOOP_COUNTER;
+      }
+
+      @Override
+      public Timer timer(String metricName, String... tags) {
+        return NOOP_TIMER;
+      }
     };
   }
+
+  @Override
+  public void removeCollector(MetricsScope scope, String context, String runId) {
+    // no-op
+  }
 }
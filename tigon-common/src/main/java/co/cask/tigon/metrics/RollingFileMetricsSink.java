@@ -0,0 +1,150 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.metrics;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.base.Preconditions;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Collection;
+
+/**
+ * {@link MetricsSink} that appends the metrics to a local file, one tab separated line per metric:
+ * timestamp, scope, context, run id, metric name, comma separated tags and value. Histograms are written as one
+ * line per statistic of the interval, named {@code <metric>.count}, {@code .min}, {@code .mean}, {@code .max} and
+ * {@code .p50} to {@code .p999}.
+ *
+ * The file is rolled once it exceeds the maximum size. Rolled files get the suffix .1 (most recent) to .n, and the
+ * oldest one is deleted once there are more than the given number of files.
+ */
+public final class RollingFileMetricsSink implements MetricsSink {
+  private static final Joiner TAB_JOINER = Joiner.on('\t');
+  private static final Joiner TAG_JOINER = Joiner.on(',');
+
+  private final File file;
+  private final long maxFileSize;
+  private final int maxFiles;
+  private Writer writer;
+  private long fileSize;
+
+  /**
+   * @param dir Directory of the metrics files.
+   * @param name Name of the metrics file.
+   * @param maxFileSize Maximum size of a file in bytes.
+   * @param maxFiles Maximum number of rolled files to keep.
+   */
+  public RollingFileMetricsSink(File dir, String name, long maxFileSize, int maxFiles) {
+    Preconditions.checkArgument(maxFileSize > 0, "Maximum file size must be positive");
+    Preconditions.checkArgument(maxFiles >= 0, "Maximum number of files must not be negative");
+    this.file = new File(dir, name);
+    this.maxFileSize = maxFileSize;
+    this.maxFiles = maxFiles;
+  }
+
+  @Override
+  public synchronized void publish(Collection<MetricValue> values) throws IOException {
+    if (writer == null) {
+      open();
+    }
+    StringBuilder line = new StringBuilder();
+    for (MetricValue value : values) {
+      Histogram histogram = value.getHistogram();
+      if (histogram == null) {
+        write(line, value, value.getName(), value.getValue());
+        continue;
+      }
+      write(line, value, value.getName() + ".count", histogram.getCount());
+      write(line, value, value.getName() + ".min", histogram.getMin());
+      write(line, value, value.getName() + ".mean", Math.round(histogram.getMean()));
+      write(line, value, value.getName() + ".max", histogram.getMax());
+      for (int i = 0; i < Histogram.REPORTED_PERCENTILES.length; i++) {
+        write(line, value, value.getName() + '.' + Histogram.REPORTED_PERCENTILE_NAMES[i],
+              histogram.getValueAtPercentile(Histogram.REPORTED_PERCENTILES[i]));
+      }
+    }
+    writer.flush();
+    if (fileSize >= maxFileSize) {
+      roll();
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (writer != null) {
+      writer.close();
+      writer = null;
+    }
+  }
+
+  private void open() throws IOException {
+    File dir = file.getParentFile();
+    if (!dir.isDirectory() && !dir.mkdirs()) {
+      throw new IOException("Failed to create metrics directory " + dir);
+    }
+    writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), Charsets.UTF_8));
+    fileSize = file.length();
+  }
+
+  private void write(StringBuilder line, MetricValue value, String name, long metricValue) throws IOException {
+    line.setLength(0);
+    TAB_JOINER.appendTo(line, value.getTimestamp(), value.getScope(), value.getContext(), value.getRunId(),
+                        name, TAG_JOINER.join(value.getTags()), metricValue);
+    line.append('\n');
+    writer.write(line.toString());
+    // Metric names and tags are ASCII
+    fileSize += line.length();
+  }
+
+  private void roll() throws IOException {
+    close();
+    if (maxFiles == 0) {
+      delete(file);
+      return;
+    }
+    delete(getRolledFile(maxFiles));
+    for (int i = maxFiles - 1; i > 0; i--) {
+      File rolledFile = getRolledFile(i);
+      if (rolledFile.exists() && !rolledFile.renameTo(getRolledFile(i + 1))) {
+        throw new IOException("Failed to rename metrics file " + rolledFile);
+      }
+    }
+    if (!file.renameTo(getRolledFile(1))) {
+      throw new IOException("Failed to roll metrics file " + file);
+    }
+  }
+
+  private File getRolledFile(int index) {
+    return new File(file.getParentFile(), file.getName() + "." + index);
+  }
+
+  private static void delete(File file) throws IOException {
+    if (file.exists() && !file.delete()) {
+      throw new IOException("Failed to delete metrics file " + file);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "RollingFileMetricsSink{" + file + "}";
+  }
+}
@@ -171,6 +171,38 @@ public class DatumCodecTest {
     Assert.assertEquals(r1.uuid, r2.uuid);
   }
 
+  @Test
+  public void testReuse() throws IOException, UnsupportedTypeException {
+    Record1 first = new Record1(1, Maps.<Integer, Value>newHashMap(), new URL("http://www.yahoo.com"));
+    first.properties.put(1, new Value(1, "Name1"));
+    first.properties.put(2, new Value(2, "Name2"));
+    Record1 second = new Record1(2, Maps.<Integer, Value>newHashMap(), new URL("http://www.google.com"));
+    second.properties.put(3, new Value(3, "Name3"));
+
+    Schema schema = new ReflectionSchemaGenerator().generate(Record1.class);
+    ByteArrayOutputStream bos = new ByteArrayOutputStream();
+    BinaryEncoder encoder = new BinaryEncoder(bos);
+    ReflectionDatumWriter<Record1> writer = new ReflectionDatumWriter<Record1>(schema);
+    writer.encode(first, encoder);
+    writer.encode(second, encoder);
+
+    BinaryDecoder decoder = new BinaryDecoder(new ByteArrayInputStream(bos.toByteArray()));
+    ReflectionDatumReader<Record1> reader = new ReflectionDatumReader<Record1>(schema, TypeToken.of(Record1.class));
+
+    Record1 record = reader.read(decoder, schema, null);
+    Map<Integer, Value> properties = record.properties;
+    Assert.assertEquals(1, record.i);
+    Assert.assertEquals(first.properties, properties);
+
+    // The record and its map should be refilled instead of created
+    Assert.assertSame(record, reader.read(decoder, schema, record));
+    Assert.assertSame(properties, record.properties);
+    Assert.assertEquals(2, record.i);
+    Assert.assertEquals(second.properties, record.properties);
+    Assert.assertEquals(second.uuid, record.uuid);
+    Assert.assertEquals(new URL("http://www.google.com"), record.url);
+  }
+
   @Test
   public void testCollection() throws UnsupportedTypeException, IOException {
     List<String> list = Lists.newArrayList("1", "2", "3");
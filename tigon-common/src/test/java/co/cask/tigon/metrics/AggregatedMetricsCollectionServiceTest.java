@@ -0,0 +1,252 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.metrics;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the aggregation of metrics by the {@link AggregatedMetricsCollectionService} and the sinks.
+ */
+public class AggregatedMetricsCollectionServiceTest {
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void testAggregation() throws Exception {
+    CollectingSink sink = new CollectingSink();
+    final AggregatedMetricsCollectionService service =
+      new AggregatedMetricsCollectionService(ImmutableList.of(sink), 1, TimeUnit.HOURS);
+
+    int threads = 4;
+    final int count = 10000;
+    final CountDownLatch done = new CountDownLatch(threads);
+    for (int i = 0; i < threads; i++) {
+      new Thread() {
+        @Override
+        public void run() {
+          MetricsCollector collector = service.getCollector(MetricsScope.SYSTEM, "flow.flowlet.0", "run");
+          for (int j = 0; j < count; j++) {
+            collector.gauge("process.events.processed", 1);
+            collector.gauge("process.events.processed", 2, "queue1");
+            collector.gauge("process.events.processed", 3, "queue1", "queue2");
+          }
+          done.countDown();
+        }
+      }.start();
+    }
+    Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+    service.getCollector(MetricsScope.USER, "flow.flowlet.0", "run").gauge("user.metric", 5);
+
+    service.flush();
+    Assert.assertEquals(4, sink.values.size());
+    Assert.assertEquals(threads * count, getValue(sink.values, MetricsScope.SYSTEM, "process.events.processed"));
+    Assert.assertEquals(threads * count * 2,
+                        getValue(sink.values, MetricsScope.SYSTEM, "process.events.processed", "queue1"));
+    Assert.assertEquals(threads * count * 3,
+                        getValue(sink.values, MetricsScope.SYSTEM, "process.events.processed", "queue1", "queue2"));
+    Assert.assertEquals(5, getValue(sink.values, MetricsScope.USER, "user.metric"));
+
+    // Only the values emitted since the last flush are published
+    sink.values.clear();
+    service.getCollector(MetricsScope.SYSTEM, "flow.flowlet.0", "run").gauge("process.events.processed", 7);
+    service.flush();
+    Assert.assertEquals(1, sink.values.size());
+    Assert.assertEquals(7, getValue(sink.values, MetricsScope.SYSTEM, "process.events.processed"));
+  }
+
+  @Test
+  public void testHistogram() throws Exception {
+    CollectingSink sink = new CollectingSink();
+    AggregatedMetricsCollectionService service =
+      new AggregatedMetricsCollectionService(ImmutableList.of(sink), 1, TimeUnit.HOURS);
+
+    MetricsCollector collector = service.getCollector(MetricsScope.SYSTEM, "flow.flowlet.0", "run");
+    for (int i = 1; i <= 100; i++) {
+      collector.time("process.invoke.time", i, TimeUnit.MILLISECONDS);
+      collector.histogram("batch.size", i, "queue1");
+    }
+    service.flush();
+
+    Assert.assertEquals(2, sink.values.size());
+    Histogram timer = getHistogram(sink.values, "process.invoke.time");
+    Assert.assertEquals(100, timer.getCount());
+    // Durations are recorded in microseconds
+    Assert.assertEquals(100000, timer.getMax());
+    Assert.assertTrue(Math.abs(timer.getValueAtPercentile(50) - 50000) <= 50000 / 32);
+    Assert.assertEquals(100, getHistogram(sink.values, "batch.size").getMax());
+
+    // Histograms are reset after each flush
+    sink.values.clear();
+    service.flush();
+    Assert.assertTrue(sink.values.isEmpty());
+  }
+
+  @Test
+  public void testHandles() throws Exception {
+    CollectingSink sink = new CollectingSink();
+    AggregatedMetricsCollectionService service =
+      new AggregatedMetricsCollectionService(ImmutableList.of(sink), 1, TimeUnit.HOURS);
+
+    MetricsCollector collector = service.getCollector(MetricsScope.SYSTEM, "flow.flowlet.0", "run");
+    Counter counter = collector.counter("process.events.processed", "queue1");
+    Timer timer = collector.timer("process.invoke.time");
+    for (int i = 0; i < 10; i++) {
+      counter.increment(2);
+      timer.record(i, TimeUnit.MICROSECONDS);
+    }
+    // Handles and direct emission update the same metrics
+    collector.gauge("process.events.processed", 5, "queue1");
+    collector.time("process.invoke.time", 10, TimeUnit.MICROSECONDS);
+    Assert.assertSame(counter, collector.counter("process.events.processed", "queue1"));
+
+    service.flush();
+    Assert.assertEquals(2, sink.values.size());
+    Assert.assertEquals(25, getValue(sink.values, MetricsScope.SYSTEM, "process.events.processed", "queue1"));
+    Assert.assertEquals(11, getHistogram(sink.values, "process.invoke.time").getCount());
+    Assert.assertEquals(10, getHistogram(sink.values, "process.invoke.time").getMax());
+  }
+
+  @Test
+  public void testRemoveCollector() throws Exception {
+    CollectingSink sink = new CollectingSink();
+    AggregatedMetricsCollectionService service =
+      new AggregatedMetricsCollectionService(ImmutableList.of(sink), 1, TimeUnit.HOURS);
+
+    MetricsCollector collector = service.getCollector(MetricsScope.SYSTEM, "flow.flowlet.0", "run");
+    collector.gauge("process.events.processed", 3);
+    service.removeCollector(MetricsScope.SYSTEM, "flow.flowlet.0", "run");
+
+    // The values emitted before the removal are still published, once
+    service.flush();
+    Assert.assertEquals(1, sink.values.size());
+    Assert.assertEquals(3, getValue(sink.values, MetricsScope.SYSTEM, "process.events.processed"));
+    sink.values.clear();
+    service.flush();
+    Assert.assertTrue(sink.values.isEmpty());
+
+    // The context gets a new collector
+    MetricsCollector newCollector = service.getCollector(MetricsScope.SYSTEM, "flow.flowlet.0", "run");
+    Assert.assertNotSame(collector, newCollector);
+    newCollector.gauge("process.events.processed", 5);
+    service.flush();
+    Assert.assertEquals(1, sink.values.size());
+    Assert.assertEquals(5, getValue(sink.values, MetricsScope.SYSTEM, "process.events.processed"));
+  }
+
+  @Test
+  public void testRollingFileSink() throws Exception {
+    File dir = tmpFolder.newFolder();
+    RollingFileMetricsSink sink = new RollingFileMetricsSink(dir, "metrics.log", 100, 2);
+    for (int i = 0; i < 10; i++) {
+      sink.publish(ImmutableList.of(new MetricValue(MetricsScope.SYSTEM, "context", "run", "metric",
+                                                    ImmutableList.of("tag"), i, 1000L)));
+    }
+    sink.close();
+
+    Assert.assertTrue(new File(dir, "metrics.log.1").isFile());
+    Assert.assertTrue(new File(dir, "metrics.log.2").isFile());
+    Assert.assertFalse(new File(dir, "metrics.log.3").exists());
+    String line = Files.readFirstLine(new File(dir, "metrics.log.1"), Charsets.UTF_8);
+    Assert.assertTrue(line.startsWith("1000\tSYSTEM\tcontext\trun\tmetric\ttag\t"));
+  }
+
+  @Test
+  public void testHttpSink() throws Exception {
+    HttpMetricsSink sink = new HttpMetricsSink(new InetSocketAddress("localhost", 0));
+    try {
+      MetricValue value = new MetricValue(MetricsScope.SYSTEM, "flow.flowlet.0", "run", "process.events.processed",
+                                          ImmutableList.of("queue"), 3, 1000L);
+      sink.publish(ImmutableList.of(value, value));
+      Histogram histogram = new Histogram();
+      histogram.record(10);
+      histogram.record(20);
+      sink.publish(ImmutableList.of(new MetricValue(MetricsScope.SYSTEM, "flow.flowlet.0", "run", "invoke.time",
+                                                    ImmutableList.<String>of(), histogram, 1000L)));
+
+      URL url = new URL("http://localhost:" + sink.getBindAddress().getPort() + "/metrics");
+      InputStream is = url.openStream();
+      try {
+        String body = new String(ByteStreams.toByteArray(is), Charsets.UTF_8);
+        String labels = "{scope=\"system\",context=\"flow.flowlet.0\",runid=\"run\"";
+        Assert.assertEquals("tigon_process_events_processed{scope=\"system\",context=\"flow.flowlet.0\"," +
+                              "runid=\"run\",tags=\"queue\"} 6\n" +
+                              "tigon_invoke_time" + labels + ",quantile=\"0.5\"} 10\n" +
+                              "tigon_invoke_time" + labels + ",quantile=\"0.9\"} 20\n" +
+                              "tigon_invoke_time" + labels + ",quantile=\"0.99\"} 20\n" +
+                              "tigon_invoke_time" + labels + ",quantile=\"0.999\"} 20\n" +
+                              "tigon_invoke_time_sum" + labels + "} 30\n" +
+                              "tigon_invoke_time_count" + labels + "} 2\n", body);
+      } finally {
+        is.close();
+      }
+    } finally {
+      sink.close();
+    }
+  }
+
+  private Histogram getHistogram(Collection<MetricValue> values, String name) {
+    for (MetricValue value : values) {
+      if (value.getName().equals(name)) {
+        Assert.assertNotNull(value.getHistogram());
+        return value.getHistogram();
+      }
+    }
+    throw new AssertionError("Metric not found: " + name);
+  }
+
+  private long getValue(Collection<MetricValue> values, MetricsScope scope, String name, String... tags) {
+    for (MetricValue value : values) {
+      if (value.getScope() == scope && value.getName().equals(name)
+        && value.getTags().equals(ImmutableList.copyOf(tags))) {
+        return value.getValue();
+      }
+    }
+    throw new AssertionError("Metric not found: " + name);
+  }
+
+  private static final class CollectingSink implements MetricsSink {
+    private final List<MetricValue> values = Lists.newArrayList();
+
+    @Override
+    public void publish(Collection<MetricValue> values) {
+      this.values.addAll(values);
+    }
+
+    @Override
+    public void close() {
+      // no-op
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the accuracy of the {@link Histogram} percentiles, and merging and resetting of histograms.
+ */
+public class HistogramTest {
+
+  @Test
+  public void testPercentiles() {
+    Histogram histogram = new Histogram();
+    Assert.assertEquals(0L, histogram.getValueAtPercentile(50));
+
+    for (long i = 1; i <= 100000; i++) {
+      histogram.record(i);
+    }
+    Assert.assertEquals(100000, histogram.getCount());
+    Assert.assertEquals(1, histogram.getMin());
+    Assert.assertEquals(100000, histogram.getMax());
+    Assert.assertEquals(50000.5d, histogram.getMean(), 0.001d);
+    assertWithinError(50000, histogram.getValueAtPercentile(50));
+    assertWithinError(99000, histogram.getValueAtPercentile(99));
+    assertWithinError(99900, histogram.getValueAtPercentile(99.9));
+    Assert.assertEquals(100000, histogram.getValueAtPercentile(100));
+
+    // Small values are exact
+    Histogram small = new Histogram();
+    for (long i = 0; i < 10; i++) {
+      small.record(i);
+    }
+    Assert.assertEquals(4, small.getValueAtPercentile(50));
+    Assert.assertEquals(9, small.getValueAtPercentile(99));
+
+    // Negative values are recorded as zero, the largest values are kept
+    Histogram extremes = new Histogram();
+    extremes.record(-1);
+    extremes.record(Long.MAX_VALUE);
+    Assert.assertEquals(0, extremes.getValueAtPercentile(50));
+    Assert.assertEquals(Long.MAX_VALUE, extremes.getValueAtPercentile(100));
+  }
+
+  @Test
+  public void testMergeAndReset() {
+    Histogram first = new Histogram();
+    Histogram second = new Histogram();
+    for (long i = 1; i <= 1000; i++) {
+      first.record(i);
+      second.record(i + 1000);
+    }
+    first.merge(second);
+    Assert.assertEquals(2000, first.getCount());
+    Assert.assertEquals(2000, first.getMax());
+    assertWithinError(1000, first.getValueAtPercentile(50));
+
+    Histogram snapshot = first.snapshotThenReset();
+    Assert.assertEquals(2000, snapshot.getCount());
+    Assert.assertEquals(1, snapshot.getMin());
+    Assert.assertEquals(0, first.getCount());
+    Assert.assertEquals(0, first.getSum());
+    Assert.assertEquals(0, first.getValueAtPercentile(99));
+
+    first.record(7);
+    Assert.assertEquals(7, first.getMin());
+    Assert.assertEquals(7, first.getValueAtPercentile(50));
+  }
+
+  private void assertWithinError(long expected, long actual) {
+    Assert.assertTrue("Expected " + expected + " but was " + actual, Math.abs(actual - expected) <= expected / 32);
+  }
+}
@@ -16,11 +16,29 @@
 
 package co.cask.tigon.app.guice;
 
+import co.cask.tigon.conf.CConfiguration;
+import co.cask.tigon.conf.Constants;
+import co.cask.tigon.metrics.AggregatedMetricsCollectionService;
+import co.cask.tigon.metrics.HttpMetricsSink;
+import co.cask.tigon.metrics.JmxMetricsSink;
 import co.cask.tigon.metrics.MetricsCollectionService;
+import co.cask.tigon.metrics.MetricsSink;
 import co.cask.tigon.metrics.NoOpMetricsCollectionService;
+import co.cask.tigon.metrics.RollingFileMetricsSink;
 import co.cask.tigon.runtime.RuntimeModule;
+import com.google.common.collect.Lists;
+import com.google.common.io.Closeables;
 import com.google.inject.AbstractModule;
 import com.google.inject.Module;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 /**
  *
@@ -36,12 +54,12 @@ public final class MetricsClientRuntimeModule extends RuntimeModule {
 
   @Override
   public Module getSingleNodeModules() {
-    return getNoopModules();
+    return getAggregatedModules();
   }
 
   @Override
   public Module getDistributedModules() {
-    return getNoopModules();
+    return getAggregatedModules();
   }
 
   /**
@@ -55,4 +73,58 @@ public final class MetricsClientRuntimeModule extends RuntimeModule {
       }
     };
   }
+
+  /**
+   * Returns a module that binds MetricsCollectionService to an {@link AggregatedMetricsCollectionService} which
+   * publishes to the sinks listed in {@link Constants.Metrics#SINKS}.
+   */
+  public Module getAggregatedModules() {
+    return new AbstractModule() {
+      @Override
+      protected void configure() {
+        // Provided by the method below
+      }
+
+      @Provides
+      @Singleton
+      private MetricsCollectionService provideMetricsCollectionService(CConfiguration cConf) throws IOException {
+        List<MetricsSink> sinks = Lists.newArrayList();
+        try {
+          for (String sink : cConf.getTrimmedStrings(Constants.Metrics.SINKS, new String[0])) {
+            sinks.add(createSink(cConf, sink));
+          }
+        } catch (IOException e) {
+          for (MetricsSink sink : sinks) {
+            Closeables.closeQuietly(sink);
+          }
+          throw e;
+        }
+        if (sinks.isEmpty()) {
+          return new NoOpMetricsCollectionService();
+        }
+        return new AggregatedMetricsCollectionService(sinks, cConf.getLong(
+          Constants.Metrics.FLUSH_INTERVAL_SECONDS, Constants.Metrics.DEFAULT_FLUSH_INTERVAL_SECONDS),
+                                                      TimeUnit.SECONDS);
+      }
+    };
+  }
+
+  private static MetricsSink createSink(CConfiguration cConf, String sink) throws IOException {
+    if ("file".equals(sink)) {
+      return new RollingFileMetricsSink(new File(cConf.get(Constants.Metrics.FILE_DIR)), "metrics.log",
+                                        cConf.getLong(Constants.Metrics.FILE_MAX_BYTES,
+                                                      Constants.Metrics.DEFAULT_FILE_MAX_BYTES),
+                                        cConf.getInt(Constants.Metrics.FILE_MAX_FILES,
+                                                     Constants.Metrics.DEFAULT_FILE_MAX_FILES));
+    }
+    if ("jmx".equals(sink)) {
+      return new JmxMetricsSink(ManagementFactory.getRuntimeMXBean().getName());
+    }
+    if ("http".equals(sink)) {
+      return new HttpMetricsSink(new InetSocketAddress(cConf.get(Constants.Metrics.HTTP_BIND_ADDRESS,
+                                                                 Constants.Metrics.DEFAULT_HTTP_BIND_ADDRESS),
+                                                       cConf.getInt(Constants.Metrics.HTTP_BIND_PORT, 0)));
+    }
+    throw new IllegalArgumentException("Unknown metrics sink: " + sink);
+  }
 }
@@ -18,7 +18,13 @@ package co.cask.tigon.app.metrics;
 
 
 import co.cask.tigon.api.metrics.Metrics;
+import co.cask.tigon.metrics.Counter;
 import co.cask.tigon.metrics.MetricsCollector;
+import co.cask.tigon.metrics.Timer;
+import com.google.common.collect.Maps;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Base class for defining implementation of {@link Metrics} for different type of runtime context.
@@ -27,13 +33,44 @@ import co.cask.tigon.metrics.MetricsCollector;
 public abstract class AbstractProgramMetrics implements Metrics {
 
   private final MetricsCollector metricsCollector;
+  // Handles of the metrics emitted so far, so that emitting a known metric allocates nothing
+  private final ConcurrentMap<String, Counter> counters;
+  private final ConcurrentMap<String, Timer> timers;
 
   protected AbstractProgramMetrics(MetricsCollector metricsCollector) {
     this.metricsCollector = metricsCollector;
+    this.counters = Maps.newConcurrentMap();
+    this.timers = Maps.newConcurrentMap();
   }
 
   @Override
   public void count(String counterName, int delta) {
-    metricsCollector.gauge(counterName, delta);
+    Counter counter = counters.get(counterName);
+    if (counter == null) {
+      counter = metricsCollector.counter(counterName);
+      Counter existing = counters.putIfAbsent(counterName, counter);
+      if (existing != null) {
+        counter = existing;
+      }
+    }
+    counter.increment(delta);
+  }
+
+  @Override
+  public void histogram(String histogramName, long value) {
+    metricsCollector.histogram(histogramName, value);
+  }
+
+  @Override
+  public void time(String timerName, long duration, TimeUnit unit) {
+    Timer timer = timers.get(timerName);
+    if (timer == null) {
+      timer = metricsCollector.timer(timerName);
+      Timer existing = timers.putIfAbsent(timerName, timer);
+      if (existing != null) {
+        timer = existing;
+      }
+    }
+    timer.record(duration, unit);
   }
 }
@@ -32,6 +32,7 @@ import co.cask.tigon.internal.flow.DefaultFlowSpecification;
 import co.cask.tigon.internal.io.ReflectionSchemaGenerator;
 import co.cask.tigon.lang.ApiResourceListHolder;
 import co.cask.tigon.lang.ClassLoaders;
+import co.cask.tigon.lang.jar.JarUnpackCache;
 import co.cask.tigon.lang.jar.ProgramClassLoader;
 import com.google.common.base.Charsets;
 import com.google.common.base.Preconditions;
@@ -60,6 +61,7 @@ import java.io.InputStream;
 import java.util.Enumeration;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.jar.JarInputStream;
@@ -75,11 +77,18 @@ public class DeployClient {
 
   private final LocationFactory locationFactory;
   private final ProgramRunnerFactory programRunnerFactory;
+  private final JarUnpackCache jarUnpackCache;
 
   @Inject
   public DeployClient(CConfiguration cConf, ProgramRunnerFactory programRunnerFactory) {
     this.locationFactory = new LocalLocationFactory(new File(cConf.get(Constants.CFG_LOCAL_DATA_DIR)));
     this.programRunnerFactory = programRunnerFactory;
+    this.jarUnpackCache = new JarUnpackCache(new File(cConf.get(Constants.JarCache.DIR)),
+                                             cConf.getInt(Constants.JarCache.MAX_ENTRIES,
+                                                          Constants.JarCache.DEFAULT_MAX_ENTRIES),
+                                             TimeUnit.SECONDS.toMillis(
+                                               cConf.getLong(Constants.JarCache.GRACE_PERIOD_SECONDS,
+                                                             Constants.JarCache.DEFAULT_GRACE_PERIOD_SECONDS)));
   }
 
   /**
@@ -129,8 +138,19 @@ public class DeployClient {
     }
   }
 
+  /**
+   * Creates a {@link Program} from the given jar, which is unpacked through the jar unpack cache.
+   */
+  public Program createProgram(File jarPath, String classToLoad) throws Exception {
+    return createProgram(classToLoad, jarUnpackCache.getUnpackedDir(jarPath));
+  }
+
   public Program createProgram(File jarPath, String classToLoad, File jarUnpackDir) throws Exception {
     expandJar(jarPath, jarUnpackDir);
+    return createProgram(classToLoad, jarUnpackDir);
+  }
+
+  private Program createProgram(String classToLoad, File jarUnpackDir) throws Exception {
     ProgramClassLoader classLoader = ClassLoaders.newProgramClassLoader(jarUnpackDir,
                                                                         ApiResourceListHolder.getResourceList());
     Class<?> clz = classLoader.loadClass(classToLoad);
@@ -153,9 +173,17 @@ public class DeployClient {
       program, new SimpleProgramOptions(program.getName(), new BasicArguments(), new BasicArguments(userArgs), debug));
   }
 
+  public ProgramController startFlow(File jarPath, String classToLoad, Map<String, String> userArgs)
+    throws Exception {
+    return startFlow(createProgram(jarPath, classToLoad), userArgs);
+  }
+
   public ProgramController startFlow(File jarPath, String classToLoad, File jarUnpackDir, Map<String, String> userArgs)
     throws Exception {
-    Program program = createProgram(jarPath, classToLoad, jarUnpackDir);
+    return startFlow(createProgram(jarPath, classToLoad, jarUnpackDir), userArgs);
+  }
+
+  private ProgramController startFlow(Program program, Map<String, String> userArgs) {
     return programRunnerFactory.create(ProgramRunnerFactory.Type.FLOW).run(
       program, new SimpleProgramOptions(program.getName(), new BasicArguments(), new BasicArguments(userArgs)));
   }
@@ -35,6 +35,8 @@ public abstract class AbstractContext implements RuntimeContext {
   private final Program program;
   private final RunId runId;
 
+  private final String metricsContext;
+  private final MetricsCollectionService metricsCollectionService;
   private final MetricsCollector programMetrics;
 
   public AbstractContext(Program program, RunId runId,
@@ -42,6 +44,8 @@ public abstract class AbstractContext implements RuntimeContext {
                          MetricsCollectionService metricsCollectionService) {
     this.program = program;
     this.runId = runId;
+    this.metricsContext = metricsContext;
+    this.metricsCollectionService = metricsCollectionService;
 
     if (metricsCollectionService != null) {
       // NOTE: RunId metric is not supported now. Need UI refactoring to enable it.
@@ -78,6 +82,8 @@ public abstract class AbstractContext implements RuntimeContext {
    * Release all resources held by this context. Subclasses should override this method to release additional resources.
    */
   public void close() {
-
+    if (metricsCollectionService != null) {
+      metricsCollectionService.removeCollector(MetricsScope.SYSTEM, metricsContext, "0");
+    }
   }
 }
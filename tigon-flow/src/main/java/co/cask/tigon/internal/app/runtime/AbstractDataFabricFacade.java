@@ -24,7 +24,10 @@ import co.cask.tigon.data.queue.QueueClientFactory;
 import co.cask.tigon.data.queue.QueueConsumer;
 import co.cask.tigon.data.queue.QueueName;
 import co.cask.tigon.data.queue.QueueProducer;
+import co.cask.tigon.data.transaction.queue.BatchingQueueClientFactory;
 import co.cask.tigon.data.transaction.queue.QueueMetrics;
+import co.cask.tigon.data.transaction.queue.QueueWriteBatch;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Sets;
 
@@ -39,15 +42,29 @@ public abstract class AbstractDataFabricFacade implements DataFabricFacade {
   private final QueueClientFactory queueClientFactory;
   private final TransactionSystemClient txSystemClient;
   private final Set<TransactionAware> txAware = Sets.newIdentityHashSet();
+  private final Iterable<TransactionAware> writeBatches;
+  private final QueueWriteBatch writeBatch;
 
   public AbstractDataFabricFacade(TransactionSystemClient txSystemClient, QueueClientFactory queueClientFactory) {
     this.txSystemClient = txSystemClient;
-    this.queueClientFactory = queueClientFactory;
+    if (queueClientFactory instanceof BatchingQueueClientFactory) {
+      // All queue clients of the program share one batch, which writes for all of them on commit
+      QueueWriteBatch writeBatch = ((BatchingQueueClientFactory) queueClientFactory).createWriteBatch();
+      this.queueClientFactory = writeBatch;
+      this.writeBatches = ImmutableList.<TransactionAware>of(writeBatch);
+      this.writeBatch = writeBatch;
+    } else {
+      this.queueClientFactory = queueClientFactory;
+      this.writeBatches = ImmutableList.of();
+      this.writeBatch = null;
+    }
   }
 
   @Override
   public TransactionContext createTransactionManager() {
-    return new TransactionContext(txSystemClient, Iterables.unmodifiableIterable(txAware));
+    // The write batch goes last, so that it gets the writes of all queue clients before it commits
+    return new TransactionContext(txSystemClient, Iterables.concat(Iterables.unmodifiableIterable(txAware),
+                                                                   writeBatches));
   }
 
   @Override
@@ -58,7 +75,13 @@ public abstract class AbstractDataFabricFacade implements DataFabricFacade {
   @Override
   public QueueConsumer createConsumer(QueueName queueName,
                                        ConsumerConfig consumerConfig, int numGroups) throws IOException {
-    QueueConsumer consumer = queueClientFactory.createConsumer(queueName, consumerConfig, numGroups);
+    return createConsumer(queueName, consumerConfig, numGroups, QueueMetrics.NOOP_QUEUE_METRICS);
+  }
+
+  @Override
+  public QueueConsumer createConsumer(QueueName queueName, ConsumerConfig consumerConfig, int numGroups,
+                                      QueueMetrics queueMetrics) throws IOException {
+    QueueConsumer consumer = queueClientFactory.createConsumer(queueName, consumerConfig, numGroups, queueMetrics);
     if (consumer instanceof TransactionAware) {
       consumer = new CloseableQueueConsumer(this, consumer);
       txAware.add((TransactionAware) consumer);
@@ -78,4 +101,11 @@ public abstract class AbstractDataFabricFacade implements DataFabricFacade {
   public void removeTransactionAware(TransactionAware transactionAware) {
     txAware.remove(transactionAware);
   }
+
+  @Override
+  public void close() throws IOException {
+    if (writeBatch != null) {
+      writeBatch.close();
+    }
+  }
 }
@@ -20,11 +20,21 @@ import co.cask.tephra.TransactionContext;
 import co.cask.tephra.TransactionExecutor;
 import co.cask.tigon.data.queue.QueueClientFactory;
 
+import java.io.Closeable;
+import java.io.IOException;
+
 /**
  *
  */
-public interface DataFabricFacade extends QueueClientFactory {
+public interface DataFabricFacade extends QueueClientFactory, Closeable {
 
   TransactionContext createTransactionManager();
 
+  /**
+   * Releases the resources shared by the queue clients created through this facade. It must be called after
+   * all of them are closed.
+   */
+  @Override
+  void close() throws IOException;
+
 }
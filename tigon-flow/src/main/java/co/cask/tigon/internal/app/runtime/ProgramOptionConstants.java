@@ -27,5 +27,9 @@ public final class ProgramOptionConstants {
 
   public static final String INSTANCES = "instances";
 
+  public static final String PREPARE_INSTANCES = "prepareInstances";
+
+  public static final String COMMIT_INSTANCES = "commitInstances";
+
   public static final String FLOWLET_INSTANCES = "flowletInstances";
 }
@@ -21,6 +21,7 @@ import co.cask.tigon.app.guice.MetricsClientRuntimeModule;
 import co.cask.tigon.app.program.Program;
 import co.cask.tigon.app.program.Programs;
 import co.cask.tigon.conf.CConfiguration;
+import co.cask.tigon.conf.Constants;
 import co.cask.tigon.data.runtime.DataFabricModules;
 import co.cask.tigon.guice.ConfigModule;
 import co.cask.tigon.guice.DiscoveryRuntimeModule;
@@ -37,7 +38,10 @@ import co.cask.tigon.internal.app.runtime.ProgramOptions;
 import co.cask.tigon.internal.app.runtime.ProgramResourceReporter;
 import co.cask.tigon.internal.app.runtime.ProgramRunner;
 import co.cask.tigon.internal.app.runtime.SimpleProgramOptions;
+import co.cask.tigon.metrics.AggregatedMetricsCollectionService;
+import co.cask.tigon.metrics.HttpMetricsSink;
 import co.cask.tigon.metrics.MetricsCollectionService;
+import co.cask.tigon.metrics.MetricsSink;
 import com.google.common.base.Predicates;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableMap;
@@ -81,6 +85,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 
@@ -106,6 +111,8 @@ public abstract class AbstractProgramTwillRunnable<T extends ProgramRunner> impl
   private ZKClientService zkClientService;
   private MetricsCollectionService metricsCollectionService;
   private ProgramResourceReporter resourceReporter;
+  private TwillContext twillContext;
+  private Cancellable metricsAnnouncement;
   private CountDownLatch runlatch;
 
   protected AbstractProgramTwillRunnable(String name, String hConfName, String cConfName) {
@@ -139,6 +146,7 @@ public abstract class AbstractProgramTwillRunnable<T extends ProgramRunner> impl
   @Override
   public void initialize(TwillContext context) {
     runlatch = new CountDownLatch(1);
+    twillContext = context;
     name = context.getSpecification().getName();
     Map<String, String> configs = context.getSpecification().getConfigs();
 
@@ -193,9 +201,11 @@ public abstract class AbstractProgramTwillRunnable<T extends ProgramRunner> impl
       controller.resume().get();
       return;
     }
-    if (ProgramOptionConstants.INSTANCES.equals(command.getCommand())) {
+    if (ProgramOptionConstants.INSTANCES.equals(command.getCommand())
+      || ProgramOptionConstants.PREPARE_INSTANCES.equals(command.getCommand())
+      || ProgramOptionConstants.COMMIT_INSTANCES.equals(command.getCommand())) {
       int instances = Integer.parseInt(command.getOptions().get("count"));
-      controller.command(ProgramOptionConstants.INSTANCES, instances).get();
+      controller.command(command.getCommand(), instances).get();
       return;
     }
     LOG.warn("Ignore unsupported command: " + command);
@@ -217,6 +227,7 @@ public abstract class AbstractProgramTwillRunnable<T extends ProgramRunner> impl
     LOG.info("Starting metrics service");
     Futures.getUnchecked(
       Services.chainStart(zkClientService, metricsCollectionService, resourceReporter));
+    metricsAnnouncement = announceMetrics();
 
     LOG.info("Starting runnable: {}", name);
     controller = injector.getInstance(getProgramClass()).run(program, programOpts);
@@ -247,11 +258,35 @@ public abstract class AbstractProgramTwillRunnable<T extends ProgramRunner> impl
   @Override
   public void destroy() {
     LOG.info("Releasing resources: {}", name);
+    if (metricsAnnouncement != null) {
+      metricsAnnouncement.cancel();
+    }
     Futures.getUnchecked(
       Services.chainStop(resourceReporter, metricsCollectionService, zkClientService));
     LOG.info("Runnable stopped: {}", name);
   }
 
+  /**
+   * Announces the http metrics endpoint of this container, if there is one that can be reached from other hosts,
+   * so that the metrics can be queried through service discovery.
+   */
+  private Cancellable announceMetrics() {
+    if (metricsCollectionService instanceof AggregatedMetricsCollectionService) {
+      for (MetricsSink sink : ((AggregatedMetricsCollectionService) metricsCollectionService).getSinks()) {
+        if (sink instanceof HttpMetricsSink) {
+          InetSocketAddress bindAddress = ((HttpMetricsSink) sink).getBindAddress();
+          if (bindAddress.getAddress().isLoopbackAddress()) {
+            LOG.info("Not announcing metrics endpoint bound to {}, set {} to make it reachable.",
+                     bindAddress, Constants.Metrics.HTTP_BIND_ADDRESS);
+            return null;
+          }
+          return twillContext.announce(Constants.Metrics.SERVICE_NAME, bindAddress.getPort());
+        }
+      }
+    }
+    return null;
+  }
+
   private CommandLine parseArgs(String[] args) {
     Options opts = new Options()
       .addOption(createOption(RunnableOptions.JAR, "Program jar location"))
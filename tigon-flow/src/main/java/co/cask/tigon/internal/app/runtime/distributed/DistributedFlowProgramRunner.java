@@ -24,9 +24,11 @@ import co.cask.tigon.conf.CConfiguration;
 import co.cask.tigon.conf.Constants;
 import co.cask.tigon.data.queue.QueueName;
 import co.cask.tigon.data.transaction.queue.QueueAdmin;
+import co.cask.tigon.internal.app.runtime.AbstractListener;
 import co.cask.tigon.internal.app.runtime.ProgramController;
 import co.cask.tigon.internal.app.runtime.ProgramOptions;
 import co.cask.tigon.internal.app.runtime.flow.FlowUtils;
+import co.cask.tigon.metrics.MetricsCollectionService;
 import co.cask.tigon.twill.AbortOnTimeoutEventHandler;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Throwables;
@@ -36,6 +38,7 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.twill.api.EventHandler;
 import org.apache.twill.api.TwillController;
 import org.apache.twill.api.TwillRunner;
+import org.apache.twill.common.Threads;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -48,12 +51,16 @@ public final class DistributedFlowProgramRunner extends AbstractDistributedProgr
 
   private static final Logger LOG = LoggerFactory.getLogger(DistributedFlowProgramRunner.class);
   private final QueueAdmin queueAdmin;
+  private final CConfiguration cConf;
+  private final MetricsCollectionService metricsCollectionService;
 
   @Inject
   DistributedFlowProgramRunner(TwillRunner twillRunner, Configuration hConfig, CConfiguration cConfig,
-                               QueueAdmin queueAdmin) {
+                               QueueAdmin queueAdmin, MetricsCollectionService metricsCollectionService) {
     super(twillRunner, hConfig, cConfig);
     this.queueAdmin = queueAdmin;
+    this.cConf = cConfig;
+    this.metricsCollectionService = metricsCollectionService;
   }
 
   @Override
@@ -85,12 +92,45 @@ public final class DistributedFlowProgramRunner extends AbstractDistributedProgr
       DistributedFlowletInstanceUpdater instanceUpdater = new DistributedFlowletInstanceUpdater(program, controller,
                                                                                                 queueAdmin,
                                                                                                 flowletQueues);
-      return new FlowTwillProgramController(program.getName(), controller, instanceUpdater).startListen();
+      ProgramController programController = new FlowTwillProgramController(program.getName(), controller,
+                                                                           instanceUpdater).startListen();
+      if (Boolean.parseBoolean(FlowletScalingPolicy.get(Constants.AutoScale.ENABLED, cConf,
+                                                        options.getUserArguments(),
+                                                        Constants.AutoScale.DEFAULT_ENABLED))) {
+        startAutoScaler(program, options, programController, controller, flowletQueues);
+      }
+      return programController;
     } catch (Exception e) {
       throw Throwables.propagate(e);
     }
   }
 
+  /**
+   * Starts a {@link FlowletAutoScaler} for the flow, which stops when the flow stops.
+   */
+  private void startAutoScaler(Program program, ProgramOptions options, ProgramController programController,
+                               TwillController twillController, Multimap<String, QueueName> flowletQueues) {
+    long intervalSeconds = Long.parseLong(FlowletScalingPolicy.get(Constants.AutoScale.INTERVAL_SECONDS, cConf,
+                                                                   options.getUserArguments(),
+                                                                   Constants.AutoScale.DEFAULT_INTERVAL_SECONDS));
+    final FlowletAutoScaler autoScaler = new FlowletAutoScaler(
+      program, programController, twillController, queueAdmin, flowletQueues,
+      FlowletScalingPolicy.create(cConf, options.getUserArguments()), intervalSeconds, metricsCollectionService);
+
+    programController.addListener(new AbstractListener() {
+      @Override
+      public void stopped() {
+        autoScaler.stop();
+      }
+
+      @Override
+      public void error(Throwable cause) {
+        autoScaler.stop();
+      }
+    }, Threads.SAME_THREAD_EXECUTOR);
+    autoScaler.start();
+  }
+
   @Override
   protected EventHandler createEventHandler(CConfiguration cConf) {
     return new AbortOnTimeoutEventHandler(
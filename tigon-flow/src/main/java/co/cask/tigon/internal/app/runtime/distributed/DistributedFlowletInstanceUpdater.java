@@ -31,7 +31,10 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 /**
- * For updating number of flowlet instances
+ * For updating number of flowlet instances. Adding instances happens without suspending the flowlet: the running
+ * instances first restrict themselves to the entries they own under both the old and the new instance count, then
+ * switch to the new count one after another, and only then the new instances are started. Removing instances
+ * suspends the flowlet, as the entries owned by the removed instances need to be repartitioned.
  */
 public final class DistributedFlowletInstanceUpdater {
   private static final Logger LOG = LoggerFactory.getLogger(DistributedFlowletInstanceUpdater.class);
@@ -59,6 +62,10 @@ public final class DistributedFlowletInstanceUpdater {
                                 "Flowlet %s can have a maximum of %s instances", flowletId, maxInstances);
 
     waitForInstances(flowletId, oldInstanceCount);
+    if (newInstanceCount > oldInstanceCount) {
+      rebalance(flowletId, newInstanceCount);
+      return;
+    }
     twillController.sendCommand(flowletId, ProgramCommands.SUSPEND).get();
 
     FlowUtils.reconfigure(consumerQueues.get(flowletId),
@@ -68,6 +75,17 @@ public final class DistributedFlowletInstanceUpdater {
     twillController.sendCommand(flowletId, ProgramCommands.RESUME).get();
   }
 
+  private void rebalance(String flowletId, int newInstanceCount) throws Exception {
+    // Once all running instances have acknowledged, no entry is owned by two of them under either instance count.
+    twillController.sendCommand(flowletId, ProgramCommands.createPrepareInstances(newInstanceCount)).get();
+
+    FlowUtils.reconfigure(consumerQueues.get(flowletId),
+                          FlowUtils.generateConsumerGroupId(program, flowletId), newInstanceCount, queueAdmin);
+
+    twillController.sendCommand(flowletId, ProgramCommands.createCommitInstances(newInstanceCount)).get();
+    twillController.changeInstances(flowletId, newInstanceCount).get();
+  }
+
   // wait until there are expectedInstances of the flowlet.  This is needed to prevent the case where a suspend
   // command is sent before all flowlet instances have been registered in ZK, and then the change instance command
   // is sent after the new flowlet instances have started up, which will cause them to crash because
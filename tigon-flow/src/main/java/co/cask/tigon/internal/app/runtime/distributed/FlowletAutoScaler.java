@@ -0,0 +1,189 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.internal.app.runtime.distributed;
+
+import co.cask.tigon.api.flow.FlowletDefinition;
+import co.cask.tigon.app.program.Program;
+import co.cask.tigon.data.queue.QueueName;
+import co.cask.tigon.data.transaction.queue.QueueAdmin;
+import co.cask.tigon.internal.app.runtime.ProgramController;
+import co.cask.tigon.internal.app.runtime.ProgramOptionConstants;
+import co.cask.tigon.internal.app.runtime.flow.FlowUtils;
+import co.cask.tigon.metrics.MetricsCollectionService;
+import co.cask.tigon.metrics.MetricsCollector;
+import co.cask.tigon.metrics.MetricsScope;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.AbstractScheduledService;
+import org.apache.twill.api.ResourceReport;
+import org.apache.twill.api.TwillController;
+import org.apache.twill.api.TwillRunResources;
+import org.apache.twill.common.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically checks the number of entries pending in the input queues of each flowlet of a flow, and changes the
+ * number of instances of the flowlet through its {@link ProgramController} as decided by a
+ * {@link FlowletScalingPolicy}.
+ */
+final class FlowletAutoScaler extends AbstractScheduledService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FlowletAutoScaler.class);
+
+  private final Program program;
+  private final ProgramController programController;
+  private final TwillController twillController;
+  private final QueueAdmin queueAdmin;
+  private final Multimap<String, QueueName> consumerQueues;
+  private final FlowletScalingPolicy policy;
+  private final long intervalSeconds;
+  private final MetricsCollectionService metricsCollectionService;
+  private final Map<String, MetricsCollector> collectors;
+
+  private volatile ScheduledExecutorService executor;
+
+  FlowletAutoScaler(Program program, ProgramController programController, TwillController twillController,
+                    QueueAdmin queueAdmin, Multimap<String, QueueName> consumerQueues,
+                    FlowletScalingPolicy policy, long intervalSeconds,
+                    MetricsCollectionService metricsCollectionService) {
+    this.program = program;
+    this.programController = programController;
+    this.twillController = twillController;
+    this.queueAdmin = queueAdmin;
+    this.consumerQueues = consumerQueues;
+    this.policy = policy;
+    this.intervalSeconds = intervalSeconds;
+    this.metricsCollectionService = metricsCollectionService;
+    this.collectors = Maps.newHashMap();
+  }
+
+  @Override
+  protected void startUp() throws Exception {
+    LOG.info("Starting autoscaling of flow {} every {} seconds with {}", program.getName(), intervalSeconds, policy);
+  }
+
+  @Override
+  protected void runOneIteration() throws Exception {
+    ResourceReport report = twillController.getResourceReport();
+    if (report == null) {
+      // Not running yet
+      return;
+    }
+    for (Map.Entry<String, FlowletDefinition> entry : program.getSpecification().getFlowlets().entrySet()) {
+      String flowletId = entry.getKey();
+      Collection<QueueName> queues = consumerQueues.get(flowletId);
+      if (queues.isEmpty()) {
+        // Nothing to measure for flowlets without input queues
+        continue;
+      }
+      try {
+        checkFlowlet(flowletId, entry.getValue(), queues, report);
+      } catch (Throwable t) {
+        LOG.warn("Failed to check flowlet {} of flow {} for autoscaling", flowletId, program.getName(), t);
+      }
+    }
+  }
+
+  @Override
+  protected void shutDown() throws Exception {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+    LOG.info("Stopped autoscaling of flow {}", program.getName());
+  }
+
+  @Override
+  protected Scheduler scheduler() {
+    return Scheduler.newFixedDelaySchedule(intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+  }
+
+  @Override
+  protected ScheduledExecutorService executor() {
+    executor = Executors.newSingleThreadScheduledExecutor(
+      Threads.createDaemonThreadFactory("flowlet-autoscaler-" + program.getName()));
+    return executor;
+  }
+
+  private void checkFlowlet(String flowletId, FlowletDefinition definition,
+                            Collection<QueueName> queues, ResourceReport report) throws Exception {
+    Collection<TwillRunResources> resources = report.getRunnableResources(flowletId);
+    int instances = resources == null ? 0 : resources.size();
+    if (instances == 0) {
+      // Either not started yet or in the middle of a change
+      return;
+    }
+    int maxInstances = definition.getFlowletSpec().getMaxInstances();
+
+    long groupId = FlowUtils.generateConsumerGroupId(program, flowletId);
+    long limit = policy.getPendingLimit(maxInstances);
+    long pending = 0;
+    for (QueueName queueName : queues) {
+      pending += queueAdmin.getPendingEntries(queueName, groupId, limit - pending);
+      if (pending >= limit) {
+        break;
+      }
+    }
+
+    int newInstances = policy.decide(flowletId, pending, instances, maxInstances, System.currentTimeMillis());
+    recordDecision(flowletId, pending, instances, newInstances);
+    if (newInstances == instances) {
+      LOG.debug("Flowlet {} of flow {} stays at {} instances with {} pending entries",
+                flowletId, program.getName(), instances, pending);
+      return;
+    }
+
+    LOG.info("Scaling flowlet {} of flow {} from {} to {} instances, {} entries pending",
+             flowletId, program.getName(), instances, newInstances, pending);
+
+    Map<String, String> command = Maps.newHashMap();
+    command.put("flowlet", flowletId);
+    command.put("newInstances", String.valueOf(newInstances));
+    command.put("oldInstances", String.valueOf(instances));
+    programController.command(ProgramOptionConstants.FLOWLET_INSTANCES, command).get();
+  }
+
+  /**
+   * Emits the metrics of a scaling decision for a flowlet.
+   */
+  @VisibleForTesting
+  void recordDecision(String flowletId, long pending, int instances, int newInstances) {
+    MetricsCollector metrics = getCollector(flowletId);
+    metrics.histogram("autoscale.pending", pending);
+    metrics.histogram("autoscale.instances", instances);
+    if (newInstances != instances) {
+      metrics.gauge(newInstances > instances ? "autoscale.scale.up" : "autoscale.scale.down", 1);
+    }
+  }
+
+  private MetricsCollector getCollector(String flowletId) {
+    MetricsCollector collector = collectors.get(flowletId);
+    if (collector == null) {
+      collector = metricsCollectionService.getCollector(MetricsScope.SYSTEM,
+                                                        String.format("%s.%s", program.getName(), flowletId), "0");
+      collectors.put(flowletId, collector);
+    }
+    return collector;
+  }
+}
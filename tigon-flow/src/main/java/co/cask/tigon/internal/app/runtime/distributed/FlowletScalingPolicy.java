@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.internal.app.runtime.distributed;
+
+import co.cask.tigon.conf.CConfiguration;
+import co.cask.tigon.conf.Constants;
+import co.cask.tigon.internal.app.runtime.Arguments;
+import com.google.common.base.Objects;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides the number of instances of a flowlet from the number of entries pending in its input queues.
+ *
+ * A flowlet scales up when more than the target number of entries per instance are pending, by at most doubling
+ * its instances. It scales down only after the pending entries per instance stayed below a fraction of the target
+ * for a number of consecutive checks, by at most halving its instances. Between the two thresholds nothing changes.
+ * Each change is followed by a cool-down period during which the flowlet does not scale again.
+ */
+final class FlowletScalingPolicy {
+
+  private final long targetPending;
+  private final double scaleDownRatio;
+  private final int scaleDownSamples;
+  private final long scaleUpCooldownMillis;
+  private final long scaleDownCooldownMillis;
+  private final Map<String, FlowletState> states;
+
+  /**
+   * Creates a policy from the configuration, where runtime arguments of the flow take precedence.
+   */
+  static FlowletScalingPolicy create(CConfiguration cConf, Arguments userArgs) {
+    return new FlowletScalingPolicy(
+      Long.parseLong(get(Constants.AutoScale.TARGET_PENDING, cConf, userArgs,
+                         Constants.AutoScale.DEFAULT_TARGET_PENDING)),
+      Double.parseDouble(get(Constants.AutoScale.SCALE_DOWN_RATIO, cConf, userArgs,
+                             Constants.AutoScale.DEFAULT_SCALE_DOWN_RATIO)),
+      Integer.parseInt(get(Constants.AutoScale.SCALE_DOWN_SAMPLES, cConf, userArgs,
+                           Constants.AutoScale.DEFAULT_SCALE_DOWN_SAMPLES)),
+      TimeUnit.SECONDS.toMillis(Long.parseLong(get(Constants.AutoScale.SCALE_UP_COOLDOWN_SECONDS, cConf, userArgs,
+                                                   Constants.AutoScale.DEFAULT_SCALE_UP_COOLDOWN_SECONDS))),
+      TimeUnit.SECONDS.toMillis(Long.parseLong(get(Constants.AutoScale.SCALE_DOWN_COOLDOWN_SECONDS, cConf, userArgs,
+                                                   Constants.AutoScale.DEFAULT_SCALE_DOWN_COOLDOWN_SECONDS))));
+  }
+
+  /**
+   * Returns the value of a setting, from the runtime arguments of the flow if present there.
+   */
+  static String get(String key, CConfiguration cConf, Arguments userArgs, Object defaultValue) {
+    if (userArgs.hasOption(key)) {
+      return userArgs.getOption(key);
+    }
+    return cConf.get(key, String.valueOf(defaultValue));
+  }
+
+  FlowletScalingPolicy(long targetPending, double scaleDownRatio, int scaleDownSamples,
+                       long scaleUpCooldownMillis, long scaleDownCooldownMillis) {
+    Preconditions.checkArgument(targetPending > 0, "Target pending entries must be > 0.");
+    Preconditions.checkArgument(scaleDownRatio >= 0 && scaleDownRatio < 1, "Scale down ratio must be in [0, 1).");
+    this.targetPending = targetPending;
+    this.scaleDownRatio = scaleDownRatio;
+    this.scaleDownSamples = Math.max(1, scaleDownSamples);
+    this.scaleUpCooldownMillis = scaleUpCooldownMillis;
+    this.scaleDownCooldownMillis = scaleDownCooldownMillis;
+    this.states = Maps.newHashMap();
+  }
+
+  /**
+   * Returns the number of pending entries beyond which counting more makes no difference to the decisions.
+   */
+  long getPendingLimit(int maxInstances) {
+    return targetPending * maxInstances + 1;
+  }
+
+  /**
+   * Decides the number of instances of a flowlet.
+   * @param flowletId Name of the flowlet.
+   * @param pending Number of entries pending in the input queues of the flowlet.
+   * @param instances Current number of instances.
+   * @param maxInstances Maximum number of instances of the flowlet.
+   * @param now Current time in milliseconds.
+   * @return The new number of instances, which is the current number if nothing should change.
+   */
+  synchronized int decide(String flowletId, long pending, int instances, int maxInstances, long now) {
+    FlowletState state = states.get(flowletId);
+    if (state == null) {
+      state = new FlowletState();
+      states.put(flowletId, state);
+    }
+
+    // Number of instances that would bring the pending entries per instance down to the target
+    long needed = Math.max(1L, (pending + targetPending - 1) / targetPending);
+
+    if (pending > targetPending * instances) {
+      state.lowSamples = 0;
+      if (now < state.lastChange + scaleUpCooldownMillis) {
+        return instances;
+      }
+      int next = (int) Math.min(Math.min(needed, (long) instances * 2), maxInstances);
+      return changeTo(state, instances, next, now);
+    }
+
+    if (pending < targetPending * instances * scaleDownRatio) {
+      state.lowSamples++;
+      if (state.lowSamples < scaleDownSamples || now < state.lastChange + scaleDownCooldownMillis) {
+        return instances;
+      }
+      int next = (int) Math.max(needed, (instances + 1) / 2);
+      return changeTo(state, instances, next, now);
+    }
+
+    state.lowSamples = 0;
+    return instances;
+  }
+
+  private int changeTo(FlowletState state, int instances, int next, long now) {
+    if (next != instances) {
+      state.lastChange = now;
+      state.lowSamples = 0;
+    }
+    return next;
+  }
+
+  @Override
+  public String toString() {
+    return Objects.toStringHelper(this)
+      .add("targetPending", targetPending)
+      .add("scaleDownRatio", scaleDownRatio)
+      .add("scaleDownSamples", scaleDownSamples)
+      .add("scaleUpCooldownMillis", scaleUpCooldownMillis)
+      .add("scaleDownCooldownMillis", scaleDownCooldownMillis)
+      .toString();
+  }
+
+  /**
+   * Scaling state of one flowlet.
+   */
+  private static final class FlowletState {
+    private long lastChange;
+    private int lowSamples;
+  }
+}
@@ -28,7 +28,26 @@ public final class ProgramCommands {
   public static final Command RESUME = Command.Builder.of("resume").build();
 
   public static Command createSetInstances(int instances) {
-    return Command.Builder.of(ProgramOptionConstants.INSTANCES).addOption("count", Integer.toString(instances)).build();
+    return createInstancesCommand(ProgramOptionConstants.INSTANCES, instances);
+  }
+
+  /**
+   * Creates a command for running flowlet instances to only consume the entries they also own in a group of the
+   * given size, in preparation of changing the number of instances without suspension.
+   */
+  public static Command createPrepareInstances(int instances) {
+    return createInstancesCommand(ProgramOptionConstants.PREPARE_INSTANCES, instances);
+  }
+
+  /**
+   * Creates a command for running flowlet instances to switch to the given number of instances without suspension.
+   */
+  public static Command createCommitInstances(int instances) {
+    return createInstancesCommand(ProgramOptionConstants.COMMIT_INSTANCES, instances);
+  }
+
+  private static Command createInstancesCommand(String name, int instances) {
+    return Command.Builder.of(name).addOption("count", Integer.toString(instances)).build();
   }
 
   private ProgramCommands() {
@@ -32,6 +32,7 @@ import co.cask.tigon.metrics.MetricsCollectionService;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.io.Closeables;
 import org.apache.twill.api.RunId;
 import org.apache.twill.api.ServiceAnnouncer;
 import org.apache.twill.common.Cancellable;
@@ -179,4 +180,10 @@ final class BasicFlowletContext extends AbstractContext implements FlowletContex
   public Cancellable announce(String s, int i) {
     return serviceAnnouncer.announce(s, i);
   }
+
+  @Override
+  public void close() {
+    Closeables.closeQuietly(dataFabricFacade);
+    super.close();
+  }
 }
@@ -21,6 +21,7 @@ import co.cask.tephra.TransactionFailureException;
 import co.cask.tigon.data.queue.ConsumerConfig;
 import co.cask.tigon.data.queue.QueueConsumer;
 import co.cask.tigon.data.queue.QueueName;
+import co.cask.tigon.data.transaction.queue.QueueMetrics;
 import co.cask.tigon.internal.app.runtime.DataFabricFacade;
 import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
@@ -44,6 +45,7 @@ final class ConsumerSupplier<T> implements Supplier<T>, Closeable {
   private final DataFabricFacade dataFabricFacade;
   private final QueueName queueName;
   private final int numGroups;
+  private final QueueMetrics queueMetrics;
   private ConsumerConfig consumerConfig;
   private Object consumer;
 
@@ -54,16 +56,22 @@ final class ConsumerSupplier<T> implements Supplier<T>, Closeable {
 
   static <T> ConsumerSupplier<T> create(DataFabricFacade dataFabricFacade, QueueName queueName,
                                         ConsumerConfig consumerConfig, int numGroups) {
-    return new ConsumerSupplier<T>(dataFabricFacade, queueName, consumerConfig, numGroups);
+    return create(dataFabricFacade, queueName, consumerConfig, numGroups, QueueMetrics.NOOP_QUEUE_METRICS);
+  }
+
+  static <T> ConsumerSupplier<T> create(DataFabricFacade dataFabricFacade, QueueName queueName,
+                                        ConsumerConfig consumerConfig, int numGroups, QueueMetrics queueMetrics) {
+    return new ConsumerSupplier<T>(dataFabricFacade, queueName, consumerConfig, numGroups, queueMetrics);
   }
 
   private ConsumerSupplier(DataFabricFacade dataFabricFacade, QueueName queueName,
-                           ConsumerConfig consumerConfig, int numGroups) {
+                           ConsumerConfig consumerConfig, int numGroups, QueueMetrics queueMetrics) {
     this.dataFabricFacade = dataFabricFacade;
     this.queueName = queueName;
     this.numGroups = numGroups;
+    this.queueMetrics = queueMetrics;
     this.consumerConfig = consumerConfig;
-    open(consumerConfig.getGroupSize());
+    open(consumerConfig);
   }
 
   /**
@@ -73,18 +81,37 @@ final class ConsumerSupplier<T> implements Supplier<T>, Closeable {
    * @param groupSize New group size.
    */
   void open(int groupSize) {
+    ConsumerConfig config = consumerConfig;
+    if (groupSize != config.getGroupSize() || config.getNextGroupSize() != 0) {
+      config = config.withGroupSize(groupSize);
+    }
+    open(config);
+  }
+
+  /**
+   * Reopens the consumer to only consume the entries it owns under both the current and the given group size,
+   * in preparation of {@link #changeGroupSize(int)}.
+   *
+   * @param nextGroupSize Group size to change to.
+   */
+  void prepareGroupSize(int nextGroupSize) {
+    open(consumerConfig.withNextGroupSize(nextGroupSize));
+  }
+
+  /**
+   * Reopens the consumer with the next generation of the consumer config, which has the given group size.
+   *
+   * @param groupSize New group size.
+   */
+  void changeGroupSize(int groupSize) {
+    open(consumerConfig.withGroupSize(groupSize));
+  }
+
+  private void open(ConsumerConfig config) {
     try {
       close();
-      ConsumerConfig config = consumerConfig;
-      if (groupSize != config.getGroupSize()) {
-        config = new ConsumerConfig(consumerConfig.getGroupId(),
-                                    consumerConfig.getInstanceId(),
-                                    groupSize,
-                                    consumerConfig.getDequeueStrategy(),
-                                    consumerConfig.getHashKey());
-      }
       if (queueName.isQueue()) {
-        QueueConsumer queueConsumer = dataFabricFacade.createConsumer(queueName, config, numGroups);
+        QueueConsumer queueConsumer = dataFabricFacade.createConsumer(queueName, config, numGroups, queueMetrics);
         consumerConfig = queueConsumer.getConfig();
         consumer = queueConsumer;
       }
@@ -295,39 +295,16 @@ public final class FlowProgramRunner implements ProgramRunner {
                                   "Flowlet %s can have a maximum of %s instances",
                                   flowletSpecification.getName(), flowletMaxInstances);
 
-      // First pause all flowlets
-      Futures.successfulAsList(Iterables.transform(
-        liveFlowlets.values(),
-        new Function<ProgramController, ListenableFuture<?>>() {
-          @Override
-          public ListenableFuture<?> apply(ProgramController controller) {
-            return controller.suspend();
-          }
-        })).get();
+      // First restrict every current flowlet to the entries it owns under both the current and the new count.
+      // The flowlets keep running, they are only paused between two transactions while reopening their consumers.
+      sendCommand(liveFlowlets, ProgramOptionConstants.PREPARE_INSTANCES, newInstanceCount);
 
       // Then reconfigure stream/queue consumers
       FlowUtils.reconfigure(consumerQueues.get(flowletName),
                             FlowUtils.generateConsumerGroupId(program, flowletName), newInstanceCount, queueAdmin);
 
-      // Then change instance count of current flowlets
-      Futures.successfulAsList(Iterables.transform(
-        liveFlowlets.values(),
-        new Function<ProgramController, ListenableFuture<?>>() {
-          @Override
-          public ListenableFuture<?> apply(ProgramController controller) {
-            return controller.command(ProgramOptionConstants.INSTANCES, newInstanceCount);
-          }
-        })).get();
-
-      // Next resume all current flowlets
-      Futures.successfulAsList(Iterables.transform(
-        liveFlowlets.values(),
-        new Function<ProgramController, ListenableFuture<?>>() {
-          @Override
-          public ListenableFuture<?> apply(ProgramController controller) {
-            return controller.resume();
-          }
-        })).get();
+      // Then switch current flowlets to the new instance count
+      sendCommand(liveFlowlets, ProgramOptionConstants.COMMIT_INSTANCES, newInstanceCount);
 
       // Last create more instances
       for (int instanceId = liveCount; instanceId < newInstanceCount; instanceId++) {
@@ -338,6 +315,18 @@ public final class FlowProgramRunner implements ProgramRunner {
     }
 
 
+    private void sendCommand(Map<Integer, ProgramController> liveFlowlets,
+                             final String name, final int instances) throws Exception {
+      Futures.successfulAsList(Iterables.transform(
+        liveFlowlets.values(),
+        new Function<ProgramController, ListenableFuture<?>>() {
+          @Override
+          public ListenableFuture<?> apply(ProgramController controller) {
+            return controller.command(name, instances);
+          }
+        })).get();
+    }
+
     private synchronized void decreaseInstances(String flowletName, final int newInstanceCount,
                                                 Map<Integer, ProgramController> liveFlowlets,
                                                 int liveCount) throws Exception {
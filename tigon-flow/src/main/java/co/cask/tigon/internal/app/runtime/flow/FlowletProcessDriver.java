@@ -29,8 +29,12 @@ import co.cask.tigon.internal.app.queue.SingleItemQueueReader;
 import co.cask.tigon.internal.app.runtime.DataFabricFacade;
 import co.cask.tigon.logging.LoggingContext;
 import co.cask.tigon.logging.LoggingContextAccessor;
+import co.cask.tigon.metrics.Counter;
+import co.cask.tigon.metrics.MetricsCollector;
+import co.cask.tigon.metrics.Timer;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.AbstractExecutionThreadService;
 import com.google.common.util.concurrent.Service;
 import com.google.common.util.concurrent.Uninterruptibles;
@@ -42,6 +46,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutionException;
@@ -51,6 +56,7 @@ import java.util.concurrent.Future;
 import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
@@ -69,9 +75,20 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
   private final AtomicReference<CountDownLatch> suspension;
   private final CyclicBarrier suspendBarrier;
   private final AtomicInteger inflight;
+  private final AtomicBoolean handOffRetries;
   private final DataFabricFacade dataFabricFacade;
   private final Service serviceHook;
 
+  // Metric handles, bound once so that emitting the metrics of each process call allocates nothing
+  private final Counter attemptReadCounter;
+  private final Counter errorsCounter;
+  private final Counter ticksProcessedCounter;
+  private final Counter eventsProcessedCounter;
+  private final ConcurrentMap<QueueName, Counter> queueEventsProcessedCounters;
+  private final Timer dequeueTimer;
+  private final Timer invokeTimer;
+  private final Timer commitTimer;
+
   private Thread runnerThread;
   private ExecutorService processExecutor;
 
@@ -87,6 +104,17 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
     this.dataFabricFacade = dataFabricFacade;
     this.serviceHook = serviceHook;
     this.inflight = new AtomicInteger(0);
+    this.handOffRetries = new AtomicBoolean(false);
+
+    MetricsCollector programMetrics = flowletContext.getProgramMetrics();
+    this.attemptReadCounter = programMetrics.counter("process.tuples.attempt.read");
+    this.errorsCounter = programMetrics.counter("process.errors");
+    this.ticksProcessedCounter = programMetrics.counter("process.ticks.processed");
+    this.eventsProcessedCounter = programMetrics.counter("process.events.processed");
+    this.queueEventsProcessedCounters = Maps.newConcurrentMap();
+    this.dequeueTimer = programMetrics.timer("process.dequeue.time");
+    this.invokeTimer = programMetrics.timer("process.invoke.time");
+    this.commitTimer = programMetrics.timer("process.commit.time");
 
     this.suspension = new AtomicReference<CountDownLatch>();
     this.suspendBarrier = new CyclicBarrier(2);
@@ -131,6 +159,14 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
     }
   }
 
+  /**
+   * Drops all inputs that are waiting for retry before the flowlet processes anything again, so that they get
+   * dequeued again by whichever instance owns them. This should be called while the flowlet is suspended.
+   */
+  public void handOffRetries() {
+    handOffRetries.set(true);
+  }
+
   /**
    * Resume the running of flowlet.
    */
@@ -170,6 +206,9 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
             continue;
           }
         }
+        if (handOffRetries.compareAndSet(true, false)) {
+          handOffRetries(processQueue);
+        }
 
         try {
           // If the queue head need to wait, we had to wait.
@@ -215,6 +254,22 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
     }
   }
 
+  /**
+   * Replaces every retry entry in the process queue with the entry it is retrying. The transaction of a failed
+   * input is rolled back, hence the dropped input remains in the queue to be dequeued again.
+   */
+  private void handOffRetries(BlockingQueue<FlowletProcessEntry<?>> processQueue) {
+    List<FlowletProcessEntry<?>> entries = Lists.newArrayListWithExpectedSize(processQueue.size());
+    processQueue.drainTo(entries);
+    for (FlowletProcessEntry<?> entry : entries) {
+      if (entry.isRetry()) {
+        // The inflight count is decremented when the retry completes, which won't happen now.
+        inflight.decrementAndGet();
+      }
+      processQueue.offer(entry.resetRetry());
+    }
+  }
+
   /**
    * Creates a {@link Runnable} for execution of calling flowlet process methods.
    */
@@ -252,7 +307,7 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
 
     ProcessMethod<T> processMethod = entry.getProcessSpec().getProcessMethod();
     if (processMethod.needsInput()) {
-      flowletContext.getProgramMetrics().gauge("process.tuples.attempt.read", 1);
+      attemptReadCounter.increment(1);
     }
 
     // Begin transaction and dequeue
@@ -261,7 +316,11 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
       txContext.start();
 
       try {
+        long startTime = System.nanoTime();
         InputDatum<T> input = entry.getProcessSpec().getQueueReader().dequeue(0, TimeUnit.MILLISECONDS);
+        if (processMethod.needsInput()) {
+          dequeueTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+        }
         if (!input.needProcess()) {
           entry.backOff();
           // End the transaction if nothing in the queue
@@ -282,7 +341,9 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
         try {
           // Call the process method and commit the transaction. The current process entry will put
           // back to queue in the postProcess method (either a retry copy or itself).
+          startTime = System.nanoTime();
           ProcessMethod.ProcessResult<?> result = processMethod.invoke(input);
+          invokeTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
           postProcess(processMethodCallback(processQueue, entry, input), txContext, input, result);
           return true;
         } catch (Throwable t) {
@@ -322,7 +383,9 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
         if (input.getRetry() > 0) {
           input.reclaim();
         }
+        long startTime = System.nanoTime();
         txContext.finish();
+        commitTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
       } else {
         failureCause = result.getCause();
         failureType = FailureReason.Type.USER;
@@ -410,6 +473,21 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
     }
   }
 
+  /**
+   * Returns the counter of events processed from the given queue, creating it on first use.
+   */
+  private Counter getEventsProcessedCounter(QueueName queueName) {
+    Counter counter = queueEventsProcessedCounters.get(queueName);
+    if (counter == null) {
+      counter = flowletContext.getProgramMetrics().counter("process.events.processed", "input." + queueName);
+      Counter existing = queueEventsProcessedCounters.putIfAbsent(queueName, counter);
+      if (existing != null) {
+        counter = existing;
+      }
+    }
+    return counter;
+  }
+
   private <T> ProcessMethodCallback processMethodCallback(final BlockingQueue<FlowletProcessEntry<?>> processQueue,
                                                           final FlowletProcessEntry<T> processEntry,
                                                           final InputDatum<T> input) {
@@ -437,7 +515,7 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
         LOG.warn("Process failure: {}, {}, input: {}", flowletContext, reason.getMessage(), input, reason.getCause());
         FailurePolicy failurePolicy;
         try {
-          flowletContext.getProgramMetrics().gauge("process.errors", 1);
+          errorsCounter.increment(1);
           failurePolicy = txCallback.onFailure(inputObject, inputContext, reason);
           if (failurePolicy == null) {
             failurePolicy = FailurePolicy.RETRY;
@@ -481,12 +559,11 @@ final class FlowletProcessDriver extends AbstractExecutionThreadService {
 
       private void gaugeEventProcessed(QueueName inputQueueName) {
         if (processEntry.isTick()) {
-          flowletContext.getProgramMetrics().gauge("process.ticks.processed", processedCount);
+          ticksProcessedCounter.increment(processedCount);
         } else if (inputQueueName == null) {
-          flowletContext.getProgramMetrics().gauge("process.events.processed", processedCount);
+          eventsProcessedCounter.increment(processedCount);
         } else {
-          String tag = "input." + inputQueueName.toString();
-          flowletContext.getProgramMetrics().gauge("process.events.processed", processedCount, tag);
+          getEventsProcessedCounter(inputQueueName).increment(processedCount);
         }
       }
     };
@@ -94,6 +94,14 @@ final class FlowletProgramController extends AbstractProgramController {
 
   @Override
   protected void doCommand(String name, Object value) throws Exception {
+    if (ProgramOptionConstants.PREPARE_INSTANCES.equals(name) && value instanceof Integer) {
+      rebalance((Integer) value, true);
+      return;
+    }
+    if (ProgramOptionConstants.COMMIT_INSTANCES.equals(name) && value instanceof Integer) {
+      rebalance((Integer) value, false);
+      return;
+    }
     Preconditions.checkState(getState() == State.SUSPENDED,
                              "Cannot change instance count when flowlet is running.");
     if (!ProgramOptionConstants.INSTANCES.equals(name) || !(value instanceof Integer)) {
@@ -118,6 +126,42 @@ final class FlowletProgramController extends AbstractProgramController {
     flowletContext.setInstanceCount(instanceCount);
   }
 
+  /**
+   * Changes the partitioning of the consumers without suspending the flowlet. The process driver is only paused
+   * between two of its transactions, while the consumers are reopened with the new consumer config.
+   *
+   * @param instances the new instance count
+   * @param prepare {@code true} to only consume entries owned under both the current and the new instance count,
+   *                {@code false} to switch to the new instance count
+   */
+  private void rebalance(int instances, boolean prepare) {
+    Preconditions.checkState(getState() == State.ALIVE,
+                             "Cannot rebalance a flowlet that is not running.");
+    LOG.info("{} flowlet instance count change: {}, new count is {}",
+             prepare ? "Preparing" : "Committing", flowletContext, instances);
+    driver.suspend();
+    try {
+      if (prepare) {
+        // Inputs waiting for retry may no longer be owned by this instance once the new count is committed.
+        driver.handOffRetries();
+      }
+      for (ConsumerSupplier<?> consumerSupplier : consumerSuppliers) {
+        if (prepare) {
+          consumerSupplier.prepareGroupSize(instances);
+        } else {
+          consumerSupplier.changeGroupSize(instances);
+        }
+      }
+      if (!prepare) {
+        flowletContext.setInstanceCount(instances);
+      }
+    } finally {
+      driver.resume();
+    }
+    LOG.info("Flowlet instance count change {}: {}, new count is {}",
+             prepare ? "prepared" : "committed", flowletContext, instances);
+  }
+
   private void listenDriveState(FlowletProcessDriver driver) {
     driver.addListener(new ServiceListenerAdapter() {
       @Override
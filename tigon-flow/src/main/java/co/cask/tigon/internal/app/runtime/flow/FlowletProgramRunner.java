@@ -67,7 +67,10 @@ import co.cask.tigon.lang.InstantiatorFactory;
 import co.cask.tigon.lang.PropertyFieldSetter;
 import co.cask.tigon.logging.callback.CAppender;
 import co.cask.tigon.logging.common.LogWriter;
+import co.cask.tigon.metrics.Counter;
 import co.cask.tigon.metrics.MetricsCollectionService;
+import co.cask.tigon.metrics.Timer;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.base.Objects;
 import com.google.common.base.Preconditions;
@@ -101,6 +104,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -297,6 +301,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
         TypeToken<?> dataType;
         ConsumerConfig consumerConfig;
         int batchSize = 1;
+        boolean reuseInput = false;
 
         if (tickAnnotation != null) {
           inputNames = ImmutableSet.of();
@@ -312,6 +317,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
           // If batch mode then generate schema for Iterator's parameter type
           dataType = flowletType.resolveType(method.getGenericParameterTypes()[0]);
           consumerConfig = getConsumerConfig(flowletContext, method);
+          reuseInput = processInputAnnotation.reuse();
           Integer processBatchSize = getBatchSize(method);
 
           if (processBatchSize != null) {
@@ -331,7 +337,8 @@ public final class FlowletProgramRunner implements ProgramRunner {
         }
 
         ProcessSpecification processSpec = processSpecFactory.create(inputNames, schema, dataType, processMethod,
-                                                                     consumerConfig, batchSize, tickAnnotation);
+                                                                     consumerConfig, batchSize, reuseInput,
+                                                                     tickAnnotation);
         // Add processSpec
         if (processSpec != null) {
           result.add(processSpec);
@@ -426,18 +433,31 @@ public final class FlowletProgramRunner implements ProgramRunner {
             if (queueSpec.getQueueName().getSimpleName().equals(outputName)
                 && queueSpec.getOutputSchema().equals(schema)) {
 
-              final String queueMetricsName = "process.events.out";
-              final String queueMetricsTag = queueSpec.getQueueName().getSimpleName();
+              String queueMetricsTag = queueSpec.getQueueName().getSimpleName();
+              final Counter enqueueCounter = flowletContext.getProgramMetrics().counter("process.events.out",
+                                                                                         queueMetricsTag);
+              final Timer persistTimer = flowletContext.getProgramMetrics().timer("process.events.out.persist.time",
+                                                                                  queueMetricsTag);
               QueueProducer producer = queueClientFactory.createProducer(queueSpec.getQueueName(), new QueueMetrics() {
                 @Override
                 public void emitEnqueue(int count) {
-                  flowletContext.getProgramMetrics().gauge(queueMetricsName, count, queueMetricsTag);
+                  enqueueCounter.increment(count);
                 }
 
                 @Override
                 public void emitEnqueueBytes(int bytes) {
                   // no-op
                 }
+
+                @Override
+                public void emitPersistTime(long nanos) {
+                  persistTimer.record(nanos, TimeUnit.NANOSECONDS);
+                }
+
+                @Override
+                public void emitDequeueScanTime(long nanos) {
+                  // no-op
+                }
               });
               return new DatumOutputEmitter<T>(producer, schema, datumWriterFactory.create(type, schema));
             }
@@ -453,6 +473,35 @@ public final class FlowletProgramRunner implements ProgramRunner {
     };
   }
 
+  /**
+   * Creates the {@link QueueMetrics} of a queue consumed by the flowlet, which records the time taken by queue scans.
+   */
+  private QueueMetrics createConsumerQueueMetrics(BasicFlowletContext flowletContext, QueueName queueName) {
+    final Timer scanTimer = flowletContext.getProgramMetrics().timer("process.dequeue.scan.time",
+                                                                     "input." + queueName.toString());
+    return new QueueMetrics() {
+      @Override
+      public void emitEnqueue(int count) {
+        // no-op
+      }
+
+      @Override
+      public void emitEnqueueBytes(int bytes) {
+        // no-op
+      }
+
+      @Override
+      public void emitPersistTime(long nanos) {
+        // no-op
+      }
+
+      @Override
+      public void emitDequeueScanTime(long nanos) {
+        scanTimer.record(nanos, TimeUnit.NANOSECONDS);
+      }
+    };
+  }
+
   private ProcessMethodFactory processMethodFactory(final Flowlet flowlet) {
     return new ProcessMethodFactory() {
       @Override
@@ -473,7 +522,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
       @Override
       public <T> ProcessSpecification create(Set<String> inputNames, Schema schema, TypeToken<T> dataType,
                                              ProcessMethod<T> method, ConsumerConfig consumerConfig, int batchSize,
-                                             Tick tickAnnotation) {
+                                             boolean reuseInput, Tick tickAnnotation) {
         List<QueueReader<T>> queueReaders = Lists.newLinkedList();
 
         for (Map.Entry<Node, Set<QueueSpecification>> entry : queueSpecs.column(flowletName).entrySet()) {
@@ -485,11 +534,16 @@ public final class FlowletProgramRunner implements ProgramRunner {
               || inputNames.contains(FlowletDefinition.ANY_INPUT))) {
 
                 int numGroups = getNumGroups(Iterables.concat(queueSpecs.row(entry.getKey()).values()), queueName);
+                String eventsMetricsTag = queueName.getSimpleName();
                 Function<ByteBuffer, T> decoder =
-                  wrapInputDecoder(flowletContext, queueName, createInputDatumDecoder(dataType, schema, schemaCache));
-
-                ConsumerSupplier<QueueConsumer> consumerSupplier = ConsumerSupplier.create(dataFabricFacade, queueName,
-                                                                                            consumerConfig, numGroups);
+                  wrapInputDecoder(flowletContext.getProgramMetrics().counter("process.events.in", eventsMetricsTag),
+                                   flowletContext.getProgramMetrics().counter("process.tuples.read", eventsMetricsTag),
+                                   createInputDatumDecoder(dataType, schema, schemaCache,
+                                                           reuseInput ? batchSize : 0));
+
+                ConsumerSupplier<QueueConsumer> consumerSupplier =
+                  ConsumerSupplier.create(dataFabricFacade, queueName, consumerConfig, numGroups,
+                                          createConsumerQueueMetrics(flowletContext, queueName));
                 queueConsumerSupplierBuilder.add(consumerSupplier);
                 queueReaders.add(queueReaderFactory.createQueueReader(consumerSupplier, batchSize, decoder));
 
@@ -506,13 +560,25 @@ public final class FlowletProgramRunner implements ProgramRunner {
     };
   }
 
-  private <T> Function<ByteBuffer, T> createInputDatumDecoder(final TypeToken<T> dataType, final Schema schema,
-                                                              final SchemaCache schemaCache) {
+  /**
+   * Creates a decoder for decoding queue entries into input events.
+   *
+   * @param poolSize if positive, the decoder refills a pool of that many event instances in turns instead of creating
+   *                 new ones. A dequeue returns at most batch size entries and each of them is decoded once, hence
+   *                 a pool of batch size instances gives a distinct instance to every event of a dequeue.
+   */
+  @VisibleForTesting
+  static <T> Function<ByteBuffer, T> createInputDatumDecoder(final TypeToken<T> dataType, final Schema schema,
+                                                             final SchemaCache schemaCache, final int poolSize) {
     final ReflectionDatumReader<T> datumReader = new ReflectionDatumReader<T>(schema, dataType);
     final ByteBufferInputStream byteBufferInput = new ByteBufferInputStream(null);
     final BinaryDecoder decoder = new BinaryDecoder(byteBufferInput);
 
     return new Function<ByteBuffer, T>() {
+
+      private final List<T> pool = Lists.newArrayListWithCapacity(poolSize);
+      private int poolIndex;
+
       @Nullable
       @Override
       public T apply(ByteBuffer input) {
@@ -520,7 +586,17 @@ public final class FlowletProgramRunner implements ProgramRunner {
         try {
           final Schema sourceSchema = schemaCache.get(input);
           Preconditions.checkNotNull(sourceSchema, "Fail to find source schema.");
-          return datumReader.read(decoder, sourceSchema);
+          if (poolSize <= 0) {
+            return datumReader.read(decoder, sourceSchema);
+          }
+          T event = datumReader.read(decoder, sourceSchema, poolIndex < pool.size() ? pool.get(poolIndex) : null);
+          if (poolIndex < pool.size()) {
+            pool.set(poolIndex, event);
+          } else {
+            pool.add(event);
+          }
+          poolIndex = (poolIndex + 1) % poolSize;
+          return event;
         } catch (IOException e) {
           throw Throwables.propagate(e);
         }
@@ -531,21 +607,23 @@ public final class FlowletProgramRunner implements ProgramRunner {
         return Objects.toStringHelper(this)
           .add("dataType", dataType)
           .add("schema", schema)
+          .add("poolSize", poolSize)
           .toString();
       }
     };
   }
 
-  private <S, T> Function<S, T> wrapInputDecoder(final BasicFlowletContext context,
-                                                 final QueueName queueName,
-                                                 final Function<S, T> inputDecoder) {
-    final String eventsMetricsName = "process.events.in";
-    final String eventsMetricsTag = queueName.getSimpleName();
+  /**
+   * Wraps an input decoder to count the decoded events. Every dequeued entry is decoded exactly once.
+   */
+  @VisibleForTesting
+  static <S, T> Function<S, T> wrapInputDecoder(final Counter eventsInCounter, final Counter tuplesReadCounter,
+                                                final Function<S, T> inputDecoder) {
     return new Function<S, T>() {
       @Override
       public T apply(S source) {
-        context.getProgramMetrics().gauge(eventsMetricsName, 1, eventsMetricsTag);
-        context.getProgramMetrics().gauge("process.tuples.read", 1, eventsMetricsTag);
+        eventsInCounter.increment(1);
+        tuplesReadCounter.increment(1);
         return inputDecoder.apply(source);
       }
     };
@@ -604,7 +682,7 @@ public final class FlowletProgramRunner implements ProgramRunner {
      */
     <T> ProcessSpecification create(Set<String> inputNames, Schema schema, TypeToken<T> dataType,
                                     ProcessMethod<T> method, ConsumerConfig consumerConfig, int batchSize,
-                                    Tick tickAnnotation);
+                                    boolean reuseInput, Tick tickAnnotation);
   }
 
   /**
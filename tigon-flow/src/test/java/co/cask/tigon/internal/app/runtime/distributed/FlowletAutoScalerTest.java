@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.internal.app.runtime.distributed;
+
+import co.cask.tigon.app.program.Program;
+import co.cask.tigon.data.queue.QueueName;
+import co.cask.tigon.metrics.AggregatedMetricsCollectionService;
+import co.cask.tigon.metrics.MetricValue;
+import co.cask.tigon.metrics.MetricsScope;
+import co.cask.tigon.metrics.MetricsSink;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Lists;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests that the decisions of the {@link FlowletAutoScaler} are published as metrics.
+ */
+public class FlowletAutoScalerTest {
+
+  @Test
+  public void testDecisionMetrics() throws Exception {
+    CollectingSink sink = new CollectingSink();
+    AggregatedMetricsCollectionService metricsCollectionService =
+      new AggregatedMetricsCollectionService(ImmutableList.of(sink), 1, TimeUnit.HOURS);
+    metricsCollectionService.startAndWait();
+
+    FlowletAutoScaler autoScaler = new FlowletAutoScaler(createProgram("flow"), null, null, null,
+                                                         ImmutableMultimap.<String, QueueName>of(),
+                                                         new FlowletScalingPolicy(100L, 0.5d, 3, 1000L, 5000L),
+                                                         10L, metricsCollectionService);
+    autoScaler.recordDecision("up", 500L, 2, 4);
+    autoScaler.recordDecision("down", 10L, 4, 2);
+    autoScaler.recordDecision("same", 150L, 2, 2);
+    // Stopping the service publishes the metrics emitted since the last flush
+    metricsCollectionService.stopAndWait();
+
+    Assert.assertEquals(500L, getValue(sink.values, "flow.up", "autoscale.pending").getHistogram().getMax());
+    Assert.assertEquals(2L, getValue(sink.values, "flow.up", "autoscale.instances").getHistogram().getMax());
+    Assert.assertEquals(1L, getValue(sink.values, "flow.up", "autoscale.scale.up").getValue());
+    Assert.assertEquals(1L, getValue(sink.values, "flow.down", "autoscale.scale.down").getValue());
+    Assert.assertEquals(150L, getValue(sink.values, "flow.same", "autoscale.pending").getHistogram().getMax());
+    Assert.assertNull(findValue(sink.values, "flow.same", "autoscale.scale.up"));
+    Assert.assertNull(findValue(sink.values, "flow.same", "autoscale.scale.down"));
+  }
+
+  private static MetricValue getValue(Collection<MetricValue> values, String context, String name) {
+    MetricValue value = findValue(values, context, name);
+    if (value == null) {
+      throw new AssertionError("Metric not found: " + context + " " + name);
+    }
+    return value;
+  }
+
+  private static MetricValue findValue(Collection<MetricValue> values, String context, String name) {
+    for (MetricValue value : values) {
+      if (value.getScope() == MetricsScope.SYSTEM && value.getContext().equals(context)
+        && value.getName().equals(name)) {
+        return value;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Creates a {@link Program} that only knows its name, which is all the metrics of the autoscaler need.
+   */
+  private static Program createProgram(final String name) {
+    return (Program) Proxy.newProxyInstance(Program.class.getClassLoader(), new Class<?>[] { Program.class },
+                                            new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) {
+        if ("getName".equals(method.getName())) {
+          return name;
+        }
+        throw new UnsupportedOperationException(method.getName());
+      }
+    });
+  }
+
+  private static final class CollectingSink implements MetricsSink {
+    private final List<MetricValue> values = Lists.newArrayList();
+
+    @Override
+    public synchronized void publish(Collection<MetricValue> values) {
+      this.values.addAll(values);
+    }
+
+    @Override
+    public void close() {
+      // No-op
+    }
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.tigon.internal.app.runtime.distributed;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link FlowletScalingPolicy}.
+ */
+public class FlowletScalingPolicyTest {
+
+  // Far enough from zero so that the cool-down after the initial state does not apply
+  private static final long START = 1000000L;
+
+  private static FlowletScalingPolicy createPolicy() {
+    // 100 entries per instance, scale down below 50 per instance after 3 samples, cool-down 1s up and 5s down
+    return new FlowletScalingPolicy(100L, 0.5d, 3, 1000L, 5000L);
+  }
+
+  @Test
+  public void testScaleUp() {
+    FlowletScalingPolicy policy = createPolicy();
+
+    // Scales up to the number of instances needed for the pending entries
+    Assert.assertEquals(3, policy.decide("f1", 300L, 2, 10, START));
+    // But by at most doubling the instances
+    Assert.assertEquals(4, policy.decide("f2", 1000L, 2, 10, START));
+    // And never beyond the maximum instances
+    Assert.assertEquals(5, policy.decide("f3", 10000L, 4, 5, START));
+    Assert.assertEquals(5, policy.decide("f4", 10000L, 5, 5, START));
+  }
+
+  @Test
+  public void testDeadBand() {
+    FlowletScalingPolicy policy = createPolicy();
+
+    // Between the scale down and scale up thresholds nothing changes
+    Assert.assertEquals(2, policy.decide("f", 200L, 2, 10, START));
+    Assert.assertEquals(2, policy.decide("f", 100L, 2, 10, START + 10000L));
+    Assert.assertEquals(2, policy.decide("f", 150L, 2, 10, START + 20000L));
+  }
+
+  @Test
+  public void testScaleUpCooldown() {
+    FlowletScalingPolicy policy = createPolicy();
+
+    Assert.assertEquals(4, policy.decide("f", 1000L, 2, 10, START));
+    // Within the cool-down the instances do not change again
+    Assert.assertEquals(4, policy.decide("f", 1000L, 4, 10, START + 999L));
+    Assert.assertEquals(8, policy.decide("f", 1000L, 4, 10, START + 1000L));
+    Assert.assertEquals(10, policy.decide("f", 1000L, 8, 10, START + 2000L));
+  }
+
+  @Test
+  public void testScaleDownHysteresis() {
+    FlowletScalingPolicy policy = createPolicy();
+
+    // Scales down only after three consecutive low samples
+    Assert.assertEquals(8, policy.decide("f", 100L, 8, 10, START));
+    Assert.assertEquals(8, policy.decide("f", 100L, 8, 10, START + 1000L));
+    // A sample in the dead band starts the count again
+    Assert.assertEquals(8, policy.decide("f", 500L, 8, 10, START + 2000L));
+    Assert.assertEquals(8, policy.decide("f", 100L, 8, 10, START + 3000L));
+    Assert.assertEquals(8, policy.decide("f", 100L, 8, 10, START + 4000L));
+    // By at most halving the instances
+    Assert.assertEquals(4, policy.decide("f", 100L, 8, 10, START + 5000L));
+  }
+
+  @Test
+  public void testScaleDownCooldown() {
+    FlowletScalingPolicy policy = createPolicy();
+
+    Assert.assertEquals(8, policy.decide("f", 1000L, 4, 10, START));
+    // Low samples within the cool-down after the change do not scale down
+    Assert.assertEquals(8, policy.decide("f", 0L, 8, 10, START + 1000L));
+    Assert.assertEquals(8, policy.decide("f", 0L, 8, 10, START + 2000L));
+    Assert.assertEquals(8, policy.decide("f", 0L, 8, 10, START + 3000L));
+    Assert.assertEquals(8, policy.decide("f", 0L, 8, 10, START + 4999L));
+    Assert.assertEquals(4, policy.decide("f", 0L, 8, 10, START + 5000L));
+
+    // The scale up cool-down is shorter
+    Assert.assertEquals(8, policy.decide("f", 1000L, 4, 10, START + 6000L));
+  }
+
+  @Test
+  public void testMinimumInstances() {
+    FlowletScalingPolicy policy = createPolicy();
+
+    // Halving rounds up
+    Assert.assertEquals(5, policy.decide("f", 0L, 5, 10, START));
+    Assert.assertEquals(5, policy.decide("f", 0L, 5, 10, START));
+    Assert.assertEquals(3, policy.decide("f", 0L, 5, 10, START));
+
+    // Never scales down below one instance
+
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(1, policy.decide("g", 0L, 1, 10, START + i * 10000L));
+    }
+  }
+
+  @Test
+  public void testPendingLimit() {
+    FlowletScalingPolicy policy = createPolicy();
+
+    // With the limit of pending entries, the decision is the same as with any larger number
+    long limit = policy.getPendingLimit(5);
+    Assert.assertEquals(5, policy.decide("f", limit, 4, 5, START));
+    Assert.assertEquals(5, policy.decide("g", Long.MAX_VALUE / 1000, 4, 5, START));
+  }
+}
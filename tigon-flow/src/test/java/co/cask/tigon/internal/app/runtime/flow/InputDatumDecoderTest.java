@@ -0,0 +1,196 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.internal.app.runtime.flow;
+
+import co.cask.tigon.app.queue.InputDatum;
+import co.cask.tigon.app.queue.QueueReader;
+import co.cask.tigon.data.queue.ConsumerConfig;
+import co.cask.tigon.data.queue.DequeueResult;
+import co.cask.tigon.data.queue.QueueConsumer;
+import co.cask.tigon.data.queue.QueueName;
+import co.cask.tigon.internal.app.queue.QueueReaderFactory;
+import co.cask.tigon.internal.io.ReflectionDatumWriter;
+import co.cask.tigon.internal.io.ReflectionSchemaGenerator;
+import co.cask.tigon.internal.io.Schema;
+import co.cask.tigon.io.BinaryEncoder;
+import co.cask.tigon.metrics.Counter;
+import com.google.common.base.Function;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.reflect.TypeToken;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests decoding of dequeued entries into process input events.
+ */
+public class InputDatumDecoderTest {
+
+  private static final int BATCH_SIZE = 3;
+
+  @Test
+  public void testReuseDecodesOnce() throws Exception {
+    Schema schema = new ReflectionSchemaGenerator().generate(Event.class);
+    List<byte[]> entries = Lists.newArrayList();
+    for (int i = 0; i < 5; i++) {
+      entries.add(encode(schema, new Event(i)));
+    }
+
+    CountingCounter eventsIn = new CountingCounter();
+    CountingCounter tuplesRead = new CountingCounter();
+    Function<ByteBuffer, Event> decoder = FlowletProgramRunner.wrapInputDecoder(
+      eventsIn, tuplesRead,
+      FlowletProgramRunner.createInputDatumDecoder(TypeToken.of(Event.class), schema,
+                                                   new SchemaCache(ImmutableList.of(schema),
+                                                                   getClass().getClassLoader()),
+                                                   BATCH_SIZE));
+    QueueReader<Event> reader = new QueueReaderFactory().createQueueReader(
+      Suppliers.<QueueConsumer>ofInstance(new ListQueueConsumer(entries)), BATCH_SIZE, decoder);
+
+    // The process method, the process result and a retry all iterate the same input
+    InputDatum<Event> input = reader.dequeue(0, TimeUnit.SECONDS);
+    List<Event> events = iterate(input);
+    Assert.assertEquals(events, iterate(input));
+    Assert.assertSame(events.get(0), input.iterator().next());
+    Assert.assertEquals(3, eventsIn.get());
+    Assert.assertEquals(3, tuplesRead.get());
+    for (int i = 0; i < events.size(); i++) {
+      Assert.assertEquals(i, events.get(i).id);
+    }
+    Assert.assertNotSame(events.get(0), events.get(1));
+    Assert.assertNotSame(events.get(1), events.get(2));
+
+    // The next dequeue refills the pooled events
+    input = reader.dequeue(0, TimeUnit.SECONDS);
+    List<Event> nextEvents = iterate(input);
+    iterate(input);
+    Assert.assertEquals(5, eventsIn.get());
+    Assert.assertEquals(5, tuplesRead.get());
+    Assert.assertEquals(2, nextEvents.size());
+    Assert.assertEquals(3, nextEvents.get(0).id);
+    Assert.assertEquals(4, nextEvents.get(1).id);
+    Assert.assertSame(events.get(0), nextEvents.get(0));
+    Assert.assertSame(events.get(1), nextEvents.get(1));
+  }
+
+  private static List<Event> iterate(InputDatum<Event> input) {
+    List<Event> events = Lists.newArrayList();
+    Iterator<Event> iterator = input.iterator();
+    while (iterator.hasNext()) {
+      events.add(iterator.next());
+    }
+    return events;
+  }
+
+  private static byte[] encode(Schema schema, Event event) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    output.write(schema.getSchemaHash().toByteArray());
+    new ReflectionDatumWriter<Event>(schema).encode(event, new BinaryEncoder(output));
+    return output.toByteArray();
+  }
+
+  /**
+   * Event type of the test.
+   */
+  public static final class Event {
+    private int id;
+
+    public Event() {
+    }
+
+    Event(int id) {
+      this.id = id;
+    }
+  }
+
+  private static final class CountingCounter implements Counter {
+    private final AtomicLong count = new AtomicLong();
+
+    @Override
+    public void increment(long delta) {
+      count.addAndGet(delta);
+    }
+
+    long get() {
+      return count.get();
+    }
+  }
+
+  /**
+   * A {@link QueueConsumer} that dequeues the given entries in order.
+   */
+  private static final class ListQueueConsumer implements QueueConsumer {
+    private final List<byte[]> entries;
+    private int position;
+
+    ListQueueConsumer(List<byte[]> entries) {
+      this.entries = entries;
+    }
+
+    @Override
+    public QueueName getQueueName() {
+      return QueueName.fromFlowlet("app", "flow", "source", "out");
+    }
+
+    @Override
+    public ConsumerConfig getConfig() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public DequeueResult<byte[]> dequeue() throws IOException {
+      return dequeue(1);
+    }
+
+    @Override
+    public DequeueResult<byte[]> dequeue(int maxBatchSize) throws IOException {
+      int end = Math.min(entries.size(), position + maxBatchSize);
+      final List<byte[]> result = entries.subList(position, end);
+      position = end;
+      return new DequeueResult<byte[]>() {
+        @Override
+        public boolean isEmpty() {
+          return result.isEmpty();
+        }
+
+        @Override
+        public void reclaim() {
+        }
+
+        @Override
+        public int size() {
+          return result.size();
+        }
+
+        @Override
+        public Iterator<byte[]> iterator() {
+          return result.iterator();
+        }
+      };
+    }
+  }
+}
@@ -16,35 +16,50 @@
 
 package co.cask.tigon.data.increment.hbase94;
 
+import co.cask.tephra.Transaction;
+import co.cask.tephra.TransactionCodec;
+import co.cask.tephra.TxConstants;
 import co.cask.tephra.coprocessor.TransactionStateCache;
 import co.cask.tephra.hbase94.Filters;
+import co.cask.tephra.hbase94.coprocessor.TransactionVisibilityFilter;
 import co.cask.tephra.persist.TransactionSnapshot;
 import co.cask.tigon.conf.Constants;
+import co.cask.tigon.data.increment.IncrementReadCache;
+import co.cask.tigon.data.increment.IncrementReadCacheMetrics;
 import co.cask.tigon.data.transaction.coprocessor.DefaultTransactionStateCacheSupplier;
 import com.google.common.base.Supplier;
+import com.google.common.collect.Sets;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.hbase.CoprocessorEnvironment;
+import org.apache.hadoop.hbase.HConstants;
 import org.apache.hadoop.hbase.KeyValue;
+import org.apache.hadoop.hbase.client.Delete;
 import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.OperationWithAttributes;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.coprocessor.BaseRegionObserver;
 import org.apache.hadoop.hbase.coprocessor.ObserverContext;
 import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.filter.Filter;
 import org.apache.hadoop.hbase.regionserver.HRegion;
 import org.apache.hadoop.hbase.regionserver.InternalScanner;
 import org.apache.hadoop.hbase.regionserver.RegionScanner;
 import org.apache.hadoop.hbase.regionserver.Store;
+import org.apache.hadoop.hbase.regionserver.StoreFile;
 import org.apache.hadoop.hbase.regionserver.compactions.CompactionRequest;
 import org.apache.hadoop.hbase.regionserver.wal.WALEdit;
 import org.apache.hadoop.hbase.util.Bytes;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Set;
 import java.util.TreeMap;
 
 /**
@@ -61,6 +76,18 @@ import java.util.TreeMap;
  * <p>To mitigate the performance impact on reading, this coprocessor also overrides the scanner used in flush and
  * compaction operations, using {@link IncrementSummingScanner} to generate a new "full" value aggregated from
  * all the successfully committed delta values.</p>
+ *
+ * <p>Reads that carry a transaction, as set by {@code TransactionAwareIncrementTable}, only sum up the deltas
+ * visible to that transaction, which excludes the deltas of invalid and in progress transactions. When summing up
+ * in flush and compaction, the deltas of invalid transactions are dropped.</p>
+ *
+ * <p>Reads of a single column through {@code Get} use a region level {@link IncrementReadCache} of summed values:
+ * only the cells written after the cached sum are read and added to it. Only cells older than the visibility upper
+ * bound of the current transaction state are cached, excluding the cells of invalid transactions, and the cache is
+ * invalidated by writes that change those cells, both before and after they are applied, as well as by flushes and
+ * compactions. A transactional read uses the cached sum if all of its cells are visible to the transaction, that is,
+ * if they are older than both its read pointer and its first in progress transaction; only the newer cells are then
+ * filtered by visibility. Hits and misses are published through {@link IncrementReadCacheMetrics}.</p>
  */
 public class IncrementHandler extends BaseRegionObserver {
   // prefix bytes used to mark values that are deltas vs. full sums
@@ -70,9 +97,14 @@ public class IncrementHandler extends BaseRegionObserver {
   public static final int BATCH_UNLIMITED = -1;
 
   private static final Log LOG = LogFactory.getLog(IncrementHandler.class);
+  private static final Map<byte[], Long> NO_TTL = Collections.emptyMap();
+
+  private final TransactionCodec txCodec = new TransactionCodec();
 
   private HRegion region;
   private TransactionStateCache cache;
+  private IncrementReadCache readCache;
+  private volatile InvalidIds invalidIds;
 
   @Override
   public void start(CoprocessorEnvironment e) throws IOException {
@@ -81,6 +113,19 @@ public class IncrementHandler extends BaseRegionObserver {
       this.region = ((RegionCoprocessorEnvironment) e).getRegion();
       Supplier<TransactionStateCache> cacheSupplier = getTransactionStateCacheSupplier(env);
       this.cache = cacheSupplier.get();
+      int readCacheSize = env.getConfiguration().getInt(Constants.CFG_INCREMENT_READ_CACHE_SIZE,
+                                                        Constants.DEFAULT_INCREMENT_READ_CACHE_SIZE);
+      if (readCacheSize > 0) {
+        String tableName = region.getTableDesc().getNameAsString();
+        this.readCache = new IncrementReadCache(readCacheSize, IncrementReadCacheMetrics.acquire(tableName));
+      }
+    }
+  }
+
+  @Override
+  public void stop(CoprocessorEnvironment e) throws IOException {
+    if (readCache != null) {
+      IncrementReadCacheMetrics.release();
     }
   }
 
@@ -94,15 +139,60 @@ public class IncrementHandler extends BaseRegionObserver {
     return new DefaultTransactionStateCacheSupplier(tableNamespace, env.getConfiguration());
   }
 
+  /**
+   * Returns the timestamp below which no more cells can be written by transactions, hence sums of older cells
+   * can be cached.
+   */
+  protected long getReadCacheUpperBound() {
+    TransactionSnapshot snapshot = cache.getLatestState();
+    return snapshot == null ? 0L : snapshot.getVisibilityUpperBound();
+  }
+
+  /**
+   * Returns the write pointers of invalid transactions, whose cells are never cached. As transactions only become
+   * invalid while in progress, this must be called after {@link #getReadCacheUpperBound()}.
+   */
+  protected Set<Long> getReadCacheInvalidIds() {
+    TransactionSnapshot snapshot = cache.getLatestState();
+    if (snapshot == null) {
+      return Collections.emptySet();
+    }
+    // the set is only rebuilt when the transaction state is refreshed
+    InvalidIds current = invalidIds;
+    if (current == null || current.snapshot != snapshot) {
+      current = new InvalidIds(snapshot);
+      invalidIds = current;
+    }
+    return current.ids;
+  }
+
+  /**
+   * @return the read cache of this region, or {@code null} if it is disabled
+   */
+  public IncrementReadCache getReadCache() {
+    return readCache;
+  }
+
   @Override
   public void preGet(ObserverContext<RegionCoprocessorEnvironment> ctx, Get get, List<KeyValue> results)
     throws IOException {
     Scan scan = new Scan(get);
     scan.setMaxVersions();
-    scan.setFilter(Filters.combine(new IncrementFilter(), scan.getFilter()));
+    Transaction tx = getTransaction(get);
+    scan.setFilter(Filters.combine(getReadFilter(tx), scan.getFilter()));
     RegionScanner scanner = null;
     try {
-      scanner = new IncrementSummingScanner(region, scan.getBatch(), region.getScanner(scan));
+      IncrementSummingScanner.CachedColumn cachedColumn = getCachedColumn(get, tx);
+      if (cachedColumn != null) {
+        IncrementReadCache.Entry cached = cachedColumn.getCached();
+        if (cached != null) {
+          // only read what was written after the cached sum, only those cells are filtered by the transaction
+          scan.setTimeRange(cached.getTimestamp() + 1, Long.MAX_VALUE);
+        }
+        scanner = new IncrementSummingScanner(region, region.getScanner(scan), cachedColumn);
+      } else {
+        scanner = new IncrementSummingScanner(region, scan.getBatch(), region.getScanner(scan));
+      }
       scanner.next(results);
       ctx.bypass();
     } finally {
@@ -112,6 +202,44 @@ public class IncrementHandler extends BaseRegionObserver {
     }
   }
 
+  /**
+   * Looks up the read cache for a {@code Get} of a single column of the latest value.
+   *
+   * @param get the get to serve
+   * @param tx the transaction of the get, or {@code null} if it is not a transactional read
+   * @return the cached column, or {@code null} if the get cannot use the read cache
+   */
+  private IncrementSummingScanner.CachedColumn getCachedColumn(Get get, Transaction tx) {
+    if (readCache == null || get.getFilter() != null || !get.getTimeRange().isAllTime()
+      || get.getMaxVersions() != 1 || get.getFamilyMap().size() != 1) {
+      return null;
+    }
+    Map.Entry<byte[], NavigableSet<byte[]>> family = get.getFamilyMap().entrySet().iterator().next();
+    if (family.getValue() == null || family.getValue().size() != 1) {
+      return null;
+    }
+    long upperBound = getReadCacheUpperBound();
+    if (upperBound <= 0) {
+      // transaction state is not known yet
+      return null;
+    }
+    Set<Long> invalidIds = getReadCacheInvalidIds();
+    if (tx != null) {
+      // a transaction sees all committed cells older than both its read pointer and its first in progress transaction
+      upperBound = Math.min(upperBound, Math.min(tx.getReadPointer() + 1, tx.getFirstInProgress()));
+    }
+    byte[] qualifier = family.getValue().first();
+    // the generation must be obtained before the cache lookup and the read
+    long generation = readCache.getGeneration();
+    IncrementReadCache.Entry cached = readCache.get(get.getRow(), family.getKey(), qualifier);
+    if (cached != null && cached.getTimestamp() >= upperBound) {
+      // the cached sum includes cells that are not visible to the transaction
+      cached = null;
+    }
+    return new IncrementSummingScanner.CachedColumn(readCache, get.getRow(), family.getKey(), qualifier, cached,
+                                                    upperBound, invalidIds, generation);
+  }
+
   @Override
   public void prePut(ObserverContext<RegionCoprocessorEnvironment> ctx, Put put, WALEdit edit, boolean writeToWAL)
     throws IOException {
@@ -131,6 +259,51 @@ public class IncrementHandler extends BaseRegionObserver {
       put.setFamilyMap(newFamilyMap);
     }
     // put completes normally with value prefix marker
+    if (readCache != null) {
+      invalidateReadCache(put);
+    }
+  }
+
+  @Override
+  public void postPut(ObserverContext<RegionCoprocessorEnvironment> ctx, Put put, WALEdit edit, boolean writeToWAL)
+    throws IOException {
+    // a read between the invalidation in prePut and the write may have cached a sum without the written cells
+    if (readCache != null) {
+      invalidateReadCache(put);
+    }
+  }
+
+  /**
+   * Removes cached sums that may be changed by the given put. Transactional increments are always newer than the
+   * cached sums, hence only full values and increments with older or unspecified timestamps invalidate.
+   */
+  private void invalidateReadCache(Put put) {
+    boolean increment = put.getAttribute(Constants.DELTA_WRITE) != null;
+    long upperBound = increment ? getReadCacheUpperBound() : Long.MAX_VALUE;
+    for (List<KeyValue> kvs : put.getFamilyMap().values()) {
+      for (KeyValue kv : kvs) {
+        if (!increment || kv.getTimestamp() == HConstants.LATEST_TIMESTAMP || kv.getTimestamp() < upperBound) {
+          readCache.invalidate(kv.getRow(), kv.getFamily(), kv.getQualifier());
+        }
+      }
+    }
+  }
+
+  @Override
+  public void preDelete(ObserverContext<RegionCoprocessorEnvironment> e, Delete delete, WALEdit edit,
+                        boolean writeToWAL) throws IOException {
+    if (readCache != null) {
+      // deletes may cover whole rows or families, and are rare for counters
+      readCache.clear();
+    }
+  }
+
+  @Override
+  public void postDelete(ObserverContext<RegionCoprocessorEnvironment> e, Delete delete, WALEdit edit,
+                         boolean writeToWAL) throws IOException {
+    if (readCache != null) {
+      readCache.clear();
+    }
   }
 
   @Override
@@ -138,10 +311,29 @@ public class IncrementHandler extends BaseRegionObserver {
     throws IOException {
     // must see all versions to aggregate increments
     scan.setMaxVersions();
-    scan.setFilter(Filters.combine(new IncrementFilter(), scan.getFilter()));
+    scan.setFilter(Filters.combine(getReadFilter(getTransaction(scan)), scan.getFilter()));
     return s;
   }
 
+  /**
+   * Returns the transaction of the given operation, or {@code null} if it is not a transactional read.
+   */
+  private Transaction getTransaction(OperationWithAttributes op) throws IOException {
+    byte[] encoded = op.getAttribute(TxConstants.TX_OPERATION_ATTRIBUTE_KEY);
+    return encoded == null ? null : txCodec.decode(encoded);
+  }
+
+  /**
+   * Returns the filter for reading increments. A transactional read only includes the cells visible to its
+   * transaction.
+   */
+  private Filter getReadFilter(Transaction tx) {
+    if (tx == null) {
+      return new IncrementFilter();
+    }
+    return new TransactionVisibilityFilter(tx, NO_TTL, false, new IncrementFilter());
+  }
+
   @Override
   public RegionScanner postScannerOpen(ObserverContext<RegionCoprocessorEnvironment> ctx, Scan scan,
                                        RegionScanner scanner)
@@ -154,11 +346,35 @@ public class IncrementHandler extends BaseRegionObserver {
                                   InternalScanner scanner) throws IOException {
     TransactionSnapshot snapshot = cache.getLatestState();
     if (snapshot != null) {
-      return new IncrementSummingScanner(region, BATCH_UNLIMITED, scanner, snapshot.getVisibilityUpperBound());
+      return new IncrementSummingScanner(region, BATCH_UNLIMITED, scanner, snapshot.getVisibilityUpperBound(),
+                                         Sets.newHashSet(snapshot.getInvalid()));
     }
     return new IncrementSummingScanner(region, BATCH_UNLIMITED, scanner);
   }
 
+  @Override
+  public void postFlush(ObserverContext<RegionCoprocessorEnvironment> e) throws IOException {
+    clearReadCache();
+  }
+
+  @Override
+  public void postCompact(ObserverContext<RegionCoprocessorEnvironment> e, Store store,
+                          StoreFile resultFile) throws IOException {
+    clearReadCache();
+  }
+
+  /**
+   * Clears the read cache after its cells were rewritten, reporting its statistics.
+   */
+  private void clearReadCache() {
+    if (readCache != null) {
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Increment read cache for region " + region.getRegionNameAsString() + ": " + readCache);
+      }
+      readCache.clear();
+    }
+  }
+
   public static boolean isIncrement(KeyValue kv) {
     return kv.getValueLength() == IncrementHandler.DELTA_FULL_LENGTH &&
       Bytes.equals(kv.getBuffer(), kv.getValueOffset(), IncrementHandler.DELTA_MAGIC_PREFIX.length,
@@ -170,7 +386,8 @@ public class IncrementHandler extends BaseRegionObserver {
                                     InternalScanner scanner) throws IOException {
     TransactionSnapshot snapshot = cache.getLatestState();
     if (snapshot != null) {
-      return new IncrementSummingScanner(region, BATCH_UNLIMITED, scanner, snapshot.getVisibilityUpperBound());
+      return new IncrementSummingScanner(region, BATCH_UNLIMITED, scanner, snapshot.getVisibilityUpperBound(),
+                                         Sets.newHashSet(snapshot.getInvalid()));
     }
     return new IncrementSummingScanner(region, BATCH_UNLIMITED, scanner);
   }
@@ -181,9 +398,22 @@ public class IncrementHandler extends BaseRegionObserver {
     throws IOException {
     TransactionSnapshot snapshot = cache.getLatestState();
     if (snapshot != null) {
-      return new IncrementSummingScanner(region, BATCH_UNLIMITED, scanner, snapshot.getVisibilityUpperBound());
+      return new IncrementSummingScanner(region, BATCH_UNLIMITED, scanner, snapshot.getVisibilityUpperBound(),
+                                         Sets.newHashSet(snapshot.getInvalid()));
     }
     return new IncrementSummingScanner(region, BATCH_UNLIMITED, scanner);
   }
 
+  /**
+   * Write pointers of the invalid transactions of a transaction snapshot.
+   */
+  private static final class InvalidIds {
+    private final TransactionSnapshot snapshot;
+    private final Set<Long> ids;
+
+    private InvalidIds(TransactionSnapshot snapshot) {
+      this.snapshot = snapshot;
+      this.ids = Sets.newHashSet(snapshot.getInvalid());
+    }
+  }
 }
@@ -21,6 +21,7 @@ import co.cask.tigon.data.queue.ConsumerConfig;
 import co.cask.tigon.data.queue.QueueName;
 import co.cask.tigon.data.transaction.queue.ConsumerEntryState;
 import co.cask.tigon.data.transaction.queue.QueueEntryRow;
+import co.cask.tigon.data.transaction.queue.QueueMetrics;
 import com.google.common.primitives.Ints;
 import org.apache.hadoop.hbase.client.HTable;
 import org.apache.hadoop.hbase.client.Scan;
@@ -38,8 +39,9 @@ final class HBase94QueueConsumer extends HBaseQueueConsumer {
   private final Filter processedStateFilter;
 
   HBase94QueueConsumer(ConsumerConfig consumerConfig, HTable hTable, QueueName queueName,
-                       HBaseConsumerState consumerState, HBaseConsumerStateStore stateStore) {
-    super(consumerConfig, hTable, queueName, consumerState, stateStore);
+                       HBaseConsumerState consumerState, HBaseConsumerStateStore stateStore,
+                       QueueMetrics queueMetrics) {
+    super(consumerConfig, hTable, queueName, consumerState, stateStore, queueMetrics);
     processedStateFilter = createStateFilter();
   }
 
@@ -17,6 +17,7 @@
 package co.cask.tigon.data.increment.hbase94;
 
 import co.cask.tigon.conf.Constants;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
@@ -235,6 +236,41 @@ public class IncrementSummingScannerTest {
     }
   }
 
+  @Test
+  public void testInvalidTransactions() throws Exception {
+    String tableName = "TestInvalidIncrements";
+    byte[] familyBytes = Bytes.toBytes("f");
+    byte[] columnBytes = Bytes.toBytes("c");
+    HRegion region = createRegion(tableName, familyBytes);
+    try {
+      region.initialize();
+
+      // increments of 1, written by the transactions with write pointers 1 to 5
+      byte[] row = Bytes.toBytes("r1");
+      for (long writePointer = 1; writePointer <= 5; writePointer++) {
+        Put p = new Put(row);
+        p.add(familyBytes, columnBytes, writePointer, Bytes.toBytes(1L));
+        p.setAttribute(Constants.DELTA_WRITE, TRUE);
+        doPut(region, p);
+      }
+
+      // the increments of invalid transactions are dropped, the sum takes the timestamp of the latest valid one
+      Scan scan = new Scan(row);
+      scan.setMaxVersions();
+      RegionScanner scanner = new IncrementSummingScanner(region, -1, region.getScanner(scan), Long.MAX_VALUE,
+                                                          ImmutableSet.of(2L, 5L));
+      List<KeyValue> results = Lists.newArrayList();
+      scanner.next(results);
+      scanner.close();
+
+      assertEquals(1, results.size());
+      assertEquals(3L, Bytes.toLong(results.get(0).getValue()));
+      assertEquals(4L, results.get(0).getTimestamp());
+    } finally {
+      region.close();
+    }
+  }
+
   private HRegion createRegion(String tableName, byte[] family) throws Exception {
     HTableDescriptor htd = new HTableDescriptor(tableName);
     HColumnDescriptor cfd = new HColumnDescriptor(family);
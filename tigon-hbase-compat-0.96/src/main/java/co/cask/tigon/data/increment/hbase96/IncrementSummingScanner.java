@@ -16,6 +16,7 @@
 
 package co.cask.tigon.data.increment.hbase96;
 
+import co.cask.tigon.data.increment.IncrementReadCache;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.hbase.Cell;
@@ -28,8 +29,11 @@ import org.apache.hadoop.hbase.regionserver.RegionScanner;
 import org.apache.hadoop.hbase.util.Bytes;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Transforms reads of the stored delta increments into calculated sums for each column.
@@ -44,12 +48,35 @@ class IncrementSummingScanner implements RegionScanner {
   // Highest timestamp, beyond which we cannot aggregate increments during flush and compaction.
   // Increments newer than this may still be visible to running transactions
   private final long compactionUpperBound;
+  // write pointers of invalid transactions, whose cells are dropped during flush and compaction
+  private final Set<Long> invalidIds;
+  // set when reading a single column with the read cache
+  private final CachedColumn cachedColumn;
 
   IncrementSummingScanner(HRegion region, int batchSize, InternalScanner baseScanner) {
     this(region, batchSize, baseScanner, Long.MAX_VALUE);
   }
 
   IncrementSummingScanner(HRegion region, int batchSize, InternalScanner baseScanner, long compationUpperBound) {
+    this(region, batchSize, baseScanner, compationUpperBound, Collections.<Long>emptySet());
+  }
+
+  IncrementSummingScanner(HRegion region, int batchSize, InternalScanner baseScanner, long compationUpperBound,
+                          Set<Long> invalidIds) {
+    this(region, batchSize, baseScanner, compationUpperBound, invalidIds, null);
+  }
+
+  /**
+   * Creates a scanner that sums up a single column, starting from a cached sum if there is one. The base scanner
+   * must only return the cells newer than the cached sum.
+   */
+  IncrementSummingScanner(HRegion region, InternalScanner baseScanner, CachedColumn cachedColumn) {
+    this(region, IncrementHandler.BATCH_UNLIMITED, baseScanner, Long.MAX_VALUE, Collections.<Long>emptySet(),
+         cachedColumn);
+  }
+
+  private IncrementSummingScanner(HRegion region, int batchSize, InternalScanner baseScanner,
+                                  long compationUpperBound, Set<Long> invalidIds, CachedColumn cachedColumn) {
     this.region = region;
     this.batchSize = batchSize;
     this.baseScanner = baseScanner;
@@ -57,6 +84,8 @@ class IncrementSummingScanner implements RegionScanner {
       this.baseRegionScanner = (RegionScanner) baseScanner;
     }
     this.compactionUpperBound = compationUpperBound;
+    this.invalidIds = invalidIds;
+    this.cachedColumn = cachedColumn;
   }
 
   @Override
@@ -122,6 +151,9 @@ class IncrementSummingScanner implements RegionScanner {
   }
 
   private boolean nextInternal(List<Cell> cells, int limit) throws IOException {
+    if (cachedColumn != null) {
+      return nextCached(cells);
+    }
     Cell previousIncrement = null;
     long runningSum = 0;
     boolean hasMore;
@@ -137,6 +169,11 @@ class IncrementSummingScanner implements RegionScanner {
             return true;
           }
 
+          // 0. drop the cells of invalid transactions, those are never visible
+          if (invalidIds.contains(cell.getTimestamp())) {
+            continue;
+          }
+
           // 1. if this is an increment
           if (IncrementHandler.isIncrement(cell) && cell.getTimestamp() < compactionUpperBound) {
             if (LOG.isTraceEnabled()) {
@@ -199,6 +236,69 @@ class IncrementSummingScanner implements RegionScanner {
     return hasMore;
   }
 
+  /**
+   * Sums up the cells of the cached column that are newer than the cached sum, and updates the cache with the sum
+   * of all cells older than the upper bound.
+   */
+  private boolean nextCached(List<Cell> cells) throws IOException {
+    List<Cell> columnCells = new ArrayList<Cell>();
+    boolean hasMore;
+    do {
+      hasMore = baseScanner.next(columnCells);
+    } while (hasMore);
+
+    if (!columnCells.isEmpty() && !IncrementHandler.isIncrement(columnCells.get(0))
+      && columnCells.get(0).getValueLength() != Bytes.SIZEOF_LONG) {
+      // not a counter, return the value as is
+      cells.add(columnCells.get(0));
+      return false;
+    }
+
+    IncrementReadCache.Entry cached = cachedColumn.cached;
+    long sum = 0;
+    // sum and highest timestamp of the cells older than the upper bound, those can no longer change
+    long stableSum = 0;
+    long stableTimestamp = -1;
+    boolean foundFull = false;
+    boolean stableFull = false;
+    for (Cell cell : columnCells) {
+      boolean increment = IncrementHandler.isIncrement(cell);
+      long value = increment
+        ? Bytes.toLong(cell.getValueArray(), cell.getValueOffset() + IncrementHandler.DELTA_MAGIC_PREFIX.length)
+        : Bytes.toLong(cell.getValueArray(), cell.getValueOffset());
+      sum += value;
+      // only a non-transactional read sees the cells of invalid transactions, those are never cached
+      if (cell.getTimestamp() < cachedColumn.upperBound && !cachedColumn.invalidIds.contains(cell.getTimestamp())) {
+        stableSum += value;
+        stableTimestamp = Math.max(stableTimestamp, cell.getTimestamp());
+        stableFull = stableFull || !increment;
+      }
+      if (!increment) {
+        // the filter stops at the first full value, which already contains everything before it
+        foundFull = true;
+        break;
+      }
+    }
+    if (!foundFull && cached != null) {
+      sum += cached.getSum();
+      stableSum += cached.getSum();
+      stableTimestamp = Math.max(stableTimestamp, cached.getTimestamp());
+    }
+    // the stable sum is only complete if it did not stop at a full value newer than the bound or invalid
+    if ((!foundFull || stableFull) && stableTimestamp >= 0) {
+      cachedColumn.cache.put(cachedColumn.row, cachedColumn.family, cachedColumn.qualifier,
+                             stableSum, stableTimestamp, cachedColumn.generation);
+    }
+
+    if (!columnCells.isEmpty()) {
+      cells.add(newCell(columnCells.get(0), sum));
+    } else if (cached != null) {
+      cells.add(CellUtil.createCell(cachedColumn.row, cachedColumn.family, cachedColumn.qualifier,
+                                    cached.getTimestamp(), KeyValue.Type.Put.getCode(), Bytes.toBytes(sum)));
+    }
+    return false;
+  }
+
   private boolean sameCell(Cell first, Cell second) {
     if (first == null && second == null) {
       return true;
@@ -220,4 +320,45 @@ class IncrementSummingScanner implements RegionScanner {
   public void close() throws IOException {
     baseScanner.close();
   }
+
+  /**
+   * A single column read through the {@link IncrementReadCache}.
+   */
+  static final class CachedColumn {
+    private final IncrementReadCache cache;
+    private final byte[] row;
+    private final byte[] family;
+    private final byte[] qualifier;
+    private final IncrementReadCache.Entry cached;
+    private final long upperBound;
+    private final Set<Long> invalidIds;
+    private final long generation;
+
+    /**
+     * @param cache the read cache
+     * @param row row of the column
+     * @param family family of the column
+     * @param qualifier qualifier of the column
+     * @param cached the cached sum of the column, or {@code null}
+     * @param upperBound timestamp below which no more cells can be written and all cells are visible to the read,
+     *                   only those cells may be cached
+     * @param invalidIds write pointers of invalid transactions, whose cells are not cached
+     * @param generation generation of the cache when the cached sum was obtained
+     */
+    CachedColumn(IncrementReadCache cache, byte[] row, byte[] family, byte[] qualifier,
+                 IncrementReadCache.Entry cached, long upperBound, Set<Long> invalidIds, long generation) {
+      this.cache = cache;
+      this.row = row;
+      this.family = family;
+      this.qualifier = qualifier;
+      this.cached = cached;
+      this.upperBound = upperBound;
+      this.invalidIds = invalidIds;
+      this.generation = generation;
+    }
+
+    IncrementReadCache.Entry getCached() {
+      return cached;
+    }
+  }
 }
@@ -43,6 +43,10 @@ import java.util.List;
  */
 // todo: unit-test it (without DequeueScanObserver)
 public class DequeueFilter extends FilterBase {
+  // Written instead of the queue name prefix length, which is never negative, when followed by the generation of
+  // the consumer config. Older clients write the prefix length right after the transaction.
+  private static final int GENERATION_MARKER = -1;
+
   private ConsumerConfig consumerConfig;
   private Transaction transaction;
   private byte[] stateColumnName;
@@ -150,13 +154,20 @@ public class DequeueFilter extends FilterBase {
   public void write(DataOutput out) throws IOException {
     DequeueScanAttributes.write(out, consumerConfig);
     DequeueScanAttributes.write(out, transaction);
+    out.writeInt(GENERATION_MARKER);
+    DequeueScanAttributes.writeGeneration(out, consumerConfig);
     out.writeInt(queueNamePrefixLength);
   }
 
   public void readFields(DataInput in) throws IOException {
     this.consumerConfig = DequeueScanAttributes.readConsumerConfig(in);
     this.transaction = DequeueScanAttributes.readTx(in);
-    this.queueNamePrefixLength = in.readInt();
+    int prefixLength = in.readInt();
+    if (prefixLength == GENERATION_MARKER) {
+      this.consumerConfig = DequeueScanAttributes.readGeneration(in, consumerConfig);
+      prefixLength = in.readInt();
+    }
+    this.queueNamePrefixLength = prefixLength;
   }
 
   /* Serialization support for HBase 0.96+ */
@@ -18,6 +18,7 @@ package co.cask.tigon.data.transaction.queue.hbase;
 
 import co.cask.tigon.data.queue.ConsumerConfig;
 import co.cask.tigon.data.queue.QueueName;
+import co.cask.tigon.data.transaction.queue.QueueMetrics;
 import org.apache.hadoop.hbase.client.HTable;
 
 /**
@@ -26,7 +27,8 @@ import org.apache.hadoop.hbase.client.HTable;
 public class HBase96QueueUtil extends HBaseQueueUtil {
   @Override
   public HBaseQueueConsumer getQueueConsumer(ConsumerConfig consumerConfig, HTable hTable, QueueName queueName,
-                                              HBaseConsumerState consumerState, HBaseConsumerStateStore stateStore) {
-    return new HBase96QueueConsumer(consumerConfig, hTable, queueName, consumerState, stateStore);
+                                              HBaseConsumerState consumerState, HBaseConsumerStateStore stateStore,
+                                              QueueMetrics queueMetrics) {
+    return new HBase96QueueConsumer(consumerConfig, hTable, queueName, consumerState, stateStore, queueMetrics);
   }
 }
@@ -16,24 +16,39 @@
 
 package co.cask.tigon.data.increment.hbase96;
 
+import co.cask.tephra.Transaction;
+import co.cask.tephra.TransactionCodec;
+import co.cask.tephra.TxConstants;
 import co.cask.tigon.conf.Constants;
+import co.cask.tigon.data.increment.IncrementReadCache;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.Cell;
+import org.apache.hadoop.hbase.CellUtil;
 import org.apache.hadoop.hbase.HBaseTestingUtility;
 import org.apache.hadoop.hbase.HColumnDescriptor;
 import org.apache.hadoop.hbase.HTableDescriptor;
 import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.Durability;
 import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.HTable;
 import org.apache.hadoop.hbase.client.Put;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.coprocessor.ObserverContext;
+import org.apache.hadoop.hbase.coprocessor.RegionCoprocessorEnvironment;
+import org.apache.hadoop.hbase.regionserver.HRegion;
+import org.apache.hadoop.hbase.regionserver.wal.WALEdit;
 import org.apache.hadoop.hbase.util.Bytes;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -145,6 +160,183 @@ public class IncrementHandlerTest {
     }
   }
 
+  @Test
+  public void testReadCache() throws Exception {
+    TableName tableName = TableName.valueOf("incrementCacheTest");
+    HTableDescriptor tableDesc = new HTableDescriptor(tableName);
+    HColumnDescriptor columnDesc = new HColumnDescriptor(FAMILY);
+    columnDesc.setMaxVersions(Integer.MAX_VALUE);
+    tableDesc.addFamily(columnDesc);
+    tableDesc.addCoprocessor(BoundedIncrementHandler.class.getName());
+    testUtil.getHBaseAdmin().createTable(tableDesc);
+    testUtil.waitUntilAllRegionsAssigned(tableName, 5000);
+
+    HRegion region = testUtil.getHBaseCluster().getRegions(tableName.getName()).get(0);
+    IncrementReadCache readCache = ((IncrementHandler) region.getCoprocessorHost()
+      .findCoprocessor(BoundedIncrementHandler.class.getName())).getReadCache();
+
+    HTable table = new HTable(conf, tableName);
+    try {
+      byte[] row = Bytes.toBytes("row1");
+      byte[] col = Bytes.toBytes("a");
+      // cells older than the bound can be cached
+      BoundedIncrementHandler.upperBound = 100;
+
+      table.put(newIncrement(row, col, 10, 1));
+      table.put(newIncrement(row, col, 11, 2));
+      assertCachedColumn(table, row, col, 3);
+      assertEquals(0, readCache.getHitCount());
+      assertCachedColumn(table, row, col, 3);
+      assertEquals(1, readCache.getHitCount());
+
+      // newer increments are added to the cached sum
+      table.put(newIncrement(row, col, 200, 4));
+      table.put(newIncrement(row, col, 201, 5));
+      assertCachedColumn(table, row, col, 12);
+      assertEquals(2, readCache.getHitCount());
+
+      // the bound moves past those increments, they are added to the cached sum
+      BoundedIncrementHandler.upperBound = 300;
+      assertCachedColumn(table, row, col, 12);
+      IncrementReadCache.Entry entry = readCache.get(row, FAMILY, col);
+      assertNotNull(entry);
+      assertEquals(12L, entry.getSum());
+      assertEquals(201L, entry.getTimestamp());
+
+      // an increment older than the cached sum invalidates it
+      table.put(newIncrement(row, col, 150, 1));
+      long misses = readCache.getMissCount();
+      assertCachedColumn(table, row, col, 13);
+      assertEquals(misses + 1, readCache.getMissCount());
+
+      // so does a full value
+      Put put = new Put(row);
+      put.add(FAMILY, col, 250, Bytes.toBytes(20L));
+      table.put(put);
+      table.put(newIncrement(row, col, 260, 1));
+      assertCachedColumn(table, row, col, 21);
+      assertCachedColumn(table, row, col, 21);
+
+      // flushing clears the cache, but the value stays the same
+      testUtil.getHBaseAdmin().flush(tableName.getName());
+      assertCachedColumn(table, row, col, 21);
+    } finally {
+      table.close();
+    }
+  }
+
+  @Test
+  public void testReadCacheWithInterleavedGet() throws Exception {
+    TableName tableName = TableName.valueOf("incrementCacheInterleaveTest");
+    HTableDescriptor tableDesc = new HTableDescriptor(tableName);
+    HColumnDescriptor columnDesc = new HColumnDescriptor(FAMILY);
+    columnDesc.setMaxVersions(Integer.MAX_VALUE);
+    tableDesc.addFamily(columnDesc);
+    tableDesc.addCoprocessor(BoundedIncrementHandler.class.getName());
+    testUtil.getHBaseAdmin().createTable(tableDesc);
+    testUtil.waitUntilAllRegionsAssigned(tableName, 5000);
+
+    HTable table = new HTable(conf, tableName);
+    try {
+      byte[] row = Bytes.toBytes("row1");
+      byte[] col = Bytes.toBytes("a");
+      BoundedIncrementHandler.upperBound = 100;
+
+      table.put(newIncrement(row, col, 10, 1));
+      table.put(newIncrement(row, col, 20, 2));
+      assertCachedColumn(table, row, col, 3);
+
+      // a Get served after the cache was invalidated for an older increment, but before it is written, caches a
+      // sum without it
+      BoundedIncrementHandler.interleaveGets = true;
+      try {
+        table.put(newIncrement(row, col, 15, 4));
+      } finally {
+        BoundedIncrementHandler.interleaveGets = false;
+      }
+      assertCachedColumn(table, row, col, 7);
+      assertCachedColumn(table, row, col, 7);
+    } finally {
+      table.close();
+    }
+  }
+
+  @Test
+  public void testReadCacheWithTransaction() throws Exception {
+    TableName tableName = TableName.valueOf("incrementCacheTxTest");
+    HTableDescriptor tableDesc = new HTableDescriptor(tableName);
+    HColumnDescriptor columnDesc = new HColumnDescriptor(FAMILY);
+    columnDesc.setMaxVersions(Integer.MAX_VALUE);
+    tableDesc.addFamily(columnDesc);
+    tableDesc.addCoprocessor(BoundedIncrementHandler.class.getName());
+    testUtil.getHBaseAdmin().createTable(tableDesc);
+    testUtil.waitUntilAllRegionsAssigned(tableName, 5000);
+
+    HRegion region = testUtil.getHBaseCluster().getRegions(tableName.getName()).get(0);
+    IncrementReadCache readCache = ((IncrementHandler) region.getCoprocessorHost()
+      .findCoprocessor(BoundedIncrementHandler.class.getName())).getReadCache();
+
+    HTable table = new HTable(conf, tableName);
+    try {
+      byte[] row = Bytes.toBytes("row1");
+      byte[] col = Bytes.toBytes("a");
+      BoundedIncrementHandler.upperBound = 100;
+      BoundedIncrementHandler.invalidIds = Collections.singleton(12L);
+
+      table.put(newIncrement(row, col, 10, 1));
+      table.put(newIncrement(row, col, 11, 2));
+      // written by an invalid transaction
+      table.put(newIncrement(row, col, 12, 100));
+      table.put(newIncrement(row, col, 200, 4));
+
+      // a transaction that sees all cells below the bound caches their sum, without the invalid cell
+      Transaction tx = new Transaction(300, 301, new long[] { 12 }, new long[0], Long.MAX_VALUE);
+      assertCachedColumn(table, row, col, tx, 7);
+      IncrementReadCache.Entry entry = readCache.get(row, FAMILY, col);
+      assertNotNull(entry);
+      assertEquals(3L, entry.getSum());
+      assertEquals(11L, entry.getTimestamp());
+
+      long hits = readCache.getHitCount();
+      assertCachedColumn(table, row, col, tx, 7);
+      assertEquals(hits + 1, readCache.getHitCount());
+
+      // a non-transactional read still sees the invalid cell
+      assertCachedColumn(table, row, col, 107);
+
+      // transactions that do not see all cells of the cached sum do not use it
+      Transaction oldTx = new Transaction(10, 301, new long[] { 12 }, new long[0], Long.MAX_VALUE);
+      assertCachedColumn(table, row, col, oldTx, 1);
+      Transaction inProgressTx = new Transaction(300, 301, new long[] { 12 }, new long[] { 11 }, 11);
+      assertCachedColumn(table, row, col, inProgressTx, 5);
+
+      // neither of them replaced the cached sum
+      entry = readCache.get(row, FAMILY, col);
+      assertNotNull(entry);
+      assertEquals(3L, entry.getSum());
+      assertEquals(11L, entry.getTimestamp());
+    } finally {
+      BoundedIncrementHandler.invalidIds = Collections.emptySet();
+      table.close();
+    }
+  }
+
+  private void assertCachedColumn(HTable table, byte[] row, byte[] col, long expected) throws Exception {
+    assertCachedColumn(table, row, col, null, expected);
+  }
+
+  private void assertCachedColumn(HTable table, byte[] row, byte[] col, Transaction tx,
+                                  long expected) throws Exception {
+    Get get = new Get(row);
+    get.addColumn(FAMILY, col);
+    if (tx != null) {
+      get.setAttribute(TxConstants.TX_OPERATION_ATTRIBUTE_KEY, new TransactionCodec().encode(tx));
+    }
+    Result res = table.get(get);
+    assertFalse(res.isEmpty());
+    assertEquals(expected, Bytes.toLong(res.getValue(FAMILY, col)));
+  }
+
   private void assertColumn(HTable table, byte[] row, byte[] col, long expected) throws Exception {
     Result res = table.get(new Get(row));
     Cell resA = res.getColumnLatestCell(FAMILY, col);
@@ -204,4 +396,41 @@ public class IncrementHandlerTest {
     p.setAttribute(Constants.DELTA_WRITE, EMPTY_BYTES);
     return p;
   }
+
+  /**
+   * {@link IncrementHandler} with a fixed upper bound and invalid transactions for the read cache, as there is no
+   * transaction state.
+   * It can also serve a Get of every written column between the pre-hook and the write of a Put.
+   */
+  public static final class BoundedIncrementHandler extends IncrementHandler {
+    private static volatile long upperBound;
+    private static volatile Set<Long> invalidIds = Collections.emptySet();
+    private static volatile boolean interleaveGets;
+
+    @Override
+    protected long getReadCacheUpperBound() {
+      return upperBound;
+    }
+
+    @Override
+    protected Set<Long> getReadCacheInvalidIds() {
+      return invalidIds;
+    }
+
+    @Override
+    public void prePut(ObserverContext<RegionCoprocessorEnvironment> ctx, Put put, WALEdit edit,
+                       Durability durability) throws IOException {
+      super.prePut(ctx, put, edit, durability);
+      if (!interleaveGets) {
+        return;
+      }
+      for (List<Cell> cells : put.getFamilyCellMap().values()) {
+        for (Cell cell : cells) {
+          Get get = new Get(CellUtil.cloneRow(cell));
+          get.addColumn(CellUtil.cloneFamily(cell), CellUtil.cloneQualifier(cell));
+          ctx.getEnvironment().getRegion().get(get);
+        }
+      }
+    }
+  }
 }
@@ -0,0 +1,175 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.data.increment.hbase96;
+
+import co.cask.tephra.Transaction;
+import co.cask.tephra.TransactionContext;
+import co.cask.tephra.inmemory.DetachedTxSystemClient;
+import co.cask.tigon.data.increment.TransactionAwareIncrementTable;
+import org.apache.hadoop.hbase.HBaseTestingUtility;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.TableName;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for {@link TransactionAwareIncrementTable} with the HBase 0.96+ version of the {@link IncrementHandler}.
+ */
+public class TransactionAwareIncrementTableTest {
+  private static final byte[] FAMILY = Bytes.toBytes("i");
+  private static final TableName TABLE_NAME = TableName.valueOf("txIncrementTest");
+
+  private static HBaseTestingUtility testUtil;
+
+  @BeforeClass
+  public static void setup() throws Exception {
+    testUtil = new HBaseTestingUtility();
+    testUtil.startMiniCluster();
+
+    HTableDescriptor tableDesc = new HTableDescriptor(TABLE_NAME);
+    HColumnDescriptor columnDesc = new HColumnDescriptor(FAMILY);
+    columnDesc.setMaxVersions(Integer.MAX_VALUE);
+    tableDesc.addFamily(columnDesc);
+    tableDesc.addCoprocessor(IncrementHandler.class.getName());
+    testUtil.getHBaseAdmin().createTable(tableDesc);
+    testUtil.waitUntilAllRegionsAssigned(TABLE_NAME, 5000);
+  }
+
+  @AfterClass
+  public static void tearDown() throws Exception {
+    testUtil.shutdownMiniCluster();
+  }
+
+  @Test
+  public void testIncrements() throws Exception {
+    TransactionAwareIncrementTable table =
+      new TransactionAwareIncrementTable(new HTable(testUtil.getConfiguration(), TABLE_NAME), FAMILY);
+    try {
+      byte[] row = Bytes.toBytes("row1");
+      byte[] colA = Bytes.toBytes("a");
+      byte[] colB = Bytes.toBytes("b");
+      TransactionContext txContext = new TransactionContext(new DetachedTxSystemClient(), table);
+
+      // repeated increments in one transaction are coalesced into a single delta
+      txContext.start();
+      for (int i = 0; i < 10; i++) {
+        table.increment(row, colA, 1);
+      }
+      table.increment(row, colB, 5);
+      // pending increments are visible to the transaction itself
+      assertEquals(10L, table.get(row, colA));
+      txContext.finish();
+
+      txContext.start();
+      table.increment(row, colA, 2);
+      table.increment(row, colB, -1);
+      txContext.finish();
+
+      txContext.start();
+      assertEquals(12L, table.get(row, colA));
+      assertEquals(4L, table.get(row, colB));
+      assertEquals(0L, table.get(row, Bytes.toBytes("c")));
+      txContext.finish();
+    } finally {
+      table.close();
+    }
+  }
+
+  @Test
+  public void testRollback() throws Exception {
+    TransactionAwareIncrementTable table =
+      new TransactionAwareIncrementTable(new HTable(testUtil.getConfiguration(), TABLE_NAME), FAMILY);
+    try {
+      byte[] row = Bytes.toBytes("row2");
+      byte[] col = Bytes.toBytes("a");
+      DetachedTxSystemClient txClient = new DetachedTxSystemClient();
+
+      Transaction tx = txClient.startShort();
+      table.startTx(tx);
+      table.increment(row, col, 3);
+      table.commitTx();
+      table.postTxCommit();
+
+      // the deltas of a transaction that fails after they were written are removed again
+      tx = txClient.startShort();
+      table.startTx(tx);
+      table.increment(row, col, 7);
+      table.commitTx();
+      table.rollbackTx();
+
+      tx = txClient.startShort();
+      table.startTx(tx);
+      assertEquals(3L, table.get(row, col));
+      table.rollbackTx();
+    } finally {
+      table.close();
+    }
+  }
+
+  @Test
+  public void testVisibility() throws Exception {
+    TransactionAwareIncrementTable table =
+      new TransactionAwareIncrementTable(new HTable(testUtil.getConfiguration(), TABLE_NAME), FAMILY);
+    try {
+      byte[] row = Bytes.toBytes("row3");
+      byte[] col = Bytes.toBytes("a");
+      DetachedTxSystemClient txClient = new DetachedTxSystemClient();
+
+      Transaction committed = txClient.startShort();
+      table.startTx(committed);
+      table.increment(row, col, 1);
+      table.commitTx();
+      table.postTxCommit();
+
+      // deltas are written before the transaction is committed
+      Transaction inProgress = txClient.startShort();
+      table.startTx(inProgress);
+      table.increment(row, col, 10);
+      table.commitTx();
+
+      // a transaction that failed without removing its deltas
+      Transaction invalid = txClient.startShort();
+      table.startTx(invalid);
+      table.increment(row, col, 100);
+      table.commitTx();
+
+      // only the deltas of committed transactions are visible
+      Transaction tx = txClient.startShort();
+      table.startTx(new Transaction(tx.getReadPointer(), tx.getWritePointer(),
+                                    new long[] { invalid.getWritePointer() },
+                                    new long[] { inProgress.getWritePointer() }, inProgress.getWritePointer()));
+      assertEquals(1L, table.get(row, col));
+      table.rollbackTx();
+
+      // the in progress transaction becomes visible once it is committed
+      tx = txClient.startShort();
+      table.startTx(new Transaction(tx.getReadPointer(), tx.getWritePointer(),
+                                    new long[] { invalid.getWritePointer() }, new long[0],
+                                    Transaction.NO_TX_IN_PROGRESS));
+      assertEquals(11L, table.get(row, col));
+      table.rollbackTx();
+    } finally {
+      table.close();
+    }
+  }
+}
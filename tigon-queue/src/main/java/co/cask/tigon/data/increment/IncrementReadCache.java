@@ -0,0 +1,232 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.data.increment;
+
+import co.cask.tigon.metrics.Counter;
+import co.cask.tigon.metrics.MetricsCollector;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
+
+/**
+ * Region level cache of summed increment values, used by the {@code IncrementHandler} coprocessor to avoid summing
+ * all deltas of a counter on every read. An entry holds the sum of all cells of a column up to and including a
+ * timestamp, so that a read only needs to add the deltas written after that timestamp.
+ *
+ * <p>Only sums of cells that can no longer change may be cached; it is up to the caller to exclude cells of
+ * transactions that may still be in progress. Every invalidation advances a generation, and a sum computed while
+ * the generation changed is not cached, so that a read racing with a write or flush never caches a stale sum.</p>
+ *
+ * <p>The cache holds at most the configured number of entries; once full, the least recently used entry is evicted
+ * for a new one. It is cleared on every flush and compaction.</p>
+ *
+ * <p>Hits and misses are counted as the {@code readcache.hit} and {@code readcache.miss} metrics if a
+ * {@link MetricsCollector} is given, so that the hit rate can be monitored.</p>
+ */
+public final class IncrementReadCache {
+
+  // access ordered, guarded by itself
+  private final LinkedHashMap<CellKey, Entry> entries;
+  private final AtomicLong generation = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final Counter hitCounter;
+  private final Counter missCounter;
+
+  public IncrementReadCache(int maxEntries) {
+    this(maxEntries, null);
+  }
+
+  /**
+   * @param maxEntries maximum number of cached sums
+   * @param metrics collector to count hits and misses with, or {@code null}
+   */
+  public IncrementReadCache(final int maxEntries, @Nullable MetricsCollector metrics) {
+    this.entries = new LinkedHashMap<CellKey, Entry>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<CellKey, Entry> eldest) {
+        return size() > maxEntries;
+      }
+    };
+    this.hitCounter = metrics == null ? null : metrics.counter("readcache.hit");
+    this.missCounter = metrics == null ? null : metrics.counter("readcache.miss");
+  }
+
+  /**
+   * @return the current generation, to be passed to {@link #put} after computing a sum
+   */
+  public long getGeneration() {
+    return generation.get();
+  }
+
+  /**
+   * @return the cached sum of the given column, or {@code null} if it is not cached
+   */
+  public Entry get(byte[] row, byte[] family, byte[] qualifier) {
+    CellKey key = new CellKey(row, family, qualifier);
+    Entry entry;
+    synchronized (entries) {
+      entry = entries.get(key);
+    }
+    if (entry == null) {
+      misses.incrementAndGet();
+      if (missCounter != null) {
+        missCounter.increment(1);
+      }
+    } else {
+      hits.incrementAndGet();
+      if (hitCounter != null) {
+        hitCounter.increment(1);
+      }
+    }
+    return entry;
+  }
+
+  /**
+   * Caches the sum of all cells of a column up to and including the given timestamp, unless the cache was
+   * invalidated since the given generation was obtained.
+   */
+  public void put(byte[] row, byte[] family, byte[] qualifier, long sum, long timestamp, long generation) {
+    CellKey key = new CellKey(row, family, qualifier);
+    synchronized (entries) {
+      // an invalidation happened while the sum was computed, it may be stale
+      if (this.generation.get() != generation) {
+        return;
+      }
+      Entry existing = entries.get(key);
+      if (existing == null || existing.getTimestamp() < timestamp) {
+        entries.put(key, new Entry(sum, timestamp));
+      }
+    }
+  }
+
+  /**
+   * Removes the cached sum of a column.
+   */
+  public void invalidate(byte[] row, byte[] family, byte[] qualifier) {
+    CellKey key = new CellKey(row, family, qualifier);
+    synchronized (entries) {
+      generation.incrementAndGet();
+      entries.remove(key);
+    }
+  }
+
+  /**
+   * Removes all cached sums.
+   */
+  public void clear() {
+    synchronized (entries) {
+      generation.incrementAndGet();
+      entries.clear();
+    }
+  }
+
+  public int size() {
+    synchronized (entries) {
+      return entries.size();
+    }
+  }
+
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  public long getMissCount() {
+    return misses.get();
+  }
+
+  /**
+   * @return ratio of reads that found a cached sum, or 0 if there were no reads
+   */
+  public double getHitRate() {
+    long hitCount = hits.get();
+    long total = hitCount + misses.get();
+    return total == 0 ? 0d : (double) hitCount / total;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("entries=%d, hits=%d, misses=%d, hitRate=%.3f", size(), getHitCount(), getMissCount(),
+                         getHitRate());
+  }
+
+  /**
+   * Cached sum of a column.
+   */
+  public static final class Entry {
+    private final long sum;
+    private final long timestamp;
+
+    private Entry(long sum, long timestamp) {
+      this.sum = sum;
+      this.timestamp = timestamp;
+    }
+
+    /**
+     * @return sum of all cells of the column up to and including {@link #getTimestamp()}
+     */
+    public long getSum() {
+      return sum;
+    }
+
+    /**
+     * @return highest timestamp of the cells included in the sum
+     */
+    public long getTimestamp() {
+      return timestamp;
+    }
+  }
+
+  /**
+   * Row, family and qualifier of a column.
+   */
+  private static final class CellKey {
+    private final byte[] row;
+    private final byte[] family;
+    private final byte[] qualifier;
+    private final int hashCode;
+
+    private CellKey(byte[] row, byte[] family, byte[] qualifier) {
+      this.row = row;
+      this.family = family;
+      this.qualifier = qualifier;
+      this.hashCode = 31 * (31 * Bytes.hashCode(row) + Bytes.hashCode(family)) + Bytes.hashCode(qualifier);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof CellKey)) {
+        return false;
+      }
+      CellKey other = (CellKey) o;
+      return hashCode == other.hashCode && Arrays.equals(row, other.row)
+        && Arrays.equals(family, other.family) && Arrays.equals(qualifier, other.qualifier);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package co.cask.tigon.data.increment;
+
+import co.cask.tigon.conf.Constants;
+import co.cask.tigon.metrics.AggregatedMetricsCollectionService;
+import co.cask.tigon.metrics.JmxMetricsSink;
+import co.cask.tigon.metrics.MetricsCollectionService;
+import co.cask.tigon.metrics.MetricsCollector;
+import co.cask.tigon.metrics.MetricsScope;
+import com.google.common.collect.ImmutableList;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Metrics of the {@link IncrementReadCache}s of a region server. The region server has no metrics sink of its own,
+ * hence all regions share one {@link MetricsCollectionService}, which publishes to a JMX sink named
+ * {@code IncrementReadCache}. It is started by the first region that acquires it and stopped when the last one
+ * releases it.
+ */
+public final class IncrementReadCacheMetrics {
+
+  private static final String SINK_NAME = "IncrementReadCache";
+
+  private static MetricsCollectionService collectionService;
+  private static int references;
+
+  /**
+   * Returns the collector for the read cache of a table, starting the shared collection service if needed.
+   * Every call must be followed by a call to {@link #release()}.
+   */
+  public static synchronized MetricsCollector acquire(String tableName) throws IOException {
+    if (references == 0) {
+      collectionService = new AggregatedMetricsCollectionService(ImmutableList.of(new JmxMetricsSink(SINK_NAME)),
+                                                                 Constants.Metrics.DEFAULT_FLUSH_INTERVAL_SECONDS,
+                                                                 TimeUnit.SECONDS);
+      collectionService.startAndWait();
+    }
+    references++;
+    return collectionService.getCollector(MetricsScope.SYSTEM, "increment." + tableName, "0");
+  }
+
+  /**
+   * Releases a collector obtained with {@link #acquire(String)}, stopping the shared collection service once it is
+   * no longer used.
+   */
+  public static synchronized void release() {
+    if (references > 0 && --references == 0) {
+      collectionService.stopAndWait();
+      collectionService = null;
+    }
+  }
+
+  private IncrementReadCacheMetrics() {
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.data.increment;
+
+import co.cask.tigon.data.lib.hbase.AbstractHBaseDataSetAdmin;
+import co.cask.tigon.data.util.hbase.HBaseTableUtil;
+import com.google.common.collect.ImmutableList;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.Coprocessor;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.apache.twill.filesystem.Location;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Creates and upgrades HBase tables used by {@link TransactionAwareIncrementTable}: the counter column family keeps
+ * all versions, so that the deltas can be summed up, and the table has the version specific
+ * {@code IncrementHandler} coprocessor.
+ */
+public class IncrementTableAdmin extends AbstractHBaseDataSetAdmin {
+
+  private final byte[] family;
+  private final Location coprocessorDir;
+
+  /**
+   * @param name name of the HBase table
+   * @param family column family of the counters
+   * @param hConf HBase configuration
+   * @param tableUtil version specific table util, see {@link co.cask.tigon.data.util.hbase.HBaseTableUtilFactory}
+   * @param coprocessorDir directory to store the coprocessor jar in, must be accessible by the region servers
+   */
+  public IncrementTableAdmin(String name, byte[] family, Configuration hConf,
+                             HBaseTableUtil tableUtil, Location coprocessorDir) {
+    super(name, hConf, tableUtil);
+    this.family = family;
+    this.coprocessorDir = coprocessorDir;
+  }
+
+  @Override
+  public void create() throws IOException {
+    byte[] tableName = Bytes.toBytes(this.tableName);
+    HTableDescriptor htd = new HTableDescriptor(tableName);
+
+    HColumnDescriptor hcd = new HColumnDescriptor(family);
+    hcd.setMaxVersions(Integer.MAX_VALUE);
+    htd.addFamily(hcd);
+
+    CoprocessorJar coprocessorJar = createCoprocessorJar();
+    for (Class<? extends Coprocessor> coprocessor : coprocessorJar.getCoprocessors()) {
+      addCoprocessor(htd, coprocessor, coprocessorJar.getJarLocation(), coprocessorJar.getPriority(coprocessor));
+    }
+
+    tableUtil.createTableIfNotExists(getAdmin(), tableName, htd, null);
+  }
+
+  @Override
+  protected CoprocessorJar createCoprocessorJar() throws IOException {
+    List<? extends Class<? extends Coprocessor>> coprocessors =
+      ImmutableList.of(tableUtil.getIncrementHandlerClassForVersion());
+    Location jarFile = HBaseTableUtil.createCoProcessorJar("increment", coprocessorDir, coprocessors);
+    return new CoprocessorJar(coprocessors, jarFile);
+  }
+
+  @Override
+  protected boolean upgradeTable(HTableDescriptor tableDescriptor) {
+    HColumnDescriptor columnDescriptor = tableDescriptor.getFamily(family);
+    if (columnDescriptor.getMaxVersions() != Integer.MAX_VALUE) {
+      columnDescriptor.setMaxVersions(Integer.MAX_VALUE);
+      return true;
+    }
+    return false;
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.data.increment;
+
+import co.cask.tephra.Transaction;
+import co.cask.tephra.TransactionAware;
+import co.cask.tephra.TransactionCodec;
+import co.cask.tephra.TxConstants;
+import co.cask.tigon.conf.Constants;
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.HTableInterface;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A {@link TransactionAware} table of counters that are updated with read-less increments.
+ *
+ * <p>Increments are buffered for the duration of a transaction, with repeated increments of the same cell
+ * coalesced into a single delta. On commit, the deltas are written in one batch of {@code Put}s flagged with
+ * {@link Constants#DELTA_WRITE}, which the {@code IncrementHandler} coprocessor of the table sums up on read.
+ * Since nothing is read before writing, increments from concurrent transactions never conflict.</p>
+ *
+ * <p>Reads pass the current transaction to the coprocessor, which only sums up the deltas visible to it. Hence the
+ * deltas of transactions that are still in progress, or that failed without removing their deltas, are not
+ * visible. Reading the table without this class, or outside of a transaction, sees all written deltas.</p>
+ *
+ * <p>The underlying HBase table must have the {@code IncrementHandler} coprocessor and keep all versions of the
+ * counter column family, see {@link IncrementTableAdmin}. To use it in a flowlet, register it with
+ * {@code FlowletContext.addTransactionAware()} in {@code initialize()}, so that the increments of each
+ * process call are committed with the transaction of that call.</p>
+ */
+public class TransactionAwareIncrementTable implements TransactionAware {
+
+  private static final byte[] EMPTY_BYTES = new byte[0];
+
+  private final HTableInterface table;
+  private final byte[] family;
+  private final NavigableMap<byte[], NavigableMap<byte[], Delta>> deltas;
+  private final TransactionCodec txCodec;
+
+  private Transaction transaction;
+  // true once deltas of the current transaction were written to the table
+  private boolean persisted;
+
+  /**
+   * Creates a table that writes counters of the given column family.
+   */
+  public TransactionAwareIncrementTable(HTableInterface table, byte[] family) {
+    this.table = table;
+    this.family = family;
+    this.deltas = new TreeMap<byte[], NavigableMap<byte[], Delta>>(Bytes.BYTES_COMPARATOR);
+    this.txCodec = new TransactionCodec();
+  }
+
+  /**
+   * Adds the given delta to a counter. The increment is written when the current transaction commits.
+   */
+  public void increment(byte[] row, byte[] column, long delta) {
+    Preconditions.checkState(transaction != null, "Increment called outside of transaction.");
+    NavigableMap<byte[], Delta> columns = deltas.get(row);
+    if (columns == null) {
+      columns = new TreeMap<byte[], Delta>(Bytes.BYTES_COMPARATOR);
+      deltas.put(row, columns);
+    }
+    Delta value = columns.get(column);
+    if (value == null) {
+      columns.put(column, new Delta(delta));
+    } else {
+      value.value += delta;
+    }
+  }
+
+  /**
+   * Returns the value of a counter as seen by the current transaction: the increments of the transactions
+   * visible to it, plus its own increments that are not committed yet.
+   */
+  public long get(byte[] row, byte[] column) throws IOException {
+    Preconditions.checkState(transaction != null, "Get called outside of transaction.");
+    Get get = new Get(row);
+    get.addColumn(family, column);
+    get.setAttribute(TxConstants.TX_OPERATION_ATTRIBUTE_KEY, txCodec.encode(transaction));
+    Result result = table.get(get);
+    byte[] value = result.getValue(family, column);
+    long sum = value == null ? 0L : Bytes.toLong(value);
+
+    NavigableMap<byte[], Delta> columns = deltas.get(row);
+    if (columns != null) {
+      Delta delta = columns.get(column);
+      if (delta != null) {
+        sum += delta.value;
+      }
+    }
+    return sum;
+  }
+
+  @Override
+  public String getTransactionAwareName() {
+    return getClass().getSimpleName() + "(table = " + Bytes.toString(table.getTableName()) + ")";
+  }
+
+  @Override
+  public void startTx(Transaction tx) {
+    deltas.clear();
+    transaction = tx;
+    persisted = false;
+  }
+
+  @Override
+  public Collection<byte[]> getTxChanges() {
+    // Always empty changes, as increments are commutative, nothing could be conflict.
+    return ImmutableList.of();
+  }
+
+  @Override
+  public boolean commitTx() throws Exception {
+    Preconditions.checkState(transaction != null, "Commit without starting transaction.");
+    if (deltas.isEmpty()) {
+      return true;
+    }
+    List<Put> puts = Lists.newArrayListWithCapacity(deltas.size());
+    for (Map.Entry<byte[], NavigableMap<byte[], Delta>> row : deltas.entrySet()) {
+      Put put = new Put(row.getKey());
+      put.setAttribute(Constants.DELTA_WRITE, EMPTY_BYTES);
+      for (Map.Entry<byte[], Delta> column : row.getValue().entrySet()) {
+        // one cell per counter and transaction, as repeated increments are coalesced
+        put.add(family, column.getKey(), transaction.getWritePointer(), Bytes.toBytes(column.getValue().value));
+      }
+      puts.add(put);
+    }
+    persisted = true;
+    table.put(puts);
+    table.flushCommits();
+    return true;
+  }
+
+  @Override
+  public void postTxCommit() {
+    transaction = null;
+    deltas.clear();
+  }
+
+  @Override
+  public boolean rollbackTx() throws Exception {
+    try {
+      if (persisted && !deltas.isEmpty()) {
+        // remove exactly the delta cells written by this transaction
+        List<Delete> deletes = Lists.newArrayListWithCapacity(deltas.size());
+        for (Map.Entry<byte[], NavigableMap<byte[], Delta>> row : deltas.entrySet()) {
+          Delete delete = new Delete(row.getKey());
+          for (byte[] column : row.getValue().keySet()) {
+            delete.deleteColumn(family, column, transaction.getWritePointer());
+          }
+          deletes.add(delete);
+        }
+        table.delete(deletes);
+        table.flushCommits();
+      }
+      return true;
+    } finally {
+      transaction = null;
+      persisted = false;
+      deltas.clear();
+    }
+  }
+
+  /**
+   * Closes the underlying table.
+   */
+  public void close() throws IOException {
+    table.close();
+  }
+
+  /**
+   * Pending increment of a single counter.
+   */
+  private static final class Delta {
+    private long value;
+
+    private Delta(long value) {
+      this.value = value;
+    }
+  }
+}
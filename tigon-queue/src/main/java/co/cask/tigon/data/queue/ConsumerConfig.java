@@ -29,15 +29,45 @@ public final class ConsumerConfig {
   private final int groupSize;
   private final DequeueStrategy dequeueStrategy;
   private final String hashKey;
+  // Incremented every time the group size is changed without recreating the consumer group.
+  private final int generation;
+  // Group size the group is about to switch to, or 0 if no change is in progress.
+  private final int nextGroupSize;
 
   public ConsumerConfig(long groupId, int instanceId, int groupSize, DequeueStrategy dequeueStrategy, String hashKey) {
+    this(groupId, instanceId, groupSize, dequeueStrategy, hashKey, 0, 0);
+  }
+
+  public ConsumerConfig(long groupId, int instanceId, int groupSize, DequeueStrategy dequeueStrategy, String hashKey,
+                        int generation, int nextGroupSize) {
     Preconditions.checkArgument(instanceId >= 0, "Instance ID must be >= 0.");
     Preconditions.checkArgument(instanceId < groupSize, "Instance ID must be < groupSize");
+    Preconditions.checkArgument(generation >= 0, "Generation must be >= 0.");
+    Preconditions.checkArgument(nextGroupSize == 0 || instanceId < nextGroupSize,
+                                "Instance ID must be < nextGroupSize");
     this.groupId = groupId;
     this.instanceId = instanceId;
     this.groupSize = groupSize;
     this.dequeueStrategy = dequeueStrategy;
     this.hashKey = dequeueStrategy == DequeueStrategy.HASH ? hashKey : null;
+    this.generation = generation;
+    this.nextGroupSize = nextGroupSize;
+  }
+
+  /**
+   * Returns a copy of this config that prepares for a change of the group size. Until the change is applied with
+   * {@link #withGroupSize(int)}, the consumer only owns the entries it owns under both the current and the next
+   * group size. Hence no entry can be owned by two instances while they switch to the new size one after another.
+   */
+  public ConsumerConfig withNextGroupSize(int nextGroupSize) {
+    return new ConsumerConfig(groupId, instanceId, groupSize, dequeueStrategy, hashKey, generation, nextGroupSize);
+  }
+
+  /**
+   * Returns a copy of this config of the next generation, with the given group size.
+   */
+  public ConsumerConfig withGroupSize(int groupSize) {
+    return new ConsumerConfig(groupId, instanceId, groupSize, dequeueStrategy, hashKey, generation + 1, 0);
   }
 
   public long getGroupId() {
@@ -60,6 +90,23 @@ public final class ConsumerConfig {
     return hashKey;
   }
 
+  public int getGeneration() {
+    return generation;
+  }
+
+  public int getNextGroupSize() {
+    return nextGroupSize;
+  }
+
+  /**
+   * Tells whether this consumer owns the entry with the given hash value, when partitioning by hash or round robin.
+   */
+  public boolean isOwner(int hashValue) {
+    // abs is applied after the modulus, as the abs of Integer.MIN_VALUE is negative.
+    return instanceId == Math.abs(hashValue % groupSize)
+      && (nextGroupSize == 0 || instanceId == Math.abs(hashValue % nextGroupSize));
+  }
+
   @Override
   public String toString() {
     return Objects.toStringHelper(this)
@@ -68,6 +115,8 @@ public final class ConsumerConfig {
                   .add("groupSize", groupSize)
                   .add("dequeueStrategy", dequeueStrategy)
                   .add("hashKey", hashKey)
+                  .add("generation", generation)
+                  .add("nextGroupSize", nextGroupSize)
                   .toString();
   }
 
@@ -86,11 +135,13 @@ public final class ConsumerConfig {
       && groupSize == other.groupSize
       && instanceId == other.instanceId
       && dequeueStrategy == other.dequeueStrategy
-      && Objects.equal(hashKey, other.hashKey);
+      && Objects.equal(hashKey, other.hashKey)
+      && generation == other.generation
+      && nextGroupSize == other.nextGroupSize;
   }
 
   @Override
   public int hashCode() {
-    return Objects.hashCode(groupId, groupSize, instanceId, dequeueStrategy, hashKey);
+    return Objects.hashCode(groupId, groupSize, instanceId, dequeueStrategy, hashKey, generation, nextGroupSize);
   }
 }
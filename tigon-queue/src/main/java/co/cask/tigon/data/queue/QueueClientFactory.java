@@ -29,5 +29,8 @@ public interface QueueClientFactory {
 
   QueueConsumer createConsumer(QueueName queueName, ConsumerConfig consumerConfig, int numGroups) throws IOException;
 
+  QueueConsumer createConsumer(QueueName queueName, ConsumerConfig consumerConfig, int numGroups,
+                               QueueMetrics queueMetrics) throws IOException;
+
   QueueProducer createProducer(QueueName queueName, QueueMetrics queueMetrics) throws IOException;
 }
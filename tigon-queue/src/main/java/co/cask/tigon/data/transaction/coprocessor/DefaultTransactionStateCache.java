@@ -20,6 +20,7 @@ import co.cask.tephra.coprocessor.TransactionStateCache;
 import co.cask.tigon.conf.CConfiguration;
 import co.cask.tigon.data.transaction.snapshot.SnapshotCodecV1;
 import co.cask.tigon.data.transaction.snapshot.SnapshotCodecV2;
+import co.cask.tigon.data.transaction.snapshot.SnapshotCodecV3;
 import co.cask.tigon.data.util.hbase.ConfigurationTable;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.HBaseConfiguration;
@@ -37,6 +38,7 @@ public class DefaultTransactionStateCache extends TransactionStateCache {
   // DO NOT REMOVE
   private static final SnapshotCodecV1 codecV1 = null;
   private static final SnapshotCodecV2 codecV2 = null;
+  private static final SnapshotCodecV3 codecV3 = null;
 
   private String tableNamespace;
   private ConfigurationTable configTable;
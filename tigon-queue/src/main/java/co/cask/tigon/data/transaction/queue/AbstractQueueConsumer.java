@@ -69,6 +69,7 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
 
   private final ConsumerConfig consumerConfig;
   private final QueueName queueName;
+  private final QueueMetrics queueMetrics;
   private final SortedMap<byte[], SimpleQueueEntry> entryCache;
   private final NavigableMap<byte[], SimpleQueueEntry> consumingEntries;
   protected final byte[] stateColumnName;
@@ -87,8 +88,13 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
   protected abstract QueueScanner getScanner(byte[] startRow, byte[] stopRow, int numRows) throws IOException;
 
   protected AbstractQueueConsumer(ConsumerConfig consumerConfig, QueueName queueName) {
+    this(consumerConfig, queueName, QueueMetrics.NOOP_QUEUE_METRICS);
+  }
+
+  protected AbstractQueueConsumer(ConsumerConfig consumerConfig, QueueName queueName, QueueMetrics queueMetrics) {
     this.consumerConfig = consumerConfig;
     this.queueName = queueName;
+    this.queueMetrics = queueMetrics;
     this.entryCache = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     this.consumingEntries = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     this.queueRowPrefix = QueueEntryRow.getQueueRowPrefix(queueName);
@@ -182,6 +188,12 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
 
   @Override
   public void postTxCommit() {
+    // While the group size is being changed, entries owned by an instance under the next group size are skipped,
+    // so the scan may have moved past entries that are not processed yet. The start row stays in place, as the
+    // instances added by the change start from the smallest start row of the existing instances.
+    if (consumerConfig.getNextGroupSize() != 0) {
+      return;
+    }
     if (scanStartRow != null) {
       if (!consumingEntries.isEmpty()) {
         // Start row can be updated to the largest rowKey in the consumingEntries (now is consumed)
@@ -270,6 +282,7 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
     if (scanStartRow == null) {
       scanStartRow = Arrays.copyOf(startRow, startRow.length);
     }
+    long startTime = System.nanoTime();
     QueueScanner scanner = getScanner(scanStartRow,
                                       QueueEntryRow.getStopRowForTransaction(queueRowPrefix, transaction),
                                       numRows);
@@ -328,6 +341,7 @@ public abstract class AbstractQueueConsumer implements QueueConsumer, Transactio
       }
     } finally {
       scanner.close();
+      queueMetrics.emitDequeueScanTime(System.nanoTime() - startTime);
     }
   }
 
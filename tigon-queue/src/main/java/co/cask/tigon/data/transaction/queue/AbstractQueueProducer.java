@@ -33,7 +33,7 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 
 /**
- * Abstract base class for {@link QueueProducer} that emits enqueue metrics post commit.
+ * Abstract base class for {@link QueueProducer} that emits enqueue and persist time metrics post commit.
  */
 public abstract class AbstractQueueProducer implements QueueProducer, TransactionAware {
 
@@ -43,6 +43,7 @@ public abstract class AbstractQueueProducer implements QueueProducer, Transactio
   private Transaction transaction;
   private int lastEnqueueCount;
   private int lastEnqueueBytes;
+  private long lastPersistTime;
 
   protected AbstractQueueProducer(QueueMetrics queueMetrics, QueueName queueName) {
     this.queueMetrics = queueMetrics;
@@ -73,6 +74,7 @@ public abstract class AbstractQueueProducer implements QueueProducer, Transactio
     transaction = tx;
     lastEnqueueCount = 0;
     lastEnqueueBytes = 0;
+    lastPersistTime = 0;
   }
 
   @Override
@@ -89,7 +91,9 @@ public abstract class AbstractQueueProducer implements QueueProducer, Transactio
     List<QueueEntry> entries = Lists.newArrayListWithCapacity(queue.size());
     queue.drainTo(entries);
     lastEnqueueCount = entries.size();
+    long startTime = System.nanoTime();
     lastEnqueueBytes = persist(entries, tx);
+    lastPersistTime = System.nanoTime() - startTime;
     return true;
   }
 
@@ -98,6 +102,7 @@ public abstract class AbstractQueueProducer implements QueueProducer, Transactio
     if (lastEnqueueCount > 0) {
       queueMetrics.emitEnqueue(lastEnqueueCount);
       queueMetrics.emitEnqueueBytes(lastEnqueueBytes);
+      queueMetrics.emitPersistTime(lastPersistTime);
     }
   }
 
@@ -0,0 +1,30 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.data.transaction.queue;
+
+import co.cask.tigon.data.queue.QueueClientFactory;
+
+/**
+ * A {@link QueueClientFactory} that can create queue clients that share a {@link QueueWriteBatch}.
+ */
+public interface BatchingQueueClientFactory extends QueueClientFactory {
+
+  /**
+   * Creates a new {@link QueueWriteBatch}. A new batch should be created for each thread that runs transactions.
+   */
+  QueueWriteBatch createWriteBatch();
+}
@@ -60,6 +60,16 @@ public interface QueueAdmin extends EntityAdmin {
    */
   void configureGroups(QueueName queueName, Map<Long, Integer> groupInfo) throws Exception;
 
+  /**
+   * Returns an estimate of the number of entries in the given queue that are not yet processed by the given
+   * consumer group. The estimate may include entries that were processed recently.
+   * @param queueName Name of the queue.
+   * @param groupId The consumer group.
+   * @param limit Maximum number of entries to count.
+   * @return Number of pending entries, at most {@code limit}.
+   */
+  long getPendingEntries(QueueName queueName, long groupId, long limit) throws Exception;
+
   /**
    * Performs upgrade action for all queues.
    */
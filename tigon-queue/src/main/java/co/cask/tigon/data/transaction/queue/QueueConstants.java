@@ -38,9 +38,14 @@ public final class QueueConstants {
 
   public static final long MAX_CREATE_TABLE_WAIT = 5000L;    // Maximum wait of 5 seconds for table creation.
 
-  // How frequently (in seconds) to update the ConsumerConfigCache data for the HBaseQueueRegionObserver
+  // How frequently (in seconds) to fully reload the ConsumerConfigCache data for the HBaseQueueRegionObserver.
+  // Changes made through the HBaseQueueAdmin are picked up sooner through the config generation row.
   public static final String QUEUE_CONFIG_UPDATE_FREQUENCY = "data.queue.config.update.interval";
-  public static final Long DEFAULT_QUEUE_CONFIG_UPDATE_FREQUENCY = 5L; // default to 5 seconds
+  public static final Long DEFAULT_QUEUE_CONFIG_UPDATE_FREQUENCY = 60L; // default to 60 seconds
+
+  // Row in the queue config table that holds a generation counter per queue name, incremented whenever the
+  // consumer configuration of that queue changes. The leading zero byte sorts it before any queue name.
+  public static final byte[] QUEUE_CONFIG_GENERATION_ROW = new byte[] { 0, 'g', 'e', 'n' };
 
   /**
    * whether a queue is a queue or a stream.
@@ -282,8 +282,7 @@ public class QueueEntryRow {
         return CanConsume.YES;
       case ROUND_ROBIN: {
         int hashValue = Objects.hashCode(enqueueWritePointer, counter);
-        return consumerConfig.getInstanceId() == Math.abs(hashValue % consumerConfig.getGroupSize()) ?
-                                                 CanConsume.YES : CanConsume.NO;
+        return consumerConfig.isOwner(hashValue) ? CanConsume.YES : CanConsume.NO;
       }
       case HASH: {
         Map<String, Integer> hashKeys = null;
@@ -298,9 +297,8 @@ public class QueueEntryRow {
           // If no such hash key, default it to instance 0.
           return consumerConfig.getInstanceId() == 0 ? CanConsume.YES : CanConsume.NO;
         }
-        // Assign to instance based on modulus on the abs(hashValue).  abs used since the hash value can be negative.
-        return consumerConfig.getInstanceId() ==
-          (Math.abs(hashValue) % consumerConfig.getGroupSize()) ? CanConsume.YES : CanConsume.NO;
+        // Assign to instance based on modulus on the hashValue.
+        return consumerConfig.isOwner(hashValue) ? CanConsume.YES : CanConsume.NO;
       }
       default:
         throw new UnsupportedOperationException("Strategy " + consumerConfig.getDequeueStrategy() + " not supported.");
@@ -25,6 +25,18 @@ public interface QueueMetrics {
 
   void emitEnqueueBytes(int bytes);
 
+  /**
+   * Emits the time taken to persist the entries enqueued in a transaction.
+   * @param nanos Time in nanoseconds.
+   */
+  void emitPersistTime(long nanos);
+
+  /**
+   * Emits the time taken by a scan of the queue done by a dequeue.
+   * @param nanos Time in nanoseconds.
+   */
+  void emitDequeueScanTime(long nanos);
+
   static final QueueMetrics NOOP_QUEUE_METRICS = new QueueMetrics() {
     @Override
     public void emitEnqueue(int count) {
@@ -35,5 +47,15 @@ public interface QueueMetrics {
     public void emitEnqueueBytes(int bytes) {
       // no-op
     }
+
+    @Override
+    public void emitPersistTime(long nanos) {
+      // no-op
+    }
+
+    @Override
+    public void emitDequeueScanTime(long nanos) {
+      // no-op
+    }
   };
 }
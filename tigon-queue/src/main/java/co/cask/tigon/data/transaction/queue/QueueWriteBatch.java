@@ -0,0 +1,31 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.data.transaction.queue;
+
+import co.cask.tephra.TransactionAware;
+import co.cask.tigon.data.queue.QueueClientFactory;
+
+import java.io.Closeable;
+
+/**
+ * A {@link QueueClientFactory} whose producers and consumers do not write to the queue themselves on transaction
+ * commit or rollback. Instead they add their writes to this batch, which sends the writes of all of them together.
+ * This batch must be the last {@link TransactionAware} of the transaction, so that it sees the writes of all
+ * other participants before it flushes them.
+ */
+public interface QueueWriteBatch extends QueueClientFactory, TransactionAware, Closeable {
+}
@@ -27,13 +27,19 @@ import com.google.common.io.ByteStreams;
 import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.io.WritableUtils;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInput;
+import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.IOException;
 import javax.annotation.Nullable;
 
 /**
  * Deals with dequeue scan attributes.
+ *
+ * The generation and next group size of a {@link ConsumerConfig} are written after the fields known to older
+ * clients, and default to 0 when absent, so that a coprocessor can still serve scans from clients that don't
+ * write them.
  */
 public class DequeueScanAttributes {
   private static final String ATTR_CONSUMER_CONFIG = "tigon.queue.dequeue.consumerConfig";
@@ -92,9 +98,13 @@ public class DequeueScanAttributes {
   private static byte[] toBytes(ConsumerConfig consumerConfig) throws IOException {
     ByteArrayDataOutput dataOutput = ByteStreams.newDataOutput();
     write(dataOutput, consumerConfig);
+    writeGeneration(dataOutput, consumerConfig);
     return dataOutput.toByteArray();
   }
 
+  /**
+   * Writes the fields of the consumer config known to older clients, without the generation and next group size.
+   */
   public static void write(DataOutput dataOutput, ConsumerConfig consumerConfig) throws IOException {
     dataOutput.writeLong(consumerConfig.getGroupId());
     dataOutput.writeInt(consumerConfig.getGroupSize());
@@ -103,11 +113,29 @@ public class DequeueScanAttributes {
     WritableUtils.writeString(dataOutput, consumerConfig.getHashKey());
   }
 
+  /**
+   * Writes the generation and next group size of the consumer config.
+   */
+  public static void writeGeneration(DataOutput dataOutput, ConsumerConfig consumerConfig) throws IOException {
+    dataOutput.writeInt(consumerConfig.getGeneration());
+    dataOutput.writeInt(consumerConfig.getNextGroupSize());
+  }
+
   private static ConsumerConfig bytesToConsumerConfig(byte[] bytes) throws IOException {
-    ByteArrayDataInput dataInput = ByteStreams.newDataInput(bytes);
-    return readConsumerConfig(dataInput);
+    DataInputStream dataInput = new DataInputStream(new ByteArrayInputStream(bytes));
+    ConsumerConfig consumerConfig = readConsumerConfig(dataInput);
+    // Older clients don't write the generation
+    if (dataInput.available() > 0) {
+      consumerConfig = readGeneration(dataInput, consumerConfig);
+    }
+    return consumerConfig;
   }
 
+  /**
+   * Reads the fields written by {@link #write(DataOutput, ConsumerConfig)}.
+   *
+   * @return the consumer config, with generation and next group size of 0
+   */
   public static ConsumerConfig readConsumerConfig(DataInput dataInput) throws IOException {
     long groupId = dataInput.readLong();
     int groupSize = dataInput.readInt();
@@ -118,6 +146,20 @@ public class DequeueScanAttributes {
     return new ConsumerConfig(groupId, instanceId, groupSize, strategy, hashKey);
   }
 
+  /**
+   * Reads the fields written by {@link #writeGeneration(DataOutput, ConsumerConfig)}.
+   *
+   * @return a copy of the given consumer config with the generation and next group size read
+   */
+  public static ConsumerConfig readGeneration(DataInput dataInput, ConsumerConfig consumerConfig) throws IOException {
+    int generation = dataInput.readInt();
+    int nextGroupSize = dataInput.readInt();
+
+    return new ConsumerConfig(consumerConfig.getGroupId(), consumerConfig.getInstanceId(),
+                              consumerConfig.getGroupSize(), consumerConfig.getDequeueStrategy(),
+                              consumerConfig.getHashKey(), generation, nextGroupSize);
+  }
+
   private static byte[] toBytes(Transaction tx) throws IOException {
     ByteArrayDataOutput dataOutput = ByteStreams.newDataOutput();
     write(dataOutput, tx);
@@ -24,6 +24,7 @@ import co.cask.tigon.data.co.cask.tigon.data.hbase.wd.RowKeyDistributorByHashPre
 import co.cask.tigon.data.dataset.DefaultDatasetNamespace;
 import co.cask.tigon.data.lib.hbase.AbstractHBaseDataSetAdmin;
 import co.cask.tigon.data.queue.QueueName;
+import co.cask.tigon.data.transaction.queue.ConsumerEntryState;
 import co.cask.tigon.data.transaction.queue.QueueAdmin;
 import co.cask.tigon.data.transaction.queue.QueueConstants;
 import co.cask.tigon.data.transaction.queue.QueueEntryRow;
@@ -294,12 +295,22 @@ public class HBaseQueueAdmin implements QueueAdmin {
     }
   }
 
+  /**
+   * Increments the generation of the given queue in the config table, so that the
+   * {@link co.cask.tigon.data.transaction.queue.hbase.coprocessor.ConsumerConfigCache} of every region server
+   * reloads the consumer configuration of that queue without waiting for its next full refresh.
+   */
+  private void bumpConfigGeneration(HTable hTable, byte[] queueName) throws IOException {
+    hTable.incrementColumnValue(QueueConstants.QUEUE_CONFIG_GENERATION_ROW, QueueEntryRow.COLUMN_FAMILY, queueName, 1L);
+  }
+
   private void deleteConsumerConfigurations(QueueName queueName) throws IOException {
     // we need to delete the row for this queue name from the config table
     HTable hTable = new HTable(getHBaseAdmin().getConfiguration(), configTableName);
     try {
       byte[] rowKey = queueName.toBytes();
       hTable.delete(new Delete(rowKey));
+      bumpConfigGeneration(hTable, rowKey);
     } finally {
       hTable.close();
     }
@@ -335,6 +346,9 @@ public class HBaseQueueAdmin implements QueueAdmin {
         }
 
         hTable.delete(deletes);
+        for (Delete delete : deletes) {
+          bumpConfigGeneration(hTable, delete.getRow());
+        }
 
       } finally {
         hTable.close();
@@ -419,12 +433,78 @@ public class HBaseQueueAdmin implements QueueAdmin {
       }
       // Compute and applies changes
       hTable.batch(getConfigMutations(groupId, instances, rowKey, consumerStates, new ArrayList<Mutation>()));
+      bumpConfigGeneration(hTable, rowKey);
 
     } finally {
       hTable.close();
     }
   }
 
+  @Override
+  public long getPendingEntries(QueueName queueName, long groupId, long limit) throws Exception {
+    if (!exists(queueName)) {
+      return 0L;
+    }
+    byte[] queueRowPrefix = QueueEntryRow.getQueueRowPrefix(queueName);
+
+    // Entries before the smallest persisted start row of the group are processed already.
+    byte[] startRow = queueRowPrefix;
+    HTable configTable = new HTable(getHBaseAdmin().getConfiguration(), configTableName);
+    try {
+      Get get = new Get(queueName.toBytes());
+      get.addFamily(QueueEntryRow.COLUMN_FAMILY);
+      get.setFilter(new ColumnPrefixFilter(Bytes.toBytes(groupId)));
+      byte[] smallest = null;
+      for (HBaseConsumerState state : HBaseConsumerState.create(configTable.get(get))) {
+        if (smallest == null || Bytes.compareTo(state.getStartRow(), smallest) < 0) {
+          smallest = state.getStartRow();
+        }
+      }
+      // An instance that has not persisted a start row yet has an empty one
+      if (smallest != null && Bytes.compareTo(smallest, queueRowPrefix) > 0) {
+        startRow = smallest;
+      }
+    } finally {
+      configTable.close();
+    }
+
+    // Count the entries after the start row that are not marked as processed by the group.
+    // The meta column is read so that entries without a state column are returned, too.
+    byte[] stateColumn = Bytes.add(QueueEntryRow.STATE_COLUMN_PREFIX, Bytes.toBytes(groupId));
+    Scan scan = new Scan();
+    scan.setStartRow(startRow);
+    scan.setStopRow(Bytes.add(queueRowPrefix, Bytes.toBytes(Long.MAX_VALUE)));
+    scan.addColumn(QueueEntryRow.COLUMN_FAMILY, QueueEntryRow.META_COLUMN);
+    scan.addColumn(QueueEntryRow.COLUMN_FAMILY, stateColumn);
+    scan.setCaching(1000);
+    scan.setCacheBlocks(false);
+
+    long pending = 0;
+    HTable queueTable = new HTable(getHBaseAdmin().getConfiguration(), getActualTableName(queueName));
+    try {
+      for (Scan bucketScan : ROW_KEY_DISTRIBUTOR.getDistributedScans(scan)) {
+        ResultScanner scanner = queueTable.getScanner(bucketScan);
+        try {
+          Result result;
+          while (pending < limit && (result = scanner.next()) != null) {
+            byte[] state = result.getValue(QueueEntryRow.COLUMN_FAMILY, stateColumn);
+            if (state == null || QueueEntryRow.getState(state) != ConsumerEntryState.PROCESSED) {
+              pending++;
+            }
+          }
+        } finally {
+          scanner.close();
+        }
+        if (pending >= limit) {
+          break;
+        }
+      }
+    } finally {
+      queueTable.close();
+    }
+    return pending;
+  }
+
   @Override
   public void configureGroups(QueueName queueName, Map<Long, Integer> groupInfo) throws Exception {
     Preconditions.checkArgument(!groupInfo.isEmpty(), "Consumer group information must not be empty.");
@@ -490,6 +570,7 @@ public class HBaseQueueAdmin implements QueueAdmin {
       // Compute and applies changes
       if (!mutations.isEmpty()) {
         hTable.batch(mutations);
+        bumpConfigGeneration(hTable, rowKey);
       }
 
     } finally {
@@ -17,22 +17,24 @@
 package co.cask.tigon.data.transaction.queue.hbase;
 
 import co.cask.tigon.data.queue.ConsumerConfig;
-import co.cask.tigon.data.queue.QueueClientFactory;
 import co.cask.tigon.data.queue.QueueConsumer;
 import co.cask.tigon.data.queue.QueueName;
 import co.cask.tigon.data.queue.QueueProducer;
+import co.cask.tigon.data.transaction.queue.BatchingQueueClientFactory;
 import co.cask.tigon.data.transaction.queue.QueueAdmin;
 import co.cask.tigon.data.transaction.queue.QueueMetrics;
+import co.cask.tigon.data.transaction.queue.QueueWriteBatch;
 import com.google.inject.Inject;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.hbase.client.HTable;
 
 import java.io.IOException;
+import javax.annotation.Nullable;
 
 /**
  *
  */
-public final class HBaseQueueClientFactory implements QueueClientFactory {
+public final class HBaseQueueClientFactory implements BatchingQueueClientFactory {
 
   // 4M write buffer for HTable
   private static final int DEFAULT_WRITE_BUFFER_SIZE = 4 * 1024 * 1024;
@@ -61,11 +63,13 @@ public final class HBaseQueueClientFactory implements QueueClientFactory {
   @Override
   public QueueConsumer createConsumer(QueueName queueName,
                                        ConsumerConfig consumerConfig, int numGroups) throws IOException {
-    HBaseQueueAdmin admin = ensureTableExists(queueName);
-    HBaseConsumerStateStore stateStore = new HBaseConsumerStateStore(queueName, consumerConfig,
-                                                                     createHTable(admin.getConfigTableName()));
-    return queueUtil.getQueueConsumer(consumerConfig, createHTable(admin.getActualTableName(queueName)),
-                                      queueName, stateStore.getState(), stateStore);
+    return createConsumer(queueName, consumerConfig, numGroups, QueueMetrics.NOOP_QUEUE_METRICS);
+  }
+
+  @Override
+  public QueueConsumer createConsumer(QueueName queueName, ConsumerConfig consumerConfig, int numGroups,
+                                      QueueMetrics queueMetrics) throws IOException {
+    return createConsumer(queueName, consumerConfig, queueMetrics, null);
   }
 
   @Override
@@ -75,8 +79,32 @@ public final class HBaseQueueClientFactory implements QueueClientFactory {
 
   @Override
   public QueueProducer createProducer(QueueName queueName, QueueMetrics queueMetrics) throws IOException {
+    return createProducer(queueName, queueMetrics, null);
+  }
+
+  @Override
+  public QueueWriteBatch createWriteBatch() {
+    return new HBaseQueueWriteBatch(this);
+  }
+
+  QueueConsumer createConsumer(QueueName queueName, ConsumerConfig consumerConfig, QueueMetrics queueMetrics,
+                               @Nullable HBaseQueueWriteBatch writeBatch) throws IOException {
+    HBaseQueueAdmin admin = ensureTableExists(queueName);
+    HBaseConsumerStateStore stateStore = new HBaseConsumerStateStore(queueName, consumerConfig,
+                                                                     createHTable(admin.getConfigTableName()));
+    HBaseQueueConsumer consumer = queueUtil.getQueueConsumer(consumerConfig,
+                                                             createHTable(admin.getActualTableName(queueName)),
+                                                             queueName, stateStore.getState(), stateStore,
+                                                             queueMetrics);
+    consumer.setWriteBatch(writeBatch);
+    return consumer;
+  }
+
+  QueueProducer createProducer(QueueName queueName, QueueMetrics queueMetrics,
+                               @Nullable HBaseQueueWriteBatch writeBatch) throws IOException {
     HBaseQueueAdmin admin = ensureTableExists(queueName);
-    return new HBaseQueueProducer(createHTable(admin.getActualTableName(queueName)), queueName, queueMetrics);
+    return new HBaseQueueProducer(createHTable(admin.getActualTableName(queueName)), queueName, queueMetrics,
+                                  writeBatch);
   }
 
   /**
@@ -22,6 +22,7 @@ import co.cask.tigon.data.queue.ConsumerConfig;
 import co.cask.tigon.data.queue.QueueName;
 import co.cask.tigon.data.transaction.queue.AbstractQueueConsumer;
 import co.cask.tigon.data.transaction.queue.QueueEntryRow;
+import co.cask.tigon.data.transaction.queue.QueueMetrics;
 import co.cask.tigon.data.transaction.queue.QueueScanner;
 import co.cask.tigon.utils.ImmutablePair;
 import com.google.common.collect.Lists;
@@ -46,6 +47,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.SynchronousQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /**
  * Queue consumer for HBase.
@@ -64,6 +66,10 @@ abstract class HBaseQueueConsumer extends AbstractQueueConsumer {
   private final HBaseConsumerStateStore stateStore;
   private boolean closed;
 
+  // If not null, state changes are added to it instead of written to HBase directly
+  private HBaseQueueWriteBatch writeBatch;
+  private boolean rollingBack;
+
   // Executes distributed scans
   private final ExecutorService scansExecutor;
 
@@ -74,11 +80,13 @@ abstract class HBaseQueueConsumer extends AbstractQueueConsumer {
    * @param queueName Name of the queue.
    * @param consumerState The persisted state of this consumer.
    * @param stateStore The store for persisting state for this consumer.
+   * @param queueMetrics Metrics of the queue.
    */
   HBaseQueueConsumer(ConsumerConfig consumerConfig, HTable hTable, QueueName queueName,
-                     HBaseConsumerState consumerState, HBaseConsumerStateStore stateStore) {
+                     HBaseConsumerState consumerState, HBaseConsumerStateStore stateStore,
+                     QueueMetrics queueMetrics) {
     // For HBase, eviction is done at table flush time, hence no QueueEvictor is needed.
-    super(consumerConfig, queueName);
+    super(consumerConfig, queueName, queueMetrics);
     this.hTable = hTable;
 
     // Using the "direct handoff" approach, new threads will only be created
@@ -99,6 +107,24 @@ abstract class HBaseQueueConsumer extends AbstractQueueConsumer {
     }
   }
 
+  /**
+   * Sets the {@link HBaseQueueWriteBatch} to add state changes to on commit and rollback, or {@code null} to write
+   * them to HBase directly.
+   */
+  void setWriteBatch(@Nullable HBaseQueueWriteBatch writeBatch) {
+    this.writeBatch = writeBatch;
+  }
+
+  @Override
+  public boolean rollbackTx() throws Exception {
+    rollingBack = true;
+    try {
+      return super.rollbackTx();
+    } finally {
+      rollingBack = false;
+    }
+  }
+
   @Override
   protected boolean claimEntry(byte[] rowKey, byte[] claimedStateValue) throws IOException {
     rowKey = HBaseQueueAdmin.ROW_KEY_DISTRIBUTOR.getDistributedKey(rowKey);
@@ -120,6 +146,10 @@ abstract class HBaseQueueConsumer extends AbstractQueueConsumer {
       put.add(QueueEntryRow.COLUMN_FAMILY, stateColumnName, stateContent);
       puts.add(put);
     }
+    if (writeBatch != null) {
+      addToWriteBatch(puts);
+      return;
+    }
     hTable.put(puts);
     hTable.flushCommits();
   }
@@ -136,10 +166,22 @@ abstract class HBaseQueueConsumer extends AbstractQueueConsumer {
       delete.deleteColumn(QueueEntryRow.COLUMN_FAMILY, stateColumnName);
       ops.add(delete);
     }
+    if (writeBatch != null) {
+      addToWriteBatch(ops);
+      return;
+    }
     hTable.batch(ops);
     hTable.flushCommits();
   }
 
+  private void addToWriteBatch(List<? extends Row> writes) {
+    if (rollingBack) {
+      writeBatch.addRollbackWrites(hTable, writes);
+    } else {
+      writeBatch.addCommitWrites(hTable, writes);
+    }
+  }
+
   @Override
   protected QueueScanner getScanner(byte[] startRow, byte[] stopRow, int numRows) throws IOException {
     // Scan the table for queue entries.
@@ -159,7 +201,10 @@ abstract class HBaseQueueConsumer extends AbstractQueueConsumer {
       return;
     }
     try {
-      stateStore.saveState(new HBaseConsumerState(startRow, getConfig().getGroupId(), getConfig().getInstanceId()));
+      // The start row is not advanced while the group size is being changed, hence there is nothing to persist
+      if (getConfig().getNextGroupSize() == 0) {
+        stateStore.saveState(new HBaseConsumerState(startRow, getConfig().getGroupId(), getConfig().getInstanceId()));
+      }
     } finally {
       scansExecutor.shutdownNow();
       hTable.close();
@@ -170,7 +215,7 @@ abstract class HBaseQueueConsumer extends AbstractQueueConsumer {
   @Override
   public void postTxCommit() {
     super.postTxCommit();
-    if (commitCount >= PERSIST_START_ROW_LIMIT) {
+    if (commitCount >= PERSIST_START_ROW_LIMIT && getConfig().getNextGroupSize() == 0) {
       try {
         stateStore.saveState(new HBaseConsumerState(startRow, getConfig().getGroupId(), getConfig().getInstanceId()));
         commitCount = 0;
@@ -31,6 +31,7 @@ import org.apache.hadoop.hbase.client.Put;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.List;
+import javax.annotation.Nullable;
 
 /**
  *
@@ -40,12 +41,49 @@ public final class HBaseQueueProducer extends AbstractQueueProducer implements C
   private final byte[] queueRowPrefix;
   private final HTable hTable;
   private final List<byte[]> rollbackKeys;
+  private final HBaseQueueWriteBatch writeBatch;
+  private final QueueMetrics queueMetrics;
 
   public HBaseQueueProducer(HTable hTable, QueueName queueName, QueueMetrics queueMetrics) {
-    super(queueMetrics, queueName);
+    this(hTable, queueName, queueMetrics, null);
+  }
+
+  /**
+   * Creates a producer that adds its writes to the given {@link HBaseQueueWriteBatch} instead of writing them to
+   * HBase itself, if the batch is not {@code null}. The batch then emits the persist time, as it does the writes.
+   */
+  public HBaseQueueProducer(HTable hTable, QueueName queueName, QueueMetrics queueMetrics,
+                            @Nullable HBaseQueueWriteBatch writeBatch) {
+    super(writeBatch == null ? queueMetrics : withoutPersistTime(queueMetrics), queueName);
     this.queueRowPrefix = QueueEntryRow.getQueueRowPrefix(queueName);
     this.rollbackKeys = Lists.newArrayList();
     this.hTable = hTable;
+    this.writeBatch = writeBatch;
+    this.queueMetrics = queueMetrics;
+  }
+
+  private static QueueMetrics withoutPersistTime(final QueueMetrics queueMetrics) {
+    return new QueueMetrics() {
+      @Override
+      public void emitEnqueue(int count) {
+        queueMetrics.emitEnqueue(count);
+      }
+
+      @Override
+      public void emitEnqueueBytes(int bytes) {
+        queueMetrics.emitEnqueueBytes(bytes);
+      }
+
+      @Override
+      public void emitPersistTime(long nanos) {
+        // no-op, as the entries are only buffered
+      }
+
+      @Override
+      public void emitDequeueScanTime(long nanos) {
+        queueMetrics.emitDequeueScanTime(nanos);
+      }
+    };
   }
 
   @Override
@@ -88,8 +126,12 @@ public final class HBaseQueueProducer extends AbstractQueueProducer implements C
 
       bytes += entry.getData().length;
     }
-    hTable.put(puts);
-    hTable.flushCommits();
+    if (writeBatch != null) {
+      writeBatch.addCommitWrites(hTable, puts, queueMetrics);
+    } else {
+      hTable.put(puts);
+      hTable.flushCommits();
+    }
 
     return bytes;
   }
@@ -107,7 +149,11 @@ public final class HBaseQueueProducer extends AbstractQueueProducer implements C
       Delete delete = new Delete(rowKey);
       deletes.add(delete);
     }
-    hTable.delete(deletes);
-    hTable.flushCommits();
+    if (writeBatch != null) {
+      writeBatch.addRollbackWrites(hTable, deletes);
+    } else {
+      hTable.delete(deletes);
+      hTable.flushCommits();
+    }
   }
 }
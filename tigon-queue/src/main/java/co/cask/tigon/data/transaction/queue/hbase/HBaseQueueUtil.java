@@ -18,6 +18,7 @@ package co.cask.tigon.data.transaction.queue.hbase;
 
 import co.cask.tigon.data.queue.ConsumerConfig;
 import co.cask.tigon.data.queue.QueueName;
+import co.cask.tigon.data.transaction.queue.QueueMetrics;
 import org.apache.hadoop.hbase.client.HTable;
 
 /**
@@ -25,5 +26,6 @@ import org.apache.hadoop.hbase.client.HTable;
  */
 public abstract class HBaseQueueUtil {
   public abstract HBaseQueueConsumer getQueueConsumer(ConsumerConfig consumerConfig, HTable hTable,
-      QueueName queueName, HBaseConsumerState consumerState, HBaseConsumerStateStore stateStore);
+      QueueName queueName, HBaseConsumerState consumerState, HBaseConsumerStateStore stateStore,
+      QueueMetrics queueMetrics);
 }
@@ -0,0 +1,260 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.data.transaction.queue.hbase;
+
+import co.cask.tephra.Transaction;
+import co.cask.tigon.api.common.Bytes;
+import co.cask.tigon.data.queue.ConsumerConfig;
+import co.cask.tigon.data.queue.QueueConsumer;
+import co.cask.tigon.data.queue.QueueName;
+import co.cask.tigon.data.queue.QueueProducer;
+import co.cask.tigon.data.transaction.queue.QueueMetrics;
+import co.cask.tigon.data.transaction.queue.QueueWriteBatch;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.Row;
+import org.apache.hadoop.hbase.util.Threads;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * A {@link QueueWriteBatch} for HBase queues. It collects the puts and deletes of all producers and consumers of a
+ * transaction and sends them with one {@link HTable#batch(List)} call per queue table, which groups them by
+ * region server and sends to all region servers in parallel. If the writes span more than one table, the tables
+ * are written in parallel, too. The time taken to write each table is emitted as the persist time of the producers
+ * whose entries were written to it.
+ */
+public final class HBaseQueueWriteBatch implements QueueWriteBatch {
+
+  private final HBaseQueueClientFactory clientFactory;
+
+  // Writes to apply on commit and on rollback, by table name
+  private final Map<byte[], TableWrites> commitWrites;
+  private final Map<byte[], TableWrites> rollbackWrites;
+
+  // Writes sent by the last commit, to emit their persist time after the commit
+  private final List<TableWrites> committedWrites;
+
+  // Writes to different tables in parallel. Threads are only created when more than one table is written.
+  private final ExecutorService flushExecutor;
+
+  HBaseQueueWriteBatch(HBaseQueueClientFactory clientFactory) {
+    this.clientFactory = clientFactory;
+    this.commitWrites = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    this.rollbackWrites = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    this.committedWrites = Lists.newArrayList();
+    this.flushExecutor = new ThreadPoolExecutor(1, 20,
+                                                60, TimeUnit.SECONDS,
+                                                new SynchronousQueue<Runnable>(),
+                                                Threads.newDaemonThreadFactory("queue-write-batch"));
+    ((ThreadPoolExecutor) this.flushExecutor).allowCoreThreadTimeOut(true);
+  }
+
+  @Override
+  public QueueConsumer createConsumer(QueueName queueName,
+                                     ConsumerConfig consumerConfig, int numGroups) throws IOException {
+    return createConsumer(queueName, consumerConfig, numGroups, QueueMetrics.NOOP_QUEUE_METRICS);
+  }
+
+  @Override
+  public QueueConsumer createConsumer(QueueName queueName, ConsumerConfig consumerConfig, int numGroups,
+                                      QueueMetrics queueMetrics) throws IOException {
+    return clientFactory.createConsumer(queueName, consumerConfig, queueMetrics, this);
+  }
+
+  @Override
+  public QueueProducer createProducer(QueueName queueName) throws IOException {
+    return createProducer(queueName, QueueMetrics.NOOP_QUEUE_METRICS);
+  }
+
+  @Override
+  public QueueProducer createProducer(QueueName queueName, QueueMetrics queueMetrics) throws IOException {
+    return clientFactory.createProducer(queueName, queueMetrics, this);
+  }
+
+  /**
+   * Adds writes to be sent when the transaction commits.
+   */
+  void addCommitWrites(HTable hTable, List<? extends Row> writes) {
+    addCommitWrites(hTable, writes, QueueMetrics.NOOP_QUEUE_METRICS);
+  }
+
+  /**
+   * Adds writes to be sent when the transaction commits. The time taken to send them is emitted to the given
+   * {@link QueueMetrics} as persist time after the commit.
+   */
+  void addCommitWrites(HTable hTable, List<? extends Row> writes, QueueMetrics queueMetrics) {
+    TableWrites tableWrites = add(commitWrites, hTable, writes);
+    if (tableWrites != null) {
+      tableWrites.queueMetrics.add(queueMetrics);
+    }
+  }
+
+  /**
+   * Adds writes to be sent when the transaction rolls back.
+   */
+  void addRollbackWrites(HTable hTable, List<? extends Row> writes) {
+    add(rollbackWrites, hTable, writes);
+  }
+
+  @Override
+  public void startTx(Transaction tx) {
+    commitWrites.clear();
+    rollbackWrites.clear();
+    committedWrites.clear();
+  }
+
+  @Override
+  public Collection<byte[]> getTxChanges() {
+    return ImmutableList.of();
+  }
+
+  @Override
+  public boolean commitTx() throws Exception {
+    try {
+      flush(commitWrites);
+      committedWrites.addAll(commitWrites.values());
+    } finally {
+      commitWrites.clear();
+    }
+    return true;
+  }
+
+  @Override
+  public void postTxCommit() {
+    for (TableWrites tableWrites : committedWrites) {
+      for (QueueMetrics queueMetrics : tableWrites.queueMetrics) {
+        queueMetrics.emitPersistTime(tableWrites.flushTime);
+      }
+    }
+    committedWrites.clear();
+  }
+
+  @Override
+  public boolean rollbackTx() throws Exception {
+    // Writes of the commit are either already sent, or must not be sent at all
+    commitWrites.clear();
+    committedWrites.clear();
+    try {
+      flush(rollbackWrites);
+    } finally {
+      rollbackWrites.clear();
+    }
+    return true;
+  }
+
+  @Override
+  public String getTransactionAwareName() {
+    return getClass().getSimpleName();
+  }
+
+  @Override
+  public void close() throws IOException {
+    flushExecutor.shutdownNow();
+  }
+
+  @Nullable
+  private TableWrites add(Map<byte[], TableWrites> writesByTable, HTable hTable, List<? extends Row> writes) {
+    if (writes.isEmpty()) {
+      return null;
+    }
+    TableWrites tableWrites = writesByTable.get(hTable.getTableName());
+    if (tableWrites == null) {
+      tableWrites = new TableWrites(hTable);
+      writesByTable.put(hTable.getTableName(), tableWrites);
+    }
+    tableWrites.writes.addAll(writes);
+    return tableWrites;
+  }
+
+  private void flush(Map<byte[], TableWrites> writesByTable) throws IOException, InterruptedException {
+    if (writesByTable.isEmpty()) {
+      return;
+    }
+    if (writesByTable.size() == 1) {
+      writesByTable.values().iterator().next().flush();
+      return;
+    }
+
+    List<Future<Void>> futures = Lists.newArrayListWithCapacity(writesByTable.size());
+    for (final TableWrites tableWrites : writesByTable.values()) {
+      futures.add(flushExecutor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          tableWrites.flush();
+          return null;
+        }
+      }));
+    }
+
+    // Wait for all tables, even if one of them failed, so that no write is still in flight when this returns
+    Throwable failure = null;
+    for (Future<Void> future : futures) {
+      try {
+        future.get();
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        }
+      }
+    }
+    if (failure != null) {
+      Throwables.propagateIfInstanceOf(failure, IOException.class);
+      Throwables.propagateIfInstanceOf(failure, InterruptedException.class);
+      throw Throwables.propagate(failure);
+    }
+  }
+
+  /**
+   * The writes to one table, together with the {@link HTable} to send them with and the metrics of the producers
+   * that added them.
+   */
+  private static final class TableWrites {
+    private final HTable hTable;
+    private final List<Row> writes;
+    private final Set<QueueMetrics> queueMetrics;
+    private long flushTime;
+
+    TableWrites(HTable hTable) {
+      this.hTable = hTable;
+      this.writes = Lists.newArrayList();
+      this.queueMetrics = Sets.newIdentityHashSet();
+    }
+
+    void flush() throws IOException, InterruptedException {
+      long startTime = System.nanoTime();
+      hTable.batch(writes);
+      flushTime = System.nanoTime() - startTime;
+    }
+  }
+}
@@ -20,8 +20,10 @@ import co.cask.tigon.conf.CConfiguration;
 import co.cask.tigon.data.transaction.queue.QueueConstants;
 import co.cask.tigon.data.transaction.queue.QueueEntryRow;
 import co.cask.tigon.data.util.hbase.ConfigurationTable;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.HTable;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
@@ -32,6 +34,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 import java.util.concurrent.ConcurrentMap;
@@ -40,7 +43,9 @@ import javax.annotation.Nullable;
 
 /**
  * Provides a RegionServer shared cache for all instances of HBaseQueueRegionObserver of the recent
- * queue consumer configuration.
+ * queue consumer configuration. Changes made through the queue admin bump a per-queue generation in the
+ * config table, which is checked every second to reload the changed queues. A full reload happens at the
+ * configured update interval, to pick up the progress of consumer start rows.
  */
 public class ConsumerConfigCache {
   private static final Logger LOG = LoggerFactory.getLogger(ConsumerConfigCache.class);
@@ -58,6 +63,8 @@ public class ConsumerConfigCache {
   private Thread refreshThread;
   private long lastUpdated;
   private volatile Map<byte[], QueueConsumerConfig> configCache = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+  // generation of each queue's consumer config at the time it was last loaded
+  private Map<byte[], Long> generations = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
   private long configCacheUpdateFrequency = QueueConstants.DEFAULT_QUEUE_CONFIG_UPDATE_FREQUENCY;
   private ConfigurationTable configTable;
   private String tableNamespace;
@@ -111,6 +118,7 @@ public class ConsumerConfigCache {
    */
   public synchronized void updateCache() {
     Map<byte[], QueueConsumerConfig> newCache = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    Map<byte[], Long> newGenerations = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
     long now = System.currentTimeMillis();
     HTable table = null;
     try {
@@ -123,29 +131,19 @@ public class ConsumerConfigCache {
         if (!result.isEmpty()) {
           NavigableMap<byte[], byte[]> familyMap = result.getFamilyMap(QueueEntryRow.COLUMN_FAMILY);
           if (familyMap != null) {
-            configCnt++;
-            Map<ConsumerInstance, byte[]> consumerInstances = new HashMap<ConsumerInstance, byte[]>();
-            // Gather the startRow of all instances across all consumer groups.
-            int numGroups = 0;
-            Long groupId = null;
-            for (Map.Entry<byte[], byte[]> entry : familyMap.entrySet()) {
-              long gid = Bytes.toLong(entry.getKey());
-              int instanceId = Bytes.toInt(entry.getKey(), LONG_BYTES);
-              consumerInstances.put(new ConsumerInstance(gid, instanceId), entry.getValue());
-
-              // Columns are sorted by groupId, hence if it change, then numGroups would get +1
-              if (groupId == null || groupId != gid) {
-                numGroups++;
-                groupId = gid;
-              }
+            // The generation row sorts first, hence all configs read after it are at least as recent
+            if (Bytes.equals(QueueConstants.QUEUE_CONFIG_GENERATION_ROW, result.getRow())) {
+              newGenerations = decodeGenerations(familyMap);
+              continue;
             }
-            byte[] queueName = result.getRow();
-            newCache.put(queueName, new QueueConsumerConfig(consumerInstances, numGroups));
+            configCnt++;
+            newCache.put(result.getRow(), createConsumerConfig(familyMap));
           }
         }
       }
       long elapsed = System.currentTimeMillis() - now;
       this.configCache = newCache;
+      this.generations = newGenerations;
       this.lastUpdated = now;
       if (LOG.isDebugEnabled()) {
         LOG.debug("Updated consumer config cache with {} entries, took {} msec", configCnt, elapsed);
@@ -153,15 +151,102 @@ public class ConsumerConfigCache {
     } catch (IOException ioe) {
       LOG.warn("Error updating queue consumer config cache: {}", ioe.getMessage());
     } finally {
-      if (table != null) {
-        try {
-          table.close();
-        } catch (IOException ioe) {
-          LOG.error("Error closing table {}", Bytes.toString(configTableName), ioe);
+      closeTable(table);
+    }
+  }
+
+  /**
+   * Reads the generation row of the config table and reloads the consumer configs of only those queues whose
+   * generation changed since the last time they were loaded. This costs a single row read if nothing changed,
+   * hence it is called much more frequently than {@link #updateCache()}.
+   *
+   * This method is synchronized for the same reason as {@link #updateCache()}.
+   */
+  public synchronized void updateChangedConfigs() {
+    HTable table = null;
+    try {
+      table = new HTable(hConf, configTableName);
+      Get generationGet = new Get(QueueConstants.QUEUE_CONFIG_GENERATION_ROW);
+      generationGet.addFamily(QueueEntryRow.COLUMN_FAMILY);
+      Result generationResult = table.get(generationGet);
+      NavigableMap<byte[], byte[]> familyMap = generationResult.getFamilyMap(QueueEntryRow.COLUMN_FAMILY);
+      if (familyMap == null) {
+        return;
+      }
+
+      Map<byte[], Long> newGenerations = decodeGenerations(familyMap);
+      List<Get> gets = Lists.newArrayList();
+      for (Map.Entry<byte[], Long> entry : newGenerations.entrySet()) {
+        if (!entry.getValue().equals(generations.get(entry.getKey()))) {
+          Get get = new Get(entry.getKey());
+          get.addFamily(QueueEntryRow.COLUMN_FAMILY);
+          gets.add(get);
         }
       }
+      if (gets.isEmpty()) {
+        return;
+      }
+
+      // Configs are read after the generations, hence they are at least as recent
+      Result[] results = table.get(gets);
+      Map<byte[], QueueConsumerConfig> newCache = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+      newCache.putAll(configCache);
+      for (int i = 0; i < results.length; i++) {
+        byte[] queueName = gets.get(i).getRow();
+        NavigableMap<byte[], byte[]> configMap = results[i].getFamilyMap(QueueEntryRow.COLUMN_FAMILY);
+        if (configMap == null || configMap.isEmpty()) {
+          newCache.remove(queueName);
+        } else {
+          newCache.put(queueName, createConsumerConfig(configMap));
+        }
+      }
+      this.configCache = newCache;
+      this.generations = newGenerations;
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Reloaded consumer config of {} changed queues", gets.size());
+      }
+    } catch (IOException ioe) {
+      LOG.warn("Error checking queue consumer config generations: {}", ioe.getMessage());
+    } finally {
+      closeTable(table);
     }
+  }
 
+  private QueueConsumerConfig createConsumerConfig(NavigableMap<byte[], byte[]> familyMap) {
+    Map<ConsumerInstance, byte[]> consumerInstances = new HashMap<ConsumerInstance, byte[]>();
+    // Gather the startRow of all instances across all consumer groups.
+    int numGroups = 0;
+    Long groupId = null;
+    for (Map.Entry<byte[], byte[]> entry : familyMap.entrySet()) {
+      long gid = Bytes.toLong(entry.getKey());
+      int instanceId = Bytes.toInt(entry.getKey(), LONG_BYTES);
+      consumerInstances.put(new ConsumerInstance(gid, instanceId), entry.getValue());
+
+      // Columns are sorted by groupId, hence if it change, then numGroups would get +1
+      if (groupId == null || groupId != gid) {
+        numGroups++;
+        groupId = gid;
+      }
+    }
+    return new QueueConsumerConfig(consumerInstances, numGroups);
+  }
+
+  private Map<byte[], Long> decodeGenerations(NavigableMap<byte[], byte[]> familyMap) {
+    Map<byte[], Long> result = Maps.newTreeMap(Bytes.BYTES_COMPARATOR);
+    for (Map.Entry<byte[], byte[]> entry : familyMap.entrySet()) {
+      result.put(entry.getKey(), Bytes.toLong(entry.getValue()));
+    }
+    return result;
+  }
+
+  private void closeTable(HTable table) {
+    if (table != null) {
+      try {
+        table.close();
+      } catch (IOException ioe) {
+        LOG.error("Error closing table {}", Bytes.toString(configTableName), ioe);
+      }
+    }
   }
 
   private void startRefreshThread() {
@@ -173,6 +258,8 @@ public class ConsumerConfigCache {
           long now = System.currentTimeMillis();
           if (now > (lastUpdated + configCacheUpdateFrequency)) {
             updateCache();
+          } else {
+            updateChangedConfigs();
           }
           try {
             Thread.sleep(1000);
@@ -52,6 +52,22 @@ public class InMemoryQueue {
     return entries.size();
   }
 
+  /**
+   * Returns the number of entries not yet processed by the given consumer group, counting at most limit entries.
+   */
+  public long getPendingCount(long consumerGroupId, long limit) {
+    long count = 0;
+    for (Item item : entries.values()) {
+      if (count >= limit) {
+        break;
+      }
+      if (!ConsumerEntryState.PROCESSED.equals(item.getConsumerState(consumerGroupId))) {
+        count++;
+      }
+    }
+    return count;
+  }
+
   public void enqueue(long txId, int seqId, QueueEntry entry) {
     entries.put(new Key(txId, seqId), new Item(entry));
   }
@@ -107,8 +123,8 @@ public class InMemoryQueue {
         updateStartKey = false;
         continue;
       }
-      // for hash/round robin, if group size is 1, just take it
-      if (config.getGroupSize() == 1) {
+      // for hash/round robin, if group size is 1 and not changing, just take it
+      if (config.getGroupSize() == 1 && config.getNextGroupSize() == 0) {
         keys.add(key);
         datas.add(item.entry.getData());
         updateStartKey = false;
@@ -122,8 +138,7 @@ public class InMemoryQueue {
         Integer hashFoundInEntry = item.entry.getHashKey(config.getHashKey());
         hash = hashFoundInEntry == null ? 0 : hashFoundInEntry;
       }
-      // modulo of a negative is negative, make sure we're positive or 0.
-      if (Math.abs(hash) % config.getGroupSize() == config.getInstanceId()) {
+      if (config.isOwner(hash)) {
         keys.add(key);
         datas.add(item.entry.getData());
         updateStartKey = false;
@@ -95,6 +95,11 @@ public class InMemoryQueueAdmin implements QueueAdmin {
     // Potentially refactor QueueClientFactory to have better way to handle instances and group info.
   }
 
+  @Override
+  public long getPendingEntries(QueueName queueName, long groupId, long limit) {
+    return queueService.getQueue(queueName).getPendingCount(groupId, limit);
+  }
+
   @Override
   public void upgrade() throws Exception {
     // No-op
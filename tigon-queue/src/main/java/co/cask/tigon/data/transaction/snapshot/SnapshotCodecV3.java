@@ -0,0 +1,303 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.data.transaction.snapshot;
+
+import co.cask.tephra.ChangeId;
+import co.cask.tephra.TransactionManager;
+import co.cask.tephra.persist.TransactionSnapshot;
+import co.cask.tephra.snapshot.SnapshotCodec;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ForwardingNavigableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Handles serialization/deserialization of a {@link TransactionSnapshot} in a compact, sectioned format.
+ * <p>
+ * All numbers are variable length encoded, and the transaction ids of the invalid list, the in-progress map and
+ * the change sets are stored as differences to the previous id, which keeps them to one or two bytes each.
+ * The committing and committed change sets are each stored in a length prefixed section that is only decoded
+ * when the corresponding map of the decoded snapshot is first accessed. Readers that only need visibility
+ * information, such as the coprocessors, never pay for decoding the change sets.
+ * </p>
+ * The layout after the total length is:
+ * <pre>
+ *   timestamp, read pointer, write pointer
+ *   invalid: count, tx id deltas
+ *   in progress: count, (tx id delta, expiration, tx id - visibility upper bound)*
+ *   committing: section length, count, (tx id delta, change count, (key length, key)*)*
+ *   committed: same as committing
+ * </pre>
+ */
+public class SnapshotCodecV3 implements SnapshotCodec {
+  public static final int VERSION = 3;
+
+  private static final Logger LOG = LoggerFactory.getLogger(SnapshotCodecV3.class);
+
+  @Override
+  public int getVersion() {
+    return VERSION;
+  }
+
+  @Override
+  public void encode(OutputStream out, TransactionSnapshot snapshot) {
+    try {
+      Buffer buffer = new Buffer();
+      buffer.writeVarLong(snapshot.getTimestamp());
+      buffer.writeVarLong(snapshot.getReadPointer());
+      buffer.writeVarLong(snapshot.getWritePointer());
+      encodeInvalid(buffer, snapshot.getInvalid());
+      encodeInProgress(buffer, snapshot.getInProgress());
+      encodeChangeSets(buffer, snapshot.getCommittingChangeSets());
+      encodeChangeSets(buffer, snapshot.getCommittedChangeSets());
+
+      // the total length allows decoding to read exactly the snapshot, regardless of what follows in the stream
+      DataOutputStream dataOut = new DataOutputStream(out);
+      dataOut.writeInt(buffer.size());
+      buffer.writeTo(dataOut);
+      dataOut.flush();
+    } catch (IOException e) {
+      LOG.error("Unable to serialize transaction state: ", e);
+      throw Throwables.propagate(e);
+    }
+  }
+
+  @Override
+  public TransactionSnapshot decode(InputStream in) {
+    try {
+      DataInputStream dataIn = new DataInputStream(in);
+      byte[] bytes = new byte[dataIn.readInt()];
+      dataIn.readFully(bytes);
+      return decode(ByteBuffer.wrap(bytes));
+    } catch (Exception e) {
+      LOG.error("Unable to deserialize transaction state: ", e);
+      throw Throwables.propagate(e);
+    }
+  }
+
+  /**
+   * Decodes a snapshot from the given buffer, which must contain the snapshot without the length prefix.
+   * The change sets are decoded lazily from the buffer, which must therefore not be modified afterwards.
+   */
+  TransactionSnapshot decode(ByteBuffer buffer) {
+    long timestamp = readVarLong(buffer);
+    long readPointer = readVarLong(buffer);
+    long writePointer = readVarLong(buffer);
+    Collection<Long> invalid = decodeInvalid(buffer);
+    NavigableMap<Long, TransactionManager.InProgressTx> inProgress = decodeInProgress(buffer);
+    NavigableMap<Long, Set<ChangeId>> committing = new LazyChangeSets(nextSection(buffer));
+    NavigableMap<Long, Set<ChangeId>> committed = new LazyChangeSets(nextSection(buffer));
+
+    return new TransactionSnapshot(timestamp, readPointer, writePointer, invalid, inProgress,
+                                   committing, committed);
+  }
+
+  private void encodeInvalid(Buffer buffer, Collection<Long> invalid) {
+    buffer.writeVarInt(invalid.size());
+    long previous = 0;
+    for (long invalidTx : invalid) {
+      // the invalid list is sorted, but the zig-zag encoding keeps an unsorted list correct as well
+      buffer.writeVarLong(invalidTx - previous);
+      previous = invalidTx;
+    }
+  }
+
+  private Collection<Long> decodeInvalid(ByteBuffer buffer) {
+    int size = readVarInt(buffer);
+    List<Long> invalid = Lists.newArrayListWithCapacity(size);
+    long previous = 0;
+    for (int i = 0; i < size; i++) {
+      previous += readVarLong(buffer);
+      invalid.add(previous);
+    }
+    return invalid;
+  }
+
+  private void encodeInProgress(Buffer buffer, Map<Long, TransactionManager.InProgressTx> inProgress) {
+    buffer.writeVarInt(inProgress.size());
+    long previous = 0;
+    for (Map.Entry<Long, TransactionManager.InProgressTx> entry : inProgress.entrySet()) {
+      long txId = entry.getKey();
+      buffer.writeVarLong(txId - previous);
+      buffer.writeVarLong(entry.getValue().getExpiration());
+      buffer.writeVarLong(txId - entry.getValue().getVisibilityUpperBound());
+      previous = txId;
+    }
+  }
+
+  private NavigableMap<Long, TransactionManager.InProgressTx> decodeInProgress(ByteBuffer buffer) {
+    int size = readVarInt(buffer);
+    NavigableMap<Long, TransactionManager.InProgressTx> inProgress = Maps.newTreeMap();
+    long txId = 0;
+    for (int i = 0; i < size; i++) {
+      txId += readVarLong(buffer);
+      long expiration = readVarLong(buffer);
+      long visibilityUpperBound = txId - readVarLong(buffer);
+      inProgress.put(txId, new TransactionManager.InProgressTx(visibilityUpperBound, expiration));
+    }
+    return inProgress;
+  }
+
+  private void encodeChangeSets(Buffer buffer, Map<Long, Set<ChangeId>> changeSets) {
+    Buffer section = new Buffer();
+    section.writeVarInt(changeSets.size());
+    long previous = 0;
+    for (Map.Entry<Long, Set<ChangeId>> entry : changeSets.entrySet()) {
+      section.writeVarLong(entry.getKey() - previous);
+      previous = entry.getKey();
+      section.writeVarInt(entry.getValue().size());
+      for (ChangeId change : entry.getValue()) {
+        byte[] key = change.getKey();
+        section.writeVarInt(key.length);
+        section.write(key, 0, key.length);
+      }
+    }
+    buffer.writeVarInt(section.size());
+    section.writeTo(buffer);
+  }
+
+  private static NavigableMap<Long, Set<ChangeId>> decodeChangeSets(ByteBuffer buffer) {
+    int size = readVarInt(buffer);
+    NavigableMap<Long, Set<ChangeId>> changeSets = new TreeMap<Long, Set<ChangeId>>();
+    long txId = 0;
+    for (int i = 0; i < size; i++) {
+      txId += readVarLong(buffer);
+      int changeCount = readVarInt(buffer);
+      Set<ChangeId> changes = Sets.newHashSetWithExpectedSize(changeCount);
+      for (int j = 0; j < changeCount; j++) {
+        byte[] key = new byte[readVarInt(buffer)];
+        buffer.get(key);
+        changes.add(new ChangeId(key));
+      }
+      changeSets.put(txId, changes);
+    }
+    return changeSets;
+  }
+
+  /**
+   * Returns a view of the next length prefixed section and advances the buffer past it.
+   */
+  private static ByteBuffer nextSection(ByteBuffer buffer) {
+    int length = readVarInt(buffer);
+    ByteBuffer section = buffer.slice();
+    section.limit(length);
+    buffer.position(buffer.position() + length);
+    return section;
+  }
+
+  private static int readVarInt(ByteBuffer buffer) {
+    int value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      if (shift > 28) {
+        throw new IllegalArgumentException("Malformed variable length int in transaction snapshot");
+      }
+      b = buffer.get();
+      value |= (b & 0x7f) << shift;
+      shift += 7;
+    } while (b < 0);
+    return value;
+  }
+
+  private static long readVarLong(ByteBuffer buffer) {
+    long value = 0;
+    int shift = 0;
+    byte b;
+    do {
+      if (shift > 63) {
+        throw new IllegalArgumentException("Malformed variable length long in transaction snapshot");
+      }
+      b = buffer.get();
+      value |= (long) (b & 0x7f) << shift;
+      shift += 7;
+    } while (b < 0);
+    // zig-zag decoding
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  /**
+   * Byte buffer with variable length encoding of numbers. Ints are always non-negative counts and lengths,
+   * longs are zig-zag encoded so that small negative values stay small, too.
+   */
+  private static final class Buffer extends ByteArrayOutputStream {
+
+    Buffer() {
+      super(4096);
+    }
+
+    void writeVarInt(int value) {
+      while ((value & ~0x7f) != 0) {
+        write((value & 0x7f) | 0x80);
+        value >>>= 7;
+      }
+      write(value);
+    }
+
+    void writeVarLong(long value) {
+      long zigZag = (value << 1) ^ (value >> 63);
+      while ((zigZag & ~0x7fL) != 0) {
+        write((int) ((zigZag & 0x7f) | 0x80));
+        zigZag >>>= 7;
+      }
+      write((int) zigZag);
+    }
+
+    void writeTo(Buffer other) {
+      other.write(buf, 0, count);
+    }
+  }
+
+  /**
+   * A change set map that is decoded from its section on first access.
+   */
+  private static final class LazyChangeSets extends ForwardingNavigableMap<Long, Set<ChangeId>> {
+
+    private ByteBuffer section;
+    private NavigableMap<Long, Set<ChangeId>> changeSets;
+
+    LazyChangeSets(ByteBuffer section) {
+      this.section = section;
+    }
+
+    @Override
+    protected synchronized NavigableMap<Long, Set<ChangeId>> delegate() {
+      if (changeSets == null) {
+        changeSets = decodeChangeSets(section);
+        section = null;
+      }
+      return changeSets;
+    }
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.data.increment;
+
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests for {@link IncrementReadCache}.
+ */
+public class IncrementReadCacheTest {
+  private static final byte[] ROW = Bytes.toBytes("row");
+  private static final byte[] FAMILY = Bytes.toBytes("f");
+  private static final byte[] COLUMN_A = Bytes.toBytes("a");
+  private static final byte[] COLUMN_B = Bytes.toBytes("b");
+
+  @Test
+  public void testGetPut() {
+    IncrementReadCache cache = new IncrementReadCache(10);
+    Assert.assertNull(cache.get(ROW, FAMILY, COLUMN_A));
+
+    cache.put(ROW, FAMILY, COLUMN_A, 5L, 100L, cache.getGeneration());
+    // keys are compared by content
+    IncrementReadCache.Entry entry = cache.get(Bytes.toBytes("row"), Bytes.toBytes("f"), Bytes.toBytes("a"));
+    Assert.assertNotNull(entry);
+    Assert.assertEquals(5L, entry.getSum());
+    Assert.assertEquals(100L, entry.getTimestamp());
+    Assert.assertNull(cache.get(ROW, FAMILY, COLUMN_B));
+
+    // an older sum does not replace a newer one
+    cache.put(ROW, FAMILY, COLUMN_A, 3L, 90L, cache.getGeneration());
+    Assert.assertEquals(5L, cache.get(ROW, FAMILY, COLUMN_A).getSum());
+    cache.put(ROW, FAMILY, COLUMN_A, 8L, 110L, cache.getGeneration());
+    Assert.assertEquals(8L, cache.get(ROW, FAMILY, COLUMN_A).getSum());
+
+    Assert.assertEquals(3L, cache.getHitCount());
+    Assert.assertEquals(2L, cache.getMissCount());
+    Assert.assertEquals(3d / 5d, cache.getHitRate(), 0.0001d);
+  }
+
+  @Test
+  public void testInvalidation() {
+    IncrementReadCache cache = new IncrementReadCache(10);
+    cache.put(ROW, FAMILY, COLUMN_A, 5L, 100L, cache.getGeneration());
+    cache.put(ROW, FAMILY, COLUMN_B, 7L, 100L, cache.getGeneration());
+
+    cache.invalidate(ROW, FAMILY, COLUMN_A);
+    Assert.assertNull(cache.get(ROW, FAMILY, COLUMN_A));
+    Assert.assertNotNull(cache.get(ROW, FAMILY, COLUMN_B));
+
+    // a sum computed before an invalidation must not be cached
+    long generation = cache.getGeneration();
+    cache.invalidate(ROW, FAMILY, COLUMN_B);
+    cache.put(ROW, FAMILY, COLUMN_A, 6L, 110L, generation);
+    Assert.assertNull(cache.get(ROW, FAMILY, COLUMN_A));
+
+    cache.put(ROW, FAMILY, COLUMN_A, 6L, 110L, cache.getGeneration());
+    cache.clear();
+    Assert.assertEquals(0, cache.size());
+  }
+
+  @Test
+  public void testEviction() {
+    byte[] columnC = Bytes.toBytes("c");
+    IncrementReadCache cache = new IncrementReadCache(2);
+    cache.put(ROW, FAMILY, COLUMN_A, 5L, 100L, cache.getGeneration());
+    cache.put(ROW, FAMILY, COLUMN_B, 7L, 100L, cache.getGeneration());
+    // reading a column makes it the most recently used
+    Assert.assertNotNull(cache.get(ROW, FAMILY, COLUMN_A));
+
+    // a new column evicts the least recently used one
+    cache.put(ROW, FAMILY, columnC, 9L, 100L, cache.getGeneration());
+    Assert.assertEquals(2, cache.size());
+    Assert.assertNull(cache.get(ROW, FAMILY, COLUMN_B));
+    Assert.assertEquals(5L, cache.get(ROW, FAMILY, COLUMN_A).getSum());
+    Assert.assertEquals(9L, cache.get(ROW, FAMILY, columnC).getSum());
+
+    // existing entries are updated in place when the cache is full
+    cache.put(ROW, FAMILY, COLUMN_A, 6L, 110L, cache.getGeneration());
+    Assert.assertEquals(2, cache.size());
+    Assert.assertEquals(6L, cache.get(ROW, FAMILY, COLUMN_A).getSum());
+    Assert.assertEquals(9L, cache.get(ROW, FAMILY, columnC).getSum());
+  }
+}
@@ -39,6 +39,7 @@ import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.google.common.io.Closeables;
 import org.junit.AfterClass;
 import org.junit.Assert;
@@ -93,6 +94,12 @@ public abstract class QueueTest {
 
       @Override
       public void emitEnqueueBytes(int bytes) {}
+
+      @Override
+      public void emitPersistTime(long nanos) {}
+
+      @Override
+      public void emitDequeueScanTime(long nanos) {}
     });
 
     Assert.assertNotNull(producer);
@@ -422,6 +429,49 @@ public abstract class QueueTest {
     queueAdmin.dropAllForFlow("app", "flow");
   }
 
+  @Test
+  public void testPendingEntries() throws Exception {
+    // NOTE: using different name of the queue from other unit-tests because this test leaves entries
+    QueueName queueName = QueueName.fromFlowlet("app", "flow", "flowlet", "queuePending");
+    configureGroups(queueName, ImmutableMap.of(0L, 1, 1L, 1));
+    Assert.assertEquals(0L, queueAdmin.getPendingEntries(queueName, 0L, 100L));
+
+    QueueProducer producer = queueClientFactory.createProducer(queueName);
+    TransactionContext txContext = createTxContext(producer);
+    txContext.start();
+    for (int i = 0; i < 10; i++) {
+      producer.enqueue(new QueueEntry(Bytes.toBytes(i)));
+    }
+    txContext.finish();
+
+    Assert.assertEquals(10L, queueAdmin.getPendingEntries(queueName, 0L, 100L));
+    Assert.assertEquals(10L, queueAdmin.getPendingEntries(queueName, 1L, 100L));
+    // Counting stops at the limit
+    Assert.assertEquals(5L, queueAdmin.getPendingEntries(queueName, 0L, 5L));
+
+    // Processing entries in one group does not change the pending entries of the other
+    QueueConsumer consumer = queueClientFactory.createConsumer(
+      queueName, new ConsumerConfig(0L, 0, 1, DequeueStrategy.FIFO, null), 2);
+    txContext = createTxContext(consumer);
+    txContext.start();
+    Assert.assertEquals(4, consumer.dequeue(4).size());
+    txContext.finish();
+
+    Assert.assertEquals(6L, queueAdmin.getPendingEntries(queueName, 0L, 100L));
+    Assert.assertEquals(10L, queueAdmin.getPendingEntries(queueName, 1L, 100L));
+
+    // Entries dequeued in an aborted transaction are still pending
+    txContext = createTxContext(consumer);
+    txContext.start();
+    Assert.assertEquals(2, consumer.dequeue(2).size());
+    txContext.abort();
+
+    Assert.assertEquals(6L, queueAdmin.getPendingEntries(queueName, 0L, 100L));
+    if (consumer instanceof Closeable) {
+      ((Closeable) consumer).close();
+    }
+  }
+
   private void testClearOrDropAllForFlow(boolean doDrop) throws Exception {
     // this test is the same for clear and drop, except fot two small places...
     // using a different app name for each case as this test leaves some entries
@@ -692,6 +742,120 @@ public abstract class QueueTest {
     }
   }
 
+  @Test
+  public void testLiveGroupSizeChange() throws Exception {
+    QueueName queueName = QueueName.fromFlowlet("app", "flow", "flowlet", "livegroupsize");
+    configureGroups(queueName, ImmutableMap.of(0L, 2));
+
+    // Enqueue 12 items, hashed by their value
+    QueueProducer producer = queueClientFactory.createProducer(queueName);
+    TransactionContext txContext = createTxContext(producer);
+    txContext.start();
+    for (int i = 0; i < 12; i++) {
+      producer.enqueue(new QueueEntry("key", i, Bytes.toBytes(i)));
+    }
+    txContext.finish();
+
+    // While preparing the change from 2 to 3 instances, instance 0 only owns the entries owned under both sizes
+    ConsumerConfig config = new ConsumerConfig(0, 0, 2, DequeueStrategy.HASH, "key").withNextGroupSize(3);
+    QueueConsumer consumer = queueClientFactory.createConsumer(queueName, config, 1);
+    Assert.assertEquals(ImmutableList.of(0, 6), dequeueAll(consumer));
+    if (consumer instanceof Closeable) {
+      ((Closeable) consumer).close();
+    }
+
+    // After the change, the remaining entries are partitioned among the 3 instances
+    queueAdmin.configureInstances(queueName, 0L, 3);
+    List<ConsumerConfig> configs = ImmutableList.of(
+      config.withGroupSize(3),
+      new ConsumerConfig(0, 1, 2, DequeueStrategy.HASH, "key").withGroupSize(3),
+      new ConsumerConfig(0, 2, 3, DequeueStrategy.HASH, "key"));
+    List<List<Integer>> expected = ImmutableList.<List<Integer>>of(ImmutableList.of(3, 9),
+                                                                   ImmutableList.of(1, 4, 7, 10),
+                                                                   ImmutableList.of(2, 5, 8, 11));
+    Assert.assertEquals(1, configs.get(0).getGeneration());
+    Assert.assertEquals(0, configs.get(0).getNextGroupSize());
+    for (int i = 0; i < configs.size(); i++) {
+      consumer = queueClientFactory.createConsumer(queueName, configs.get(i), 1);
+      Assert.assertEquals(expected.get(i), dequeueAll(consumer));
+      if (consumer instanceof Closeable) {
+        ((Closeable) consumer).close();
+      }
+    }
+  }
+
+  @Test
+  public void testLiveGroupSizeChangeMultipleBatches() throws Exception {
+    QueueName queueName = QueueName.fromFlowlet("app", "flow", "flowlet", "livegroupsizebatches");
+    configureGroups(queueName, ImmutableMap.of(0L, 2));
+
+    // Enough entries for each instance to commit more than HBaseQueueConsumer.PERSIST_START_ROW_LIMIT entries
+    int count = 7200;
+    QueueProducer producer = queueClientFactory.createProducer(queueName);
+    TransactionContext txContext = createTxContext(producer);
+    txContext.start();
+    for (int i = 0; i < count; i++) {
+      producer.enqueue(new QueueEntry("key", i, Bytes.toBytes(i)));
+    }
+    txContext.finish();
+
+    // While preparing the change from 2 to 3 instances, both instances dequeue in many small batches
+    List<ConsumerConfig> configs = Lists.newArrayList();
+    List<Integer> consumed = Lists.newArrayList();
+    for (int instanceId = 0; instanceId < 2; instanceId++) {
+      ConsumerConfig config = new ConsumerConfig(0, instanceId, 2, DequeueStrategy.HASH, "key").withNextGroupSize(3);
+      QueueConsumer consumer = queueClientFactory.createConsumer(queueName, config, 1);
+      List<Integer> values = dequeueAll(consumer, 100);
+      Assert.assertEquals(count / 6, values.size());
+      consumed.addAll(values);
+      if (consumer instanceof Closeable) {
+        ((Closeable) consumer).close();
+      }
+      configs.add(config.withGroupSize(3));
+    }
+
+    // After the change, every entry is consumed exactly once, including the ones skipped during the preparation
+    queueAdmin.configureInstances(queueName, 0L, 3);
+    configs.add(new ConsumerConfig(0, 2, 3, DequeueStrategy.HASH, "key"));
+    for (ConsumerConfig config : configs) {
+      QueueConsumer consumer = queueClientFactory.createConsumer(queueName, config, 1);
+      consumed.addAll(dequeueAll(consumer, 100));
+      if (consumer instanceof Closeable) {
+        ((Closeable) consumer).close();
+      }
+    }
+
+    Assert.assertEquals(count, consumed.size());
+    Assert.assertEquals(count, Sets.newHashSet(consumed).size());
+  }
+
+  private List<Integer> dequeueAll(QueueConsumer consumer, int batchSize) throws Exception {
+    List<Integer> values = Lists.newArrayList();
+    while (true) {
+      TransactionContext txContext = createTxContext(consumer);
+      txContext.start();
+      DequeueResult<byte[]> result = consumer.dequeue(batchSize);
+      for (byte[] value : result) {
+        values.add(Bytes.toInt(value));
+      }
+      txContext.finish();
+      if (result.isEmpty()) {
+        return values;
+      }
+    }
+  }
+
+  private List<Integer> dequeueAll(QueueConsumer consumer) throws Exception {
+    TransactionContext txContext = createTxContext(consumer);
+    txContext.start();
+    List<Integer> values = Lists.newArrayList();
+    for (byte[] value : consumer.dequeue(20)) {
+      values.add(Bytes.toInt(value));
+    }
+    txContext.finish();
+    return values;
+  }
+
   private void testOneEnqueueDequeue(DequeueStrategy strategy) throws Exception {
     QueueName queueName = QueueName.fromFlowlet("app", "flow", "flowlet", "queue1");
     configureGroups(queueName, ImmutableMap.of(0L, 1, 1L, 1));
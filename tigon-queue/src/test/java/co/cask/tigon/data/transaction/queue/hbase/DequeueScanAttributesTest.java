@@ -0,0 +1,65 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+
+package co.cask.tigon.data.transaction.queue.hbase;
+
+import co.cask.tigon.data.queue.ConsumerConfig;
+import co.cask.tigon.data.queue.DequeueStrategy;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.io.WritableUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+/**
+ * Tests the serialization of the dequeue scan attributes.
+ */
+public class DequeueScanAttributesTest {
+
+  @Test
+  public void testConsumerConfig() {
+    ConsumerConfig config = new ConsumerConfig(123L, 1, 2, DequeueStrategy.HASH, "key", 1, 4);
+
+    Scan scan = new Scan();
+    DequeueScanAttributes.set(scan, config);
+    ConsumerConfig read = DequeueScanAttributes.getConsumerConfig(scan);
+    Assert.assertEquals(config, read);
+    Assert.assertEquals(1, read.getGeneration());
+    Assert.assertEquals(4, read.getNextGroupSize());
+  }
+
+  @Test
+  public void testConsumerConfigFromOlderClient() throws IOException {
+    // Attribute as written by clients that don't know about the generation
+    ByteArrayDataOutput output = ByteStreams.newDataOutput();
+    output.writeLong(123L);
+    output.writeInt(2);
+    output.writeInt(1);
+    WritableUtils.writeEnum(output, DequeueStrategy.HASH);
+    WritableUtils.writeString(output, "key");
+
+    Scan scan = new Scan();
+    scan.setAttribute("tigon.queue.dequeue.consumerConfig", output.toByteArray());
+    ConsumerConfig read = DequeueScanAttributes.getConsumerConfig(scan);
+    Assert.assertEquals(new ConsumerConfig(123L, 1, 2, DequeueStrategy.HASH, "key"), read);
+    Assert.assertEquals(0, read.getGeneration());
+    Assert.assertEquals(0, read.getNextGroupSize());
+  }
+}
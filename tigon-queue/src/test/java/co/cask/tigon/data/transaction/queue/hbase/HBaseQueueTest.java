@@ -16,7 +16,11 @@
 
 package co.cask.tigon.data.transaction.queue.hbase;
 
+import co.cask.tephra.Transaction;
+import co.cask.tephra.TransactionAware;
+import co.cask.tephra.TransactionContext;
 import co.cask.tephra.TransactionExecutorFactory;
+import co.cask.tephra.TransactionFailureException;
 import co.cask.tephra.TransactionSystemClient;
 import co.cask.tephra.TxConstants;
 import co.cask.tephra.distributed.TransactionService;
@@ -27,14 +31,22 @@ import co.cask.tigon.conf.CConfiguration;
 import co.cask.tigon.conf.Constants;
 import co.cask.tigon.data.hbase.HBaseTestBase;
 import co.cask.tigon.data.hbase.HBaseTestFactory;
+import co.cask.tigon.data.queue.ConsumerConfig;
+import co.cask.tigon.data.queue.DequeueResult;
+import co.cask.tigon.data.queue.DequeueStrategy;
 import co.cask.tigon.data.queue.QueueClientFactory;
+import co.cask.tigon.data.queue.QueueConsumer;
+import co.cask.tigon.data.queue.QueueEntry;
 import co.cask.tigon.data.queue.QueueName;
+import co.cask.tigon.data.queue.QueueProducer;
 import co.cask.tigon.data.runtime.DataFabricDistributedModule;
 import co.cask.tigon.data.runtime.TransactionMetricsModule;
 import co.cask.tigon.data.transaction.queue.QueueAdmin;
 import co.cask.tigon.data.transaction.queue.QueueConstants;
 import co.cask.tigon.data.transaction.queue.QueueEntryRow;
+import co.cask.tigon.data.transaction.queue.QueueMetrics;
 import co.cask.tigon.data.transaction.queue.QueueTest;
+import co.cask.tigon.data.transaction.queue.QueueWriteBatch;
 import co.cask.tigon.data.transaction.queue.hbase.coprocessor.ConsumerConfigCache;
 import co.cask.tigon.data.util.hbase.ConfigurationTable;
 import co.cask.tigon.data.util.hbase.HBaseTableUtil;
@@ -44,7 +56,9 @@ import co.cask.tigon.guice.DiscoveryRuntimeModule;
 import co.cask.tigon.guice.ZKClientModule;
 import com.google.common.base.Function;
 import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.inject.AbstractModule;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
@@ -70,8 +84,11 @@ import org.junit.rules.TemporaryFolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableMap;
 
@@ -250,9 +267,101 @@ public abstract class HBaseQueueTest extends QueueTest {
     }
   }
 
+  @Test
+  public void testWriteBatch() throws Exception {
+    // Two queues share the table of one flow, the third one is in the table of another flow
+    QueueName queueName1 = QueueName.fromFlowlet("app", "batchflow1", "flowlet", "out1");
+    QueueName queueName2 = QueueName.fromFlowlet("app", "batchflow1", "flowlet", "out2");
+    QueueName queueName3 = QueueName.fromFlowlet("app", "batchflow2", "flowlet", "out");
+    List<QueueName> queueNames = ImmutableList.of(queueName1, queueName2, queueName3);
+
+    QueueWriteBatch writeBatch = ((HBaseQueueClientFactory) queueClientFactory).createWriteBatch();
+    List<PersistTimeMetrics> producerMetrics = Lists.newArrayList();
+    List<QueueProducer> producers = Lists.newArrayList();
+    List<QueueConsumer> consumers = Lists.newArrayList();
+    for (QueueName queueName : queueNames) {
+      configureGroups(queueName, ImmutableMap.of(0L, 1));
+      PersistTimeMetrics queueMetrics = new PersistTimeMetrics();
+      producerMetrics.add(queueMetrics);
+      producers.add(writeBatch.createProducer(queueName, queueMetrics));
+      consumers.add(writeBatch.createConsumer(queueName, new ConsumerConfig(0, 0, 1, DequeueStrategy.FIFO, null), 1));
+    }
+
+    // A transaction that fails before the batch commits must not write anything
+    List<TransactionAware> txAwares = Lists.newArrayList();
+    for (QueueProducer producer : producers) {
+      txAwares.add((TransactionAware) producer);
+    }
+    txAwares.add(new FailingTransactionAware());
+    txAwares.add(writeBatch);
+    TransactionContext txContext = new TransactionContext(txSystemClient, txAwares);
+    txContext.start();
+    for (QueueProducer producer : producers) {
+      producer.enqueue(new QueueEntry(Bytes.toBytes(1)));
+    }
+    try {
+      txContext.finish();
+      Assert.fail("Expected the transaction to fail.");
+    } catch (TransactionFailureException e) {
+      txContext.abort();
+    }
+    for (PersistTimeMetrics queueMetrics : producerMetrics) {
+      Assert.assertTrue(queueMetrics.persistTimes.isEmpty());
+    }
+
+    // Enqueue to all queues and dequeue from all queues, each with one transaction
+    txAwares = Lists.newArrayList();
+    for (QueueProducer producer : producers) {
+      txAwares.add((TransactionAware) producer);
+    }
+    for (QueueConsumer consumer : consumers) {
+      txAwares.add((TransactionAware) consumer);
+    }
+    txAwares.add(writeBatch);
+    txContext = new TransactionContext(txSystemClient, txAwares);
+    txContext.start();
+    for (QueueProducer producer : producers) {
+      producer.enqueue(new QueueEntry(Bytes.toBytes(2)));
+    }
+    txContext.finish();
+
+    // The persist time of each producer is the time the batch took to write its table
+    for (PersistTimeMetrics queueMetrics : producerMetrics) {
+      Assert.assertEquals(1, queueMetrics.persistTimes.size());
+      Assert.assertTrue(queueMetrics.persistTimes.get(0) > 0);
+    }
+
+    txContext.start();
+    for (QueueConsumer consumer : consumers) {
+      DequeueResult<byte[]> result = consumer.dequeue(10);
+      Assert.assertEquals(1, result.size());
+      Assert.assertEquals(2, Bytes.toInt(result.iterator().next()));
+    }
+    txContext.finish();
+
+    // The processed state was written through the batch, hence a new consumer doesn't see the entries
+    for (QueueName queueName : queueNames) {
+      QueueConsumer consumer = queueClientFactory.createConsumer(
+        queueName, new ConsumerConfig(0, 0, 1, DequeueStrategy.FIFO, null), 1);
+      txContext = new TransactionContext(txSystemClient, (TransactionAware) consumer);
+      txContext.start();
+      Assert.assertTrue(consumer.dequeue().isEmpty());
+      txContext.finish();
+      ((Closeable) consumer).close();
+    }
+
+    for (QueueProducer producer : producers) {
+      ((Closeable) producer).close();
+    }
+    for (QueueConsumer consumer : consumers) {
+      ((Closeable) consumer).close();
+    }
+    writeBatch.close();
+  }
+
   @Override
   protected void verifyConsumerConfigExists(QueueName... queueNames) throws InterruptedException {
-    configCache.updateCache();
+    configCache.updateChangedConfigs();
     for (QueueName queueName : queueNames) {
       Assert.assertNotNull("for " + queueName, configCache.getConsumerConfig(queueName.toBytes()));
     }
@@ -260,7 +369,7 @@ public abstract class HBaseQueueTest extends QueueTest {
 
   @Override
   protected void verifyConsumerConfigIsDeleted(QueueName... queueNames) throws InterruptedException {
-    configCache.updateCache();
+    configCache.updateChangedConfigs();
     for (QueueName queueName : queueNames) {
       Assert.assertNull("for " + queueName, configCache.getConsumerConfig(queueName.toBytes()));
     }
@@ -313,4 +422,62 @@ public abstract class HBaseQueueTest extends QueueTest {
   protected void configureGroups(QueueName queueName, Map<Long, Integer> groupInfo) throws Exception {
     queueAdmin.configureGroups(queueName, groupInfo);
   }
+
+  /**
+   * A {@link QueueMetrics} that records the persist times emitted.
+   */
+  private static final class PersistTimeMetrics implements QueueMetrics {
+    private final List<Long> persistTimes = Lists.newArrayList();
+
+    @Override
+    public void emitEnqueue(int count) {
+    }
+
+    @Override
+    public void emitEnqueueBytes(int bytes) {
+    }
+
+    @Override
+    public void emitPersistTime(long nanos) {
+      persistTimes.add(nanos);
+    }
+
+    @Override
+    public void emitDequeueScanTime(long nanos) {
+    }
+  }
+
+  /**
+   * A {@link TransactionAware} that always fails to commit.
+   */
+  private static final class FailingTransactionAware implements TransactionAware {
+
+    @Override
+    public void startTx(Transaction tx) {
+    }
+
+    @Override
+    public Collection<byte[]> getTxChanges() {
+      return ImmutableList.of();
+    }
+
+    @Override
+    public boolean commitTx() throws Exception {
+      return false;
+    }
+
+    @Override
+    public void postTxCommit() {
+    }
+
+    @Override
+    public boolean rollbackTx() throws Exception {
+      return true;
+    }
+
+    @Override
+    public String getTransactionAwareName() {
+      return "failing";
+    }
+  }
 }
@@ -0,0 +1,123 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.data.transaction.snapshot;
+
+import co.cask.tephra.ChangeId;
+import co.cask.tephra.TransactionManager;
+import co.cask.tephra.persist.TransactionSnapshot;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.primitives.Longs;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.Set;
+
+/**
+ * Tests for {@link SnapshotCodecV3}.
+ */
+public class SnapshotCodecV3Test {
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    TransactionSnapshot snapshot = createSnapshot(1000);
+    SnapshotCodecV3 codec = new SnapshotCodecV3();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    codec.encode(out, snapshot);
+    // anything following the snapshot must not be consumed by decoding
+    out.write(42);
+
+    InputStream in = new ByteArrayInputStream(out.toByteArray());
+    TransactionSnapshot decoded = codec.decode(in);
+    Assert.assertEquals(42, in.read());
+    assertSnapshotEquals(snapshot, decoded);
+  }
+
+  @Test
+  public void testEmpty() throws Exception {
+    TransactionSnapshot snapshot = new TransactionSnapshot(
+      System.currentTimeMillis(), 0, 0, Lists.<Long>newArrayList(),
+      Maps.<Long, TransactionManager.InProgressTx>newTreeMap(),
+      Maps.<Long, Set<ChangeId>>newTreeMap(), Maps.<Long, Set<ChangeId>>newTreeMap());
+    SnapshotCodecV3 codec = new SnapshotCodecV3();
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    codec.encode(out, snapshot);
+    assertSnapshotEquals(snapshot, codec.decode(new ByteArrayInputStream(out.toByteArray())));
+  }
+
+  @Test
+  public void testSmallerThanV2() throws Exception {
+    TransactionSnapshot snapshot = createSnapshot(10000);
+
+    ByteArrayOutputStream v2 = new ByteArrayOutputStream();
+    new SnapshotCodecV2().encode(v2, snapshot);
+    ByteArrayOutputStream v3 = new ByteArrayOutputStream();
+    new SnapshotCodecV3().encode(v3, snapshot);
+
+    Assert.assertTrue("V3 size " + v3.size() + " not smaller than V2 size " + v2.size(), v3.size() < v2.size());
+    assertSnapshotEquals(new SnapshotCodecV2().decode(new ByteArrayInputStream(v2.toByteArray())),
+                         new SnapshotCodecV3().decode(new ByteArrayInputStream(v3.toByteArray())));
+  }
+
+  private TransactionSnapshot createSnapshot(int invalidSize) {
+    long writePointer = 1000000000L;
+    List<Long> invalid = Lists.newArrayListWithCapacity(invalidSize);
+    for (int i = 0; i < invalidSize; i++) {
+      invalid.add(writePointer - 3L * (invalidSize - i) - 100);
+    }
+    NavigableMap<Long, TransactionManager.InProgressTx> inProgress = Maps.newTreeMap();
+    for (long txId = writePointer - 50; txId < writePointer; txId += 5) {
+      // a visibility upper bound greater than the tx id must survive the delta encoding, too
+      inProgress.put(txId, new TransactionManager.InProgressTx(txId - (txId % 3) + 1, System.currentTimeMillis()));
+    }
+    inProgress.put(writePointer, new TransactionManager.InProgressTx(writePointer - 1, -1L));
+    NavigableMap<Long, Set<ChangeId>> committing = Maps.newTreeMap();
+    committing.put(writePointer - 10, ImmutableSet.of(new ChangeId(Longs.toByteArray(1)),
+                                                      new ChangeId(new byte[0])));
+    NavigableMap<Long, Set<ChangeId>> committed = Maps.newTreeMap();
+    for (long txId = writePointer - 40; txId < writePointer; txId += 4) {
+      committed.put(txId, ImmutableSet.of(new ChangeId(Longs.toByteArray(txId)),
+                                          new ChangeId(("row" + txId).getBytes())));
+    }
+    return new TransactionSnapshot(System.currentTimeMillis(), writePointer - 60, writePointer, invalid, inProgress,
+                                   committing, committed);
+  }
+
+  private void assertSnapshotEquals(TransactionSnapshot expected, TransactionSnapshot actual) {
+    Assert.assertEquals(expected.getTimestamp(), actual.getTimestamp());
+    Assert.assertEquals(expected.getReadPointer(), actual.getReadPointer());
+    Assert.assertEquals(expected.getWritePointer(), actual.getWritePointer());
+    Assert.assertEquals(Lists.newArrayList(expected.getInvalid()), Lists.newArrayList(actual.getInvalid()));
+    Assert.assertEquals(expected.getInProgress().keySet(), actual.getInProgress().keySet());
+    for (Long txId : expected.getInProgress().keySet()) {
+      TransactionManager.InProgressTx expectedTx = expected.getInProgress().get(txId);
+      TransactionManager.InProgressTx actualTx = actual.getInProgress().get(txId);
+      Assert.assertEquals(expectedTx.getExpiration(), actualTx.getExpiration());
+      Assert.assertEquals(expectedTx.getVisibilityUpperBound(), actualTx.getVisibilityUpperBound());
+    }
+    Assert.assertEquals(expected.getCommittingChangeSets(), actual.getCommittingChangeSets());
+    Assert.assertEquals(expected.getCommittedChangeSets(), actual.getCommittedChangeSets());
+  }
+}
@@ -38,6 +38,21 @@ public final class Constants {
    */
   public static final int TICKER_TIMEOUT = 10;
 
+  /**
+   * Maximum time in milliseconds AbstractInputFlowlet waits for records to arrive after a tick committed
+   */
+  public static final long RECORD_WAIT_TIMEOUT = 200L;
+
+  /**
+   * Default maximum number of records processed in a single transaction by AbstractInputFlowlet
+   */
+  public static final int DEFAULT_DISPATCH_BATCH_SIZE = 10000;
+
+  /**
+   * Time in seconds to wait for the query output dispatcher threads to terminate
+   */
+  public static final long DISPATCHER_SHUTDOWN_TIMEOUT = 5L;
+
   /**
    * The SQL Compiler process ping frequency is 1 ping per second. Using value larger than 1 to avoid boundary failure
    */
@@ -54,6 +69,25 @@ public final class Constants {
    */
   public static final int MAX_RETRY = 5;
 
+  /**
+   * Default capacity of the {@link co.cask.tigon.sql.flowlet.GDATRecordQueue}. Stream Engine output is throttled
+   * over TCP once either limit is reached.
+   */
+  public static final int DEFAULT_RECORD_QUEUE_MAX_RECORDS = 100000;
+  public static final long DEFAULT_RECORD_QUEUE_MAX_BYTES = 64L * 1024 * 1024;
+
+  /**
+   * Maximum number of bytes buffered per input stream while no Stream Engine process is connected to it. Reading
+   * from the ingestion clients is suspended once the limit is reached.
+   */
+  public static final long FAILOVER_BUFFER_MAX_BYTES = 16L * 1024 * 1024;
+
+  /**
+   * Default maximum length in bytes of a record received by the TCP ingestion endpoints. A connection that sends a
+   * longer record is closed, as the record can't be buffered.
+   */
+  public static final int DEFAULT_MAX_RECORD_LENGTH = 1024 * 1024;
+
   /**
    * File names of files parsed by {@link co.cask.tigon.sql.util.MetaInformationParser}
    */
@@ -61,9 +95,47 @@ public final class Constants {
   public static final String OUTPUT_SPEC = "output_spec.cfg";
   public static final String GSQL_FILE = "tigon.gsql";
 
+  /**
+   * Number of connections the {@link co.cask.tigon.sql.io.DataIngestionRouter} opens to the TCP ingestion endpoint
+   * of each input stream
+   */
+  public static final int DEFAULT_INGESTION_CONNECTIONS = 4;
+
   /**
    * Data Ingestion Ports Map Keys
    */
   public static final String HTTP_PORT = "httpPort";
   public static final String TCP_INGESTION_PORT_PREFIX = "tcpPort_";
+
+  /**
+   * Runtime argument key for the directory of the {@link co.cask.tigon.sql.internal.StreamBinaryCache}, and the
+   * name of the default directory in the system temp directory
+   */
+  public static final String BINARY_CACHE_DIR = "binaryCacheDir";
+  public static final String DEFAULT_BINARY_CACHE_DIR = "tigon-sql-binaries";
+
+  /**
+   * Runtime argument keys for the {@link co.cask.tigon.sql.flowlet.GDATRecordQueue} capacity
+   */
+  public static final String RECORD_QUEUE_MAX_RECORDS = "recordQueueMaxRecords";
+  public static final String RECORD_QUEUE_MAX_BYTES = "recordQueueMaxBytes";
+
+  /**
+   * Runtime argument key for the maximum length in bytes of a record received by the TCP ingestion endpoints
+   */
+  public static final String MAX_RECORD_LENGTH = "maxRecordLength";
+
+  /**
+   * Runtime argument keys for the query output dispatch. Number of worker threads (defaults to 1, which dispatches
+   * on the flowlet thread), and maximum number of records and time in milliseconds per transaction.
+   */
+  public static final String DISPATCH_THREADS = "dispatchThreads";
+  public static final String DISPATCH_BATCH_SIZE = "dispatchBatchSize";
+  public static final String DISPATCH_BATCH_TIME_MS = "dispatchBatchTimeMs";
+
+  /**
+   * Runtime argument key to enable the warm standby Stream Engine processes (defaults to false). The standby
+   * processes take over when the active processes fail, instead of restarting all the processes.
+   */
+  public static final String STANDBY_MODE = "standbyMode";
 }
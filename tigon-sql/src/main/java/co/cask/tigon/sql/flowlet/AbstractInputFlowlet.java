@@ -32,9 +32,12 @@ import co.cask.tigon.sql.internal.InputFlowletService;
 import co.cask.tigon.sql.internal.LocalInputFlowletConfiguration;
 import co.cask.tigon.sql.internal.MetricsRecorder;
 import co.cask.tigon.sql.internal.ProcessMonitor;
+import co.cask.tigon.sql.internal.StreamBinaryCache;
 import co.cask.tigon.sql.io.GDATDecoder;
 import co.cask.tigon.sql.io.MethodsDriver;
+import co.cask.tigon.sql.io.QueryOutputDispatcher;
 import co.cask.tigon.sql.util.MetaInformationParser;
+import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
@@ -65,9 +68,11 @@ public abstract class AbstractInputFlowlet extends AbstractFlowlet implements Pr
   private InputFlowletService inputFlowletService;
   private HealthInspector healthInspector;
   private MetricsRecorder metricsRecorder;
-  private MethodsDriver methodsDriver;
+  private QueryOutputDispatcher dispatcher;
   private GDATRecordQueue recordQueue;
   private Stopwatch stopwatch;
+  private int dispatchBatchSize;
+  private long dispatchBatchTime;
   private int retryCounter;
   private Map<String, Integer> dataIngestionPortsMap;
   private List<Cancellable> portsAnnouncementList;
@@ -76,6 +81,7 @@ public abstract class AbstractInputFlowlet extends AbstractFlowlet implements Pr
   private FailurePolicy failurePolicy = FailurePolicy.RETRY;
   private Map<String, String> arguments = Maps.newHashMap();
   private ResourceSpecification resourceSpecification = ResourceSpecification.BASIC;
+  private int maxInstances = 1;
 
   /**
    * Override this method to configure the InputFlowlet.
@@ -92,7 +98,7 @@ public abstract class AbstractInputFlowlet extends AbstractFlowlet implements Pr
     return FlowletSpecification.Builder.with()
       .setName(getName())
       .setDescription(getDescription())
-      .setMaxInstances(1)
+      .setMaxInstances(getMaxInstances())
       .setFailurePolicy(getFailurePolicy())
       .withArguments(getArguments())
       .withResources(getResourceSpecification())
@@ -133,6 +139,16 @@ public abstract class AbstractInputFlowlet extends AbstractFlowlet implements Pr
     configurer.addJSONInput(name, schema);
   }
 
+  /**
+   * Add an Input source in the compact binary format to the InputFlowlet. Each record is length prefixed and holds
+   * the field values in the order of the schema, see {@link co.cask.tigon.sql.ioserver.BinaryInputServerSocket}.
+   * @param name Name of the Input Source.
+   * @param schema Schema of the Input Source.
+   */
+  protected void addBinaryInput(String name, StreamSchema schema) {
+    configurer.addBinaryInput(name, schema);
+  }
+
   /**
    * Add a Query query to the InputFlowlet.
    * @param sqlOutName Query Query Name (also the name of the Output Stream generated by the Query).
@@ -158,6 +174,17 @@ public abstract class AbstractInputFlowlet extends AbstractFlowlet implements Pr
     this.resourceSpecification = resourceSpecification;
   }
 
+  /**
+   * Set the maximum number of instances of the InputFlowlet. Defaults to 1.
+   * Each instance runs its own Stream Engine over the data ingested through its own end-points, see
+   * {@link StreamPartitioner} for routing the data across the instances.
+   * @param maxInstances Maximum number of instances.
+   */
+  protected void setMaxInstances(int maxInstances) {
+    Preconditions.checkArgument(maxInstances > 0, "Maximum number of instances must be positive");
+    this.maxInstances = maxInstances;
+  }
+
   /**
    * Set the {@link FailurePolicy} for the InputFlowlet. Defaults to {@code FailurePolicy.RETRY}.
    * @param failurePolicy of the InputFlowlet.
@@ -170,6 +197,10 @@ public abstract class AbstractInputFlowlet extends AbstractFlowlet implements Pr
     return failurePolicy;
   }
 
+  private int getMaxInstances() {
+    return maxInstances;
+  }
+
   private ResourceSpecification getResourceSpecification() {
     return resourceSpecification;
   }
@@ -178,6 +209,22 @@ public abstract class AbstractInputFlowlet extends AbstractFlowlet implements Pr
     return arguments;
   }
 
+  /**
+   * Returns the port given as a runtime argument, or 0 to bind an ephemeral port. Fixed ports are ignored when the
+   * flowlet can run more than one instance.
+   */
+  private int getConfiguredPort(FlowletContext ctx, String key, boolean partitioned) {
+    String port = ctx.getRuntimeArguments().get(key);
+    if (port == null) {
+      return 0;
+    }
+    if (partitioned) {
+      LOG.warn("Ignoring runtime argument {}={}: instances of a partitioned flowlet bind ephemeral ports", key, port);
+      return 0;
+    }
+    return Integer.parseInt(port);
+  }
+
   /**
    * This method initializes all the components required to setup the SQL Compiler environment.
    */
@@ -189,18 +236,14 @@ public abstract class AbstractInputFlowlet extends AbstractFlowlet implements Pr
     create(configurer);
     InputFlowletSpecification spec = configurer.createInputFlowletSpec();
 
+    // Instances of a partitioned flowlet may share a host, so each binds ephemeral ports and clients find them
+    // through the announced endpoints
+    boolean partitioned = ctx.getSpecification().getMaxInstances() > 1;
     dataIngestionPortsMap = Maps.newHashMap();
-    int httpPort = 0;
-    if (ctx.getRuntimeArguments().get(Constants.HTTP_PORT) != null) {
-      httpPort = Integer.parseInt(ctx.getRuntimeArguments().get(Constants.HTTP_PORT));
-    }
-    dataIngestionPortsMap.put(Constants.HTTP_PORT, httpPort);
+    dataIngestionPortsMap.put(Constants.HTTP_PORT, getConfiguredPort(ctx, Constants.HTTP_PORT, partitioned));
     for (String inputName : spec.getInputSchemas().keySet()) {
-      int tcpPort = 0;
-      if (ctx.getRuntimeArguments().get(Constants.TCP_INGESTION_PORT_PREFIX + inputName) != null) {
-        tcpPort = Integer.parseInt(ctx.getRuntimeArguments().get(Constants.TCP_INGESTION_PORT_PREFIX + inputName));
-      }
-      dataIngestionPortsMap.put(Constants.TCP_INGESTION_PORT_PREFIX + inputName, tcpPort);
+      String portKey = Constants.TCP_INGESTION_PORT_PREFIX + inputName;
+      dataIngestionPortsMap.put(portKey, getConfiguredPort(ctx, portKey, partitioned));
     }
 
     // Setup temporary directory structure
@@ -208,26 +251,60 @@ public abstract class AbstractInputFlowlet extends AbstractFlowlet implements Pr
     File baseDir = new File(tmpFolder, "baseDir");
     baseDir.mkdirs();
 
-    InputFlowletConfiguration inputFlowletConfiguration = new LocalInputFlowletConfiguration(baseDir, spec);
+    // Compiled binaries are shared by all flowlets with the same queries and schemas
+    File cacheDir = new File(System.getProperty("java.io.tmpdir"), Constants.DEFAULT_BINARY_CACHE_DIR);
+    if (ctx.getRuntimeArguments().get(Constants.BINARY_CACHE_DIR) != null) {
+      cacheDir = new File(ctx.getRuntimeArguments().get(Constants.BINARY_CACHE_DIR));
+    }
+    LocalInputFlowletConfiguration inputFlowletConfiguration =
+      new LocalInputFlowletConfiguration(baseDir, spec, new StreamBinaryCache(cacheDir));
     File binDir = inputFlowletConfiguration.createStreamEngineProcesses();
 
     healthInspector = new HealthInspector(this);
     metricsRecorder = new MetricsRecorder(metrics);
+    metricsRecorder.recordBinaryMetrics(inputFlowletConfiguration.isCacheHit(),
+                                        inputFlowletConfiguration.getCompileTime(TimeUnit.MILLISECONDS));
 
     //Initiating AbstractInputFlowlet Components
-    recordQueue = new GDATRecordQueue();
+    int maxQueueRecords = Constants.DEFAULT_RECORD_QUEUE_MAX_RECORDS;
+    if (ctx.getRuntimeArguments().get(Constants.RECORD_QUEUE_MAX_RECORDS) != null) {
+      maxQueueRecords = Integer.parseInt(ctx.getRuntimeArguments().get(Constants.RECORD_QUEUE_MAX_RECORDS));
+    }
+    long maxQueueBytes = Constants.DEFAULT_RECORD_QUEUE_MAX_BYTES;
+    if (ctx.getRuntimeArguments().get(Constants.RECORD_QUEUE_MAX_BYTES) != null) {
+      maxQueueBytes = Long.parseLong(ctx.getRuntimeArguments().get(Constants.RECORD_QUEUE_MAX_BYTES));
+    }
+    recordQueue = new GDATRecordQueue(maxQueueRecords, maxQueueBytes);
 
     //Initiating Netty TCP I/O ports
+    boolean standbyMode = Boolean.parseBoolean(ctx.getRuntimeArguments().get(Constants.STANDBY_MODE));
+    int maxRecordLength = Constants.DEFAULT_MAX_RECORD_LENGTH;
+    if (ctx.getRuntimeArguments().get(Constants.MAX_RECORD_LENGTH) != null) {
+      maxRecordLength = Integer.parseInt(ctx.getRuntimeArguments().get(Constants.MAX_RECORD_LENGTH));
+    }
     inputFlowletService = new InputFlowletService(binDir, spec, healthInspector, metricsRecorder, recordQueue,
-                                                  dataIngestionPortsMap, this);
+                                                  dataIngestionPortsMap, this, standbyMode, maxRecordLength);
     inputFlowletService.startAndWait();
 
     //Starting health monitor service
     healthInspector.startAndWait();
 
-    //Initializing methodsDriver
+    //Initializing methodsDriver and the dispatcher
     Map<String, StreamSchema> schemaMap = MetaInformationParser.getSchemaMap(new File(binDir.toURI()));
-    methodsDriver = new MethodsDriver(this, schemaMap);
+    MethodsDriver methodsDriver = new MethodsDriver(this, schemaMap);
+    int dispatchThreads = 1;
+    if (ctx.getRuntimeArguments().get(Constants.DISPATCH_THREADS) != null) {
+      dispatchThreads = Integer.parseInt(ctx.getRuntimeArguments().get(Constants.DISPATCH_THREADS));
+    }
+    dispatcher = new QueryOutputDispatcher(methodsDriver, dispatchThreads);
+    dispatchBatchSize = Constants.DEFAULT_DISPATCH_BATCH_SIZE;
+    if (ctx.getRuntimeArguments().get(Constants.DISPATCH_BATCH_SIZE) != null) {
+      dispatchBatchSize = Integer.parseInt(ctx.getRuntimeArguments().get(Constants.DISPATCH_BATCH_SIZE));
+    }
+    dispatchBatchTime = TimeUnit.SECONDS.toMillis(Constants.TICKER_TIMEOUT);
+    if (ctx.getRuntimeArguments().get(Constants.DISPATCH_BATCH_TIME_MS) != null) {
+      dispatchBatchTime = Long.parseLong(ctx.getRuntimeArguments().get(Constants.DISPATCH_BATCH_TIME_MS));
+    }
 
     //Initialize stopwatch and retry counter
     stopwatch = new Stopwatch();
@@ -236,22 +313,40 @@ public abstract class AbstractInputFlowlet extends AbstractFlowlet implements Pr
 
   /**
    * This process method consumes the records queued in dataManager and invokes the associated "process" methods for
-   * each output query
+   * each output query. Records are processed as soon as they arrive, and each invocation processes at most one batch
+   * of records (bounded by count and time) in a single transaction. Waiting for records happens in
+   * {@link #onSuccess}, after the transaction committed, so that an idle flowlet does not keep a transaction open.
    */
-  @Tick(delay = 200L, unit = TimeUnit.MILLISECONDS)
+  @Tick(delay = 0L, unit = TimeUnit.MILLISECONDS)
   protected void processGDATRecords() throws InvocationTargetException, IllegalAccessException {
+    if (recordQueue.isEmpty()) {
+      recordMetrics();
+      return;
+    }
     stopwatch.reset();
     stopwatch.start();
-    while (!recordQueue.isEmpty()) {
-      // Time since start of processing in Seconds
-      long elapsedTime = stopwatch.elapsedTime(TimeUnit.SECONDS);
-      if (elapsedTime >= Constants.TICKER_TIMEOUT) {
+    int recordCount = 0;
+    while (!recordQueue.isEmpty() && recordCount < dispatchBatchSize) {
+      // Time since start of processing in Milliseconds
+      long elapsedTime = stopwatch.elapsedTime(TimeUnit.MILLISECONDS);
+      if (elapsedTime >= dispatchBatchTime) {
         break;
       }
       Map.Entry<String, GDATDecoder> record = recordQueue.getNext();
-      methodsDriver.invokeMethods(record.getKey(), record.getValue());
+      metricsRecorder.addLatency(record.getKey(), System.nanoTime() - record.getValue().getReceivedTime());
+      dispatcher.dispatch(record.getKey(), record.getValue());
+      recordCount++;
     }
+    // All records must be processed before the transaction commits
+    dispatcher.flush();
     stopwatch.stop();
+    recordMetrics();
+  }
+
+  private void recordMetrics() {
+    metricsRecorder.recordQueueMetrics(recordQueue);
+    metricsRecorder.recordLatencyMetrics();
+    inputFlowletService.recordIngestionMetrics();
   }
 
   @Override
@@ -263,6 +358,13 @@ public abstract class AbstractInputFlowlet extends AbstractFlowlet implements Pr
     recordQueue.commit();
     super.onSuccess(input, inputContext);
     retryCounter = 0;
+    // The transaction of the tick is committed, wait for more records before the next tick starts a new one
+    try {
+      recordQueue.awaitRecords(Constants.RECORD_WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      // Flowlet is stopping
+      Thread.currentThread().interrupt();
+    }
   }
 
   @Override
@@ -293,6 +395,7 @@ public abstract class AbstractInputFlowlet extends AbstractFlowlet implements Pr
       portAnnouncement.cancel();
     }
     Services.chainStop(healthInspector, inputFlowletService);
+    dispatcher.shutdown();
     super.destroy();
   }
 
@@ -308,8 +411,7 @@ public abstract class AbstractInputFlowlet extends AbstractFlowlet implements Pr
       LOG.warn("No heartbeats registered");
     }
     healthInspector.stopAndWait();
-    healthInspector = new HealthInspector(this);
-    inputFlowletService.restartService(healthInspector);
+    healthInspector = inputFlowletService.restartService(new HealthInspector(this));
     healthInspector.startAndWait();
   }
 
@@ -320,9 +422,15 @@ public abstract class AbstractInputFlowlet extends AbstractFlowlet implements Pr
       // Ingestion end-points have already been announced
       return;
     }
+    boolean partitioned = ctx.getSpecification().getMaxInstances() > 1;
     for (String key : dataIngestionPortsMap.keySet()) {
       portsAnnouncementList.add(ctx.announce(key, inputFlowletService.getDataPort(key)));
       LOG.info("Announced Data Port {} - {}", key, inputFlowletService.getDataPort(key));
+      if (partitioned) {
+        String instanceKey = StreamPartitioner.getEndpointName(key, ctx.getInstanceId());
+        portsAnnouncementList.add(ctx.announce(instanceKey, inputFlowletService.getDataPort(key)));
+        LOG.info("Announced Data Port {} - {}", instanceKey, inputFlowletService.getDataPort(key));
+      }
     }
   }
 }
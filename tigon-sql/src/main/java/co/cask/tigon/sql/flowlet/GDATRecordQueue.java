@@ -16,28 +16,73 @@
 
 package co.cask.tigon.sql.flowlet;
 
+import co.cask.tigon.sql.conf.Constants;
 import co.cask.tigon.sql.io.GDATDecoder;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Queues;
+import com.google.common.primitives.Ints;
 
 import java.util.Collection;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * GDATRecordQueue
  * Queue of the incoming GDAT Records that is used by the AbstractInputFlowlet
+ *
+ * The queue is bounded by the number of records and the number of bytes held, including records that are pending
+ * in the current transaction. Producers are never blocked by {@link #add(java.util.Map.Entry)}; instead they are
+ * expected to check {@link #isFull()} and stop producing until the resume callback given to
+ * {@link #suspendUntilAvailable(Runnable)} is invoked. Producers are resumed once the queue drains below half of
+ * its capacity.
  */
 public class GDATRecordQueue {
   private final Queue<Map.Entry<String, GDATDecoder>> dataQueue;
   private final Collection<Map.Entry<String, GDATDecoder>> pendingRecords;
+  private final Queue<Runnable> resumeCallbacks;
+  private final int maxRecords;
+  private final long maxBytes;
+  private final AtomicInteger records;
+  private final AtomicLong bytes;
+  private final AtomicLong throttleStartTime;
+  private final AtomicLong throttledTime;
+  private final Lock arrivalLock;
+  private final Condition arrival;
+  private volatile boolean waiting;
 
   /**
    * Constructor
    */
   public GDATRecordQueue() {
+    this(Constants.DEFAULT_RECORD_QUEUE_MAX_RECORDS, Constants.DEFAULT_RECORD_QUEUE_MAX_BYTES);
+  }
+
+  /**
+   * Constructor
+   * @param maxRecords Maximum number of records the queue holds before producers are throttled
+   * @param maxBytes Maximum number of bytes the queue holds before producers are throttled
+   */
+  public GDATRecordQueue(int maxRecords, long maxBytes) {
+    Preconditions.checkArgument(maxRecords > 0, "Maximum number of records should be > 0");
+    Preconditions.checkArgument(maxBytes > 0, "Maximum number of bytes should be > 0");
+    this.maxRecords = maxRecords;
+    this.maxBytes = maxBytes;
     dataQueue = Queues.newConcurrentLinkedQueue();
     pendingRecords = Lists.newArrayList();
+    resumeCallbacks = Queues.newConcurrentLinkedQueue();
+    records = new AtomicInteger();
+    bytes = new AtomicLong();
+    throttleStartTime = new AtomicLong();
+    throttledTime = new AtomicLong();
+    arrivalLock = new ReentrantLock();
+    arrival = arrivalLock.newCondition();
   }
 
   /**
@@ -57,7 +102,46 @@ public class GDATRecordQueue {
    *               added at the end of the queue
    */
   public void add(Map.Entry<String, GDATDecoder> record) {
+    records.incrementAndGet();
+    bytes.addAndGet(getSize(record));
     dataQueue.add(record);
+    // Only pay for signaling when the consumer is waiting
+    if (waiting) {
+      arrivalLock.lock();
+      try {
+        arrival.signalAll();
+      } finally {
+        arrivalLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Waits until the data queue is not empty.
+   * @param timeout Maximum time to wait
+   * @param unit {@link TimeUnit} of the timeout
+   * @return Boolean true if the data queue is not empty, false if timed out
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean awaitRecords(long timeout, TimeUnit unit) throws InterruptedException {
+    if (!dataQueue.isEmpty()) {
+      return true;
+    }
+    long nanos = unit.toNanos(timeout);
+    arrivalLock.lock();
+    try {
+      waiting = true;
+      while (dataQueue.isEmpty()) {
+        if (nanos <= 0L) {
+          return false;
+        }
+        nanos = arrival.awaitNanos(nanos);
+      }
+      return true;
+    } finally {
+      waiting = false;
+      arrivalLock.unlock();
+    }
   }
 
   /**
@@ -65,7 +149,16 @@ public class GDATRecordQueue {
    * This method is called when the transaction has been completed successfully
    */
   public void commit() {
+    long committedBytes = 0;
+    for (Map.Entry<String, GDATDecoder> record : pendingRecords) {
+      committedBytes += getSize(record);
+    }
+    records.addAndGet(-pendingRecords.size());
+    bytes.addAndGet(-committedBytes);
     pendingRecords.clear();
+    if (!resumeCallbacks.isEmpty() && canResume()) {
+      resume();
+    }
   }
 
   /**
@@ -76,6 +169,60 @@ public class GDATRecordQueue {
     return dataQueue.isEmpty();
   }
 
+  /**
+   * Checks if the queue has reached its capacity, in which case producers should stop adding records.
+   * @return Boolean true if either the record count or the byte size limit is reached
+   */
+  public boolean isFull() {
+    return records.get() >= maxRecords || bytes.get() >= maxBytes;
+  }
+
+  /**
+   * Registers a callback to be invoked once the queue has drained enough for producers to resume. The callback is
+   * invoked exactly once, possibly from the calling thread if the queue has drained already.
+   * @param resumeCallback {@link Runnable} to resume the producer
+   */
+  public void suspendUntilAvailable(Runnable resumeCallback) {
+    throttleStartTime.compareAndSet(0L, System.nanoTime());
+    resumeCallbacks.add(resumeCallback);
+    // The consumer might have drained the queue before the callback was added
+    if (canResume()) {
+      resume();
+    }
+  }
+
+  /**
+   * @return Number of records held by the queue, including records pending in the current transaction
+   */
+  public int size() {
+    return records.get();
+  }
+
+  /**
+   * @return Number of bytes held by the queue, including records pending in the current transaction
+   */
+  public long getBytes() {
+    return bytes.get();
+  }
+
+  /**
+   * @return Ratio of the queue capacity in use, in percent
+   */
+  public int getFillPercent() {
+    return (int) Math.min(100L, Math.max(records.get() * 100L / maxRecords, bytes.get() * 100L / maxBytes));
+  }
+
+  /**
+   * Returns the total time producers have been throttled, including the current throttling period, if any.
+   * @param unit {@link TimeUnit} of the returned time
+   * @return Total throttled time
+   */
+  public long getThrottledTime(TimeUnit unit) {
+    long startTime = throttleStartTime.get();
+    long current = startTime == 0L ? 0L : System.nanoTime() - startTime;
+    return unit.convert(throttledTime.get() + current, TimeUnit.NANOSECONDS);
+  }
+
   /**
    * Rolls back the uncommitted data records to the original data queue.
    * Note: This function does not guarantee preservation of data record order.
@@ -84,4 +231,26 @@ public class GDATRecordQueue {
     dataQueue.addAll(pendingRecords);
     pendingRecords.clear();
   }
+
+  private boolean canResume() {
+    return records.get() <= maxRecords / 2 && bytes.get() <= maxBytes / 2;
+  }
+
+  private void resume() {
+    long startTime = throttleStartTime.getAndSet(0L);
+    if (startTime != 0L) {
+      throttledTime.addAndGet(System.nanoTime() - startTime);
+    }
+    Runnable callback = resumeCallbacks.poll();
+    while (callback != null) {
+      callback.run();
+      callback = resumeCallbacks.poll();
+    }
+  }
+
+  private long getSize(Map.Entry<String, GDATDecoder> record) {
+    GDATDecoder decoder = record.getValue();
+    //Length field of the record is not included in the record length.
+    return decoder == null ? 0L : decoder.getRecordLength() + Ints.BYTES;
+  }
 }
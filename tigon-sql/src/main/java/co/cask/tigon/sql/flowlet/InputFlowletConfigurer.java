@@ -47,6 +47,13 @@ public interface InputFlowletConfigurer {
    */
   void addJSONInput(String name, StreamSchema schema);
 
+  /**
+   * Adds an Input in the compact binary format to the InputFlowlet.
+   * @param name Name of the Input.
+   * @param schema Attach a schema to the Input.
+   */
+  void addBinaryInput(String name, StreamSchema schema);
+
   /**
    * Adds a Query query to the InputFlowlet.
    * @param outputName Name of the Query Query (also the name of the output stream).
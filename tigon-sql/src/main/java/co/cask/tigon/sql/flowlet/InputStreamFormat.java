@@ -21,5 +21,6 @@ package co.cask.tigon.sql.flowlet;
  */
 public enum InputStreamFormat {
   GDAT,
-  JSON
+  JSON,
+  BINARY
 }
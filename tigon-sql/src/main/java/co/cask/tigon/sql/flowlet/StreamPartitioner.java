@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.sql.flowlet;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Routes ingested data across the instances of an {@link AbstractInputFlowlet}.
+ *
+ * Each instance runs its own Stream Engine and announces its ingestion end-points twice: under the end-point name
+ * (e.g. {@code tcpPort_intInput}), shared by all the instances, and under the instance specific name returned by
+ * {@link #getEndpointName(String, int)}. Clients routing by a partition key send a record to the end-point of the
+ * instance returned by {@link #getInstance(Object, int)}, so that all the records with the same key are processed
+ * by the same Stream Engine. Clients of stateless queries can send records to any of the shared end-points.
+ */
+public final class StreamPartitioner {
+
+  private StreamPartitioner() {
+  }
+
+  /**
+   * Get the instance that processes the records with the given partition key.
+   * @param partitionKey Value of the partition key field of the record.
+   * @param instanceCount Number of instances of the InputFlowlet.
+   * @return Instance id, between 0 (inclusive) and instanceCount (exclusive).
+   */
+  public static int getInstance(Object partitionKey, int instanceCount) {
+    Preconditions.checkArgument(instanceCount > 0, "Instance count must be positive");
+    return (partitionKey.hashCode() & Integer.MAX_VALUE) % instanceCount;
+  }
+
+  /**
+   * Get the name under which an instance announces the given ingestion end-point.
+   * @param endpoint Name of the ingestion end-point (e.g. {@code httpPort} or {@code tcpPort_<InputName>}).
+   * @param instanceId Instance id of the InputFlowlet.
+   * @return Instance specific name of the end-point.
+   */
+  public static String getEndpointName(String endpoint, int instanceId) {
+    return endpoint + "." + instanceId;
+  }
+}
@@ -66,6 +66,13 @@ public class DefaultInputFlowletConfigurer implements InputFlowletConfigurer {
       InputStreamFormat.JSON, schema));
   }
 
+  @Override
+  public void addBinaryInput(String name, StreamSchema schema) {
+    checkInputName(name);
+    this.inputStreamSchemas.put(name, new AbstractMap.SimpleEntry<InputStreamFormat, StreamSchema>(
+      InputStreamFormat.BINARY, schema));
+  }
+
   @Override
   public void addQuery(String outputName, String sql) {
     Preconditions.checkArgument(outputName != null, "Output Name cannot be null.");
@@ -19,6 +19,7 @@ package co.cask.tigon.sql.internal;
 import co.cask.tigon.sql.conf.Constants;
 import co.cask.tigon.sql.flowlet.GDATRecordQueue;
 import co.cask.tigon.sql.flowlet.InputFlowletSpecification;
+import co.cask.tigon.sql.ioserver.InputServerSocket;
 import co.cask.tigon.sql.ioserver.StreamEngineIO;
 import co.cask.tigon.sql.manager.DiscoveryServer;
 import co.cask.tigon.sql.manager.HubDataSink;
@@ -35,33 +36,59 @@ import java.io.File;
 import java.net.InetSocketAddress;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Starts/Shutdowns Netty TCP Servers for I/O with StreamEngine Processes, DiscoveryServer HTTP Service and
  * Stream Engine processes.
+ *
+ * In standby mode, a second set of Stream Engine processes (with its own DiscoveryServer and HealthInspector) is
+ * kept running. On failure of the active processes, the standby processes are promoted and a new standby set is
+ * started in the background.
  */
 public final class InputFlowletService extends AbstractIdleService {
   private static final Logger LOG = LoggerFactory.getLogger(InputFlowletService.class);
   private final File dir;
   private final StreamEngineIO ioService;
   private HubDataStore hubDataStore;
-  private DiscoveryServer discoveryServer;
   private final HealthInspector healthInspector;
   private final MetricsRecorder metricsRecorder;
-  private ProcessInitiator processInitiator;
   private final Map<String, Integer> portMap;
   private final ProcessMonitor processMonitor;
+  private final boolean standbyMode;
+  private final ExecutorService standbyExecutor;
+  private ProcessSet activeProcesses;
+  private StandbyMonitor standby;
+  private volatile boolean stopped;
 
   //TODO Remove GDATRecordQueue parameter from this constructor. Use Guice to inject it directly to OutputServerSocket
   public InputFlowletService(File dir, InputFlowletSpecification spec, HealthInspector healthInspector,
                              MetricsRecorder metricsRecorder, GDATRecordQueue recordQueue,
                              Map<String, Integer> portMap, ProcessMonitor processMonitor) {
+    this(dir, spec, healthInspector, metricsRecorder, recordQueue, portMap, processMonitor, false);
+  }
+
+  public InputFlowletService(File dir, InputFlowletSpecification spec, HealthInspector healthInspector,
+                             MetricsRecorder metricsRecorder, GDATRecordQueue recordQueue,
+                             Map<String, Integer> portMap, ProcessMonitor processMonitor, boolean standbyMode) {
+    this(dir, spec, healthInspector, metricsRecorder, recordQueue, portMap, processMonitor, standbyMode,
+         Constants.DEFAULT_MAX_RECORD_LENGTH);
+  }
+
+  public InputFlowletService(File dir, InputFlowletSpecification spec, HealthInspector healthInspector,
+                             MetricsRecorder metricsRecorder, GDATRecordQueue recordQueue,
+                             Map<String, Integer> portMap, ProcessMonitor processMonitor, boolean standbyMode,
+                             int maxRecordLength) {
     this.dir = dir;
     this.portMap = portMap;
-    this.ioService = new StreamEngineIO(spec, recordQueue, portMap);
+    this.ioService = new StreamEngineIO(spec, recordQueue, portMap, maxRecordLength);
     this.healthInspector = healthInspector;
     this.metricsRecorder = metricsRecorder;
     this.processMonitor = processMonitor;
+    this.standbyMode = standbyMode;
+    this.standbyExecutor = standbyMode ? Executors.newSingleThreadExecutor() : null;
   }
 
   @Override
@@ -97,24 +124,201 @@ public final class InputFlowletService extends AbstractIdleService {
   @Override
   protected void shutDown() {
     LOG.info("Stopping IO Socket Servers");
-    Services.chainStop(ioService, processInitiator, discoveryServer);
+    ProcessSet standbyProcesses;
+    synchronized (this) {
+      stopped = true;
+      standbyProcesses = standby == null ? null : standby.processes;
+      standby = null;
+    }
+    if (standbyExecutor != null) {
+      standbyExecutor.shutdownNow();
+    }
+    if (standbyProcesses != null) {
+      standbyProcesses.healthInspector.stopAndWait();
+      standbyProcesses.stop();
+    }
+    Services.chainStop(ioService, activeProcesses.processInitiator, activeProcesses.discoveryServer);
   }
 
   public void startService(HealthInspector healthInspector) {
+    ProcessSet processes = startProcesses(healthInspector, processMonitor);
+    boolean hasStandby;
+    synchronized (this) {
+      activeProcesses = processes;
+      hasStandby = standby != null;
+    }
+    if (standbyMode && !hasStandby) {
+      startStandby();
+    }
+  }
+
+  /**
+   * Replaces the failed active Stream Engine processes. In standby mode, the standby processes are promoted if they
+   * are ready, otherwise all the processes are restarted.
+   *
+   * @param healthInspector HealthInspector used if the processes are restarted
+   * @return HealthInspector monitoring the new active processes
+   */
+  public HealthInspector restartService(HealthInspector healthInspector) {
+    ProcessSet failed;
+    ProcessSet promoted = null;
+    synchronized (this) {
+      failed = activeProcesses;
+      if (standby != null && standby.isReady()) {
+        promoted = standby.processes;
+        standby.promote();
+        standby = null;
+        activeProcesses = promoted;
+      }
+    }
+    if (promoted == null) {
+      failed.stop();
+      startService(healthInspector);
+      return healthInspector;
+    }
+    LOG.info("Promoting standby Stream Engine processes");
+    //Stopping the failed RTS process switches the relay channels of the input streams to the standby RTS process
+    failed.stop();
+    startStandby();
+    return promoted.healthInspector;
+  }
+
+  private ProcessSet startProcesses(HealthInspector healthInspector, ProcessMonitor monitor) {
     //Initializing discovery server
-    discoveryServer = new DiscoveryServer(hubDataStore, healthInspector, metricsRecorder, processMonitor);
+    DiscoveryServer discoveryServer = new DiscoveryServer(hubDataStore, healthInspector, metricsRecorder, monitor);
     discoveryServer.startAndWait();
 
     //Initiating SQL Compiler processes
-    processInitiator = new ProcessInitiator(new HubDataStore.Builder(hubDataStore)
-                                              .setHubAddress(discoveryServer.getHubAddress())
-                                              .build());
+    ProcessInitiator processInitiator = new ProcessInitiator(new HubDataStore.Builder(hubDataStore)
+                                                               .setHubAddress(discoveryServer.getHubAddress())
+                                                               .build());
     processInitiator.startAndWait();
+    return new ProcessSet(discoveryServer, processInitiator, healthInspector);
   }
 
-  public void restartService(HealthInspector healthInspector) {
-    Services.chainStop(processInitiator, discoveryServer);
-    startService(healthInspector);
+  /**
+   * Starts a new set of standby processes in the background.
+   */
+  private void startStandby() {
+    if (stopped) {
+      return;
+    }
+    standbyExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        if (stopped) {
+          return;
+        }
+        StandbyMonitor monitor = new StandbyMonitor();
+        HealthInspector inspector = new HealthInspector(monitor);
+        ProcessSet processes;
+        try {
+          processes = startProcesses(inspector, monitor);
+        } catch (Exception e) {
+          LOG.error("Failed to start standby Stream Engine processes", e);
+          return;
+        }
+        boolean installed = false;
+        synchronized (InputFlowletService.this) {
+          if (!stopped && standby == null) {
+            monitor.processes = processes;
+            standby = monitor;
+            installed = true;
+          }
+        }
+        if (!installed) {
+          processes.stop();
+          return;
+        }
+        inspector.startAndWait();
+        LOG.info("Started standby Stream Engine processes");
+      }
+    });
+  }
+
+  /**
+   * Stream Engine processes along with the DiscoveryServer and HealthInspector they report to.
+   */
+  private static final class ProcessSet {
+    private final DiscoveryServer discoveryServer;
+    private final ProcessInitiator processInitiator;
+    private final HealthInspector healthInspector;
+
+    private ProcessSet(DiscoveryServer discoveryServer, ProcessInitiator processInitiator,
+                       HealthInspector healthInspector) {
+      this.discoveryServer = discoveryServer;
+      this.processInitiator = processInitiator;
+      this.healthInspector = healthInspector;
+    }
+
+    private void stop() {
+      Services.chainStop(processInitiator, discoveryServer);
+    }
+  }
+
+  /**
+   * ProcessMonitor of the standby processes. Failures restart the standby processes until they are promoted, after
+   * which failures and readiness are forwarded to the flowlet's ProcessMonitor.
+   */
+  private final class StandbyMonitor implements ProcessMonitor {
+    private volatile ProcessSet processes;
+    private volatile boolean ready;
+    private volatile boolean active;
+
+    private boolean isReady() {
+      return ready;
+    }
+
+    private void promote() {
+      active = true;
+    }
+
+    @Override
+    public void notifyFailure(Set<String> errorProcessNames) {
+      if (active) {
+        processMonitor.notifyFailure(errorProcessNames);
+        return;
+      }
+      if (stopped) {
+        return;
+      }
+      final ProcessSet failed;
+      synchronized (InputFlowletService.this) {
+        if (standby != this) {
+          return;
+        }
+        failed = processes;
+        standby = null;
+      }
+      LOG.warn("Restarting standby Stream Engine processes. Missing pings from : {}", errorProcessNames);
+      standbyExecutor.execute(new Runnable() {
+        @Override
+        public void run() {
+          failed.healthInspector.stopAndWait();
+          failed.stop();
+        }
+      });
+      startStandby();
+    }
+
+    @Override
+    public void announceReady() {
+      ready = true;
+      if (active) {
+        processMonitor.announceReady();
+      }
+    }
+  }
+
+  /**
+   * Records the ingestion metrics of all the input streams.
+   */
+  public void recordIngestionMetrics() {
+    for (Map.Entry<String, InputServerSocket> entry : ioService.getInputServerSockets().entrySet()) {
+      InputServerSocket socket = entry.getValue();
+      metricsRecorder.recordIngestionMetrics(entry.getKey(), socket.getRecordsReceived(), socket.getBytesReceived(),
+                                             socket.getDroppedRecords(), socket.getSaturationCount());
+    }
   }
 
   public int getDataPort(String key) {
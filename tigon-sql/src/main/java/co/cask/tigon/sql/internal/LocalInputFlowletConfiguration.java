@@ -20,23 +20,40 @@ import co.cask.tigon.sql.flowlet.InputFlowletConfiguration;
 import co.cask.tigon.sql.flowlet.InputFlowletSpecification;
 
 import java.io.File;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
 
 /**
  * Sets up LocalInputFlowlet {@link co.cask.tigon.sql.flowlet.InputFlowletSpecification}
  * in a given Directory location.
  */
 public class LocalInputFlowletConfiguration implements InputFlowletConfiguration {
-  private File dir;
-  private InputFlowletSpecification spec;
+  private final StreamBinaryGenerator binaryGenerator;
 
   public LocalInputFlowletConfiguration(File dir, InputFlowletSpecification spec) {
-    this.dir = dir;
-    this.spec = spec;
+    this(dir, spec, null);
+  }
+
+  public LocalInputFlowletConfiguration(File dir, InputFlowletSpecification spec, @Nullable StreamBinaryCache cache) {
+    this.binaryGenerator = new StreamBinaryGenerator(dir, spec, cache);
   }
 
   @Override
   public File createStreamEngineProcesses() {
-    StreamBinaryGenerator binaryGenerator = new StreamBinaryGenerator(dir, spec);
     return binaryGenerator.createStreamProcesses();
   }
+
+  /**
+   * @return true if the Stream Engine binaries were restored from the {@link StreamBinaryCache}
+   */
+  public boolean isCacheHit() {
+    return binaryGenerator.isCacheHit();
+  }
+
+  /**
+   * @return Time taken to compile the Stream Engine binaries, 0 if they were not compiled
+   */
+  public long getCompileTime(TimeUnit unit) {
+    return binaryGenerator.getCompileTime(unit);
+  }
 }
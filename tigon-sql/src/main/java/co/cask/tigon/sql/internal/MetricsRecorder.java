@@ -17,18 +17,42 @@
 package co.cask.tigon.sql.internal;
 
 import co.cask.tigon.api.metrics.Metrics;
+import co.cask.tigon.sql.flowlet.GDATRecordQueue;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class is a wrapper on the {@link Metrics} object to be used by
  * {@link co.cask.tigon.sql.flowlet.AbstractInputFlowlet}. It parses the incoming metrics and adds that data to the
  * underlying {@link Metrics} object.
+ *
+ * Gauges are recorded as the change since the last recorded value, so that the aggregated counter holds the current
+ * value of the gauge.
  */
 public class MetricsRecorder {
+  /**
+   * Metrics of the SQL Compiler processes that hold a current value rather than a count since the last report.
+   * These are fractions, and are recorded in percent.
+   */
+  private static final Set<String> FRACTION_GAUGES = ImmutableSet.of("sampling_rate");
+
+  /**
+   * Upper bounds in milliseconds of the query output latency histogram buckets. The last bucket is unbounded.
+   */
+  private static final long[] LATENCY_BUCKETS = {1L, 10L, 100L, 1000L, 10000L};
+
   private final Metrics metrics;
+  private final Map<String, Long> gauges;
+  private final Map<String, Double> remainders;
+  private final Map<String, LatencyHistogram> latencies;
+  private final Map<String, IngestionCounters> ingestionCounters;
+  private long lastThrottledTime;
 
   /**
    * Constructor
@@ -37,6 +61,10 @@ public class MetricsRecorder {
    */
   public MetricsRecorder(Metrics metrics) {
     this.metrics = metrics;
+    this.gauges = Maps.newHashMap();
+    this.remainders = Maps.newHashMap();
+    this.latencies = Maps.newHashMap();
+    this.ingestionCounters = Maps.newHashMap();
   }
 
   /**
@@ -46,10 +74,199 @@ public class MetricsRecorder {
    * @param processName Name of the process which sent these metrics
    * @param metricsData The metrics sent by the process in a JSON format
    */
-  public void recordMetrics(String processName, JsonObject metricsData) {
+  public synchronized void recordMetrics(String processName, JsonObject metricsData) {
     for (Map.Entry<String, JsonElement> entry : metricsData.entrySet()) {
-      metrics.count(processName + "." + entry.getKey(),
-                    Math.round(entry.getValue().getAsFloat()));
+      String name = processName + "." + entry.getKey();
+      double value = entry.getValue().getAsDouble();
+      if (FRACTION_GAUGES.contains(entry.getKey())) {
+        recordGauge(name + ".percent", Math.round(value * 100));
+        continue;
+      }
+      // Carry the fractional part over to the next report, so that sub-integer rates are not lost
+      Double remainder = remainders.get(name);
+      double total = remainder == null ? value : value + remainder;
+      long delta = (long) Math.floor(total);
+      remainders.put(name, total - delta);
+      if (delta != 0) {
+        metrics.count(name, (int) delta);
+      }
+    }
+  }
+
+  /**
+   * This method logs the ingestion counters of an input stream. The counters are cumulative, hence only the change
+   * since the last invocation is recorded.
+   *
+   * @param streamName Name of the input stream
+   * @param records Number of records received
+   * @param bytes Number of bytes received
+   * @param droppedRecords Number of records dropped
+   * @param saturations Number of times the ingestion was suspended because the Stream Engine wasn't keeping up
+   */
+  public synchronized void recordIngestionMetrics(String streamName, long records, long bytes, long droppedRecords,
+                                                  long saturations) {
+    IngestionCounters counters = ingestionCounters.get(streamName);
+    if (counters == null) {
+      counters = new IngestionCounters(streamName);
+      ingestionCounters.put(streamName, counters);
+    }
+    counters.record(records, bytes, droppedRecords, saturations);
+  }
+
+  /**
+   * This method adds the latency of a query output record, from the time it was received from the Stream Engine to
+   * the time it was dispatched to the {@link co.cask.tigon.sql.flowlet.annotation.QueryOutput} methods. Latencies are
+   * aggregated until the next invocation of {@link #recordLatencyMetrics()}.
+   *
+   * @param queryName Name of the query
+   * @param latency Latency in nanoseconds
+   */
+  public void addLatency(String queryName, long latency) {
+    LatencyHistogram histogram = latencies.get(queryName);
+    if (histogram == null) {
+      histogram = new LatencyHistogram(queryName);
+      latencies.put(queryName, histogram);
+    }
+    histogram.add(TimeUnit.NANOSECONDS.toMillis(latency));
+  }
+
+  /**
+   * This method logs the query output latencies added since the last invocation: the number of records, the total
+   * latency and the number of records in each latency bucket, per query.
+   * Must be invoked by the same thread that invokes {@link #addLatency(String, long)}.
+   */
+  public void recordLatencyMetrics() {
+    for (LatencyHistogram histogram : latencies.values()) {
+      histogram.record();
+    }
+  }
+
+  /**
+   * This method logs whether the Stream Engine binaries were found in the {@link StreamBinaryCache} and the time
+   * taken to compile them otherwise.
+   *
+   * @param cacheHit true if the binaries were restored from the cache
+   * @param compileTime Compile time in milliseconds
+   */
+  public void recordBinaryMetrics(boolean cacheHit, long compileTime) {
+    metrics.count(cacheHit ? "binarycache.hit" : "binarycache.miss", 1);
+    if (!cacheHit) {
+      metrics.count("binary.compile.ms", (int) compileTime);
+    }
+  }
+
+  /**
+   * This method logs the fill level of the {@link GDATRecordQueue} and the time the Stream Engine output has been
+   * throttled since the last invocation. The fill level is a gauge, only its change is counted.
+   *
+   * @param recordQueue The {@link GDATRecordQueue} of the flowlet
+   */
+  public synchronized void recordQueueMetrics(GDATRecordQueue recordQueue) {
+    recordGauge("recordqueue.records", recordQueue.size());
+    recordGauge("recordqueue.fill.percent", recordQueue.getFillPercent());
+    long throttledTime = recordQueue.getThrottledTime(TimeUnit.MILLISECONDS);
+    if (throttledTime > lastThrottledTime) {
+      metrics.count("recordqueue.throttled.ms", (int) (throttledTime - lastThrottledTime));
+    }
+    lastThrottledTime = throttledTime;
+  }
+
+  private void recordGauge(String name, long value) {
+    Long lastValue = gauges.put(name, value);
+    long delta = lastValue == null ? value : value - lastValue;
+    if (delta != 0) {
+      metrics.count(name, (int) delta);
+    }
+  }
+
+  /**
+   * Cumulative ingestion counters of an input stream, with the metric names computed once.
+   */
+  private final class IngestionCounters {
+    private final String recordsName;
+    private final String bytesName;
+    private final String droppedName;
+    private final String saturatedName;
+    private long records;
+    private long bytes;
+    private long droppedRecords;
+    private long saturations;
+
+    private IngestionCounters(String streamName) {
+      String prefix = "stream." + streamName;
+      this.recordsName = prefix + ".records";
+      this.bytesName = prefix + ".bytes";
+      this.droppedName = prefix + ".dropped";
+      this.saturatedName = prefix + ".saturated";
+    }
+
+    private void record(long records, long bytes, long droppedRecords, long saturations) {
+      countDelta(recordsName, records - this.records);
+      countDelta(bytesName, bytes - this.bytes);
+      countDelta(droppedName, droppedRecords - this.droppedRecords);
+      countDelta(saturatedName, saturations - this.saturations);
+      this.records = records;
+      this.bytes = bytes;
+      this.droppedRecords = droppedRecords;
+      this.saturations = saturations;
+    }
+
+    private void countDelta(String name, long delta) {
+      if (delta > 0) {
+        metrics.count(name, (int) Math.min(delta, Integer.MAX_VALUE));
+      }
+    }
+  }
+
+  /**
+   * Latency histogram of a query, with the metric names computed once.
+   */
+  private final class LatencyHistogram {
+    private final String recordsName;
+    private final String latencyName;
+    private final String[] bucketNames;
+    private final int[] buckets;
+    private int records;
+    private long latency;
+
+    private LatencyHistogram(String queryName) {
+      String prefix = "query." + queryName;
+      this.recordsName = prefix + ".records";
+      this.latencyName = prefix + ".latency.ms";
+      this.bucketNames = new String[LATENCY_BUCKETS.length + 1];
+      long lowerBound = 0;
+      for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+        bucketNames[i] = prefix + ".latency." + lowerBound + "-" + LATENCY_BUCKETS[i] + "ms";
+        lowerBound = LATENCY_BUCKETS[i];
+      }
+      bucketNames[LATENCY_BUCKETS.length] = prefix + ".latency." + lowerBound + "ms+";
+      this.buckets = new int[bucketNames.length];
+    }
+
+    private void add(long latencyMs) {
+      int bucket = 0;
+      while (bucket < LATENCY_BUCKETS.length && latencyMs >= LATENCY_BUCKETS[bucket]) {
+        bucket++;
+      }
+      buckets[bucket]++;
+      records++;
+      latency += latencyMs;
+    }
+
+    private void record() {
+      if (records == 0) {
+        return;
+      }
+      metrics.count(recordsName, records);
+      metrics.count(latencyName, (int) Math.min(latency, Integer.MAX_VALUE));
+      for (int i = 0; i < buckets.length; i++) {
+        if (buckets[i] != 0) {
+          metrics.count(bucketNames[i], buckets[i]);
+          buckets[i] = 0;
+        }
+      }
+      records = 0;
+      latency = 0;
     }
   }
 }
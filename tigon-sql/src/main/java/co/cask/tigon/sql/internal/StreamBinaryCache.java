@@ -0,0 +1,132 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.sql.internal;
+
+import co.cask.tigon.sql.util.Platform;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Resources;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Local disk cache of compiled Stream Engine binaries.
+ * Entries are keyed by a fingerprint of everything the compilation depends on - the Stream Engine library and the
+ * contents of the generated config files (queries, schemas and interfaces) - so that an entry can be reused by any
+ * flowlet with the same specification. Entries are published atomically, hence concurrent flowlets never see a
+ * partially written entry.
+ */
+public final class StreamBinaryCache {
+  private static final Logger LOG = LoggerFactory.getLogger(StreamBinaryCache.class);
+  private static String libraryFingerprint;
+  private final File cacheDir;
+
+  public StreamBinaryCache(File cacheDir) {
+    this.cacheDir = cacheDir;
+  }
+
+  /**
+   * Computes the cache key.
+   * @param configFiles Name and content of the generated config files
+   * @return Fingerprint of the library and the config files
+   */
+  public String getKey(Map<String, String> configFiles) throws IOException {
+    Hasher hasher = Hashing.sha1().newHasher();
+    hasher.putBytes(getLibraryFingerprint().getBytes(Charsets.UTF_8));
+    for (Map.Entry<String, String> configFile : configFiles.entrySet()) {
+      byte[] name = configFile.getKey().getBytes(Charsets.UTF_8);
+      byte[] content = configFile.getValue().getBytes(Charsets.UTF_8);
+      hasher.putInt(name.length).putBytes(name).putInt(content.length).putBytes(content);
+    }
+    return hasher.hash().toString();
+  }
+
+  /**
+   * Copies the cached binaries to the given directory.
+   * @return true if the entry exists and is copied
+   */
+  public boolean restore(String key, File dir) {
+    File entry = new File(cacheDir, key);
+    if (!entry.isDirectory()) {
+      return false;
+    }
+    try {
+      copy(entry, dir);
+      LOG.info("Restored Stream Engine binaries {} from {}", key, cacheDir);
+      return true;
+    } catch (IOException e) {
+      LOG.warn("Failed to restore Stream Engine binaries {} from {}", key, cacheDir, e);
+      return false;
+    }
+  }
+
+  /**
+   * Adds the binaries in the given directory to the cache. Failures are logged only, since the cache is an
+   * optimization.
+   */
+  public void store(String key, File dir) {
+    File entry = new File(cacheDir, key);
+    if (entry.isDirectory()) {
+      return;
+    }
+    File tmpEntry = new File(cacheDir, key + "." + UUID.randomUUID() + ".tmp");
+    try {
+      copy(dir, tmpEntry);
+      //Another flowlet might have published the same entry in the meantime
+      if (!tmpEntry.renameTo(entry)) {
+        FileUtils.deleteDirectory(tmpEntry);
+      }
+      LOG.info("Cached Stream Engine binaries {} in {}", key, cacheDir);
+    } catch (IOException e) {
+      LOG.warn("Failed to cache Stream Engine binaries {} in {}", key, cacheDir, e);
+      FileUtils.deleteQuietly(tmpEntry);
+    }
+  }
+
+  private static void copy(File src, File dst) throws IOException {
+    final String libraryArchive = Platform.libraryResource();
+    FileUtils.copyDirectory(src, dst, new FileFilter() {
+      @Override
+      public boolean accept(File file) {
+        return !file.getName().equals(libraryArchive);
+      }
+    });
+    //File permissions are not preserved by the copy
+    for (File file : FileUtils.listFiles(dst, null, true)) {
+      file.setExecutable(true, false);
+    }
+  }
+
+  private static synchronized String getLibraryFingerprint() throws IOException {
+    if (libraryFingerprint == null) {
+      String libFile = Platform.libraryResource();
+      libraryFingerprint = libFile + ":" + ByteStreams.hash(
+        Resources.newInputStreamSupplier(Resources.getResource(StreamBinaryCache.class, "/" + libFile)),
+        Hashing.sha1());
+    }
+    return libraryFingerprint;
+  }
+}
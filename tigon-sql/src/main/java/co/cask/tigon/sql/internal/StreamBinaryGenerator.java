@@ -21,7 +21,9 @@ import co.cask.tigon.sql.flowlet.InputFlowletSpecification;
 import co.cask.tigon.sql.util.Platform;
 import com.google.common.base.Charsets;
 import com.google.common.base.Joiner;
+import com.google.common.base.Stopwatch;
 import com.google.common.base.Throwables;
+import com.google.common.collect.Maps;
 import com.google.common.io.ByteStreams;
 import com.google.common.io.CharStreams;
 import com.google.common.io.Files;
@@ -38,7 +40,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.zip.GZIPInputStream;
+import javax.annotation.Nullable;
 
 /**
  * Generate Stream Engine Binaries.
@@ -47,35 +51,60 @@ public class StreamBinaryGenerator {
   private static final Logger LOG = LoggerFactory.getLogger(StreamBinaryGenerator.class);
   private final File dir;
   private final InputFlowletSpecification spec;
+  private final StreamBinaryCache cache;
+  private boolean cacheHit;
+  private long compileTime;
 
   public StreamBinaryGenerator(File dir, InputFlowletSpecification spec) {
+    this(dir, spec, null);
+  }
+
+  /**
+   * @param dir Directory to create the Stream Engine processes in
+   * @param spec {@link InputFlowletSpecification} to create the processes for
+   * @param cache {@link StreamBinaryCache} to reuse previously compiled binaries from, or {@code null} to always
+   *              compile the binaries
+   */
+  public StreamBinaryGenerator(File dir, InputFlowletSpecification spec, @Nullable StreamBinaryCache cache) {
     this.dir = dir;
     this.spec = spec;
+    this.cache = cache;
   }
 
   public File createStreamProcesses() {
     try {
-      File configDir = createStreamLibrary(dir);
-      CompileStreamBinaries compileBinaries = new CompileStreamBinaries(configDir);
       StreamConfigGenerator generator = new StreamConfigGenerator(spec);
-      File outputSpec = createFile(configDir, "output_spec.cfg");
-      File packetSchema = createFile(configDir, "packet_schema.txt");
-      File ifresXml = createFile(configDir, "ifres.xml");
+      Map<String, String> configFiles = Maps.newLinkedHashMap();
+      configFiles.put("output_spec.cfg", generator.generateOutputSpec());
+      configFiles.put("packet_schema.txt", generator.generatePacketSchema());
+      configFiles.put("ifres.xml", generator.generateIfresXML());
       Map.Entry<String, String> ifqContent = generator.generateHostIfq();
-      String ifqFile = String.format("%s.ifq", ifqContent.getKey());
-      File hostIfq = createFile(configDir, ifqFile);
-
-      writeToLocation(outputSpec, generator.generateOutputSpec());
-      writeToLocation(packetSchema, generator.generatePacketSchema());
-      writeToLocation(ifresXml, generator.generateIfresXML());
-      writeToLocation(hostIfq, generator.generateHostIfq().getValue());
-
+      configFiles.put(String.format("%s.ifq", ifqContent.getKey()), ifqContent.getValue());
       Map<String, String> gsqlFiles = generator.generateQueryFiles();
       Collection<String> fileContent = gsqlFiles.values();
-      File file = createFile(configDir, Constants.GSQL_FILE);
-      writeToLocation(file, Joiner.on(";\n").join(fileContent));
+      configFiles.put(Constants.GSQL_FILE, Joiner.on(";\n").join(fileContent));
+
+      String cacheKey = null;
+      if (cache != null) {
+        cacheKey = cache.getKey(configFiles);
+        if (cache.restore(cacheKey, dir)) {
+          cacheHit = true;
+          return getQueryDir(dir);
+        }
+      }
+
+      Stopwatch stopwatch = new Stopwatch().start();
+      File configDir = createStreamLibrary(dir);
+      CompileStreamBinaries compileBinaries = new CompileStreamBinaries(configDir);
+      for (Map.Entry<String, String> configFile : configFiles.entrySet()) {
+        writeToLocation(createFile(configDir, configFile.getKey()), configFile.getValue());
+      }
 
       compileBinaries.generateBinaries();
+      compileTime = stopwatch.elapsedTime(TimeUnit.MILLISECONDS);
+      if (cache != null) {
+        cache.store(cacheKey, dir);
+      }
       return configDir;
     } catch (Throwable t) {
       LOG.error(t.getMessage(), t);
@@ -84,6 +113,24 @@ public class StreamBinaryGenerator {
     }
   }
 
+  /**
+   * @return true if the binaries were restored from the {@link StreamBinaryCache}
+   */
+  public boolean isCacheHit() {
+    return cacheHit;
+  }
+
+  /**
+   * @return Time taken to compile the binaries, 0 if the binaries were not compiled
+   */
+  public long getCompileTime(TimeUnit unit) {
+    return unit.convert(compileTime, TimeUnit.MILLISECONDS);
+  }
+
+  private File getQueryDir(File dir) {
+    return new File(new File(dir, "work"), "query");
+  }
+
   private File createStreamLibrary(File dir) throws IOException, ArchiveException {
     if (!dir.exists()) {
       dir.mkdirs();
@@ -97,9 +144,7 @@ public class StreamBinaryGenerator {
     unzipFile(libZip);
 
     //Create directory structure to place the Stream Engine Config Files
-    File workDir = new File(dir, "work");
-    workDir.mkdirs();
-    File queryDir = new File(workDir, "query");
+    File queryDir = getQueryDir(dir);
     queryDir.mkdirs();
     FileUtils.copyFileToDirectory(new File(dir, "cfg/external_fcns.def"), queryDir);
     FileUtils.copyFileToDirectory(new File(dir, "cfg/internal_fcn.def"), queryDir);
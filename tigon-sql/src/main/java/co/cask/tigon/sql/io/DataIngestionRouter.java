@@ -19,11 +19,19 @@ package co.cask.tigon.sql.io;
 import co.cask.http.AbstractHttpHandler;
 import co.cask.http.HttpResponder;
 import co.cask.http.NettyHttpService;
+import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.primitives.Ints;
 import com.google.common.util.concurrent.AbstractIdleService;
 import org.apache.twill.common.Cancellable;
 import org.apache.twill.common.ServiceListenerAdapter;
 import org.apache.twill.common.Threads;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.ChannelFuture;
+import org.jboss.netty.channel.ChannelFutureListener;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
 import org.jboss.netty.handler.codec.http.HttpRequest;
 import org.jboss.netty.handler.codec.http.HttpResponseStatus;
 import org.slf4j.Logger;
@@ -31,16 +39,23 @@ import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
 import java.util.Map;
+import javax.annotation.Nullable;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 
 /**
  * Netty Http Service Endpoint for the Users to ingest data.
+ * POST /v1/tigon/{stream} ingests a single payload, POST /v1/tigon/{stream}/batch ingests a batch of records.
  */
 public class DataIngestionRouter extends AbstractIdleService {
   private static final Logger LOG = LoggerFactory.getLogger(DataIngestionRouter.class);
+  private static final String LENGTH_PREFIXED_CONTENT_TYPE = "application/octet-stream";
+  private static final String ACCEPTED = "accepted";
+  private static final String DROPPED = "dropped";
+  private static final byte[] NEWLINE = {'\n'};
   private final HttpRouterClientService clientService;
+  private final Map<String, Supplier<Long>> droppedRecords;
   private int httpPort;
   private NettyHttpService httpService;
 
@@ -50,14 +65,24 @@ public class DataIngestionRouter extends AbstractIdleService {
 
   public DataIngestionRouter(Map<String, InetSocketAddress> ingestionServerMap,
                              int httpPort) {
+    this(ingestionServerMap, ImmutableMap.<String, Supplier<Long>>of(), httpPort);
+  }
+
+  /**
+   * @param droppedRecords Number of records dropped by the ingestion server of a stream because they could not be
+   *                       decoded, by stream name
+   */
+  public DataIngestionRouter(Map<String, InetSocketAddress> ingestionServerMap,
+                             Map<String, Supplier<Long>> droppedRecords, int httpPort) {
     this.clientService = new HttpRouterClientService(ingestionServerMap);
+    this.droppedRecords = ImmutableMap.copyOf(droppedRecords);
     this.httpPort = httpPort;
   }
 
   @Override
   protected void startUp() throws Exception {
     httpService = NettyHttpService.builder()
-      .addHttpHandlers(ImmutableList.of(new ForwardingHandler(clientService)))
+      .addHttpHandlers(ImmutableList.of(new ForwardingHandler(clientService, droppedRecords)))
       .setHost("0.0.0.0")
       .setPort(httpPort)
       .build();
@@ -106,9 +131,15 @@ public class DataIngestionRouter extends AbstractIdleService {
   @Path("/v1/tigon")
   public static class ForwardingHandler extends AbstractHttpHandler {
     private final HttpRouterClientService clientService;
+    private final Map<String, Supplier<Long>> droppedRecords;
 
     public ForwardingHandler(HttpRouterClientService clientService) {
+      this(clientService, ImmutableMap.<String, Supplier<Long>>of());
+    }
+
+    public ForwardingHandler(HttpRouterClientService clientService, Map<String, Supplier<Long>> droppedRecords) {
       this.clientService = clientService;
+      this.droppedRecords = droppedRecords;
     }
 
     @Path("{streamname}")
@@ -122,5 +153,111 @@ public class DataIngestionRouter extends AbstractIdleService {
       }
       responder.sendStatus(HttpResponseStatus.INTERNAL_SERVER_ERROR);
     }
+
+    /**
+     * Batch HTTP Endpoint handler method. The request body holds several records, either one per line (JSON
+     * inputs) or, if the content type is application/octet-stream, length prefixed with a 4 byte Big Endian length
+     * (GDAT and binary inputs). Chunked requests are aggregated by the HTTP service.
+     * Only the framing of the records is checked here, they are decoded once by the ingestion server of the stream.
+     * The batch is written as a whole to one of the connections to the TCP endpoint of the stream. Once it is written,
+     * the response holds the number of records accepted for ingestion and, if known, the total number of records of
+     * the stream that the ingestion server dropped so far because they could not be decoded. If all connections are
+     * saturated, the batch is rejected with 503 and should be retried later.
+     */
+    @Path("{streamname}/batch")
+    @POST
+    public void ingestBatch(HttpRequest request, final HttpResponder responder,
+                            @PathParam("streamname") String streamName) {
+      if (!clientService.hasStream(streamName)) {
+        responder.sendError(HttpResponseStatus.NOT_FOUND, "Stream " + streamName + " not found");
+        return;
+      }
+      ChannelBuffer content = request.getContent();
+      String contentType = request.getHeader(HttpHeaders.Names.CONTENT_TYPE);
+      boolean lengthPrefixed = contentType != null && contentType.startsWith(LENGTH_PREFIXED_CONTENT_TYPE);
+      final int acceptedCount = lengthPrefixed ? countLengthPrefixedRecords(content) : countLines(content);
+      if (acceptedCount < 0) {
+        responder.sendError(HttpResponseStatus.BAD_REQUEST, "Incomplete length prefixed record");
+        return;
+      }
+      final Supplier<Long> dropped = droppedRecords.get(streamName);
+      if (acceptedCount == 0) {
+        responder.sendJson(HttpResponseStatus.OK, getBatchResult(0, dropped));
+        return;
+      }
+      if (!lengthPrefixed && content.getByte(content.writerIndex() - 1) != '\n') {
+        // The last line gets a line delimiter, so that it is not joined with the first line of the next batch
+        content = ChannelBuffers.wrappedBuffer(content, ChannelBuffers.wrappedBuffer(NEWLINE));
+      }
+
+      ChannelFuture future = clientService.sendBatch(streamName, content);
+      if (future == null) {
+        if (clientService.isConnected(streamName)) {
+          responder.sendError(HttpResponseStatus.SERVICE_UNAVAILABLE, "Stream " + streamName + " is saturated");
+        } else {
+          responder.sendStatus(HttpResponseStatus.INTERNAL_SERVER_ERROR);
+        }
+        return;
+      }
+      future.addListener(new ChannelFutureListener() {
+        @Override
+        public void operationComplete(ChannelFuture future) throws Exception {
+          if (future.isSuccess()) {
+            responder.sendJson(HttpResponseStatus.OK, getBatchResult(acceptedCount, dropped));
+          } else {
+            LOG.error("Failed to write batch of {} records", acceptedCount, future.getCause());
+            responder.sendStatus(HttpResponseStatus.INTERNAL_SERVER_ERROR);
+          }
+        }
+      });
+    }
+
+    private static Map<String, Long> getBatchResult(long accepted, @Nullable Supplier<Long> dropped) {
+      if (dropped == null) {
+        return ImmutableMap.of(ACCEPTED, accepted);
+      }
+      return ImmutableMap.of(ACCEPTED, accepted, DROPPED, dropped.get());
+    }
+
+    /**
+     * @return Number of non blank lines
+     */
+    private static int countLines(ChannelBuffer content) {
+      int lines = 0;
+      boolean blank = true;
+      for (int i = content.readerIndex(); i < content.writerIndex(); i++) {
+        byte b = content.getByte(i);
+        if (b == '\n') {
+          if (!blank) {
+            lines++;
+          }
+          blank = true;
+        } else if (b != '\r' && b != ' ' && b != '\t') {
+          blank = false;
+        }
+      }
+      return blank ? lines : lines + 1;
+    }
+
+    /**
+     * @return Number of length prefixed records or -1 if the last record is incomplete
+     */
+    private static int countLengthPrefixedRecords(ChannelBuffer content) {
+      int records = 0;
+      int pos = content.readerIndex();
+      int end = content.writerIndex();
+      while (pos < end) {
+        if (end - pos < Ints.BYTES) {
+          return -1;
+        }
+        int length = content.getInt(pos);
+        if (length < 0 || end - pos - Ints.BYTES < length) {
+          return -1;
+        }
+        records++;
+        pos += Ints.BYTES + length;
+      }
+      return records;
+    }
   }
 }
@@ -31,6 +31,7 @@ import java.nio.ByteOrder;
 public class GDATDecoder implements Decoder {
   private final ByteBuffer dataRecord;
   private int recordLength;
+  private final long receivedTime;
 
   /**
    * Constructor for GDATDecoder
@@ -40,6 +41,7 @@ public class GDATDecoder implements Decoder {
     //Get the length of record which is encoded in Big Endian Byte Order.
     recordLength = dataRecord.order(ByteOrder.BIG_ENDIAN).getInt();
     this.dataRecord = dataRecord.slice().order(ByteOrder.LITTLE_ENDIAN);
+    this.receivedTime = System.nanoTime();
   }
 
   /**
@@ -56,6 +58,45 @@ public class GDATDecoder implements Decoder {
     return recordLength;
   }
 
+  /**
+   * Get the time at which the data record was received, as returned by {@link System#nanoTime()}.
+   */
+  public long getReceivedTime() {
+    return receivedTime;
+  }
+
+  /**
+   * Get the data record, excluding the length field. Fields are read with absolute positions, hence the position
+   * of the returned buffer is not significant.
+   */
+  ByteBuffer getDataRecord() {
+    return dataRecord;
+  }
+
+  /**
+   * Decodes a UTF-8 string directly from the payload region of a data record, without changing the
+   * position or limit of the buffer.
+   * @param dataRecord the data record
+   * @param index index of the string in the data record
+   * @param length length of the string in bytes
+   * @param payloadStart the index at which the payload region starts. Strings can't point to the fields region.
+   * @throws IOException if the string doesn't lie within the payload region
+   */
+  static String decodeString(ByteBuffer dataRecord, int index, int length, int payloadStart) throws IOException {
+    if (length < 0 || index < payloadStart || index + length > dataRecord.limit()) {
+      throw new IOException(String.format("Invalid string at index %d of length %d. Record length %d",
+                                          index, length, dataRecord.limit()));
+    }
+    if (dataRecord.hasArray()) {
+      return new String(dataRecord.array(), dataRecord.arrayOffset() + index, length, Charsets.UTF_8);
+    }
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = dataRecord.get(index + i);
+    }
+    return new String(bytes, Charsets.UTF_8);
+  }
+
   @Override
   public Object readNull() throws IOException {
     return null;
@@ -95,15 +136,8 @@ public class GDATDecoder implements Decoder {
     //Skipping through reserved integer field
     dataRecord.position(dataRecord.position() + Ints.BYTES);
 
-    //4 Bytes occupied by length of record which is not included in index. So add 4.
-    int oldLimit = dataRecord.limit();
-    dataRecord.mark();
-    dataRecord.position(index);
-    dataRecord.limit(index + length);
-    String str = Charsets.UTF_8.decode(dataRecord).toString();
-    dataRecord.reset();
-    dataRecord.limit(oldLimit);
-    return str;
+    //String payload is located after all fields, hence after the current position.
+    return decodeString(dataRecord, index, length, dataRecord.position());
   }
 
   @Override
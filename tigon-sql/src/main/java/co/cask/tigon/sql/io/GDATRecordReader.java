@@ -0,0 +1,343 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.sql.io;
+
+import co.cask.tigon.internal.io.Schema;
+import co.cask.tigon.lang.Instantiator;
+import co.cask.tigon.lang.InstantiatorFactory;
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Doubles;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import com.google.common.reflect.TypeToken;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * GDATRecordReader
+ * Decodes GDAT data records into objects of a given class. The decoding plan is computed once for a pair of GDAT
+ * record schema and target class: every field is read at its fixed offset in the record and assigned directly to
+ * the target field, without resolving the schemas for every record. Strings are decoded straight from the payload
+ * region of the record.
+ */
+final class GDATRecordReader {
+  private final Instantiator<?> instantiator;
+  private final FieldReader[] fieldReaders;
+
+  /**
+   * Creates a {@link GDATRecordReader} for the given schema and class.
+   * @param sourceSchema Record {@link Schema} of the GDAT data records
+   * @param targetClass Class of the objects to create
+   * @return A new {@link GDATRecordReader} or {@code null} if the decoding can't be planned for the given types,
+   * in which case records should be decoded through {@link co.cask.tigon.internal.io.ReflectionDatumReader}
+   */
+  @Nullable
+  static GDATRecordReader create(Schema sourceSchema, Class<?> targetClass) {
+    if (targetClass.isInterface() || Modifier.isAbstract(targetClass.getModifiers())) {
+      return null;
+    }
+    // String payload starts after all the fixed size fields
+    int payloadStart = 0;
+    for (Schema.Field sourceField : sourceSchema.getFields()) {
+      int size = getSize(sourceField.getSchema().getType());
+      if (size < 0) {
+        return null;
+      }
+      payloadStart += size;
+    }
+
+    List<FieldReader> fieldReaders = Lists.newArrayList();
+    int offset = 0;
+    for (Schema.Field sourceField : sourceSchema.getFields()) {
+      Schema.Type sourceType = sourceField.getSchema().getType();
+      Field field = findField(targetClass, sourceField.getName());
+      if (field != null) {
+        fieldReaders.add(createFieldReader(sourceType, field, offset, payloadStart));
+      }
+      offset += getSize(sourceType);
+    }
+    Instantiator<?> instantiator = new InstantiatorFactory(true).get(TypeToken.of(targetClass));
+    return new GDATRecordReader(instantiator, fieldReaders.toArray(new FieldReader[fieldReaders.size()]));
+  }
+
+  private GDATRecordReader(Instantiator<?> instantiator, FieldReader[] fieldReaders) {
+    this.instantiator = instantiator;
+    this.fieldReaders = fieldReaders;
+  }
+
+  /**
+   * Decodes a data record.
+   * @param dataRecord Data record, excluding the length field, in little endian byte order
+   * @return A new object of the target class
+   * @throws IOException if the record can't be decoded
+   */
+  Object read(ByteBuffer dataRecord) throws IOException {
+    try {
+      Object record = instantiator.create();
+      for (FieldReader fieldReader : fieldReaders) {
+        fieldReader.read(dataRecord, record);
+      }
+      return record;
+    } catch (IOException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new IOException(e);
+    }
+  }
+
+  private static int getSize(Schema.Type type) {
+    switch (type) {
+      case BOOLEAN:
+      case INT:
+        return Ints.BYTES;
+      case LONG:
+        return Longs.BYTES;
+      case DOUBLE:
+        return Doubles.BYTES;
+      case STRING:
+        return 3 * Ints.BYTES;
+      default:
+        return -1;
+    }
+  }
+
+  /**
+   * Finds a non-static, non-transient field with the given name in the class hierarchy, the same set of fields
+   * that {@link co.cask.tigon.internal.io.ReflectionSchemaGenerator} uses.
+   */
+  @Nullable
+  private static Field findField(Class<?> targetClass, String name) {
+    for (Class<?> cls = targetClass; cls != null && !Object.class.equals(cls); cls = cls.getSuperclass()) {
+      try {
+        Field field = cls.getDeclaredField(name);
+        int modifiers = field.getModifiers();
+        if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers) || field.isSynthetic()) {
+          return null;
+        }
+        if (!field.isAccessible()) {
+          field.setAccessible(true);
+        }
+        return field;
+      } catch (NoSuchFieldException e) {
+        // It's ok, keep searching.
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Creates a {@link FieldReader} that performs the same type conversions as
+   * {@link co.cask.tigon.internal.io.ReflectionDatumReader}.
+   */
+  private static FieldReader createFieldReader(Schema.Type sourceType, Field field, int offset, int payloadStart) {
+    Class<?> type = field.getType();
+    switch (sourceType) {
+      case BOOLEAN:
+        if (type.equals(boolean.class) || type.equals(Boolean.class) || type.equals(String.class)) {
+          return new BooleanFieldReader(field, offset);
+        }
+        break;
+      case INT:
+        if (type.equals(int.class) || type.equals(long.class) || type.equals(float.class) || type.equals(double.class)
+          || type.equals(byte.class) || type.equals(char.class) || type.equals(short.class)
+          || type.equals(Integer.class) || type.equals(Long.class) || type.equals(Float.class)
+          || type.equals(Double.class) || type.equals(Byte.class) || type.equals(Character.class)
+          || type.equals(Short.class) || type.equals(String.class)) {
+          return new IntFieldReader(field, offset);
+        }
+        break;
+      case LONG:
+        if (type.equals(long.class) || type.equals(float.class) || type.equals(double.class)
+          || type.equals(Long.class) || type.equals(Float.class) || type.equals(Double.class)
+          || type.equals(String.class)) {
+          return new LongFieldReader(field, offset);
+        }
+        break;
+      case DOUBLE:
+        if (type.equals(double.class) || type.equals(Double.class) || type.equals(String.class)) {
+          return new DoubleFieldReader(field, offset);
+        }
+        break;
+      case STRING:
+        if (type.equals(String.class) || type.equals(URI.class) || type.equals(URL.class)) {
+          return new StringFieldReader(field, offset, payloadStart);
+        }
+        break;
+    }
+    // Incompatible types only fail when a record is decoded, the same as ReflectionDatumReader
+    return new IncompatibleFieldReader(field, offset, sourceType);
+  }
+
+  /**
+   * Reads a field of a data record and assigns it to the target object.
+   */
+  private abstract static class FieldReader {
+    protected final Field field;
+    protected final Class<?> type;
+    protected final int offset;
+
+    protected FieldReader(Field field, int offset) {
+      this.field = field;
+      this.type = field.getType();
+      this.offset = offset;
+    }
+
+    abstract void read(ByteBuffer record, Object target) throws Exception;
+  }
+
+  private static final class BooleanFieldReader extends FieldReader {
+    BooleanFieldReader(Field field, int offset) {
+      super(field, offset);
+    }
+
+    @Override
+    void read(ByteBuffer record, Object target) throws Exception {
+      boolean value = record.getInt(offset) != 0;
+      if (type.equals(boolean.class)) {
+        field.setBoolean(target, value);
+      } else if (type.equals(String.class)) {
+        field.set(target, String.valueOf(value));
+      } else {
+        field.set(target, value);
+      }
+    }
+  }
+
+  private static final class IntFieldReader extends FieldReader {
+    IntFieldReader(Field field, int offset) {
+      super(field, offset);
+    }
+
+    @Override
+    void read(ByteBuffer record, Object target) throws Exception {
+      int value = record.getInt(offset);
+      if (type.isPrimitive()) {
+        if (type.equals(byte.class)) {
+          field.setByte(target, (byte) value);
+        } else if (type.equals(char.class)) {
+          field.setChar(target, (char) value);
+        } else if (type.equals(short.class)) {
+          field.setShort(target, (short) value);
+        } else {
+          // Widening to long, float and double is done by Field.setInt()
+          field.setInt(target, value);
+        }
+      } else if (type.equals(Integer.class)) {
+        field.set(target, value);
+      } else if (type.equals(Long.class)) {
+        field.set(target, (long) value);
+      } else if (type.equals(Float.class)) {
+        field.set(target, (float) value);
+      } else if (type.equals(Double.class)) {
+        field.set(target, (double) value);
+      } else if (type.equals(Byte.class)) {
+        field.set(target, (byte) value);
+      } else if (type.equals(Character.class)) {
+        field.set(target, (char) value);
+      } else if (type.equals(Short.class)) {
+        field.set(target, (short) value);
+      } else {
+        field.set(target, String.valueOf(value));
+      }
+    }
+  }
+
+  private static final class LongFieldReader extends FieldReader {
+    LongFieldReader(Field field, int offset) {
+      super(field, offset);
+    }
+
+    @Override
+    void read(ByteBuffer record, Object target) throws Exception {
+      long value = record.getLong(offset);
+      if (type.isPrimitive()) {
+        // Widening to float and double is done by Field.setLong()
+        field.setLong(target, value);
+      } else if (type.equals(Long.class)) {
+        field.set(target, value);
+      } else if (type.equals(Float.class)) {
+        field.set(target, (float) value);
+      } else if (type.equals(Double.class)) {
+        field.set(target, (double) value);
+      } else {
+        field.set(target, String.valueOf(value));
+      }
+    }
+  }
+
+  private static final class DoubleFieldReader extends FieldReader {
+    DoubleFieldReader(Field field, int offset) {
+      super(field, offset);
+    }
+
+    @Override
+    void read(ByteBuffer record, Object target) throws Exception {
+      double value = record.getDouble(offset);
+      if (type.equals(double.class)) {
+        field.setDouble(target, value);
+      } else if (type.equals(Double.class)) {
+        field.set(target, value);
+      } else {
+        field.set(target, String.valueOf(value));
+      }
+    }
+  }
+
+  private static final class StringFieldReader extends FieldReader {
+    private final int payloadStart;
+
+    StringFieldReader(Field field, int offset, int payloadStart) {
+      super(field, offset);
+      this.payloadStart = payloadStart;
+    }
+
+    @Override
+    void read(ByteBuffer record, Object target) throws Exception {
+      //String field is represented by length, index and a reserved integer
+      String value = GDATDecoder.decodeString(record, record.getInt(offset + Ints.BYTES),
+                                              record.getInt(offset), payloadStart);
+      if (type.equals(URI.class)) {
+        field.set(target, URI.create(value));
+      } else if (type.equals(URL.class)) {
+        field.set(target, new URL(value));
+      } else {
+        field.set(target, value);
+      }
+    }
+  }
+
+  private static final class IncompatibleFieldReader extends FieldReader {
+    private final Schema.Type sourceType;
+
+    IncompatibleFieldReader(Field field, int offset, Schema.Type sourceType) {
+      super(field, offset);
+      this.sourceType = sourceType;
+    }
+
+    @Override
+    void read(ByteBuffer record, Object target) throws Exception {
+      throw new IOException("Fail to resolve type " + sourceType + " to type " + type);
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.sql.io;
+
+import co.cask.tigon.sql.flowlet.GDATRecordType;
+import co.cask.tigon.sql.flowlet.StreamSchema;
+import co.cask.tigon.sql.util.GDATFormatUtil;
+import com.google.common.base.Preconditions;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+import java.nio.ByteOrder;
+
+/**
+ * Writes GDAT format DATA records directly to a {@link ChannelBuffer}.
+ * Unlike the {@link GDATEncoder}, field values are written to reusable buffers and string values can be copied
+ * straight from the buffer they were received in, hence no intermediate objects are created per record.
+ *
+ * Fields have to be written in the order of the {@link StreamSchema}. {@link #writeTo(ChannelBuffer)} then appends
+ * the length prefixed record to a buffer and resets the writer for the next record.
+ */
+public final class GDATRecordWriter {
+  private final int fieldSize;
+  private final ChannelBuffer fields;
+  private final ChannelBuffer payload;
+
+  /**
+   * GDATRecordWriter Constructor
+   * @param schema {@link StreamSchema} of the records to be written
+   */
+  public GDATRecordWriter(StreamSchema schema) {
+    this.fieldSize = GDATFormatUtil.getGDATFieldSize(schema);
+    this.fields = ChannelBuffers.buffer(ByteOrder.LITTLE_ENDIAN, fieldSize);
+    this.payload = ChannelBuffers.dynamicBuffer(ByteOrder.LITTLE_ENDIAN, 256);
+  }
+
+  public GDATRecordWriter writeBool(boolean b) {
+    fields.writeInt(b ? 1 : 0);
+    return this;
+  }
+
+  public GDATRecordWriter writeInt(int i) {
+    fields.writeInt(i);
+    return this;
+  }
+
+  public GDATRecordWriter writeLong(long l) {
+    fields.writeLong(l);
+    return this;
+  }
+
+  public GDATRecordWriter writeDouble(double d) {
+    fields.writeLong(Double.doubleToRawLongBits(d));
+    return this;
+  }
+
+  /**
+   * Writes a string field.
+   * @param source buffer that contains the UTF-8 encoded string
+   * @param index index of the string in the source buffer
+   * @param length length of the string in bytes
+   */
+  public GDATRecordWriter writeString(ChannelBuffer source, int index, int length) {
+    writeStringField(length);
+    payload.writeBytes(source, index, length);
+    return this;
+  }
+
+  /**
+   * Writes a string field.
+   * @param bytes UTF-8 encoded string
+   * @param offset offset of the string in the byte array
+   * @param length length of the string in bytes
+   */
+  public GDATRecordWriter writeString(byte[] bytes, int offset, int length) {
+    writeStringField(length);
+    payload.writeBytes(bytes, offset, length);
+    return this;
+  }
+
+  /**
+   * Appends the record to a buffer and resets this writer.
+   * @param out big endian buffer the length prefixed record is written to
+   */
+  public void writeTo(ChannelBuffer out) {
+    Preconditions.checkState(!fields.writable(), "Not all fields of the record are written.");
+    Preconditions.checkArgument(out.order() == ByteOrder.BIG_ENDIAN, "Length must be written in Big Endian order.");
+    //Length of the record does not include the 4 bytes of the length field.
+    out.writeInt(fieldSize + 1 + payload.readableBytes());
+    out.writeBytes(fields);
+    out.writeByte(GDATRecordType.DATA.getRecordMarker());
+    out.writeBytes(payload);
+    reset();
+  }
+
+  /**
+   * Discards the fields written since the last record.
+   */
+  public void reset() {
+    fields.clear();
+    payload.clear();
+  }
+
+  private void writeStringField(int length) {
+    //String field is represented by length, index and a reserved integer. String index is relative to the start of
+    //the record, excluding the length field, and the payload starts after the fields and the record marker.
+    fields.writeInt(length);
+    fields.writeInt(fieldSize + 1 + payload.writerIndex());
+    fields.writeInt(0);
+  }
+}
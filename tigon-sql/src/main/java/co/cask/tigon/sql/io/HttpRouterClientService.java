@@ -16,6 +16,8 @@
 
 package co.cask.tigon.sql.io;
 
+import co.cask.tigon.sql.conf.Constants;
+import com.google.common.base.Preconditions;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.AbstractIdleService;
 import org.jboss.netty.bootstrap.ClientBootstrap;
@@ -33,22 +35,38 @@ import org.jboss.netty.channel.SimpleChannelHandler;
 import org.jboss.netty.channel.socket.nio.NioClientSocketChannelFactory;
 
 import java.net.InetSocketAddress;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
 
 /**
  * HTTP Data Ingestion Router to TCP Server Routing via TCPClientService.
+ * Keeps a small pool of connections to each TCP Server and spreads the writes over the connections.
  */
 //TODO: Remove this class. Wrap the DataSourceServer which exposes a write method and both the TCP Ingestion Server
 //and the DataIngestion Router NettyHTTP Service can write to it directly.
 public class HttpRouterClientService extends AbstractIdleService {
   private final Map<String, InetSocketAddress> serverMap;
-  private final ConcurrentMap<String, Channel> channelList = Maps.newConcurrentMap();
+  private final Map<String, List<Channel>> channelPools = Maps.newHashMap();
+  private final Map<String, AtomicInteger> nextChannel = Maps.newHashMap();
+  private final int connectionsPerStream;
   private final ClientBootstrap clientBootstrap;
 
   public HttpRouterClientService(Map<String, InetSocketAddress> ingestionServerMap) {
+    this(ingestionServerMap, Constants.DEFAULT_INGESTION_CONNECTIONS);
+  }
+
+  public HttpRouterClientService(Map<String, InetSocketAddress> ingestionServerMap, int connectionsPerStream) {
+    Preconditions.checkArgument(connectionsPerStream > 0, "Number of connections per stream should be > 0");
     this.serverMap = ingestionServerMap;
+    this.connectionsPerStream = connectionsPerStream;
+    for (String streamName : ingestionServerMap.keySet()) {
+      channelPools.put(streamName, new CopyOnWriteArrayList<Channel>());
+      nextChannel.put(streamName, new AtomicInteger());
+    }
     ChannelFactory factory = new NioClientSocketChannelFactory(Executors.newCachedThreadPool(),
                                                                Executors.newCachedThreadPool());
     this.clientBootstrap = new ClientBootstrap(factory);
@@ -58,31 +76,83 @@ public class HttpRouterClientService extends AbstractIdleService {
   protected void startUp() throws Exception {
     setupClientPipeline();
     for (final Map.Entry<String, InetSocketAddress> entry : serverMap.entrySet()) {
-      clientBootstrap.connect(entry.getValue()).addListener(new ChannelFutureListener() {
-        @Override
-        public void operationComplete(ChannelFuture future) throws Exception {
-          channelList.put(entry.getKey(), future.getChannel());
-        }
-      });
+      for (int i = 0; i < connectionsPerStream; i++) {
+        clientBootstrap.connect(entry.getValue()).addListener(new ChannelFutureListener() {
+          @Override
+          public void operationComplete(ChannelFuture future) throws Exception {
+            channelPools.get(entry.getKey()).add(future.getChannel());
+          }
+        });
+      }
     }
   }
 
   @Override
   protected void shutDown() throws Exception {
-    for (Map.Entry<String, Channel> clientChannel : channelList.entrySet()) {
-      clientChannel.getValue().close();
+    for (List<Channel> channels : channelPools.values()) {
+      for (Channel channel : channels) {
+        channel.close();
+      }
     }
   }
 
+  /**
+   * @return true if data can be routed to the given stream
+   */
+  public boolean hasStream(String channelName) {
+    return channelPools.containsKey(channelName);
+  }
+
+  /**
+   * @return true if there is at least one connection to the TCP Server of the given stream
+   */
+  public boolean isConnected(String channelName) {
+    return getChannel(channelName, false) != null;
+  }
+
   public boolean sendData(String channelName, ChannelBuffer data) {
-    Channel client = channelList.get(channelName);
-    if (client != null && client.isConnected()) {
+    Channel client = getChannel(channelName, false);
+    if (client != null) {
       client.write(data);
       return true;
     }
     return false;
   }
 
+  /**
+   * Writes a batch of complete records to one of the connections that is not saturated.
+   * @param channelName name of the stream
+   * @param data records to write
+   * @return {@link ChannelFuture} of the write, or {@code null} if there is no connection the data can be written to
+   * without buffering, in which case the caller should retry later
+   */
+  @Nullable
+  public ChannelFuture sendBatch(String channelName, ChannelBuffer data) {
+    Channel client = getChannel(channelName, true);
+    return client == null ? null : client.write(data);
+  }
+
+  /**
+   * Picks the connections of a stream in round robin order.
+   */
+  @Nullable
+  private Channel getChannel(String channelName, boolean writableOnly) {
+    List<Channel> channels = channelPools.get(channelName);
+    if (channels == null) {
+      return null;
+    }
+    //Connections are only ever added to the pool, hence indices below the current size stay valid.
+    int size = channels.size();
+    int first = nextChannel.get(channelName).getAndIncrement() & Integer.MAX_VALUE;
+    for (int i = 0; i < size; i++) {
+      Channel channel = channels.get((first + i) % size);
+      if (channel.isConnected() && (!writableOnly || channel.isWritable())) {
+        return channel;
+      }
+    }
+    return null;
+  }
+
   private void setupClientPipeline() {
     clientBootstrap.setOption("tcpNoDelay", true);
     clientBootstrap.setOption("keepAlive", true);
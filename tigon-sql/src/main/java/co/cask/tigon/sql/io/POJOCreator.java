@@ -37,6 +37,7 @@ public class POJOCreator {
   private final Schema schema;
   private final DatumReader outputGenerator;
   private final Class<?> outputClass;
+  private final GDATRecordReader recordReader;
 
   /**
    * Constructor for the POJOCreator
@@ -48,12 +49,16 @@ public class POJOCreator {
   public POJOCreator(Class<?> outputClass, Schema schema) throws UnsupportedTypeException {
     this.schema = schema;
     this.outputClass = outputClass;
-    this.outputGenerator = new ReflectionDatumReader(new ReflectionSchemaGenerator().generate(outputClass, false),
-                                                     TypeToken.of(outputClass));
+    Schema outputSchema = new ReflectionSchemaGenerator().generate(outputClass, false);
+    this.outputGenerator = new ReflectionDatumReader(outputSchema, TypeToken.of(outputClass));
+    this.recordReader = outputSchema.getType() == Schema.Type.RECORD ?
+      GDATRecordReader.create(schema, outputClass) : null;
   }
 
   /**
-   * This function is called for each incoming byte record.
+   * This function is called for each incoming byte record. Records of a {@link GDATDecoder} are decoded with a
+   * decoding plan precomputed for the schema and output class, other decoders go through the
+   * {@link co.cask.tigon.internal.io.ReflectionDatumReader}.
    *
    * @param decoder The decoder that encapsulates the byte[] data record
    * @return Map of method and the input parameter objects
@@ -62,6 +67,9 @@ public class POJOCreator {
    */
   public Object decode(Decoder decoder) throws IOException {
     try {
+      if (recordReader != null && decoder instanceof GDATDecoder) {
+        return recordReader.read(((GDATDecoder) decoder).getDataRecord());
+      }
       return outputGenerator.read(decoder, schema);
     } catch (IOException e) {
       LOG.error("Cannot instantiate object of type {}", outputClass.getName(), e);
@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.sql.io;
+
+import co.cask.tigon.sql.conf.Constants;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.apache.twill.common.Threads;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * QueryOutputDispatcher
+ * This class dispatches GDAT records to the {@link co.cask.tigon.sql.flowlet.annotation.QueryOutput} methods through
+ * {@link MethodsDriver}. With a single thread, methods are invoked directly by the calling thread. With multiple
+ * threads, records are partitioned by query name across a pool of single threaded workers, so that records of the
+ * same query are always processed in order, while different queries are processed in parallel.
+ *
+ * All records dispatched between two calls to {@link #flush()} belong to the same transaction. {@link #flush()}
+ * waits for all of them to be processed and rethrows the first failure, if any.
+ */
+public class QueryOutputDispatcher {
+  private final MethodsDriver methodsDriver;
+  private final ListeningExecutorService[] workers;
+  private final ListenableFuture<?>[] lastTasks;
+  private final AtomicReference<Throwable> failure;
+
+  /**
+   * Constructor for QueryOutputDispatcher
+   * @param methodsDriver {@link MethodsDriver} used to invoke the methods of each query
+   * @param threads Number of worker threads. Values less than or equal to one dispatch on the calling thread
+   */
+  public QueryOutputDispatcher(MethodsDriver methodsDriver, int threads) {
+    this.methodsDriver = methodsDriver;
+    this.failure = new AtomicReference<Throwable>();
+    if (threads <= 1) {
+      this.workers = new ListeningExecutorService[0];
+    } else {
+      this.workers = new ListeningExecutorService[threads];
+      for (int i = 0; i < threads; i++) {
+        workers[i] = MoreExecutors.listeningDecorator(
+          Executors.newSingleThreadExecutor(Threads.createDaemonThreadFactory("query-output-dispatcher-" + i)));
+      }
+    }
+    this.lastTasks = new ListenableFuture<?>[workers.length];
+  }
+
+  /**
+   * Dispatches a GDAT record to the methods associated with the provided query name.
+   * @param queryName Name of query
+   * @param decoder {@link GDATDecoder} object for the incoming GDAT format data record
+   * @throws InvocationTargetException thrown by {@link java.lang.reflect.Method}.invoke() in single thread mode
+   * @throws IllegalAccessException thrown by {@link java.lang.reflect.Method}.invoke() in single thread mode
+   */
+  public void dispatch(final String queryName, final GDATDecoder decoder) throws InvocationTargetException,
+    IllegalAccessException {
+    if (workers.length == 0) {
+      methodsDriver.invokeMethods(queryName, decoder);
+      return;
+    }
+    if (failure.get() != null) {
+      // The transaction is going to fail anyway, no need to process more records
+      return;
+    }
+    int partition = (queryName.hashCode() & Integer.MAX_VALUE) % workers.length;
+    lastTasks[partition] = workers[partition].submit(new Runnable() {
+      @Override
+      public void run() {
+        if (failure.get() != null) {
+          return;
+        }
+        try {
+          methodsDriver.invokeMethods(queryName, decoder);
+        } catch (Throwable t) {
+          failure.compareAndSet(null, t);
+        }
+      }
+    });
+  }
+
+  /**
+   * Waits for all dispatched records to be processed.
+   * @throws InvocationTargetException if any method invocation failed
+   * @throws IllegalAccessException if any method invocation failed
+   */
+  public void flush() throws InvocationTargetException, IllegalAccessException {
+    try {
+      for (int i = 0; i < lastTasks.length; i++) {
+        if (lastTasks[i] != null) {
+          // Each worker is single threaded, hence all tasks of the worker are done when the last one is done
+          Futures.getUnchecked(lastTasks[i]);
+          lastTasks[i] = null;
+        }
+      }
+    } finally {
+      Throwable t = failure.getAndSet(null);
+      if (t != null) {
+        Throwables.propagateIfInstanceOf(t, InvocationTargetException.class);
+        Throwables.propagateIfInstanceOf(t, IllegalAccessException.class);
+        throw Throwables.propagate(t);
+      }
+    }
+  }
+
+  /**
+   * Stops all worker threads.
+   */
+  public void shutdown() {
+    for (ListeningExecutorService worker : workers) {
+      worker.shutdownNow();
+    }
+    for (ListeningExecutorService worker : workers) {
+      try {
+        worker.awaitTermination(Constants.DISPATCHER_SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.sql.ioserver;
+
+import co.cask.tigon.sql.conf.Constants;
+import co.cask.tigon.sql.flowlet.StreamSchema;
+import com.google.common.collect.Maps;
+import org.jboss.netty.channel.ChannelFactory;
+import org.jboss.netty.channel.ChannelHandler;
+
+import java.util.LinkedHashMap;
+
+/**
+ * Binary Input Format Server Socket - Converts data in the compact binary format to GDAT format.
+ * Each record is length prefixed and its fields are written in the order of the
+ * {@link co.cask.tigon.sql.flowlet.StreamSchema}, all in Big Endian Byte Order (as written by
+ * {@link java.io.DataOutputStream}) :
+ * <pre>
+ *   [record length : 4 bytes, excluding the length field][field 1][field 2]...
+ *
+ *   BOOL   : 1 byte, 0 is false
+ *   INT    : 4 bytes
+ *   LONG   : 8 bytes
+ *   DOUBLE : 8 bytes, IEEE 754
+ *   STRING : [length : 4 bytes][UTF-8 bytes]
+ * </pre>
+ * Clients that already produce GDAT records can send them to a GDAT input unchanged instead.
+ */
+public class BinaryInputServerSocket extends InputServerSocket {
+  private final String name;
+  private final StreamSchema schema;
+
+  public BinaryInputServerSocket(ChannelFactory factory, String name, StreamSchema inputSchema, int port) {
+    this(factory, name, inputSchema, port, Constants.DEFAULT_MAX_RECORD_LENGTH);
+  }
+
+  public BinaryInputServerSocket(ChannelFactory factory, String name, StreamSchema inputSchema, int port,
+                                         int maxRecordLength) {
+    super(factory, name, inputSchema, port, maxRecordLength);
+    this.name = name;
+    this.schema = inputSchema;
+  }
+
+  public BinaryInputServerSocket(ChannelFactory factory, String name, StreamSchema inputSchema) {
+    this(factory, name, inputSchema, 0);
+  }
+
+  @Override
+  public LinkedHashMap<String, ChannelHandler> addTransformHandler() {
+    LinkedHashMap<String, ChannelHandler> handlers = Maps.newLinkedHashMap();
+    handlers.put("binaryDecoder", new BinaryRecordDecoder(name, schema, getDroppedRecordsCounter(),
+                                                          getMaxRecordLength()));
+    return handlers;
+  }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.sql.ioserver;
+
+import co.cask.tigon.sql.conf.Constants;
+import co.cask.tigon.sql.flowlet.GDATField;
+import co.cask.tigon.sql.flowlet.GDATFieldType;
+import co.cask.tigon.sql.flowlet.StreamSchema;
+import co.cask.tigon.sql.io.GDATRecordWriter;
+import com.google.common.primitives.Ints;
+import com.google.common.primitives.Longs;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.handler.codec.frame.FrameDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Converts records in the compact binary format, described in {@link BinaryInputServerSocket}, to GDAT records.
+ * All the records that are completely received are passed upstream as a single buffer. A record that doesn't match
+ * the {@link StreamSchema} is dropped. A connection that sends a record longer than the maximum record length is
+ * closed, as the record would have to be buffered.
+ */
+final class BinaryRecordDecoder extends FrameDecoder {
+  private static final Logger LOG = LoggerFactory.getLogger(BinaryRecordDecoder.class);
+  private final String streamName;
+  private final GDATFieldType[] fieldTypes;
+  private final GDATRecordWriter recordWriter;
+  private final AtomicLong droppedRecords;
+  private final int maxRecordLength;
+
+  BinaryRecordDecoder(String streamName, StreamSchema schema) {
+    this(streamName, schema, new AtomicLong(), Constants.DEFAULT_MAX_RECORD_LENGTH);
+  }
+
+  /**
+   * @param droppedRecords Counter incremented for every dropped record
+   * @param maxRecordLength Maximum length in bytes of a record
+   */
+  BinaryRecordDecoder(String streamName, StreamSchema schema, AtomicLong droppedRecords, int maxRecordLength) {
+    this.streamName = streamName;
+    this.droppedRecords = droppedRecords;
+    this.maxRecordLength = maxRecordLength;
+    List<GDATField> fields = schema.getFields();
+    this.fieldTypes = new GDATFieldType[fields.size()];
+    for (int i = 0; i < fieldTypes.length; i++) {
+      fieldTypes[i] = fields.get(i).getType();
+    }
+    this.recordWriter = new GDATRecordWriter(schema);
+  }
+
+  @Override
+  protected Object decode(ChannelHandlerContext ctx, Channel channel, ChannelBuffer buffer) throws Exception {
+    ChannelBuffer records = null;
+    while (buffer.readableBytes() >= Ints.BYTES) {
+      int length = buffer.getInt(buffer.readerIndex());
+      if (length < 0 || length > maxRecordLength) {
+        //Can't find the next record boundary, or can't buffer the record.
+        LOG.error("Input Stream {} : Invalid record length {}. Closing connection.", streamName, length);
+        buffer.skipBytes(buffer.readableBytes());
+        channel.close();
+        break;
+      }
+      if (buffer.readableBytes() < Ints.BYTES + length) {
+        break;
+      }
+      int start = buffer.readerIndex() + Ints.BYTES;
+      buffer.skipBytes(Ints.BYTES + length);
+      if (!convertRecord(buffer, start, start + length)) {
+        recordWriter.reset();
+        droppedRecords.incrementAndGet();
+        continue;
+      }
+      if (records == null) {
+        records = ChannelBuffers.dynamicBuffer(buffer.readableBytes() + Ints.BYTES + length);
+      }
+      recordWriter.writeTo(records);
+    }
+    return records;
+  }
+
+  private boolean convertRecord(ChannelBuffer buffer, int start, int end) {
+    int pos = start;
+    for (GDATFieldType fieldType : fieldTypes) {
+      int size = getSize(fieldType);
+      if (pos + size > end) {
+        LOG.error("Input Stream {} : Dropping record. Record too short for the schema.", streamName);
+        return false;
+      }
+      switch (fieldType) {
+        case BOOL:
+          recordWriter.writeBool(buffer.getByte(pos) != 0);
+          break;
+        case INT:
+          recordWriter.writeInt(buffer.getInt(pos));
+          break;
+        case LONG:
+          recordWriter.writeLong(buffer.getLong(pos));
+          break;
+        case DOUBLE:
+          recordWriter.writeDouble(Double.longBitsToDouble(buffer.getLong(pos)));
+          break;
+        case STRING:
+          int stringLength = buffer.getInt(pos);
+          if (stringLength < 0 || pos + size + stringLength > end) {
+            LOG.error("Input Stream {} : Dropping record. Invalid string length {}.", streamName, stringLength);
+            return false;
+          }
+          recordWriter.writeString(buffer, pos + size, stringLength);
+          size += stringLength;
+          break;
+      }
+      pos += size;
+    }
+    if (pos != end) {
+      LOG.error("Input Stream {} : Dropping record. Record too long for the schema.", streamName);
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * @return Size of a field in the binary format, excluding the string bytes
+   */
+  private static int getSize(GDATFieldType fieldType) {
+    switch (fieldType) {
+      case BOOL:
+        return 1;
+      case INT:
+      case STRING:
+        return Ints.BYTES;
+      default:
+        return Longs.BYTES;
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.sql.ioserver;
+
+import com.google.common.primitives.Ints;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelHandler;
+import org.jboss.netty.channel.UpstreamMessageEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Passes on complete GDAT records only, so that records received on different ingestion connections are never
+ * interleaved when they are relayed to the Stream Engine.
+ * All the complete records of a read are passed upstream as a single slice of the received buffers, hence no bytes
+ * are copied. Bytes of an incomplete record are kept as a slice and combined with the next received buffer.
+ * A connection that sends a record longer than the maximum record length is closed.
+ */
+final class GDATFrameDecoder extends SimpleChannelHandler {
+  private static final Logger LOG = LoggerFactory.getLogger(GDATFrameDecoder.class);
+  private final String streamName;
+  private final int maxRecordLength;
+  private ChannelBuffer cumulation = ChannelBuffers.EMPTY_BUFFER;
+
+  GDATFrameDecoder(String streamName, int maxRecordLength) {
+    this.streamName = streamName;
+    this.maxRecordLength = maxRecordLength;
+  }
+
+  @Override
+  public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+    ChannelBuffer input = (ChannelBuffer) e.getMessage();
+    ChannelBuffer buffer = cumulation.readable() ? ChannelBuffers.wrappedBuffer(cumulation, input) : input;
+    int start = buffer.readerIndex();
+    int end = buffer.writerIndex();
+    int pos = start;
+    while (end - pos >= Ints.BYTES) {
+      //Length is encoded in Big Endian Byte Order and doesn't include the length field.
+      int length = buffer.getInt(pos);
+      if (length < 0 || length > maxRecordLength) {
+        LOG.error("Input Stream {} : Invalid GDAT record length {}. Closing connection.", streamName, length);
+        cumulation = ChannelBuffers.EMPTY_BUFFER;
+        e.getChannel().close();
+        return;
+      }
+      if (end - pos - Ints.BYTES < length) {
+        break;
+      }
+      pos += Ints.BYTES + length;
+    }
+    cumulation = pos < end ? buffer.slice(pos, end - pos) : ChannelBuffers.EMPTY_BUFFER;
+    if (pos > start) {
+      ChannelBuffer records = buffer.slice(start, pos - start);
+      super.messageReceived(ctx, new UpstreamMessageEvent(e.getChannel(), records, e.getRemoteAddress()));
+    }
+  }
+}
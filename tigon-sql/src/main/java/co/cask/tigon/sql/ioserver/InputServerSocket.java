@@ -20,6 +20,9 @@ import co.cask.tigon.sql.conf.Constants;
 import co.cask.tigon.sql.flowlet.StreamSchema;
 import co.cask.tigon.sql.internal.StreamInputHeader;
 import co.cask.tigon.sql.util.GDATFormatUtil;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.primitives.Ints;
 import org.jboss.netty.bootstrap.ServerBootstrap;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
@@ -42,9 +45,14 @@ import org.slf4j.LoggerFactory;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -57,25 +65,64 @@ import java.util.concurrent.atomic.AtomicReference;
  * DataSourceServer - TCP endpoint for StreamEngine Process (RTS) process to connect and receive data.
  *
  * RelayChannel - IngestionServer passes on the data it receives (potential after transforming it to GDAT format) to
- * the StreamEngine TCP client via the Relay Channel.
+ * the StreamEngine TCP client via the Relay Channel. Only complete GDAT records are relayed, hence several clients
+ * can write to the same input stream concurrently. When the Relay Channel is saturated, reading from the ingestion
+ * channels is suspended until the Relay Channel becomes writable again.
+ *
+ * Failover - StreamEngine clients that connect while the Relay Channel is active are kept as standby channels. When
+ * the Relay Channel disconnects, a connected standby channel is promoted in its place. While no StreamEngine client
+ * is connected, records are held in a bounded pending buffer (reading from the ingestion channels is suspended once
+ * it is full) and relayed to the next client that connects.
  */
 public class InputServerSocket extends StreamSocketServer {
   private static final Logger LOG = LoggerFactory.getLogger(InputServerSocket.class);
   private final String streamName;
   private final StreamSchema schema;
+  private final int maxRecordLength;
   private int port;
 
   private final ServerBootstrap ingestionServer;
   private final ServerBootstrap dataSourceServer;
 
   private final AtomicReference<Channel> channelAtomicReference;
+  private final Set<Channel> suspendedChannels;
+  private final Set<Channel> standbyChannels;
+
+  // Guards relay channel switches, standbyChannels and the pending buffer
+  private final Object relayLock = new Object();
+  private final Queue<ChannelBuffer> pendingRecords;
+  private final long maxPendingBytes;
+  private long pendingBytes;
+
+  private final AtomicLong recordsReceived;
+  private final AtomicLong bytesReceived;
+  private final AtomicLong droppedRecords;
+  private final AtomicLong saturationCount;
 
   public InputServerSocket(ChannelFactory factory, String name, StreamSchema inputSchema, int port) {
+    this(factory, name, inputSchema, port, Constants.DEFAULT_MAX_RECORD_LENGTH);
+  }
+
+  /**
+   * @param maxRecordLength Maximum length in bytes of a received record, a connection that sends a longer one is
+   *                        closed
+   */
+  public InputServerSocket(ChannelFactory factory, String name, StreamSchema inputSchema, int port,
+                           int maxRecordLength) {
     this.streamName = name;
     this.schema = inputSchema;
     this.port = port;
+    this.maxRecordLength = maxRecordLength;
     this.channelAtomicReference = new AtomicReference<Channel>();
     this.channelAtomicReference.set(null);
+    this.suspendedChannels = Sets.newSetFromMap(Maps.<Channel, Boolean>newConcurrentMap());
+    this.standbyChannels = Sets.newLinkedHashSet();
+    this.pendingRecords = new ArrayDeque<ChannelBuffer>();
+    this.maxPendingBytes = Constants.FAILOVER_BUFFER_MAX_BYTES;
+    this.recordsReceived = new AtomicLong();
+    this.bytesReceived = new AtomicLong();
+    this.droppedRecords = new AtomicLong();
+    this.saturationCount = new AtomicLong();
     ingestionServer = new ServerBootstrap(factory);
     dataSourceServer = new ServerBootstrap(factory);
   }
@@ -88,6 +135,49 @@ public class InputServerSocket extends StreamSocketServer {
     return port;
   }
 
+  /**
+   * @return Number of GDAT records received by the ingestion server
+   */
+  public long getRecordsReceived() {
+    return recordsReceived.get();
+  }
+
+  /**
+   * @return Number of GDAT bytes received by the ingestion server
+   */
+  public long getBytesReceived() {
+    return bytesReceived.get();
+  }
+
+  /**
+   * @return Number of records dropped because they couldn't be converted to GDAT
+   */
+  public long getDroppedRecords() {
+    return droppedRecords.get();
+  }
+
+  /**
+   * @return Number of times reading from an ingestion client was suspended because the Relay Channel was saturated
+   * (or the pending buffer was full)
+   */
+  public long getSaturationCount() {
+    return saturationCount.get();
+  }
+
+  /**
+   * Counter of dropped records, to be incremented by the transform handlers.
+   */
+  protected final AtomicLong getDroppedRecordsCounter() {
+    return droppedRecords;
+  }
+
+  /**
+   * Maximum length in bytes of a received record, to be enforced by the transform handlers.
+   */
+  protected final int getMaxRecordLength() {
+    return maxRecordLength;
+  }
+
   @Override
   public final void startUp() {
     LOG.info("Input Stream {} : Starting Server", streamName);
@@ -161,14 +251,59 @@ public class InputServerSocket extends StreamSocketServer {
     public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) {
       final Channel ch = e.getChannel();
       ChannelBuffer buf = (ChannelBuffer) e.getMessage();
+      countRecords(buf);
       Channel relayChannel = channelAtomicReference.get();
-      if (relayChannel != null && relayChannel.isConnected()) {
-        //TODO: Handle channel saturation
-        //Writing it to the downstream server pipeline
-        relayChannel.write(buf);
-      } else {
-        //TODO: Do we want to print an error msg for every dropped packet?
-        log.error("Input Stream {} : DataSource Server not connected to a client! Dropping input data!", streamName);
+      if (relayChannel == null || !relayChannel.isConnected()) {
+        synchronized (relayLock) {
+          relayChannel = channelAtomicReference.get();
+          if (relayChannel == null || !relayChannel.isConnected()) {
+            bufferPendingRecords(ch, buf);
+            return;
+          }
+        }
+      }
+      //Writing it to the downstream server pipeline
+      relayChannel.write(buf);
+      if (!relayChannel.isWritable()) {
+        //Stop reading from the client until the relay channel is drained
+        ch.setReadable(false);
+        suspendedChannels.add(ch);
+        saturationCount.incrementAndGet();
+        //The relay channel might have been drained before the channel got added
+        if (relayChannel.isWritable()) {
+          resumeSuspendedChannels();
+        }
+      }
+    }
+
+    /**
+     * Counts the records by walking their length fields. The buffer only holds complete GDAT records.
+     */
+    private void countRecords(ChannelBuffer buf) {
+      int records = 0;
+      int index = buf.readerIndex();
+      while (index + Ints.BYTES <= buf.writerIndex()) {
+        index += Ints.BYTES + buf.getInt(index);
+        records++;
+      }
+      recordsReceived.addAndGet(records);
+      bytesReceived.addAndGet(buf.readableBytes());
+    }
+
+    /**
+     * Holds the records until a StreamEngine client connects. Must be called while holding relayLock.
+     */
+    private void bufferPendingRecords(Channel ch, ChannelBuffer buf) {
+      if (pendingRecords.isEmpty()) {
+        log.warn("Input Stream {} : DataSource Server not connected to a client! Buffering input data.", streamName);
+      }
+      pendingRecords.add(buf);
+      pendingBytes += buf.readableBytes();
+      if (pendingBytes >= maxPendingBytes) {
+        //Stop reading from the client until a StreamEngine client connects
+        ch.setReadable(false);
+        suspendedChannels.add(ch);
+        saturationCount.incrementAndGet();
       }
     }
   }
@@ -188,20 +323,56 @@ public class InputServerSocket extends StreamSocketServer {
 
     @Override
     public void channelConnected(ChannelHandlerContext ctx, ChannelStateEvent e) {
-      //TODO: Close any other connections if a connection already exists!
       final Channel ch = e.getChannel();
       ChannelBuffer headerBuffer = ChannelBuffers.buffer(header.length());
       headerBuffer.writeBytes(header.getBytes());
       ChannelFuture f = ch.write(headerBuffer);
       f.addListener(ChannelFutureListener.CLOSE_ON_FAILURE);
-      channelAtomicReference.set(ch);
+      synchronized (relayLock) {
+        Channel relayChannel = channelAtomicReference.get();
+        if (relayChannel != null && relayChannel.isConnected()) {
+          standbyChannels.add(ch);
+          log.info("Input Stream {} : Standby Channel Connected. Sent Header : {}", name, header);
+          return;
+        }
+        setRelayChannel(ch);
+      }
+      resumeSuspendedChannels();
       log.info("Input Stream {} : Channel Connected. Sent Header : {}", name, header);
     }
 
+    @Override
+    public void channelInterestChanged(ChannelHandlerContext ctx, ChannelStateEvent e) {
+      if (e.getChannel().isWritable()) {
+        resumeSuspendedChannels();
+      }
+    }
+
     @Override
     public void channelDisconnected(ChannelHandlerContext ctx, ChannelStateEvent e) {
-      //Stream Engine RTS process Disconnected!
-      log.error("Input Stream {} : Channel Disconnected - Stream Engine RTS process!", name);
+      final Channel ch = e.getChannel();
+      synchronized (relayLock) {
+        if (standbyChannels.remove(ch)) {
+          log.warn("Input Stream {} : Standby Channel Disconnected", name);
+          return;
+        }
+        if (!channelAtomicReference.compareAndSet(ch, null)) {
+          return;
+        }
+        //Stream Engine RTS process Disconnected!
+        log.error("Input Stream {} : Channel Disconnected - Stream Engine RTS process!", name);
+        Iterator<Channel> iterator = standbyChannels.iterator();
+        while (iterator.hasNext() && channelAtomicReference.get() == null) {
+          Channel standbyChannel = iterator.next();
+          iterator.remove();
+          if (standbyChannel.isConnected()) {
+            setRelayChannel(standbyChannel);
+            log.info("Input Stream {} : Promoted Standby Channel", name);
+          }
+        }
+      }
+      //Ingestion clients should not be kept suspended. Data is buffered until a RTS process connects.
+      resumeSuspendedChannels();
     }
 
     @Override
@@ -213,10 +384,33 @@ public class InputServerSocket extends StreamSocketServer {
     }
   }
 
+  /**
+   * Relays the pending records to the given channel and makes it the Relay Channel. Must be called while holding
+   * relayLock, so that records received in the meantime are relayed after the pending records.
+   */
+  private void setRelayChannel(Channel ch) {
+    while (!pendingRecords.isEmpty()) {
+      ch.write(pendingRecords.poll());
+    }
+    pendingBytes = 0;
+    channelAtomicReference.set(ch);
+  }
+
+  private void resumeSuspendedChannels() {
+    for (Channel channel : suspendedChannels) {
+      if (suspendedChannels.remove(channel)) {
+        channel.setReadable(true);
+      }
+    }
+  }
+
   /**
    * Subclasses can override this method to add handlers for transforming the incoming data format to GDAT byte array.
+   * By default, the incoming data is expected in GDAT format and only complete records are relayed.
    */
   protected LinkedHashMap<String, ChannelHandler> addTransformHandler() {
-    return null;
+    LinkedHashMap<String, ChannelHandler> handlers = Maps.newLinkedHashMap();
+    handlers.put("gdatFrameDecoder", new GDATFrameDecoder(streamName, maxRecordLength));
+    return handlers;
   }
 }
@@ -16,42 +16,32 @@
 
 package co.cask.tigon.sql.ioserver;
 
+import co.cask.tigon.sql.conf.Constants;
 import co.cask.tigon.sql.flowlet.StreamSchema;
-import co.cask.tigon.sql.util.GDATFormatUtil;
 import com.google.common.collect.Maps;
-import com.google.common.reflect.TypeToken;
-import com.google.gson.Gson;
-import org.jboss.netty.buffer.ChannelBuffer;
-import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.ChannelFactory;
 import org.jboss.netty.channel.ChannelHandler;
-import org.jboss.netty.channel.ChannelHandlerContext;
-import org.jboss.netty.channel.MessageEvent;
-import org.jboss.netty.channel.SimpleChannelHandler;
-import org.jboss.netty.channel.UpstreamMessageEvent;
-import org.jboss.netty.handler.codec.frame.DelimiterBasedFrameDecoder;
-import org.jboss.netty.handler.codec.string.StringDecoder;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import java.io.ByteArrayOutputStream;
-import java.lang.reflect.Type;
 import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
 
 /**
  * Json Input Format Server Socket - Converts data in JSON format to GDAT format.
  * JSON string is expected to be in the following format :
  * {"data" : ["123", "Foo", "True", "34.5"]}
+ * Records are converted while streaming through the received bytes, see {@link JsonRecordDecoder}.
  */
 public class JsonInputServerSocket extends InputServerSocket {
-  private static final Gson GSON = new Gson();
-  private static final Type MAP_TYPE = new TypeToken<Map<String, List<String>>>() { }.getType();
+  private final String name;
   private final StreamSchema schema;
 
   public JsonInputServerSocket(ChannelFactory factory, String name, StreamSchema inputSchema, int port) {
-    super(factory, name, inputSchema, port);
+    this(factory, name, inputSchema, port, Constants.DEFAULT_MAX_RECORD_LENGTH);
+  }
+
+  public JsonInputServerSocket(ChannelFactory factory, String name, StreamSchema inputSchema, int port,
+                                       int maxRecordLength) {
+    super(factory, name, inputSchema, port, maxRecordLength);
+    this.name = name;
     this.schema = inputSchema;
   }
 
@@ -62,48 +52,8 @@ public class JsonInputServerSocket extends InputServerSocket {
   @Override
   public LinkedHashMap<String, ChannelHandler> addTransformHandler() {
     LinkedHashMap<String, ChannelHandler> handlers = Maps.newLinkedHashMap();
-    handlers.put("jsonMapDelimiter", new DelimiterBasedFrameDecoder(Integer.MAX_VALUE, false,
-                                                                    ChannelBuffers.wrappedBuffer(new byte[] {'}'})));
-    handlers.put("stringDecoder", new StringDecoder());
-    handlers.put("jsonHandler", new JsonHandler(schema));
+    handlers.put("jsonDecoder", new JsonRecordDecoder(name, schema, getDroppedRecordsCounter(),
+                                                      getMaxRecordLength()));
     return handlers;
   }
-
-  @SuppressWarnings("unchecked")
-  private static class JsonHandler extends SimpleChannelHandler {
-    private static final Logger LOG = LoggerFactory.getLogger(JsonHandler.class);
-    private final StreamSchema schema;
-    private final OutStream outputStream;
-
-    public JsonHandler(StreamSchema schema) {
-      this.schema = schema;
-      this.outputStream = new OutStream();
-    }
-
-    @Override
-    public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
-      String json = (String) e.getMessage();
-      Map<String, List<String>> jsonMap = GSON.fromJson(json, MAP_TYPE);
-      GDATFormatUtil.encode(jsonMap.get("data"), schema, outputStream, false);
-      ChannelBuffer dataRecordBuffer = ChannelBuffers.copiedBuffer(outputStream.getByteArray(), 0,
-                                                                   outputStream.length());
-      outputStream.reset();
-      MessageEvent newMessageEvent = new UpstreamMessageEvent(ctx.getChannel(), dataRecordBuffer, e.getRemoteAddress());
-      super.messageReceived(ctx, newMessageEvent);
-    }
-
-    static class OutStream extends ByteArrayOutputStream {
-
-      /**
-       * @return reference to the underlying byte array
-       */
-      public byte[] getByteArray() {
-        return buf;
-      }
-
-      public int length() {
-        return count;
-      }
-    }
-  }
 }
@@ -0,0 +1,554 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.sql.ioserver;
+
+import co.cask.tigon.sql.conf.Constants;
+import co.cask.tigon.sql.flowlet.GDATField;
+import co.cask.tigon.sql.flowlet.GDATFieldType;
+import co.cask.tigon.sql.flowlet.StreamSchema;
+import co.cask.tigon.sql.io.GDATRecordWriter;
+import com.google.common.base.Charsets;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.handler.codec.frame.FrameDecoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Converts JSON records to GDAT records while streaming through the received bytes.
+ * JSON records are expected to be in the following format :
+ * {"data" : ["123", "Foo", "True", "34.5"]}
+ * Values can also be given as JSON literals, eg. {"data" : [123, "Foo", true, 34.5]}. Other members of the JSON object
+ * are ignored.
+ *
+ * Values are tokenized in place and written to the {@link GDATRecordWriter}, without creating intermediate strings or
+ * maps. All the records that are completely received are passed upstream as a single buffer. The end of a record is
+ * found first, by scanning for the '}' that closes it; the scan of an incomplete record continues where it stopped
+ * once more bytes are received, so that every byte is only scanned and parsed once. A malformed record is dropped,
+ * and a connection that sends a record longer than the maximum record length is closed.
+ */
+final class JsonRecordDecoder extends FrameDecoder {
+  private static final Logger LOG = LoggerFactory.getLogger(JsonRecordDecoder.class);
+  private static final int INCOMPLETE = -1;
+  private static final byte[] DATA_KEY = "data".getBytes(Charsets.US_ASCII);
+  private static final byte[] TRUE = "true".getBytes(Charsets.US_ASCII);
+  private static final byte[] NULL = "null".getBytes(Charsets.US_ASCII);
+
+  private final String streamName;
+  private final GDATFieldType[] fieldTypes;
+  private final GDATRecordWriter recordWriter;
+  private final AtomicLong droppedRecords;
+  private final int maxRecordLength;
+  //Holds unescaped strings
+  private final ChannelBuffer stringBuffer;
+  //True if the end of a malformed record hasn't been received yet
+  private boolean discarding;
+  //Scan state of the incomplete record : bytes scanned, depth of braces, and whether inside a string or an escape
+  private int scannedBytes;
+  private int depth;
+  private boolean inString;
+  private boolean escaped;
+
+  JsonRecordDecoder(String streamName, StreamSchema schema) {
+    this(streamName, schema, new AtomicLong(), Constants.DEFAULT_MAX_RECORD_LENGTH);
+  }
+
+  /**
+   * @param droppedRecords Counter incremented for every dropped record
+   * @param maxRecordLength Maximum length in bytes of a record
+   */
+  JsonRecordDecoder(String streamName, StreamSchema schema, AtomicLong droppedRecords, int maxRecordLength) {
+    this.streamName = streamName;
+    this.droppedRecords = droppedRecords;
+    this.maxRecordLength = maxRecordLength;
+    List<GDATField> fields = schema.getFields();
+    this.fieldTypes = new GDATFieldType[fields.size()];
+    for (int i = 0; i < fieldTypes.length; i++) {
+      fieldTypes[i] = fields.get(i).getType();
+    }
+    this.recordWriter = new GDATRecordWriter(schema);
+    this.stringBuffer = ChannelBuffers.dynamicBuffer(64);
+  }
+
+  @Override
+  protected Object decode(ChannelHandlerContext ctx, Channel channel, ChannelBuffer buffer) throws Exception {
+    if (discarding && !discardMalformed(buffer)) {
+      return null;
+    }
+    ChannelBuffer records = null;
+    while (buffer.readable()) {
+      int start = skipWhitespaces(buffer, buffer.readerIndex());
+      buffer.readerIndex(start);
+      if (!buffer.readable()) {
+        break;
+      }
+      int next = INCOMPLETE;
+      try {
+        expect(buffer, start, '{');
+        next = findRecordEnd(buffer, start);
+        int length = (next == INCOMPLETE ? buffer.writerIndex() : next) - start;
+        if (length > maxRecordLength) {
+          LOG.error("Input Stream {} : Record longer than {} bytes. Closing connection.", streamName, maxRecordLength);
+          droppedRecords.incrementAndGet();
+          resetScan();
+          buffer.skipBytes(buffer.readableBytes());
+          channel.close();
+          break;
+        }
+        if (next == INCOMPLETE) {
+          break;
+        }
+        if (parseRecord(buffer.slice(start, length), 0) != length) {
+          throw new IllegalArgumentException("Unexpected end of record.");
+        }
+      } catch (IllegalArgumentException e) {
+        LOG.error("Input Stream {} : Dropping malformed JSON record. {}", streamName, e.getMessage());
+        droppedRecords.incrementAndGet();
+        recordWriter.reset();
+        if (next != INCOMPLETE) {
+          buffer.readerIndex(next);
+        } else if (!discardMalformed(buffer)) {
+          break;
+        }
+        continue;
+      }
+      buffer.readerIndex(next);
+      if (records == null) {
+        records = ChannelBuffers.dynamicBuffer(buffer.readableBytes() + next - start);
+      }
+      recordWriter.writeTo(records);
+    }
+    return records;
+  }
+
+  /**
+   * Discards bytes up to the next '}'.
+   * @return true if the end of the malformed record is found
+   */
+  private boolean discardMalformed(ChannelBuffer buffer) {
+    int recordEnd = buffer.indexOf(buffer.readerIndex(), buffer.writerIndex(), (byte) '}');
+    discarding = recordEnd == -1;
+    buffer.readerIndex(discarding ? buffer.writerIndex() : recordEnd + 1);
+    return !discarding;
+  }
+
+  /**
+   * Finds the end of the record starting at the given index, which is the '}' that closes its first '{'. Braces in
+   * strings are ignored. If the record was incomplete before, the scan continues where it stopped.
+   * @return Index right after the record or {@link #INCOMPLETE} if the record is not completely received
+   */
+  private int findRecordEnd(ChannelBuffer buffer, int start) {
+    int end = buffer.writerIndex();
+    for (int pos = start + scannedBytes; pos < end; pos++) {
+      byte b = buffer.getByte(pos);
+      if (escaped) {
+        escaped = false;
+      } else if (inString) {
+        if (b == '\\') {
+          escaped = true;
+        } else if (b == '"') {
+          inString = false;
+        }
+      } else if (b == '"') {
+        inString = true;
+      } else if (b == '{') {
+        depth++;
+      } else if (b == '}' && --depth == 0) {
+        resetScan();
+        return pos + 1;
+      }
+    }
+    scannedBytes = end - start;
+    return INCOMPLETE;
+  }
+
+  private void resetScan() {
+    scannedBytes = 0;
+    depth = 0;
+    inString = false;
+    escaped = false;
+  }
+
+  /**
+   * Parses a complete JSON record.
+   * @return Index right after the record or {@link #INCOMPLETE} if the record ended early
+   */
+  private int parseRecord(ChannelBuffer buffer, int index) {
+    int end = buffer.writerIndex();
+    expect(buffer, index, '{');
+    boolean dataFound = false;
+    int pos = skipWhitespaces(buffer, index + 1);
+    if (pos == end) {
+      return INCOMPLETE;
+    }
+    if (buffer.getByte(pos) == '}') {
+      throw new IllegalArgumentException("Missing data.");
+    }
+    while (true) {
+      expect(buffer, pos, '"');
+      int keyEnd = scanString(buffer, pos);
+      if (keyEnd == INCOMPLETE) {
+        return INCOMPLETE;
+      }
+      boolean isData = matches(buffer, pos + 1, keyEnd - 1, DATA_KEY, false);
+      pos = skipWhitespaces(buffer, keyEnd);
+      if (pos == end) {
+        return INCOMPLETE;
+      }
+      expect(buffer, pos, ':');
+      pos = skipWhitespaces(buffer, pos + 1);
+      if (pos == end) {
+        return INCOMPLETE;
+      }
+      if (isData) {
+        if (dataFound) {
+          throw new IllegalArgumentException("Duplicate data.");
+        }
+        dataFound = true;
+        pos = parseData(buffer, pos);
+      } else {
+        pos = skipValue(buffer, pos);
+      }
+      if (pos == INCOMPLETE) {
+        return INCOMPLETE;
+      }
+      pos = skipWhitespaces(buffer, pos);
+      if (pos == end) {
+        return INCOMPLETE;
+      }
+      byte b = buffer.getByte(pos);
+      if (b == '}') {
+        break;
+      }
+      expect(buffer, pos, ',');
+      pos = skipWhitespaces(buffer, pos + 1);
+      if (pos == end) {
+        return INCOMPLETE;
+      }
+    }
+    if (!dataFound) {
+      throw new IllegalArgumentException("Missing data.");
+    }
+    return pos + 1;
+  }
+
+  private int parseData(ChannelBuffer buffer, int index) {
+    int end = buffer.writerIndex();
+    expect(buffer, index, '[');
+    int pos = index + 1;
+    for (int i = 0; i < fieldTypes.length; i++) {
+      pos = skipWhitespaces(buffer, pos);
+      if (pos == end) {
+        return INCOMPLETE;
+      }
+      if (i > 0) {
+        expect(buffer, pos, ',');
+        pos = skipWhitespaces(buffer, pos + 1);
+        if (pos == end) {
+          return INCOMPLETE;
+        }
+      }
+      pos = parseValue(buffer, pos, fieldTypes[i]);
+      if (pos == INCOMPLETE) {
+        return INCOMPLETE;
+      }
+    }
+    pos = skipWhitespaces(buffer, pos);
+    if (pos == end) {
+      return INCOMPLETE;
+    }
+    if (buffer.getByte(pos) != ']') {
+      throw new IllegalArgumentException("Expected " + fieldTypes.length + " values.");
+    }
+    return pos + 1;
+  }
+
+  private int parseValue(ChannelBuffer buffer, int index, GDATFieldType type) {
+    boolean quoted = buffer.getByte(index) == '"';
+    int next = quoted ? scanString(buffer, index) : scanLiteral(buffer, index);
+    if (next == INCOMPLETE) {
+      return INCOMPLETE;
+    }
+    int start = quoted ? index + 1 : index;
+    int stop = quoted ? next - 1 : next;
+    if (!quoted && matches(buffer, start, stop, NULL, false)) {
+      throw new IllegalArgumentException("Null values are not supported.");
+    }
+
+    switch (type) {
+      case BOOL:
+        recordWriter.writeBool(matches(buffer, start, stop, TRUE, true));
+        break;
+      case INT:
+        long value = parseLong(buffer, start, stop);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+          throw new IllegalArgumentException("Value out of range for int.");
+        }
+        recordWriter.writeInt((int) value);
+        break;
+      case LONG:
+        recordWriter.writeLong(parseLong(buffer, start, stop));
+        break;
+      case DOUBLE:
+        recordWriter.writeDouble(Double.parseDouble(buffer.toString(start, stop - start, Charsets.US_ASCII)));
+        break;
+      case STRING:
+        if (quoted && buffer.indexOf(start, stop, (byte) '\\') != -1) {
+          stringBuffer.clear();
+          unescape(buffer, start, stop, stringBuffer);
+          recordWriter.writeString(stringBuffer, 0, stringBuffer.readableBytes());
+        } else {
+          recordWriter.writeString(buffer, start, stop - start);
+        }
+        break;
+    }
+    return next;
+  }
+
+  /**
+   * Skips a JSON value of any type.
+   */
+  private int skipValue(ChannelBuffer buffer, int index) {
+    byte b = buffer.getByte(index);
+    if (b == '"') {
+      return scanString(buffer, index);
+    }
+    if (b != '{' && b != '[') {
+      return scanLiteral(buffer, index);
+    }
+    int end = buffer.writerIndex();
+    int depth = 0;
+    int pos = index;
+    while (pos < end) {
+      b = buffer.getByte(pos);
+      if (b == '"') {
+        pos = scanString(buffer, pos);
+        if (pos == INCOMPLETE) {
+          return INCOMPLETE;
+        }
+        continue;
+      }
+      if (b == '{' || b == '[') {
+        depth++;
+      } else if (b == '}' || b == ']') {
+        depth--;
+      }
+      pos++;
+      if (depth == 0) {
+        return pos;
+      }
+    }
+    return INCOMPLETE;
+  }
+
+  /**
+   * @return Index right after the closing quote of the string starting at the given index
+   */
+  private static int scanString(ChannelBuffer buffer, int index) {
+    int end = buffer.writerIndex();
+    int pos = index + 1;
+    while (pos < end) {
+      byte b = buffer.getByte(pos);
+      if (b == '\\') {
+        pos += 2;
+      } else if (b == '"') {
+        return pos + 1;
+      } else {
+        pos++;
+      }
+    }
+    return INCOMPLETE;
+  }
+
+  /**
+   * @return Index right after the literal (number, true, false, null) starting at the given index
+   */
+  private static int scanLiteral(ChannelBuffer buffer, int index) {
+    int end = buffer.writerIndex();
+    int pos = index;
+    while (pos < end && !isDelimiter(buffer.getByte(pos))) {
+      pos++;
+    }
+    if (pos == index) {
+      throw new IllegalArgumentException("Unexpected character '" + (char) buffer.getByte(pos) + "'.");
+    }
+    return pos == end ? INCOMPLETE : pos;
+  }
+
+  private static int skipWhitespaces(ChannelBuffer buffer, int index) {
+    int end = buffer.writerIndex();
+    int pos = index;
+    while (pos < end && isWhitespace(buffer.getByte(pos))) {
+      pos++;
+    }
+    return pos;
+  }
+
+  private static boolean isWhitespace(byte b) {
+    return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+  }
+
+  private static boolean isDelimiter(byte b) {
+    return isWhitespace(b) || b == ',' || b == ']' || b == '}' || b == ':';
+  }
+
+  private static void expect(ChannelBuffer buffer, int index, char c) {
+    if (buffer.getByte(index) != c) {
+      throw new IllegalArgumentException("Expected '" + c + "' but found '" + (char) buffer.getByte(index) + "'.");
+    }
+  }
+
+  private static boolean matches(ChannelBuffer buffer, int start, int stop, byte[] expected, boolean ignoreCase) {
+    if (stop - start != expected.length) {
+      return false;
+    }
+    for (int i = 0; i < expected.length; i++) {
+      byte b = buffer.getByte(start + i);
+      if (ignoreCase && b >= 'A' && b <= 'Z') {
+        b += 'a' - 'A';
+      }
+      if (b != expected[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Parses a decimal long the same way as {@link Long#parseLong(String)}.
+   */
+  private static long parseLong(ChannelBuffer buffer, int start, int stop) {
+    if (start == stop) {
+      throw new IllegalArgumentException("Empty number.");
+    }
+    byte first = buffer.getByte(start);
+    boolean negative = first == '-';
+    int pos = (negative || first == '+') ? start + 1 : start;
+    if (pos == stop) {
+      throw new IllegalArgumentException("Invalid number.");
+    }
+    //Accumulating negatively, so that Long.MIN_VALUE can be parsed.
+    long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+    long multiplicationLimit = limit / 10;
+    long result = 0;
+    for (; pos < stop; pos++) {
+      int digit = buffer.getByte(pos) - '0';
+      if (digit < 0 || digit > 9 || result < multiplicationLimit) {
+        throw new IllegalArgumentException("Invalid number.");
+      }
+      result *= 10;
+      if (result < limit + digit) {
+        throw new IllegalArgumentException("Invalid number.");
+      }
+      result -= digit;
+    }
+    return negative ? result : -result;
+  }
+
+  /**
+   * Writes the UTF-8 bytes of an escaped JSON string.
+   */
+  private static void unescape(ChannelBuffer buffer, int start, int stop, ChannelBuffer out) {
+    int pos = start;
+    while (pos < stop) {
+      byte b = buffer.getByte(pos++);
+      if (b != '\\') {
+        out.writeByte(b);
+        continue;
+      }
+      if (pos == stop) {
+        throw new IllegalArgumentException("Invalid escape sequence.");
+      }
+      byte escaped = buffer.getByte(pos++);
+      switch (escaped) {
+        case '"':
+        case '\\':
+        case '/':
+          out.writeByte(escaped);
+          break;
+        case 'b':
+          out.writeByte('\b');
+          break;
+        case 'f':
+          out.writeByte('\f');
+          break;
+        case 'n':
+          out.writeByte('\n');
+          break;
+        case 'r':
+          out.writeByte('\r');
+          break;
+        case 't':
+          out.writeByte('\t');
+          break;
+        case 'u':
+          int codePoint = parseHex(buffer, pos, stop);
+          pos += 4;
+          if (Character.isHighSurrogate((char) codePoint) && pos + 6 <= stop
+            && buffer.getByte(pos) == '\\' && buffer.getByte(pos + 1) == 'u') {
+            int low = parseHex(buffer, pos + 2, stop);
+            if (Character.isLowSurrogate((char) low)) {
+              codePoint = Character.toCodePoint((char) codePoint, (char) low);
+              pos += 6;
+            }
+          }
+          writeUTF8(codePoint, out);
+          break;
+        default:
+          throw new IllegalArgumentException("Invalid escape sequence.");
+      }
+    }
+  }
+
+  private static int parseHex(ChannelBuffer buffer, int index, int stop) {
+    if (index + 4 > stop) {
+      throw new IllegalArgumentException("Invalid unicode escape sequence.");
+    }
+    int value = 0;
+    for (int i = index; i < index + 4; i++) {
+      int digit = Character.digit(buffer.getByte(i), 16);
+      if (digit < 0) {
+        throw new IllegalArgumentException("Invalid unicode escape sequence.");
+      }
+      value = (value << 4) | digit;
+    }
+    return value;
+  }
+
+  private static void writeUTF8(int codePoint, ChannelBuffer out) {
+    if (codePoint < 0x80) {
+      out.writeByte(codePoint);
+    } else if (codePoint < 0x800) {
+      out.writeByte(0xC0 | (codePoint >> 6));
+      out.writeByte(0x80 | (codePoint & 0x3F));
+    } else if (codePoint < 0x10000) {
+      out.writeByte(0xE0 | (codePoint >> 12));
+      out.writeByte(0x80 | ((codePoint >> 6) & 0x3F));
+      out.writeByte(0x80 | (codePoint & 0x3F));
+    } else {
+      out.writeByte(0xF0 | (codePoint >> 18));
+      out.writeByte(0x80 | ((codePoint >> 12) & 0x3F));
+      out.writeByte(0x80 | ((codePoint >> 6) & 0x3F));
+      out.writeByte(0x80 | (codePoint & 0x3F));
+    }
+  }
+}
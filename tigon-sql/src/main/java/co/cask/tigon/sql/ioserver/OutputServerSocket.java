@@ -44,10 +44,9 @@ import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayOutputStream;
 import java.net.InetSocketAddress;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Output Server Socket to which Stream Engine TCP Client connects to and writes the Output Data in GDAT Format.
@@ -60,7 +59,7 @@ public class OutputServerSocket extends StreamSocketServer {
   private final GDATRecordQueue recordQueue;
   private int fieldSize = 0;
   private StreamSchema schema;
-  private long dataRecordsReceived = 0;
+  private volatile long dataRecordsReceived = 0;
 
   @SuppressWarnings("unused")
   public OutputServerSocket(ChannelFactory factory, String outputName, String sql, GDATRecordQueue recordQueue) {
@@ -111,34 +110,33 @@ public class OutputServerSocket extends StreamSocketServer {
   /**
    * GDAT Records are length prefixed - [length encoded in 4bytes in BigEndian ByteOrder][data record bytes].
    * This handler waits until it gets [4 Bytes + length] bytes and passes it on to the UpstreamHandler.
+   *
+   * Records are passed upstream as slices of the received buffers, hence no bytes are copied. Bytes of an incomplete
+   * record are kept as a slice and combined with the next received buffer through a composite buffer. Netty
+   * allocates a new buffer for every read, so slices stay valid until the records are committed and released from
+   * the {@link GDATRecordQueue}.
    */
   private class LengthFieldLittleEndianFrameDecoder extends SimpleChannelHandler {
-    private final ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
-    private byte[] lengthBytes = new byte[Ints.BYTES];
-    //TODO: Length field is unsigned 4B in GDAT Format. Check!
-    private int dataRecordLength = -1;
+    private ChannelBuffer cumulation = ChannelBuffers.EMPTY_BUFFER;
 
     @Override
     public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
-      buffer.writeBytes((ChannelBuffer) e.getMessage());
-      while (true) {
-        if (dataRecordLength != -1 && buffer.readableBytes() >= dataRecordLength) {
-          ChannelBuffer channelBuffer = buffer.readBytes(dataRecordLength);
-          dataRecordLength = -1;
-          super.messageReceived(ctx, new UpstreamMessageEvent(e.getChannel(), channelBuffer, e.getRemoteAddress()));
-        } else if (dataRecordLength == -1 && buffer.readableBytes() >= Ints.BYTES) {
-          //We want to pass both the length bytes and the data bytes and so using getBytes so that readerIndex
-          //is not changed.
-          buffer.getBytes(buffer.readerIndex(), lengthBytes, 0, Ints.BYTES);
-          //Length Data is encoded as an Integer in Big Endian Format.
-          //We want to wait until all bytes (ie, length integer plus data bytes arrive).
-          //Hence assign dataRecordLength to length integer size plus data bytes.
-          //TODO: Avoid another ByteBuffer creation if possible.
-          dataRecordLength = (Ints.BYTES + ByteBuffer.wrap(lengthBytes).order(ByteOrder.BIG_ENDIAN).getInt());
-        } else {
+      ChannelBuffer input = (ChannelBuffer) e.getMessage();
+      ChannelBuffer buffer = cumulation.readable() ? ChannelBuffers.wrappedBuffer(cumulation, input) : input;
+      //TODO: Length field is unsigned 4B in GDAT Format. Check!
+      while (buffer.readableBytes() >= Ints.BYTES) {
+        //Length Data is encoded as an Integer in Big Endian Format, which is the byte order of ChannelBuffers.
+        //We want to wait until all bytes (ie, length integer plus data bytes arrive).
+        int frameLength = Ints.BYTES + buffer.getInt(buffer.readerIndex());
+        if (buffer.readableBytes() < frameLength) {
           break;
         }
+        //We want to pass both the length bytes and the data bytes.
+        ChannelBuffer frame = buffer.slice(buffer.readerIndex(), frameLength);
+        buffer.skipBytes(frameLength);
+        super.messageReceived(ctx, new UpstreamMessageEvent(e.getChannel(), frame, e.getRemoteAddress()));
       }
+      cumulation = buffer.readable() ? buffer.slice() : ChannelBuffers.EMPTY_BUFFER;
     }
   }
 
@@ -205,9 +203,12 @@ public class OutputServerSocket extends StreamSocketServer {
 
   /**
    * Handles GDAT Records.
+   * Stops reading from the Stream Engine once the {@link GDATRecordQueue} is full, so that the Stream Engine (and in
+   * turn the ingestion clients) are throttled over TCP, and resumes reading once the queue has drained.
    */
   private class GDATRecordHandler extends SimpleChannelHandler {
     private final Logger log = LoggerFactory.getLogger(GDATRecordHandler.class);
+    private final AtomicBoolean suspended = new AtomicBoolean(false);
 
     @Override
     public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
@@ -221,8 +222,27 @@ public class OutputServerSocket extends StreamSocketServer {
         //Add Decoder to queue
         recordQueue.add(Maps.immutableEntry(outputName, decoder));
         dataRecordsReceived++;
+        if (recordQueue.isFull()) {
+          suspend(e.getChannel());
+        }
         super.messageReceived(ctx, e);
       }
     }
+
+    private void suspend(final Channel channel) {
+      if (!suspended.compareAndSet(false, true)) {
+        return;
+      }
+      log.debug("Output Stream {} : Record queue full. Suspend reading", outputName);
+      channel.setReadable(false);
+      recordQueue.suspendUntilAvailable(new Runnable() {
+        @Override
+        public void run() {
+          log.debug("Output Stream {} : Resume reading", outputName);
+          suspended.set(false);
+          channel.setReadable(true);
+        }
+      });
+    }
   }
 }
@@ -22,6 +22,7 @@ import co.cask.tigon.sql.flowlet.InputFlowletSpecification;
 import co.cask.tigon.sql.flowlet.InputStreamFormat;
 import co.cask.tigon.sql.flowlet.StreamSchema;
 import co.cask.tigon.sql.io.DataIngestionRouter;
+import com.google.common.base.Supplier;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.util.concurrent.AbstractIdleService;
@@ -40,22 +41,31 @@ import java.util.concurrent.Executors;
 public class StreamEngineIO extends AbstractIdleService {
   private final InputFlowletSpecification spec;
   private final List<StreamSocketServer> inputServerSocketServices = Lists.newArrayList();
+  private final Map<String, InputServerSocket> inputServerSockets = Maps.newHashMap();
   private final List<StreamSocketServer> outputServerSocketServies = Lists.newArrayList();
   private final Map<String, Map<String, InetSocketAddress>> inputServerMap = Maps.newHashMap();
   private final Map<String, Map<String, InetSocketAddress>> outputServerMap = Maps.newHashMap();
   private final Map<String, InetSocketAddress> dataIngressServerMap = Maps.newHashMap();
   private final Map<String, InetSocketAddress> dataEgressServerMap = Maps.newHashMap();
   private final Map<String, InetSocketAddress> dataSourceServerMap = Maps.newHashMap();
+  private final Map<String, Supplier<Long>> droppedRecords = Maps.newHashMap();
   private final GDATRecordQueue recordQueue;
   private DataIngestionRouter router;
   private final Map<String, Integer> portMap;
+  private final int maxRecordLength;
 
   //TODO Remove GDATRecordQueue parameter from this constructor. Use Guice to inject it directly to OutputServerSocket
   //TODO Tracked by JIRA TIGON-4
   public StreamEngineIO(InputFlowletSpecification spec, GDATRecordQueue recordQueue, Map<String, Integer> portMap) {
+    this(spec, recordQueue, portMap, Constants.DEFAULT_MAX_RECORD_LENGTH);
+  }
+
+  public StreamEngineIO(InputFlowletSpecification spec, GDATRecordQueue recordQueue, Map<String, Integer> portMap,
+                        int maxRecordLength) {
     this.spec = spec;
     this.recordQueue = recordQueue;
     this.portMap = portMap;
+    this.maxRecordLength = maxRecordLength;
   }
 
   @Override
@@ -68,16 +78,24 @@ public class StreamEngineIO extends AbstractIdleService {
       switch(streamInfo.getKey()) {
         case GDAT:
           service = new InputServerSocket(factory, inputName, streamInfo.getValue(),
-                                          portMap.get(Constants.TCP_INGESTION_PORT_PREFIX + inputName));
+                                          portMap.get(Constants.TCP_INGESTION_PORT_PREFIX + inputName),
+                                          maxRecordLength);
           break;
 
         case JSON:
           service = new JsonInputServerSocket(factory, inputName, streamInfo.getValue(),
-                                              portMap.get(Constants.TCP_INGESTION_PORT_PREFIX + inputName));
+                                              portMap.get(Constants.TCP_INGESTION_PORT_PREFIX + inputName),
+                                              maxRecordLength);
+          break;
+
+        case BINARY:
+          service = new BinaryInputServerSocket(factory, inputName, streamInfo.getValue(),
+                                                portMap.get(Constants.TCP_INGESTION_PORT_PREFIX + inputName),
+                                                maxRecordLength);
           break;
 
         default:
-          throw new Exception("Unknown Input Format. Only JSON and GDAT Formats are supported.");
+          throw new Exception("Unknown Input Format. Only JSON, BINARY and GDAT Formats are supported.");
       }
 
       service.startAndWait();
@@ -86,6 +104,14 @@ public class StreamEngineIO extends AbstractIdleService {
       dataIngressServerMap.put(inputName, service.getSocketAddressMap().get(Constants.StreamIO.TCP_DATA_INGESTION));
       dataSourceServerMap.put(inputName, service.getSocketAddressMap().get(Constants.StreamIO.DATASOURCE));
       inputServerSocketServices.add(service);
+      inputServerSockets.put(inputName, service);
+      final InputServerSocket inputServerSocket = service;
+      droppedRecords.put(inputName, new Supplier<Long>() {
+        @Override
+        public Long get() {
+          return inputServerSocket.getDroppedRecords();
+        }
+      });
     }
 
     for (Map.Entry<String, String> output : spec.getQuery().entrySet()) {
@@ -98,7 +124,7 @@ public class StreamEngineIO extends AbstractIdleService {
       outputServerSocketServies.add(service);
     }
 
-    router = new DataIngestionRouter(dataIngressServerMap, portMap.get(Constants.HTTP_PORT));
+    router = new DataIngestionRouter(dataIngressServerMap, droppedRecords, portMap.get(Constants.HTTP_PORT));
     router.startAndWait();
     portMap.put(Constants.HTTP_PORT, router.getAddress().getPort());
   }
@@ -107,6 +133,10 @@ public class StreamEngineIO extends AbstractIdleService {
     return Collections.unmodifiableMap(dataIngressServerMap);
   }
 
+  public Map<String, InputServerSocket> getInputServerSockets() {
+    return Collections.unmodifiableMap(inputServerSockets);
+  }
+
   public Map<String, InetSocketAddress> getDataSourceServerMap() {
     return Collections.unmodifiableMap(dataSourceServerMap);
   }
@@ -19,13 +19,16 @@ package co.cask.tigon.sql.flowlet;
 import co.cask.tigon.sql.io.GDATDecoder;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
 import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
 import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * GDATRecordQueueTest
@@ -62,6 +65,63 @@ public class GDATRecordQueueTest {
     Assert.assertTrue(recordQueue.isEmpty());
   }
 
+  @Test
+  public void testBackpressure() {
+    GDATRecordQueue boundedQueue = new GDATRecordQueue(4, 1024);
+    for (int i = 0; i < 4; i++) {
+      Assert.assertFalse(boundedQueue.isFull());
+      ByteBuffer buffer = ByteBuffer.allocate(Ints.BYTES + 12);
+      buffer.putInt(0, 12);
+      boundedQueue.add(Maps.immutableEntry(i + "", new GDATDecoder(buffer)));
+    }
+    Assert.assertTrue(boundedQueue.isFull());
+    Assert.assertEquals(4, boundedQueue.size());
+    Assert.assertEquals(64L, boundedQueue.getBytes());
+    Assert.assertEquals(100, boundedQueue.getFillPercent());
+
+    final AtomicBoolean resumed = new AtomicBoolean(false);
+    boundedQueue.suspendUntilAvailable(new Runnable() {
+      @Override
+      public void run() {
+        resumed.set(true);
+      }
+    });
+    Assert.assertFalse(resumed.get());
+
+    // Rolled back records still occupy the queue
+    boundedQueue.getNext();
+    boundedQueue.getNext();
+    boundedQueue.rollback();
+    Assert.assertFalse(resumed.get());
+
+    // Resumes only once drained below half of the capacity
+    boundedQueue.getNext();
+    boundedQueue.commit();
+    Assert.assertFalse(resumed.get());
+    boundedQueue.getNext();
+    boundedQueue.commit();
+    Assert.assertTrue(resumed.get());
+    Assert.assertFalse(boundedQueue.isFull());
+    Assert.assertEquals(2, boundedQueue.size());
+    Assert.assertEquals(32L, boundedQueue.getBytes());
+  }
+
+  @Test
+  public void testAwaitRecords() throws InterruptedException {
+    final GDATRecordQueue queue = new GDATRecordQueue();
+    Assert.assertFalse(queue.awaitRecords(10, TimeUnit.MILLISECONDS));
+    Thread producer = new Thread() {
+      @Override
+      public void run() {
+        queue.add(Maps.<String, GDATDecoder>immutableEntry("record", null));
+      }
+    };
+    producer.start();
+    Assert.assertTrue(queue.awaitRecords(10, TimeUnit.SECONDS));
+    Assert.assertEquals("record", queue.getNext().getKey());
+    producer.join();
+  }
+
   @Test
   public void testMultiThreadedAddOperation() {
     Assert.assertTrue(recordQueue.isEmpty());
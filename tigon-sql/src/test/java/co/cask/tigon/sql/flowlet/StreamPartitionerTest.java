@@ -0,0 +1,54 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.sql.flowlet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Tests the routing of ingested data across InputFlowlet instances.
+ */
+public class StreamPartitionerTest {
+
+  @Test
+  public void testGetInstance() {
+    int[] counts = new int[4];
+    for (int i = -1000; i < 1000; i++) {
+      int instance = StreamPartitioner.getInstance("key" + i, 4);
+      Assert.assertTrue(instance >= 0 && instance < 4);
+      Assert.assertEquals(instance, StreamPartitioner.getInstance("key" + i, 4));
+      counts[instance]++;
+      Assert.assertEquals(0, StreamPartitioner.getInstance(i, 1));
+    }
+    for (int count : counts) {
+      Assert.assertTrue(count > 0);
+    }
+    Assert.assertEquals(StreamPartitioner.getInstance(Integer.MIN_VALUE, 3),
+                        StreamPartitioner.getInstance(Integer.MIN_VALUE, 3));
+    Assert.assertTrue(StreamPartitioner.getInstance(Integer.MIN_VALUE, 3) >= 0);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidInstanceCount() {
+    StreamPartitioner.getInstance("key", 0);
+  }
+
+  @Test
+  public void testEndpointName() {
+    Assert.assertEquals("tcpPort_intInput.2", StreamPartitioner.getEndpointName("tcpPort_intInput", 2));
+  }
+}
@@ -66,6 +66,16 @@ public class HealthAndMetricsTest {
       LOG.info("[METRICS] CounterName : {}\tValue last second : {}", counterName, delta);
     }
 
+    @Override
+    public void histogram(String histogramName, long value) {
+      // no-op
+    }
+
+    @Override
+    public void time(String timerName, long duration, TimeUnit unit) {
+      // no-op
+    }
+
     public static Integer getCounter(String counterName) {
       return metricsValue.get(counterName);
     }
@@ -0,0 +1,120 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.sql.internal;
+
+import co.cask.tigon.api.metrics.Metrics;
+import co.cask.tigon.sql.flowlet.GDATRecordQueue;
+import co.cask.tigon.sql.io.GDATDecoder;
+import com.google.common.collect.Maps;
+import com.google.gson.JsonObject;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tests the conversion of the Stream Engine metrics by the {@link MetricsRecorder}.
+ */
+public class MetricsRecorderTest {
+  private final Map<String, Integer> counters = Maps.newHashMap();
+  private MetricsRecorder recorder;
+
+  @Before
+  public void setup() {
+    counters.clear();
+    recorder = new MetricsRecorder(new Metrics() {
+      @Override
+      public void count(String counterName, int delta) {
+        Integer value = counters.get(counterName);
+        counters.put(counterName, value == null ? delta : value + delta);
+      }
+
+      @Override
+      public void histogram(String histogramName, long value) {
+        // no-op
+      }
+
+      @Override
+      public void time(String timerName, long duration, TimeUnit unit) {
+        // no-op
+      }
+    });
+  }
+
+  @Test
+  public void testEngineMetrics() {
+    for (int i = 0; i < 4; i++) {
+      JsonObject metrics = new JsonObject();
+      metrics.addProperty("in_tuple_cnt", 10);
+      metrics.addProperty("cycle_cnt", 0.25);
+      metrics.addProperty("sampling_rate", i < 2 ? 1.0 : 0.5);
+      recorder.recordMetrics("hfta", metrics);
+    }
+    Assert.assertEquals(40, (int) counters.get("hfta.in_tuple_cnt"));
+    // Sub-integer values add up instead of being rounded away
+    Assert.assertEquals(1, (int) counters.get("hfta.cycle_cnt"));
+    // Gauges hold the last reported value
+    Assert.assertEquals(50, (int) counters.get("hfta.sampling_rate.percent"));
+  }
+
+  @Test
+  public void testIngestionMetrics() {
+    recorder.recordIngestionMetrics("input", 10, 1000, 0, 1);
+    recorder.recordIngestionMetrics("input", 25, 2500, 2, 1);
+    Assert.assertEquals(25, (int) counters.get("stream.input.records"));
+    Assert.assertEquals(2500, (int) counters.get("stream.input.bytes"));
+    Assert.assertEquals(2, (int) counters.get("stream.input.dropped"));
+    Assert.assertEquals(1, (int) counters.get("stream.input.saturated"));
+  }
+
+  @Test
+  public void testLatencyMetrics() {
+    recorder.addLatency("sumOut", TimeUnit.MICROSECONDS.toNanos(500));
+    recorder.addLatency("sumOut", TimeUnit.MILLISECONDS.toNanos(5));
+    recorder.addLatency("sumOut", TimeUnit.MILLISECONDS.toNanos(7));
+    recorder.addLatency("sumOut", TimeUnit.SECONDS.toNanos(20));
+    recorder.recordLatencyMetrics();
+    // Nothing is recorded if there was no record since the last invocation
+    recorder.recordLatencyMetrics();
+    Assert.assertEquals(4, (int) counters.get("query.sumOut.records"));
+    Assert.assertEquals(20012, (int) counters.get("query.sumOut.latency.ms"));
+    Assert.assertEquals(1, (int) counters.get("query.sumOut.latency.0-1ms"));
+    Assert.assertEquals(2, (int) counters.get("query.sumOut.latency.1-10ms"));
+    Assert.assertNull(counters.get("query.sumOut.latency.10-100ms"));
+    Assert.assertEquals(1, (int) counters.get("query.sumOut.latency.10000ms+"));
+  }
+
+  @Test
+  public void testRecordQueueMetrics() {
+    GDATRecordQueue recordQueue = new GDATRecordQueue(10, 1000);
+    for (int i = 0; i < 4; i++) {
+      recordQueue.add(Maps.<String, GDATDecoder>immutableEntry("query", null));
+    }
+    recorder.recordQueueMetrics(recordQueue);
+    recorder.recordQueueMetrics(recordQueue);
+    for (int i = 0; i < 3; i++) {
+      recordQueue.getNext();
+    }
+    recordQueue.commit();
+    recorder.recordQueueMetrics(recordQueue);
+    // The fill level is reported as a gauge, the counters sum up to the last value
+    Assert.assertEquals(1, (int) counters.get("recordqueue.records"));
+    Assert.assertEquals(10, (int) counters.get("recordqueue.fill.percent"));
+  }
+}
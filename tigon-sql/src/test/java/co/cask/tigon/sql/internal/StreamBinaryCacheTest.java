@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.sql.internal;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Assert;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+/**
+ * Tests storing and restoring compiled Stream Engine binaries with the {@link StreamBinaryCache}.
+ */
+public class StreamBinaryCacheTest {
+
+  @ClassRule
+  public static TemporaryFolder tmp = new TemporaryFolder();
+
+  @Test
+  public void testStoreRestore() throws Exception {
+    StreamBinaryCache cache = new StreamBinaryCache(tmp.newFolder());
+    File binaries = tmp.newFolder();
+    File queryDir = new File(new File(binaries, "work"), "query");
+    queryDir.mkdirs();
+    Files.write("binary", new File(queryDir, "rts"), Charsets.UTF_8);
+
+    File dir = tmp.newFolder();
+    Assert.assertFalse(cache.restore("key", dir));
+    cache.store("key", binaries);
+    Assert.assertTrue(cache.restore("key", dir));
+    File restored = new File(new File(new File(dir, "work"), "query"), "rts");
+    Assert.assertEquals("binary", Files.toString(restored, Charsets.UTF_8));
+    Assert.assertTrue(restored.canExecute());
+
+    //Storing an existing entry keeps the existing entry
+    Files.write("other", new File(queryDir, "rts"), Charsets.UTF_8);
+    cache.store("key", binaries);
+    File otherDir = tmp.newFolder();
+    Assert.assertTrue(cache.restore("key", otherDir));
+    Assert.assertEquals("binary", Files.toString(new File(new File(new File(otherDir, "work"), "query"), "rts"),
+                                                 Charsets.UTF_8));
+  }
+}
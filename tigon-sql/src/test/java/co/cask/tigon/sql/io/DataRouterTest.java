@@ -17,11 +17,17 @@
 package co.cask.tigon.sql.io;
 
 import co.cask.tigon.utils.Networks;
+import com.google.common.base.Supplier;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.google.common.reflect.TypeToken;
+import com.google.gson.Gson;
 import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.util.EntityUtils;
 import org.jboss.netty.bootstrap.ServerBootstrap;
 import org.jboss.netty.channel.ChannelHandlerContext;
 import org.jboss.netty.channel.ChannelPipeline;
@@ -42,6 +48,7 @@ import java.net.InetSocketAddress;
 import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Test Data Ingestion Router and Client Service.
@@ -56,10 +63,13 @@ public class DataRouterTest {
     @Override
     public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) {
       String key = (String) e.getMessage();
-      if (!testMap.containsKey(key)) {
-        testMap.put(key, 1);
-      } else {
-        testMap.put(key, testMap.get(key) + 1);
+      //Router spreads the data over several connections
+      synchronized (testMap) {
+        if (!testMap.containsKey(key)) {
+          testMap.put(key, 1);
+        } else {
+          testMap.put(key, testMap.get(key) + 1);
+        }
       }
     }
   }
@@ -109,6 +119,92 @@ public class DataRouterTest {
     }
   }
 
+  @Test
+  public void testBatchIngestion() throws Exception {
+    int port = Networks.getRandomPort();
+    DataIngestionRouter router = new DataIngestionRouter(serverMap, port);
+    try {
+      router.startAndWait();
+      TimeUnit.SECONDS.sleep(1);
+      HttpHost routerHost = new HttpHost("127.0.0.1", port);
+      int batchSize = 20000;
+      StringBuilder batch = new StringBuilder();
+      for (int i = 0; i < batchSize; i++) {
+        batch.append("batchRecord\n");
+      }
+      DefaultHttpClient httpClient = new DefaultHttpClient();
+      HttpPost httpPost = new HttpPost("/v1/tigon/stream4/batch");
+      httpPost.setEntity(new StringEntity(batch.toString()));
+      HttpResponse response = httpClient.execute(routerHost, httpPost);
+      Assert.assertEquals(200, response.getStatusLine().getStatusCode());
+      Map<String, Double> result = new Gson().fromJson(EntityUtils.toString(response.getEntity()),
+                                                       new TypeToken<Map<String, Double>>() { }.getType());
+      Assert.assertEquals(batchSize, result.get("accepted").intValue());
+
+      httpPost = new HttpPost("/v1/tigon/unknownStream/batch");
+      httpPost.setEntity(new StringEntity("batchRecord\n"));
+      response = httpClient.execute(routerHost, httpPost);
+      EntityUtils.consume(response.getEntity());
+      Assert.assertEquals(404, response.getStatusLine().getStatusCode());
+
+      long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+      while (getCount("batchRecord") < batchSize && System.currentTimeMillis() < timeout) {
+        TimeUnit.MILLISECONDS.sleep(50);
+      }
+      Assert.assertEquals(batchSize, getCount("batchRecord"));
+    } finally {
+      router.stopAndWait();
+    }
+  }
+
+  @Test
+  public void testBatchDroppedRecords() throws Exception {
+    int port = Networks.getRandomPort();
+    //The router only checks the framing, the records are decoded by the ingestion server which counts the drops
+    final AtomicLong dropped = new AtomicLong(7);
+    Supplier<Long> droppedSupplier = new Supplier<Long>() {
+      @Override
+      public Long get() {
+        return dropped.get();
+      }
+    };
+    Map<String, Supplier<Long>> droppedRecords = ImmutableMap.of("stream3", droppedSupplier);
+    DataIngestionRouter router = new DataIngestionRouter(serverMap, droppedRecords, port);
+    try {
+      router.startAndWait();
+      TimeUnit.SECONDS.sleep(1);
+      HttpHost routerHost = new HttpHost("127.0.0.1", port);
+      DefaultHttpClient httpClient = new DefaultHttpClient();
+      HttpPost httpPost = new HttpPost("/v1/tigon/stream3/batch");
+      //The last record has no line delimiter
+      httpPost.setEntity(new StringEntity("framedRecord\nframedRecord\n\nframedRecord\r\n"
+                                            + "framedRecord\nframedRecord"));
+      HttpResponse response = httpClient.execute(routerHost, httpPost);
+      Assert.assertEquals(200, response.getStatusLine().getStatusCode());
+      Map<String, Double> result = new Gson().fromJson(EntityUtils.toString(response.getEntity()),
+                                                       new TypeToken<Map<String, Double>>() { }.getType());
+      Assert.assertEquals(5, result.get("accepted").intValue());
+      Assert.assertEquals(7, result.get("dropped").intValue());
+
+      //Every non blank line is forwarded, including the last one
+      long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+      while (getCount("framedRecord") < 5 && System.currentTimeMillis() < timeout) {
+        TimeUnit.MILLISECONDS.sleep(50);
+      }
+      TimeUnit.MILLISECONDS.sleep(200);
+      Assert.assertEquals(5, getCount("framedRecord"));
+    } finally {
+      router.stopAndWait();
+    }
+  }
+
+  private int getCount(String key) {
+    synchronized (testMap) {
+      Integer count = testMap.get(key);
+      return count == null ? 0 : count;
+    }
+  }
+
   private void doPost(HttpHost host, String streamName) throws Exception {
     DefaultHttpClient httpClient = new DefaultHttpClient();
     HttpPost httpPost = new HttpPost("/v1/tigon/" + streamName);
@@ -18,9 +18,12 @@ package co.cask.tigon.sql.io;
 
 import co.cask.tigon.sql.flowlet.AbstractInputFlowlet;
 import co.cask.tigon.sql.flowlet.annotation.QueryOutput;
+import com.google.common.collect.Lists;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
 /**
  * GenericTestClass
  * Sample flowlet used for testing the POJOCreator
@@ -98,6 +101,41 @@ class Output4 {
   }
 }
 
+class Output5 {
+  long timestamp;
+  String iStream;
+  String stringVar;
+  double longVar;
+  Double doubleVar;
+  String boolVar;
+
+  public String toString() {
+    return "\tTimeStamp: " + timestamp + "\tiStream: " + iStream + "\tString: " + stringVar + "\tlongVar: " + longVar
+      + "\tdoubleVar: " + doubleVar + "\tboolVar: " + boolVar;
+  }
+}
+
 class GenericFlowletTestClass extends GenericTestFlowlet<Output1, Integer> {
 
 }
+
+/**
+ * Sample flowlet that records the timestamps of the records it receives, per query
+ */
+class RecordingFlowlet extends AbstractInputFlowlet {
+  final List<Integer> sumOut = Lists.newArrayList();
+  final List<Integer> countOut = Lists.newArrayList();
+
+  @Override
+  public void create() {}
+
+  @QueryOutput("sumOut")
+  void processSum(Output1 obj) {
+    sumOut.add(obj.timestamp);
+  }
+
+  @QueryOutput("countOut")
+  void processCount(Output1 obj) {
+    countOut.add(obj.timestamp);
+  }
+}
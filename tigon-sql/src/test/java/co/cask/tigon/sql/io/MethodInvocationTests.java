@@ -16,6 +16,8 @@
 
 package co.cask.tigon.sql.io;
 
+import co.cask.tigon.internal.io.ReflectionDatumReader;
+import co.cask.tigon.internal.io.ReflectionSchemaGenerator;
 import co.cask.tigon.internal.io.Schema;
 import co.cask.tigon.internal.io.UnsupportedTypeException;
 import co.cask.tigon.internal.lang.MethodVisitor;
@@ -24,6 +26,7 @@ import co.cask.tigon.sql.flowlet.AbstractInputFlowlet;
 import co.cask.tigon.sql.flowlet.GDATFieldType;
 import co.cask.tigon.sql.flowlet.StreamSchema;
 import co.cask.tigon.sql.flowlet.annotation.QueryOutput;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.primitives.Longs;
 import com.google.common.reflect.TypeToken;
@@ -36,6 +39,7 @@ import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -90,6 +94,55 @@ public class MethodInvocationTests {
     driver.invokeMethods("sumOut", new GDATDecoder(ByteBuffer.wrap(bytes)));
   }
 
+  /**
+   * Tests dispatching records to the methods on the calling thread and through a pool of worker threads
+   */
+  @Test
+  public void testQueryOutputDispatcher() throws Exception {
+    testQueryOutputDispatcher(1);
+    testQueryOutputDispatcher(4);
+  }
+
+  private void testQueryOutputDispatcher(int threads) throws Exception {
+    StreamSchema streamSchema = new StreamSchema.Builder()
+      .addField("timestamp", GDATFieldType.INT)
+      .addField("iStream", GDATFieldType.INT)
+      .addField("stringVar", GDATFieldType.STRING)
+      .build();
+    Map<String, StreamSchema> schemaMap = Maps.newHashMap();
+    schemaMap.put("sumOut", streamSchema);
+    schemaMap.put("countOut", streamSchema);
+    RecordingFlowlet recordingFlowlet = new RecordingFlowlet();
+    QueryOutputDispatcher dispatcher = new QueryOutputDispatcher(new MethodsDriver(recordingFlowlet, schemaMap),
+                                                                 threads);
+    List<Integer> expectedSum = Lists.newArrayList();
+    List<Integer> expectedCount = Lists.newArrayList();
+    try {
+      // Interleave the records of both queries, every record is tagged by its timestamp
+      for (int i = 0; i < 100; i++) {
+        GDATEncoder encoder = new GDATEncoder();
+        encoder.writeInt(i);
+        encoder.writeInt(456789);
+        encoder.writeString("I am your POJO!");
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        encoder.writeTo(bos);
+        if (i % 3 == 0) {
+          dispatcher.dispatch("countOut", new GDATDecoder(ByteBuffer.wrap(bos.toByteArray())));
+          expectedCount.add(i);
+        } else {
+          dispatcher.dispatch("sumOut", new GDATDecoder(ByteBuffer.wrap(bos.toByteArray())));
+          expectedSum.add(i);
+        }
+      }
+      dispatcher.flush();
+    } finally {
+      dispatcher.shutdown();
+    }
+    // All records are processed once flush returns, and the records of each query in the order dispatched
+    Assert.assertEquals(expectedSum, recordingFlowlet.sumOut);
+    Assert.assertEquals(expectedCount, recordingFlowlet.countOut);
+  }
+
   /**
    * Tests expected POJOCreator
    */
@@ -101,6 +154,27 @@ public class MethodInvocationTests {
     Assert.assertEquals(Output1.class, obj.getClass());
   }
 
+  /**
+   * Tests that the POJOCreator performs the same type conversions as the
+   * {@link co.cask.tigon.internal.io.ReflectionDatumReader}
+   */
+  @Test
+  public void testPOJOCreatorTypeConversion() throws IOException, UnsupportedTypeException {
+    POJOCreator pojoCreator = new POJOCreator(Output5.class, schema);
+    Output5 obj = (Output5) pojoCreator.decode(new GDATDecoder(ByteBuffer.wrap(bytes)));
+    ReflectionDatumReader<Output5> datumReader =
+      new ReflectionDatumReader<Output5>(new ReflectionSchemaGenerator().generate(Output5.class, false),
+                                         TypeToken.of(Output5.class));
+    Output5 expected = datumReader.read(new GDATDecoder(ByteBuffer.wrap(bytes)), schema);
+    Assert.assertEquals(expected.toString(), obj.toString());
+    Assert.assertEquals(23L, obj.timestamp);
+    Assert.assertEquals("456789", obj.iStream);
+    Assert.assertEquals("I am your POJO!", obj.stringVar);
+    Assert.assertEquals((double) Longs.MAX_POWER_OF_TWO, obj.longVar, 0.0d);
+    Assert.assertEquals(Double.valueOf(13.123), obj.doubleVar);
+    Assert.assertEquals("false", obj.boolVar);
+  }
+
   /**
    * NOTE: This test generates error logs
    * Tests the POJOCreator when a bad data record is provided
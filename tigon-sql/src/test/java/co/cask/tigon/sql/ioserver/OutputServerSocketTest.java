@@ -22,6 +22,7 @@ import co.cask.tigon.sql.flowlet.GDATRecordQueue;
 import co.cask.tigon.sql.flowlet.GDATSlidingWindowAttribute;
 import co.cask.tigon.sql.flowlet.StreamSchema;
 import co.cask.tigon.sql.internal.StreamInputHeader;
+import co.cask.tigon.sql.io.GDATDecoder;
 import co.cask.tigon.sql.io.GDATEncoder;
 import com.google.common.collect.Lists;
 import com.google.common.primitives.Bytes;
@@ -134,4 +135,53 @@ public class OutputServerSocketTest {
     TimeUnit.SECONDS.sleep(2);
     Assert.assertEquals(1, outputServerSocket.getDataRecordsReceived());
   }
+
+  /**
+   * Records written in arbitrary chunks must reach the {@link GDATRecordQueue} intact, whether they arrive whole,
+   * several per packet or split across packets.
+   */
+  @Test
+  public void testRecordFraming() throws Exception {
+    String outputName = "framedOutput";
+    int numRecords = 1000;
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    out.write(new StreamInputHeader(outputName, testSchema).getStreamHeader().getBytes(Charsets.UTF_8));
+    for (int i = 0; i < numRecords; i++) {
+      GDATEncoder encoder = new GDATEncoder();
+      encoder.writeLong(i);
+      encoder.writeString("item" + i);
+      encoder.writeTo(out);
+    }
+    byte[] bytes = out.toByteArray();
+
+    GDATRecordQueue recordQueue = new GDATRecordQueue();
+    OutputServerSocket outputServerSocket = new OutputServerSocket(serverFacotry, outputName, "SELECT foo FROM bar",
+                                                                   recordQueue);
+    outputServerSocket.startAndWait();
+    InetSocketAddress serverAddress = outputServerSocket.getSocketAddressMap().get(Constants.StreamIO.DATASINK);
+    setupClientPipeline();
+    ChannelFuture future = clientBootstrap.connect(serverAddress);
+    future.await(3, TimeUnit.SECONDS);
+    Channel channel = future.getChannel();
+
+    //Chunk size that doesn't align with the record size.
+    int chunkSize = 37;
+    for (int i = 0; i < bytes.length; i += chunkSize) {
+      channel.write(ChannelBuffers.wrappedBuffer(bytes, i, Math.min(chunkSize, bytes.length - i))).await();
+    }
+
+    long timeout = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+    while (outputServerSocket.getDataRecordsReceived() < numRecords && System.currentTimeMillis() < timeout) {
+      TimeUnit.MILLISECONDS.sleep(10);
+    }
+    Assert.assertEquals(numRecords, outputServerSocket.getDataRecordsReceived());
+    for (int i = 0; i < numRecords; i++) {
+      GDATDecoder decoder = recordQueue.getNext().getValue();
+      Assert.assertEquals(i, decoder.readLong());
+      Assert.assertEquals("item" + i, decoder.readString());
+    }
+    recordQueue.commit();
+    Assert.assertTrue(recordQueue.isEmpty());
+    channel.close().await();
+  }
 }
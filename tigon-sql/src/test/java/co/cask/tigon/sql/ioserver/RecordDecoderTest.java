@@ -0,0 +1,186 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.sql.ioserver;
+
+import co.cask.tigon.sql.flowlet.GDATFieldType;
+import co.cask.tigon.sql.flowlet.StreamSchema;
+import co.cask.tigon.sql.io.GDATEncoder;
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.Channel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tests conversion of the JSON and binary input formats to GDAT records.
+ */
+public class RecordDecoderTest {
+  private static final StreamSchema schema = new StreamSchema.Builder()
+    .addField("timestamp", GDATFieldType.LONG)
+    .addField("intStream", GDATFieldType.INT)
+    .addField("flag", GDATFieldType.BOOL)
+    .addField("value", GDATFieldType.DOUBLE)
+    .addField("str", GDATFieldType.STRING)
+    .build();
+
+  @Test
+  public void testJsonRecordDecoder() throws Exception {
+    JsonRecordDecoder decoder = new JsonRecordDecoder("jsonStream", schema);
+    String json = "{\"data\" : [\"1234\", \"-5\", \"True\", \"34.5\", \"Hello\"]}\n"
+      + "{ \"id\" : {\"x\" : [1, \"]}\"]}, \"data\":[9223372036854775807,2147483647,false,-1e3,\"a\\\"b\\u00e9\\n}\"] }"
+      + "{\"data\" : [\"bad\", \"5\", \"true\", \"1.0\", \"Dropped\"]}"
+      + "{\"data\" : [1, 2, true, 0.5, \"Last\"]}";
+    byte[] bytes = json.getBytes(Charsets.UTF_8);
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    encode(expected, 1234L, -5, true, 34.5d, "Hello");
+    encode(expected, Long.MAX_VALUE, Integer.MAX_VALUE, false, -1000d, "a\"b\u00e9\n}");
+    encode(expected, 1L, 2, true, 0.5d, "Last");
+
+    //Feed the bytes in chunks, so that records are split across chunks
+    ChannelBuffer input = ChannelBuffers.dynamicBuffer();
+    ChannelBuffer output = ChannelBuffers.dynamicBuffer();
+    for (int i = 0; i < bytes.length; i += 7) {
+      input.writeBytes(bytes, i, Math.min(7, bytes.length - i));
+      ChannelBuffer records = (ChannelBuffer) decoder.decode(null, null, input);
+      if (records != null) {
+        output.writeBytes(records);
+      }
+    }
+    Assert.assertFalse(input.readable());
+    Assert.assertArrayEquals(expected.toByteArray(), toByteArray(output));
+  }
+
+  @Test
+  public void testBinaryRecordDecoder() throws Exception {
+    BinaryRecordDecoder decoder = new BinaryRecordDecoder("binaryStream", schema);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    writeBinary(bytes, 1234L, -5, true, 34.5d, "Hello");
+    //Record that doesn't match the schema is dropped
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(3);
+    out.write(new byte[3]);
+    writeBinary(bytes, Long.MIN_VALUE, 7, false, -0.25d, "\u00e9t\u00e9");
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    encode(expected, 1234L, -5, true, 34.5d, "Hello");
+    encode(expected, Long.MIN_VALUE, 7, false, -0.25d, "\u00e9t\u00e9");
+
+    byte[] input = bytes.toByteArray();
+    ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+    ChannelBuffer output = ChannelBuffers.dynamicBuffer();
+    for (int i = 0; i < input.length; i += 5) {
+      buffer.writeBytes(input, i, Math.min(5, input.length - i));
+      ChannelBuffer records = (ChannelBuffer) decoder.decode(null, null, buffer);
+      if (records != null) {
+        output.writeBytes(records);
+      }
+    }
+    Assert.assertFalse(buffer.readable());
+    Assert.assertArrayEquals(expected.toByteArray(), toByteArray(output));
+  }
+
+  @Test
+  public void testMaxRecordLength() throws Exception {
+    AtomicBoolean closed = new AtomicBoolean();
+    Channel channel = createChannel(closed);
+    AtomicLong droppedRecords = new AtomicLong();
+    JsonRecordDecoder jsonDecoder = new JsonRecordDecoder("jsonStream", schema, droppedRecords, 64);
+
+    ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    encode(expected, 1L, 2, true, 0.5d, "Short");
+    ChannelBuffer input = ChannelBuffers.dynamicBuffer();
+    String json = "{\"data\" : [1, 2, true, 0.5, \"Short\"]}{\"data\" : [1, 2, true, 0.5, \"";
+    input.writeBytes(json.getBytes(Charsets.UTF_8));
+    Assert.assertArrayEquals(expected.toByteArray(),
+                             toByteArray((ChannelBuffer) jsonDecoder.decode(null, channel, input)));
+    Assert.assertFalse(closed.get());
+
+    //The connection is closed once an incomplete record exceeds the maximum length
+    input.writeBytes(Strings.repeat("x", 64).getBytes(Charsets.UTF_8));
+    Assert.assertNull(jsonDecoder.decode(null, channel, input));
+    Assert.assertTrue(closed.get());
+    Assert.assertFalse(input.readable());
+    Assert.assertEquals(1, droppedRecords.get());
+
+    closed.set(false);
+    BinaryRecordDecoder binaryDecoder = new BinaryRecordDecoder("binaryStream", schema, droppedRecords, 64);
+    ChannelBuffer buffer = ChannelBuffers.dynamicBuffer();
+    buffer.writeInt(1000);
+    Assert.assertNull(binaryDecoder.decode(null, channel, buffer));
+    Assert.assertTrue(closed.get());
+    Assert.assertFalse(buffer.readable());
+  }
+
+  /**
+   * Creates a {@link Channel} that only records whether it was closed.
+   */
+  private static Channel createChannel(final AtomicBoolean closed) {
+    return (Channel) Proxy.newProxyInstance(Channel.class.getClassLoader(), new Class<?>[] { Channel.class },
+                                            new InvocationHandler() {
+      @Override
+      public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.getName().equals("close")) {
+          closed.set(true);
+        }
+        return null;
+      }
+    });
+  }
+
+  private static void encode(ByteArrayOutputStream out, long timestamp, int intStream, boolean flag, double value,
+                             String str) throws IOException {
+    GDATEncoder encoder = new GDATEncoder();
+    encoder.writeLong(timestamp);
+    encoder.writeInt(intStream);
+    encoder.writeBool(flag);
+    encoder.writeDouble(value);
+    encoder.writeString(str);
+    encoder.writeTo(out);
+  }
+
+  private static void writeBinary(ByteArrayOutputStream out, long timestamp, int intStream, boolean flag,
+                                  double value, String str) throws IOException {
+    byte[] strBytes = str.getBytes(Charsets.UTF_8);
+    DataOutputStream dataOut = new DataOutputStream(out);
+    dataOut.writeInt(8 + 4 + 1 + 8 + 4 + strBytes.length);
+    dataOut.writeLong(timestamp);
+    dataOut.writeInt(intStream);
+    dataOut.writeBoolean(flag);
+    dataOut.writeDouble(value);
+    dataOut.writeInt(strBytes.length);
+    dataOut.write(strBytes);
+    dataOut.flush();
+  }
+
+  private static byte[] toByteArray(ChannelBuffer buffer) {
+    byte[] bytes = new byte[buffer.readableBytes()];
+    buffer.readBytes(bytes);
+    return bytes;
+  }
+}
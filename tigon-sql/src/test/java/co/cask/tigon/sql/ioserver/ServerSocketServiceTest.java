@@ -21,6 +21,7 @@ import co.cask.tigon.sql.flowlet.GDATFieldType;
 import co.cask.tigon.sql.flowlet.GDATRecordQueue;
 import co.cask.tigon.sql.flowlet.StreamSchema;
 import co.cask.tigon.sql.internal.StreamEngineSimulator;
+import co.cask.tigon.sql.internal.StreamInputHeader;
 import co.cask.tigon.sql.io.GDATEncoder;
 import org.jboss.netty.channel.ChannelFactory;
 import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
@@ -30,6 +31,12 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Arrays;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
@@ -91,4 +98,77 @@ public class ServerSocketServiceTest {
       outputSocketService.stopAndWait();
     }
   }
+
+  @Test
+  public void testFailover() throws Exception {
+    InputServerSocket inputSocketService = new InputServerSocket(factory, name, schema);
+    inputSocketService.startAndWait();
+    Socket activeSource = null;
+    Socket standbySource = null;
+    Socket restartedSource = null;
+    Socket ingestionClient = null;
+    try {
+      InetSocketAddress dataSource = inputSocketService.getSocketAddressMap().get(Constants.StreamIO.DATASOURCE);
+      byte[] header = new StreamInputHeader(name, schema).getStreamHeader().getBytes();
+      activeSource = connect(dataSource);
+      Assert.assertArrayEquals(header, read(activeSource, header.length));
+      standbySource = connect(dataSource);
+      Assert.assertArrayEquals(header, read(standbySource, header.length));
+
+      ingestionClient = connect(inputSocketService.getSocketAddressMap().get(Constants.StreamIO.TCP_DATA_INGESTION));
+      OutputStream ingestion = ingestionClient.getOutputStream();
+      byte[] records = createRecords(4);
+      ingestion.write(records);
+      ingestion.flush();
+      Assert.assertArrayEquals(records, read(activeSource, records.length));
+
+      //Standby channel takes over when the active channel disconnects
+      activeSource.close();
+      TimeUnit.SECONDS.sleep(1);
+      ingestion.write(records);
+      ingestion.flush();
+      Assert.assertArrayEquals(records, read(standbySource, records.length));
+
+      //Records are buffered while no channel is connected
+      standbySource.close();
+      TimeUnit.SECONDS.sleep(1);
+      ingestion.write(records);
+      ingestion.flush();
+      TimeUnit.SECONDS.sleep(1);
+      restartedSource = connect(dataSource);
+      Assert.assertArrayEquals(header, read(restartedSource, header.length));
+      Assert.assertArrayEquals(records, read(restartedSource, records.length));
+    } finally {
+      for (Socket socket : Arrays.asList(activeSource, standbySource, restartedSource, ingestionClient)) {
+        if (socket != null) {
+          socket.close();
+        }
+      }
+      inputSocketService.stopAndWait();
+    }
+  }
+
+  private static Socket connect(InetSocketAddress address) throws IOException {
+    Socket socket = new Socket("localhost", address.getPort());
+    socket.setSoTimeout(5000);
+    return socket;
+  }
+
+  private static byte[] read(Socket socket, int length) throws IOException {
+    byte[] bytes = new byte[length];
+    new DataInputStream(socket.getInputStream()).readFully(bytes);
+    return bytes;
+  }
+
+  private static byte[] createRecords(int count) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    for (int i = 0; i < count; i++) {
+      GDATEncoder encoder = new GDATEncoder();
+      encoder.writeInt(i);
+      encoder.writeInt(i * 2);
+      encoder.writeString("Record " + i);
+      encoder.writeTo(outputStream);
+    }
+    return outputStream.toByteArray();
+  }
 }
@@ -40,6 +40,7 @@ import java.net.URI;
 import java.net.URL;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * DiscoveryServerTest
@@ -84,6 +85,16 @@ public class DiscoveryServerTest {
       public void count(String counterName, int delta) {
         LOG.info("[METRICS] CounterName : {}\tValue last second : {}", counterName, delta);
       }
+
+      @Override
+      public void histogram(String histogramName, long value) {
+        // no-op
+      }
+
+      @Override
+      public void time(String timerName, long duration, TimeUnit unit) {
+        // no-op
+      }
     });
     discoveryServer = new DiscoveryServer(hubDataStore, inspector, metricsRecorder, new ProcessMonitor() {
       @Override
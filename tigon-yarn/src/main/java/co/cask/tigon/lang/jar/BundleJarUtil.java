@@ -25,6 +25,7 @@ import org.apache.twill.filesystem.Location;
 
 import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -157,6 +158,29 @@ public class BundleJarUtil {
     return destinationFolder;
   }
 
+  /**
+   * Unpacks the given jar file into the given folder.
+   *
+   * @param jarFile The jar file to unpack.
+   * @param destinationFolder Folder to unpack into. It is created if it doesn't exist.
+   * @return The destination folder.
+   * @throws IOException if failed to unpack the jar.
+   */
+  public static File unpackJar(File jarFile, File destinationFolder) throws IOException {
+    Preconditions.checkArgument(jarFile != null && jarFile.isFile());
+    Preconditions.checkArgument(destinationFolder != null);
+
+    destinationFolder.mkdirs();
+    Preconditions.checkState(destinationFolder.isDirectory());
+    ZipInputStream jarInputStream = new ZipInputStream(new BufferedInputStream(new FileInputStream(jarFile)));
+    try {
+      unJar(jarInputStream, destinationFolder);
+    } finally {
+      Closeables.closeQuietly(jarInputStream);
+    }
+    return destinationFolder;
+  }
+
   private static void unJar(ZipInputStream jarInputStream, File targetDirectory) throws IOException {
     ZipEntry entry;
     while ((entry = jarInputStream.getNextEntry()) != null) {
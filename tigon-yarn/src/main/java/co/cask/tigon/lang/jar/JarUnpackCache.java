@@ -0,0 +1,259 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.lang.jar;
+
+import com.google.common.base.Preconditions;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.google.common.primitives.Longs;
+import org.apache.commons.io.FileUtils;
+import org.apache.twill.common.Threads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A local cache of unpacked jars, keyed by the hash of the jar content. Starting a program from a jar that was
+ * unpacked before reuses the unpacked directory instead of unpacking the jar again.
+ *
+ * A jar is unpacked into a temporary directory, which is marked as complete and then renamed to its cache
+ * directory. Hence a cache directory is only visible once it is complete, and processes sharing the cache can
+ * unpack the same jar concurrently. Whenever a jar is unpacked, the least recently used directories beyond the
+ * maximum number of entries are removed, unless they were used within the grace period. A directory is renamed
+ * to a temporary name before it is deleted, so that it is never found partially deleted. The directories used by a
+ * process are touched more often than the grace period for as long as it runs, since a program may load classes
+ * from its directory at any time.
+ *
+ * As unpacked directories are trusted once marked as complete, the cache directory is made accessible by its owner
+ * only, and a cache directory that is owned by another user, or is a symbolic link, is refused.
+ */
+public final class JarUnpackCache {
+
+  private static final Logger LOG = LoggerFactory.getLogger(JarUnpackCache.class);
+  private static final String TEMP_PREFIX = ".unpack-";
+
+  /**
+   * Name of the file that marks an unpacked directory as complete.
+   */
+  static final String COMPLETE_MARKER = ".unpack-complete";
+
+  private static final FileFilter TEMP_DIR_FILTER = new FileFilter() {
+    @Override
+    public boolean accept(File file) {
+      return file.isDirectory() && file.getName().startsWith(TEMP_PREFIX);
+    }
+  };
+
+  private static final FileFilter CACHE_ENTRY_FILTER = new FileFilter() {
+    @Override
+    public boolean accept(File file) {
+      return file.isDirectory() && !file.getName().startsWith(TEMP_PREFIX);
+    }
+  };
+
+  private static final Comparator<File> LAST_MODIFIED_ORDER = new Comparator<File>() {
+    @Override
+    public int compare(File file1, File file2) {
+      return Longs.compare(file1.lastModified(), file2.lastModified());
+    }
+  };
+
+  private final File cacheDir;
+  private final int maxEntries;
+  private final long gracePeriodMillis;
+  private final Set<File> inUseDirs = new CopyOnWriteArraySet<File>();
+  private volatile boolean cacheDirChecked;
+  private ScheduledExecutorService toucher;
+
+  /**
+   * Creates a cache in the given directory.
+   *
+   * @param cacheDir Directory to keep the unpacked jars in. It is created if it doesn't exist.
+   * @param maxEntries Maximum number of unpacked jars to keep.
+   * @param gracePeriodMillis Time since the last use during which an unpacked jar is not removed, even if there are
+   *                          more than the maximum number of entries.
+   */
+  public JarUnpackCache(File cacheDir, int maxEntries, long gracePeriodMillis) {
+    Preconditions.checkArgument(maxEntries > 0, "Maximum number of entries must be > 0.");
+    Preconditions.checkArgument(gracePeriodMillis >= 0, "Grace period must be >= 0.");
+    this.cacheDir = cacheDir;
+    this.maxEntries = maxEntries;
+    this.gracePeriodMillis = gracePeriodMillis;
+  }
+
+  /**
+   * Returns the directory that contains the unpacked content of the given jar, unpacking it if it is not cached.
+   *
+   * @param jarFile The jar file.
+   * @return The directory of the unpacked jar.
+   * @throws IOException if failed to hash or unpack the jar, or if the cache directory is not owned by the user.
+   */
+  public File getUnpackedDir(File jarFile) throws IOException {
+    checkCacheDir();
+    long startTime = System.currentTimeMillis();
+    String hash = Files.hash(jarFile, Hashing.sha1()).toString();
+    File unpackedDir = new File(cacheDir, hash);
+
+    if (isComplete(unpackedDir)) {
+      // Mark as recently used
+      unpackedDir.setLastModified(System.currentTimeMillis());
+      keepInUse(unpackedDir);
+      LOG.debug("Using cached unpacked jar {} for {}, took {} ms",
+                unpackedDir, jarFile, System.currentTimeMillis() - startTime);
+      return unpackedDir;
+    }
+
+    if (unpackedDir.exists()) {
+      // Only left behind without the marker by a failure, so it is not in use
+      remove(unpackedDir);
+    }
+    File tempDir = new File(cacheDir, TEMP_PREFIX + hash + "-" + System.nanoTime());
+    try {
+      BundleJarUtil.unpackJar(jarFile, tempDir);
+      Files.touch(new File(tempDir, COMPLETE_MARKER));
+      if (!tempDir.renameTo(unpackedDir) && !isComplete(unpackedDir)) {
+        throw new IOException("Failed to move unpacked jar " + tempDir + " to " + unpackedDir);
+      }
+      // If the rename failed, the same jar was published concurrently.
+    } finally {
+      if (tempDir.exists()) {
+        FileUtils.deleteDirectory(tempDir);
+      }
+    }
+    LOG.info("Unpacked jar {} to {}, took {} ms", jarFile, unpackedDir, System.currentTimeMillis() - startTime);
+
+    keepInUse(unpackedDir);
+    removeLeastRecentlyUsed(unpackedDir);
+    return unpackedDir;
+  }
+
+  /**
+   * Creates the cache directory if it doesn't exist, and makes it accessible by its owner only. Only the owner of a
+   * directory can change its permissions, hence this fails for a directory created by another user.
+   */
+  private void checkCacheDir() throws IOException {
+    if (cacheDirChecked) {
+      return;
+    }
+    if (!cacheDir.mkdirs() && !cacheDir.isDirectory()) {
+      throw new IOException("Failed to create jar unpack cache directory " + cacheDir);
+    }
+    File parentDir = cacheDir.getAbsoluteFile().getParentFile().getCanonicalFile();
+    if (!new File(parentDir, cacheDir.getName()).equals(cacheDir.getCanonicalFile())) {
+      throw new IOException("Jar unpack cache directory " + cacheDir + " must not be a symbolic link");
+    }
+    if (!(cacheDir.setReadable(false, false) && cacheDir.setReadable(true, true)
+      && cacheDir.setWritable(false, false) && cacheDir.setWritable(true, true)
+      && cacheDir.setExecutable(false, false) && cacheDir.setExecutable(true, true))) {
+      throw new IOException("Jar unpack cache directory " + cacheDir + " is not owned by the current user");
+    }
+    cacheDirChecked = true;
+  }
+
+  /**
+   * Keeps an unpacked directory from being removed by any process sharing the cache for as long as this process
+   * runs, by touching it periodically within the grace period.
+   */
+  private synchronized void keepInUse(File dir) {
+    inUseDirs.add(dir);
+    if (toucher != null || gracePeriodMillis == 0) {
+      return;
+    }
+    long interval = Math.max(1L, gracePeriodMillis / 2);
+    toucher = Executors.newSingleThreadScheduledExecutor(Threads.createDaemonThreadFactory("jar-unpack-cache-toucher"));
+    toucher.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        for (File inUseDir : inUseDirs) {
+          if (inUseDir.isDirectory()) {
+            inUseDir.setLastModified(System.currentTimeMillis());
+          }
+        }
+      }
+    }, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  private boolean isComplete(File dir) {
+    return new File(dir, COMPLETE_MARKER).isFile();
+  }
+
+  /**
+   * Removes a directory from the cache by renaming it to a temporary directory first, and then deleting it.
+   *
+   * @return {@code true} if the directory was removed, {@code false} if it was removed or replaced concurrently.
+   */
+  private boolean remove(File dir) throws IOException {
+    File removedDir = new File(cacheDir, TEMP_PREFIX + dir.getName() + "-" + System.nanoTime());
+    if (!dir.renameTo(removedDir)) {
+      return false;
+    }
+    FileUtils.deleteDirectory(removedDir);
+    return true;
+  }
+
+  private void removeLeastRecentlyUsed(File inUse) {
+    long expireTime = System.currentTimeMillis() - gracePeriodMillis;
+
+    // Temporary directories older than the grace period are left behind by processes that died
+    File[] tempDirs = cacheDir.listFiles(TEMP_DIR_FILTER);
+    if (tempDirs != null) {
+      for (File tempDir : tempDirs) {
+        if (tempDir.lastModified() < expireTime) {
+          try {
+            FileUtils.deleteDirectory(tempDir);
+          } catch (IOException e) {
+            LOG.warn("Failed to remove temporary directory {} from cache", tempDir, e);
+          }
+        }
+      }
+    }
+
+    File[] entries = cacheDir.listFiles(CACHE_ENTRY_FILTER);
+    if (entries == null || entries.length <= maxEntries) {
+      return;
+    }
+    Arrays.sort(entries, LAST_MODIFIED_ORDER);
+    for (int i = 0; i < entries.length - maxEntries; i++) {
+      if (entries[i].lastModified() >= expireTime) {
+        // This and all the following ones are used within the grace period
+        LOG.debug("Keeping {} unpacked jars used within the last {} ms in cache",
+                  entries.length - i, gracePeriodMillis);
+        break;
+      }
+      if (entries[i].equals(inUse)) {
+        continue;
+      }
+      try {
+        if (remove(entries[i])) {
+          LOG.debug("Removed unpacked jar {} from cache", entries[i]);
+        }
+      } catch (IOException e) {
+        LOG.warn("Failed to remove unpacked jar {} from cache", entries[i], e);
+      }
+    }
+  }
+}
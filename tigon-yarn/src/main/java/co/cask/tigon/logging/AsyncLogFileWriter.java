@@ -0,0 +1,283 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.logging;
+
+import com.google.common.collect.Lists;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A {@link LogFileWriter} that hands events to a bounded buffer which is drained by a background thread.
+ * Events are formatted and written by that thread, and the file is flushed once per group of events
+ * (when enough bytes are pending or the flush interval expires) instead of once per event.
+ * When the buffer is full, the caller blocks by default. If configured to drop events instead, the number of
+ * dropped events is logged as a warning at most once per {@link #DROP_REPORT_INTERVAL_MS}, and when closed.
+ * Once closed, events are rejected, so that none is left in the buffer after the writer stopped.
+ */
+public class AsyncLogFileWriter extends LogFileWriter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AsyncLogFileWriter.class);
+
+  // maximum number of events taken from the buffer at once
+  private static final int MAX_DRAIN = 256;
+
+  // minimum time between two warnings about dropped events
+  static final long DROP_REPORT_INTERVAL_MS = 10000;
+
+  private final AtomicLong dropped = new AtomicLong();
+  // held shared while adding to the buffer and exclusively while closing, so nothing is added after the close marker
+  private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+  private BlockingQueue<LogEvent> buffer;
+  private Thread writerThread;
+  private boolean closed;
+
+  @Override
+  public void configure(LogConfiguration config) throws IOException {
+    super.configure(config);
+    buffer = new ArrayBlockingQueue<LogEvent>(config.getBufferSize());
+    writerThread = new Thread(new Writer(), "log-writer-" + config.getLogFilePath());
+    writerThread.setDaemon(true);
+    writerThread.start();
+  }
+
+  @Override
+  public void log(LogEvent event) throws IOException {
+    closeLock.readLock().lock();
+    try {
+      if (closed) {
+        throw new IOException("Log writer for " + config.getLogFilePath() + " is closed");
+      }
+      if (config.isBlockWhenFull()) {
+        enqueue(event);
+      } else if (!buffer.offer(event)) {
+        dropped.incrementAndGet();
+      }
+    } finally {
+      closeLock.readLock().unlock();
+    }
+  }
+
+  /**
+   * Blocks until all events logged before this call are written and flushed to the file.
+   */
+  public void flush() throws IOException {
+    Marker marker = new Marker(false);
+    closeLock.readLock().lock();
+    try {
+      if (closed) {
+        // close() already flushed everything that was logged
+        return;
+      }
+      enqueue(marker);
+    } finally {
+      closeLock.readLock().unlock();
+    }
+    marker.await();
+  }
+
+  @Override
+  public void close() throws IOException {
+    Marker marker = new Marker(true);
+    closeLock.writeLock().lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      enqueue(marker);
+    } finally {
+      closeLock.writeLock().unlock();
+    }
+    marker.await();
+    try {
+      writerThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for log writer to stop");
+    }
+    super.close();
+  }
+
+  /**
+   * @return number of events dropped because the buffer was full
+   */
+  public long getDroppedCount() {
+    return dropped.get();
+  }
+
+  private void enqueue(LogEvent event) throws IOException {
+    try {
+      buffer.put(event);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for space in the log buffer");
+    }
+  }
+
+  /**
+   * Drains the buffer, writing events in groups and flushing by size or time.
+   */
+  private final class Writer implements Runnable {
+
+    private final List<LogEvent> events = Lists.newArrayListWithCapacity(MAX_DRAIN);
+    private long reportedDropped;
+    private long lastDropReport;
+    private long pendingBytes;
+    // time when the oldest unflushed event was written
+    private long pendingSince;
+
+    @Override
+    public void run() {
+      boolean running = true;
+      while (running) {
+        try {
+          LogEvent event = buffer.poll(getPollTimeout(), TimeUnit.MILLISECONDS);
+          if (event != null) {
+            events.add(event);
+            buffer.drainTo(events, MAX_DRAIN - 1);
+          }
+          running = process();
+        } catch (InterruptedException e) {
+          // keep draining until close() is called
+          LOG.debug("Log writer for {} interrupted", config.getLogFilePath());
+        } finally {
+          events.clear();
+        }
+      }
+    }
+
+    private long getPollTimeout() {
+      if (pendingBytes == 0) {
+        return config.getFlushIntervalMs();
+      }
+      return Math.max(0, pendingSince + config.getFlushIntervalMs() - System.currentTimeMillis());
+    }
+
+    /**
+     * Writes the drained events and flushes if needed.
+     *
+     * @return false if the writer should stop
+     */
+    private boolean process() {
+      boolean running = true;
+      try {
+        for (LogEvent event : events) {
+          if (event instanceof Marker) {
+            flush();
+            running = !((Marker) event).isClose();
+            if (!running) {
+              reportDropped(true);
+            }
+            ((Marker) event).release();
+            continue;
+          }
+          if (pendingBytes == 0) {
+            pendingSince = System.currentTimeMillis();
+          }
+          pendingBytes += writeMessage(formatMessage(event));
+          if (rollIfNeeded()) {
+            // rolling closes the file, which also flushes it
+            pendingBytes = 0;
+          }
+        }
+        if (pendingBytes >= config.getFlushSize()
+          || (pendingBytes > 0 && System.currentTimeMillis() - pendingSince >= config.getFlushIntervalMs())) {
+          flush();
+        }
+      } catch (Exception e) {
+        // in case of error, log the error in the system log; the pending events are lost
+        LOG.warn("Failed to write log events to {}: {}", config.getLogFilePath(), e.getMessage(), e);
+        pendingBytes = 0;
+        for (LogEvent event : events) {
+          if (event instanceof Marker) {
+            if (((Marker) event).isClose()) {
+              reportDropped(true);
+              running = false;
+            }
+            ((Marker) event).release();
+          }
+        }
+      }
+      reportDropped(false);
+      return running;
+    }
+
+    private void flush() throws IOException {
+      if (pendingBytes > 0) {
+        flushFile();
+        pendingBytes = 0;
+      }
+    }
+
+    private void reportDropped(boolean force) {
+      long count = dropped.get();
+      if (count == reportedDropped) {
+        return;
+      }
+      long now = System.currentTimeMillis();
+      if (force || now - lastDropReport >= DROP_REPORT_INTERVAL_MS) {
+        LOG.warn("Dropped {} log events for {} because the log buffer was full, {} in total",
+                 count - reportedDropped, config.getLogFilePath(), count);
+        reportedDropped = count;
+        lastDropReport = now;
+      }
+    }
+  }
+
+  /**
+   * Placed in the buffer to have the writer flush, and optionally stop.
+   */
+  private static final class Marker extends LogEvent {
+
+    private final boolean close;
+    private final CountDownLatch latch = new CountDownLatch(1);
+
+    Marker(boolean close) {
+      super(null, null, null);
+      this.close = close;
+    }
+
+    boolean isClose() {
+      return close;
+    }
+
+    void release() {
+      latch.countDown();
+    }
+
+    void await() throws IOException {
+      try {
+        latch.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for log writer to flush");
+      }
+    }
+  }
+}
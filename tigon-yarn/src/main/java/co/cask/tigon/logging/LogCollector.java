@@ -95,7 +95,7 @@ public class LogCollector {
           LogConfiguration conf = new
               LogConfiguration(getFileSystem(), config, this.pathPrefix, tag);
           // create a new log writer
-          logger = new LogFileWriter();
+          logger = conf.isAsync() ? new AsyncLogFileWriter() : new LogFileWriter();
           logger.configure(conf);
           // remember this logger in the map
           loggers.put(tag, logger);
@@ -113,6 +113,10 @@ public class LogCollector {
     // TODO horrible! what worth is the FileSystem abstraction then?
     // for local fs when we started appending writer counts only whatever written by it, so writer.getWritePosition()
     // is misleading
+    if (writer instanceof AsyncLogFileWriter) {
+      // make sure everything logged so far is visible to the reader
+      ((AsyncLogFileWriter) writer).flush();
+    }
     if (writer != null && !(fs instanceof RawLocalFileSystem)) {
       sizeHint = writer.getWritePosition();
     }
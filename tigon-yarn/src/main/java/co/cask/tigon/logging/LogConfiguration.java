@@ -34,6 +34,11 @@ public class LogConfiguration {
   private final FileSystem fs;
   private final long threshold;
   private final int instances;
+  private final boolean async;
+  private final int bufferSize;
+  private final boolean blockWhenFull;
+  private final long flushIntervalMs;
+  private final int flushSize;
 
 
   public static final String CFG_ROLL_THRESHOLD = "logfile.roll.size";
@@ -42,6 +47,21 @@ public class LogConfiguration {
   public static final long DEFAULT_ROLL_THRESHOLD = 4 * 1024 * 1024; // 4MB
   public static final int  DEFAULT_ROLL_INSTANCES = 5; // .log, log.1, ... log.4
 
+  public static final String CFG_ASYNC = "logfile.async";
+  public static final String CFG_ASYNC_BUFFER_SIZE = "logfile.async.buffer.size";
+  public static final String CFG_ASYNC_OVERFLOW_POLICY = "logfile.async.overflow.policy";
+  public static final String CFG_ASYNC_FLUSH_INTERVAL_MS = "logfile.async.flush.interval.ms";
+  public static final String CFG_ASYNC_FLUSH_SIZE = "logfile.async.flush.size";
+
+  public static final String OVERFLOW_POLICY_DROP = "drop";
+  public static final String OVERFLOW_POLICY_BLOCK = "block";
+
+  public static final boolean DEFAULT_ASYNC = true;
+  public static final int DEFAULT_ASYNC_BUFFER_SIZE = 8192; // events
+  public static final String DEFAULT_ASYNC_OVERFLOW_POLICY = OVERFLOW_POLICY_BLOCK;
+  public static final long DEFAULT_ASYNC_FLUSH_INTERVAL_MS = 200;
+  public static final int DEFAULT_ASYNC_FLUSH_SIZE = 64 * 1024; // 64KB
+
   public LogConfiguration(FileSystem fs,
                           CConfiguration config,
                           String pathPrefix,
@@ -62,6 +82,20 @@ public class LogConfiguration {
 
     this.threshold = config.getLong(CFG_ROLL_THRESHOLD, DEFAULT_ROLL_THRESHOLD);
     this.instances = config.getInt(CFG_ROLL_INSTANCES, DEFAULT_ROLL_INSTANCES);
+
+    this.async = config.getBoolean(CFG_ASYNC, DEFAULT_ASYNC);
+    this.bufferSize = config.getInt(CFG_ASYNC_BUFFER_SIZE, DEFAULT_ASYNC_BUFFER_SIZE);
+    String policy = config.get(CFG_ASYNC_OVERFLOW_POLICY, DEFAULT_ASYNC_OVERFLOW_POLICY);
+    if (OVERFLOW_POLICY_BLOCK.equalsIgnoreCase(policy)) {
+      this.blockWhenFull = true;
+    } else if (OVERFLOW_POLICY_DROP.equalsIgnoreCase(policy)) {
+      this.blockWhenFull = false;
+    } else {
+      throw new IOException("Invalid value '" + policy + "' for " + CFG_ASYNC_OVERFLOW_POLICY +
+                              ", expected '" + OVERFLOW_POLICY_DROP + "' or '" + OVERFLOW_POLICY_BLOCK + "'");
+    }
+    this.flushIntervalMs = config.getLong(CFG_ASYNC_FLUSH_INTERVAL_MS, DEFAULT_ASYNC_FLUSH_INTERVAL_MS);
+    this.flushSize = config.getInt(CFG_ASYNC_FLUSH_SIZE, DEFAULT_ASYNC_FLUSH_SIZE);
   }
 
   public FileSystem getFileSystem() {
@@ -83,4 +117,39 @@ public class LogConfiguration {
   public int getMaxInstances() {
     return this.instances;
   }
+
+  /**
+   * @return whether events are handed off to a background writer thread instead of being written by the caller
+   */
+  public boolean isAsync() {
+    return this.async;
+  }
+
+  /**
+   * @return maximum number of events buffered by the async writer
+   */
+  public int getBufferSize() {
+    return this.bufferSize;
+  }
+
+  /**
+   * @return true if logging blocks while the async buffer is full, false if the event is dropped
+   */
+  public boolean isBlockWhenFull() {
+    return this.blockWhenFull;
+  }
+
+  /**
+   * @return maximum time in milliseconds an event written by the async writer stays unflushed
+   */
+  public long getFlushIntervalMs() {
+    return this.flushIntervalMs;
+  }
+
+  /**
+   * @return number of unflushed bytes after which the async writer flushes
+   */
+  public int getFlushSize() {
+    return this.flushSize;
+  }
 }
@@ -33,6 +33,8 @@ public class LogFileWriter implements LogWriter {
   LogConfiguration config;
   FileSystem fileSystem;
   private FSDataOutputStream out;
+  // byte position in the current file, tracked on write to avoid querying the stream for every event
+  private volatile long position;
 
   @Override
   public void configure(LogConfiguration config) throws IOException {
@@ -52,14 +54,25 @@ public class LogFileWriter implements LogWriter {
       // append message to current file
       persistMessage(formatMessage(event));
       // if necessary, rotate the log
-      // - check size of current file, if exceeds:
-      if (getCurrentFileSize() > config.getSizeThreshold()) {
-        // roll the existing log files
-        roll();
-        // - open a new file
-        openFileForWrite(config.getLogFilePath(), makeFileName(0));
-      }
+      rollIfNeeded();
+    }
+  }
+
+  /**
+   * Rolls the log files if the size of the current file exceeds the threshold.
+   *
+   * @return true if the log was rolled
+   */
+  boolean rollIfNeeded() throws IOException {
+    // - check size of current file, if exceeds:
+    if (getCurrentFileSize() > config.getSizeThreshold()) {
+      // roll the existing log files
+      roll();
+      // - open a new file
+      openFileForWrite(config.getLogFilePath(), makeFileName(0));
+      return true;
     }
+    return false;
   }
 
   private void roll() throws IOException {
@@ -81,8 +94,8 @@ public class LogFileWriter implements LogWriter {
   }
 
   String formatMessage(LogEvent event) {
-      return String.format("%s [%s] %s", event.getTag(),
-          event.getLevel(), event.getMessage());
+    return new StringBuilder(event.getTag()).append(" [").append(event.getLevel()).append("] ")
+      .append(event.getMessage()).toString();
   }
 
   String makeFileName(int instance) {
@@ -104,6 +117,7 @@ public class LogFileWriter implements LogWriter {
     } else {
       out = fileSystem.append(filePath);
     }
+    position = out.getPos();
   }
 
   void closeFile() throws IOException {
@@ -117,19 +131,38 @@ public class LogFileWriter implements LogWriter {
 
   void persistMessage(String message) throws IOException {
     synchronized (this) {
-      out.write(message.getBytes(CHARSET_UTF8));
-      out.write('\n');
-      out.hflush();
+      writeMessage(message);
+      flushFile();
     }
   }
 
+  /**
+   * Writes a message to the current file without flushing it.
+   *
+   * @return number of bytes written
+   */
+  int writeMessage(String message) throws IOException {
+    byte[] bytes = message.getBytes(CHARSET_UTF8);
+    out.write(bytes);
+    out.write('\n');
+    position += bytes.length + 1;
+    return bytes.length + 1;
+  }
+
+  /**
+   * Makes everything written to the current file visible to readers.
+   */
+  void flushFile() throws IOException {
+    out.hflush();
+  }
+
   @Override
   public long getWritePosition() throws IOException {
     return getCurrentFileSize();
   }
 
   long getCurrentFileSize() throws IOException {
-    return out.getPos();
+    return position;
   }
 
   void deleteFile(String path, String name) throws IOException {
@@ -0,0 +1,162 @@
+/*
+ * Copyright © 2014 Cask Data, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package co.cask.tigon.lang.jar;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+/**
+ * Tests for {@link JarUnpackCache}.
+ */
+public class JarUnpackCacheTest {
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  @Test
+  public void testReuse() throws IOException {
+    JarUnpackCache cache = new JarUnpackCache(new File(tmpFolder.getRoot(), "cache"), 10, 0L);
+    File jar = createJar("a.jar", "content");
+    File unpackedDir = cache.getUnpackedDir(jar);
+    Assert.assertEquals("content", Files.toString(new File(unpackedDir, "dir/file.txt"), Charsets.UTF_8));
+
+    // The same content in a different jar file maps to the same directory
+    Assert.assertEquals(unpackedDir, cache.getUnpackedDir(createJar("b.jar", "content")));
+    Assert.assertNotEquals(unpackedDir, cache.getUnpackedDir(createJar("c.jar", "other content")));
+
+    // No temporary directory is left behind
+    Assert.assertEquals(2, unpackedDir.getParentFile().list().length);
+  }
+
+  @Test
+  public void testRemoveLeastRecentlyUsed() throws IOException {
+    JarUnpackCache cache = new JarUnpackCache(new File(tmpFolder.getRoot(), "cache"), 2, 5000L);
+    File dir1 = cache.getUnpackedDir(createJar("1.jar", "1"));
+    File dir2 = cache.getUnpackedDir(createJar("2.jar", "2"));
+    Assert.assertTrue(dir1.setLastModified(System.currentTimeMillis() - 20000));
+    Assert.assertTrue(dir2.setLastModified(System.currentTimeMillis() - 10000));
+
+    // Using the first one makes the second one the least recently used
+    Assert.assertEquals(dir1, cache.getUnpackedDir(createJar("1.jar", "1")));
+    File dir3 = cache.getUnpackedDir(createJar("3.jar", "3"));
+
+    Assert.assertTrue(dir1.isDirectory());
+    Assert.assertFalse(dir2.exists());
+    Assert.assertTrue(dir3.isDirectory());
+  }
+
+  @Test
+  public void testGracePeriod() throws IOException {
+    JarUnpackCache cache = new JarUnpackCache(new File(tmpFolder.getRoot(), "cache"), 1, 3600000L);
+    File dir1 = cache.getUnpackedDir(createJar("1.jar", "1"));
+    File dir2 = cache.getUnpackedDir(createJar("2.jar", "2"));
+
+    // Both are used within the grace period
+    Assert.assertTrue(dir1.isDirectory());
+    Assert.assertTrue(dir2.isDirectory());
+
+    // Once the first one is older than the grace period, it is removed
+    Assert.assertTrue(dir1.setLastModified(System.currentTimeMillis() - 7200000L));
+    File dir3 = cache.getUnpackedDir(createJar("3.jar", "3"));
+    Assert.assertFalse(dir1.exists());
+    Assert.assertTrue(dir2.isDirectory());
+    Assert.assertTrue(dir3.isDirectory());
+
+    // No temporary directory is left behind by the removal
+    Assert.assertEquals(2, dir3.getParentFile().list().length);
+  }
+
+  @Test
+  public void testKeepInUse() throws Exception {
+    JarUnpackCache cache = new JarUnpackCache(new File(tmpFolder.getRoot(), "cache"), 1, 2000L);
+    File dir1 = cache.getUnpackedDir(createJar("1.jar", "1"));
+    long expired = System.currentTimeMillis() - 10000L;
+    Assert.assertTrue(dir1.setLastModified(expired));
+
+    // A directory in use is touched within the grace period, so another process sharing the cache keeps it
+    long timeout = System.currentTimeMillis() + 10000L;
+    while (dir1.lastModified() == expired && System.currentTimeMillis() < timeout) {
+      TimeUnit.MILLISECONDS.sleep(100);
+    }
+    JarUnpackCache otherCache = new JarUnpackCache(new File(tmpFolder.getRoot(), "cache"), 1, 2000L);
+    File dir2 = otherCache.getUnpackedDir(createJar("2.jar", "2"));
+    Assert.assertTrue(dir1.isDirectory());
+    Assert.assertTrue(dir2.isDirectory());
+  }
+
+  @Test
+  public void testOwnerOnly() throws IOException {
+    File cacheDir = new File(tmpFolder.getRoot(), "cache");
+    Assert.assertTrue(cacheDir.mkdirs());
+    Assert.assertTrue(cacheDir.setReadable(true, false));
+    Assert.assertTrue(cacheDir.setWritable(true, false));
+
+    // An existing cache directory owned by the user is restricted to the owner
+    File unpackedDir = new JarUnpackCache(cacheDir, 10, 0L).getUnpackedDir(createJar("a.jar", "content"));
+    Assert.assertEquals(cacheDir, unpackedDir.getParentFile());
+    Assert.assertTrue(cacheDir.canRead() && cacheDir.canWrite() && cacheDir.canExecute());
+  }
+
+  @Test
+  public void testIncompleteEntry() throws IOException {
+    JarUnpackCache cache = new JarUnpackCache(new File(tmpFolder.getRoot(), "cache"), 10, 0L);
+    File jar = createJar("a.jar", "content");
+    File unpackedDir = cache.getUnpackedDir(jar);
+
+    // A directory without the completion marker is unpacked again
+    Assert.assertTrue(new File(unpackedDir, JarUnpackCache.COMPLETE_MARKER).delete());
+    Assert.assertTrue(new File(unpackedDir, "dir/file.txt").delete());
+
+    Assert.assertEquals(unpackedDir, cache.getUnpackedDir(jar));
+    Assert.assertEquals("content", Files.toString(new File(unpackedDir, "dir/file.txt"), Charsets.UTF_8));
+    Assert.assertTrue(new File(unpackedDir, JarUnpackCache.COMPLETE_MARKER).isFile());
+    Assert.assertEquals(1, unpackedDir.getParentFile().list().length);
+  }
+
+  private File createJar(String name, String content) throws IOException {
+    File jarFile = new File(tmpFolder.getRoot(), name);
+    JarOutputStream output = new JarOutputStream(new FileOutputStream(jarFile));
+    try {
+      output.putNextEntry(createEntry("dir/"));
+      output.closeEntry();
+      output.putNextEntry(createEntry("dir/file.txt"));
+      output.write(content.getBytes(Charsets.UTF_8));
+      output.closeEntry();
+    } finally {
+      output.close();
+    }
+    return jarFile;
+  }
+
+  private JarEntry createEntry(String name) {
+    // Fixed time, so that jars with the same entries have the same content
+    JarEntry entry = new JarEntry(name);
+    entry.setTime(0L);
+    return entry;
+  }
+}
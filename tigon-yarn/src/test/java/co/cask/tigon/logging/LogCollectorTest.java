@@ -18,7 +18,11 @@ package co.cask.tigon.logging;
 
 import co.cask.tigon.conf.CConfiguration;
 import co.cask.tigon.conf.Constants;
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+import com.google.common.io.Files;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
 import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
@@ -27,6 +31,8 @@ import org.junit.rules.TemporaryFolder;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class LogCollectorTest {
 
@@ -151,4 +157,122 @@ public class LogCollectorTest {
     Configuration hConf = new Configuration();
     testCollection(config, hConf);
   }
+
+  @Test
+  public void testCollectionLocalFSSync() throws IOException {
+    File prefix = tempFolder.newFolder();
+
+    CConfiguration config = CConfiguration.create();
+    config.set(Constants.CFG_LOG_COLLECTION_ROOT, prefix.getAbsolutePath());
+    config.setBoolean(LogConfiguration.CFG_ASYNC, false);
+
+    Configuration hConf = new Configuration();
+    testCollection(config, hConf);
+  }
+
+  @Test
+  public void testCollectionLocalFSAsyncBlocking() throws IOException {
+    File prefix = tempFolder.newFolder();
+
+    // a buffer of one event forces the logging thread to wait for the writer on almost every event
+    CConfiguration config = CConfiguration.create();
+    config.set(Constants.CFG_LOG_COLLECTION_ROOT, prefix.getAbsolutePath());
+    config.setInt(LogConfiguration.CFG_ASYNC_BUFFER_SIZE, 1);
+    config.set(LogConfiguration.CFG_ASYNC_OVERFLOW_POLICY, LogConfiguration.OVERFLOW_POLICY_BLOCK);
+
+    Configuration hConf = new Configuration();
+    testCollection(config, hConf);
+  }
+
+  @Test
+  public void testAsyncDropping() throws IOException {
+    File prefix = tempFolder.newFolder();
+
+    // a buffer of one event makes the logging thread drop events whenever the writer is behind
+    CConfiguration config = CConfiguration.create();
+    config.setInt(LogConfiguration.CFG_ASYNC_BUFFER_SIZE, 1);
+    config.set(LogConfiguration.CFG_ASYNC_OVERFLOW_POLICY, LogConfiguration.OVERFLOW_POLICY_DROP);
+
+    Configuration hConf = new Configuration();
+    LogConfiguration logConfig = new LogConfiguration(FileSystem.getLocal(hConf), config,
+                                                      prefix.getAbsolutePath(), "a:b:c");
+    Assert.assertFalse(logConfig.isBlockWhenFull());
+
+    AsyncLogFileWriter writer = new AsyncLogFileWriter();
+    writer.configure(logConfig);
+    int count = 10000;
+    for (int i = 0; i < count; i++) {
+      writer.log(new LogEvent("a:b:c", "ERROR", makeMessage(i)));
+    }
+    writer.close();
+
+    // every event is either written or counted as dropped, and the written ones are in order
+    List<String> lines = Files.readLines(new File(logConfig.getLogFilePath(), logConfig.getLogFileName()),
+                                         Charsets.UTF_8);
+    Assert.assertEquals(count, lines.size() + writer.getDroppedCount());
+    int last = -1;
+    for (String line : lines) {
+      int i = Integer.parseInt(line.substring(line.length() - 6, line.length() - 1).trim());
+      Assert.assertTrue(i > last);
+      last = i;
+    }
+  }
+
+  @Test
+  public void testAsyncLogRacingClose() throws Exception {
+    File prefix = tempFolder.newFolder();
+
+    CConfiguration config = CConfiguration.create();
+    config.setInt(LogConfiguration.CFG_ASYNC_BUFFER_SIZE, 16);
+    LogConfiguration logConfig = new LogConfiguration(FileSystem.getLocal(new Configuration()), config,
+                                                      prefix.getAbsolutePath(), "a:b:c");
+    final AsyncLogFileWriter writer = new AsyncLogFileWriter();
+    writer.configure(logConfig);
+
+    // log from several threads while the writer is closed; every event must be either written or rejected
+    final AtomicInteger accepted = new AtomicInteger();
+    final CountDownLatch started = new CountDownLatch(4);
+    List<Thread> threads = Lists.newArrayList();
+    for (int t = 0; t < 4; t++) {
+      Thread thread = new Thread() {
+        @Override
+        public void run() {
+          started.countDown();
+          for (int i = 0; i < 10000; i++) {
+            try {
+              writer.log(new LogEvent("a:b:c", "ERROR", makeMessage(i)));
+              accepted.incrementAndGet();
+            } catch (IOException e) {
+              return;
+            }
+          }
+        }
+      };
+      thread.start();
+      threads.add(thread);
+    }
+    started.await();
+    writer.close();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    try {
+      writer.log(new LogEvent("a:b:c", "ERROR", makeMessage(0)));
+      Assert.fail("Expected the closed writer to reject the event");
+    } catch (IOException e) {
+      // expected
+    }
+    List<String> lines = Files.readLines(new File(logConfig.getLogFilePath(), logConfig.getLogFileName()),
+                                         Charsets.UTF_8);
+    Assert.assertEquals(accepted.get(), lines.size());
+  }
+
+  @Test
+  public void testBlockingIsDefault() throws IOException {
+    CConfiguration config = CConfiguration.create();
+    LogConfiguration logConfig = new LogConfiguration(FileSystem.getLocal(new Configuration()), config,
+                                                      tempFolder.newFolder().getAbsolutePath(), "a:b:c");
+    Assert.assertTrue(logConfig.isBlockWhenFull());
+  }
 }